@@ -747,6 +747,7 @@ COMMA:               ',';
 SEMICOLON:           ';';
 COLON:               ':';
 STAR:                '*';
+QUESTION:            '?';
 DIVIDE:              '/';
 MODULE:              '%';
 PLUS:                '+';
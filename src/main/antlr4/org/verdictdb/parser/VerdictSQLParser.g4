@@ -65,6 +65,7 @@ verdict_statement
 //WITH SIZE size=(FLOAT | DECIMAL) '%' (STORE poission_cols=DECIMAL POISSON COLUMNS)? (STRATIFIED BY column_name (',' column_name)*)?
 create_scramble_statement
     : CREATE SCRAMBLE scrambled_table=table_name FROM original_table=table_name
+      as_table_alias? join_part*
       (METHOD scrambling_method_name)? 
       (SIZE percent=(FLOAT | DECIMAL) '%')?
     ;
@@ -288,6 +289,7 @@ expression
     | LOCAL_ID                                                 #primitive_expression
     | constant                                                 #primitive_expression
     | true_orfalse                                             #primitive_expression
+    | '?'                                                      #parameter_expression
     | case_expr                                                #case_expression
     | full_column_name                                         #column_ref_expression
     | '(' expression ')'                                       #bracket_expression
@@ -21,13 +21,20 @@ import org.verdictdb.connection.CachedDbmsConnection;
 import org.verdictdb.connection.DbmsConnection;
 import org.verdictdb.connection.JdbcConnection;
 import org.verdictdb.coordinator.ExecutionContext;
+import org.verdictdb.coordinator.QueryPlanCache;
+import org.verdictdb.coordinator.QueryResultCache;
 import org.verdictdb.coordinator.VerdictResultStream;
 import org.verdictdb.coordinator.VerdictSingleResult;
 import org.verdictdb.exception.VerdictDBDbmsException;
 import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.metastore.CachedScrambleMetaStore;
+import org.verdictdb.metastore.LocalScrambleMetaStore;
+import org.verdictdb.metastore.ScrambleMetaStore;
+import org.verdictdb.metastore.VerdictMetaStore;
 import org.verdictdb.sqlsyntax.SqlSyntax;
 import org.verdictdb.sqlsyntax.SqlSyntaxList;
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
@@ -35,6 +42,7 @@ import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 public class VerdictContext {
 
@@ -42,6 +50,15 @@ public class VerdictContext {
 
   private final String contextId;
 
+  /** The scramble metadata shared by all the queries processed in this context. */
+  private CachedScrambleMetaStore scrambleMetaStore;
+
+  /** The compiled plans of the select queries processed in this context. */
+  private QueryPlanCache planCache = new QueryPlanCache();
+
+  /** The answers to the select queries processed in this context; null if not cached. */
+  private QueryResultCache resultCache;
+
   private long executionSerialNumber = 0;
 
   /**
@@ -49,10 +66,57 @@ public class VerdictContext {
    */
   private List<ExecutionContext> executionContexts = new LinkedList<>();
 
+  /**
+   * The connection property for the path to a local metastore file. If set, the scramble metadata
+   * is read from the file instead of the DBMS; the file is kept synchronized with the DBMS.
+   */
+  public static final String LOCAL_METASTORE_PROPERTY = "verdictdbLocalMetaStore";
+
+  /**
+   * The connection property for the time (in seconds) for which the answers to select queries are
+   * cached. If not set, the answers are not cached.
+   */
+  public static final String RESULT_CACHE_TTL_PROPERTY = "verdictdbResultCacheTtl";
+
+  /**
+   * The connection property for the time (in seconds) after which the cached scramble metadata is
+   * reloaded to pick up the scrambles created by other processes. If not positive, the metadata is
+   * reloaded only when it is changed through this context. Defaults to
+   * CachedScrambleMetaStore.DEFAULT_TTL_SECONDS.
+   */
+  public static final String SCRAMBLE_META_TTL_PROPERTY = "verdictdbScrambleMetaTtl";
+
+  /**
+   * The connection property that turns on streaming results if set to "true". The queries of a
+   * plan then return their first rows without waiting for their entire results; see
+   * StreamingJdbcQueryResult for the settings some drivers additionally require. Disabled by
+   * default.
+   */
+  public static final String STREAMING_PROPERTY = "verdictdbStreaming";
+
   public VerdictContext(DbmsConnection conn) {
     this.conn = new CachedDbmsConnection(conn);
     //    this.metadataProvider = new CachedMetaDataProvider(conn);
     this.contextId = RandomStringUtils.randomAlphanumeric(5);
+    // the store reads the catalog without the cache, so it finds the store table created later.
+    this.scrambleMetaStore = new CachedScrambleMetaStore(uncached(conn));
+  }
+
+  /**
+   * @param conn
+   * @param metaStore The store of the scramble metadata, e.g., a LocalScrambleMetaStore
+   */
+  public VerdictContext(DbmsConnection conn, VerdictMetaStore metaStore) {
+    this.conn = new CachedDbmsConnection(conn);
+    this.contextId = RandomStringUtils.randomAlphanumeric(5);
+    this.scrambleMetaStore = new CachedScrambleMetaStore(metaStore);
+  }
+
+  private static DbmsConnection uncached(DbmsConnection conn) {
+    if (conn instanceof CachedDbmsConnection) {
+      return ((CachedDbmsConnection) conn).getOriginalConnection();
+    }
+    return conn;
   }
 
   public static VerdictContext fromJdbcConnection(Connection jdbcConn)
@@ -61,26 +125,91 @@ public class VerdictContext {
     return new VerdictContext(conn);
   }
 
+  /**
+   * Creates a context whose scramble metadata is stored in a local file. The file is synchronized
+   * with the metadata stored in the DBMS.
+   *
+   * @param jdbcConn
+   * @param localMetaStorePath The path to the local metastore file
+   * @return
+   * @throws VerdictDBDbmsException
+   */
+  public static VerdictContext fromJdbcConnection(Connection jdbcConn, String localMetaStorePath)
+      throws VerdictDBDbmsException {
+    return withLocalMetaStore(JdbcConnection.create(jdbcConn), localMetaStorePath);
+  }
+
+  private static VerdictContext withLocalMetaStore(DbmsConnection conn, String localMetaStorePath) {
+    VerdictMetaStore metaStore =
+        new LocalScrambleMetaStore(new File(localMetaStorePath), new ScrambleMetaStore(conn));
+    return new VerdictContext(conn, metaStore);
+  }
+
   public static VerdictContext fromConnectionString(String jdbcConnectionString)
       throws SQLException, VerdictDBDbmsException {
-    attemptLoadDriverClass(jdbcConnectionString);
-    Connection jdbcConn = DriverManager.getConnection(jdbcConnectionString);
-    return fromJdbcConnection(jdbcConn);
+    return fromConnectionString(jdbcConnectionString, new Properties());
   }
 
   public static VerdictContext fromConnectionString(String jdbcConnectionString, Properties info)
       throws SQLException, VerdictDBDbmsException {
     attemptLoadDriverClass(jdbcConnectionString);
-    Connection jdbcConn = DriverManager.getConnection(jdbcConnectionString, info);
-    return fromJdbcConnection(jdbcConn);
+    String localMetaStorePath = info.getProperty(LOCAL_METASTORE_PROPERTY);
+    long resultCacheTtlSeconds = parseSeconds(info, RESULT_CACHE_TTL_PROPERTY, 0);
+    long scrambleMetaTtlSeconds =
+        parseSeconds(
+            info, SCRAMBLE_META_TTL_PROPERTY, CachedScrambleMetaStore.DEFAULT_TTL_SECONDS);
+
+    // the properties are not passed to the underlying driver.
+    Properties dbmsInfo = new Properties();
+    dbmsInfo.putAll(info);
+    dbmsInfo.remove(LOCAL_METASTORE_PROPERTY);
+    dbmsInfo.remove(RESULT_CACHE_TTL_PROPERTY);
+    dbmsInfo.remove(SCRAMBLE_META_TTL_PROPERTY);
+    dbmsInfo.remove(STREAMING_PROPERTY);
+    // unlike the connections from a java.sql.Connection, this connection can open separate
+    // connections, e.g., to retrieve metadata concurrently.
+    Connection jdbcConn = DriverManager.getConnection(jdbcConnectionString, dbmsInfo);
+    DbmsConnection conn = JdbcConnection.create(jdbcConn, jdbcConnectionString, dbmsInfo);
+    VerdictContext context =
+        (localMetaStorePath == null)
+            ? new VerdictContext(conn)
+            : withLocalMetaStore(conn, localMetaStorePath);
+    if (resultCacheTtlSeconds > 0) {
+      context.setResultCache(
+          new QueryResultCache(
+              QueryResultCache.DEFAULT_MAXIMUM_BYTES, resultCacheTtlSeconds, false));
+    }
+    context.getScrambleMetaStore().setTimeToLive(scrambleMetaTtlSeconds, TimeUnit.SECONDS);
+    if (Boolean.parseBoolean(info.getProperty(STREAMING_PROPERTY, "false").trim())) {
+      context.getJdbcConnection().setStreamingEnabled(true);
+    }
+    return context;
+  }
+
+  private static long parseSeconds(Properties info, String property, long defaultValue)
+      throws SQLException {
+    String value = info.getProperty(property);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      throw new SQLException("Invalid " + property + ": " + value);
+    }
   }
 
   public static VerdictContext fromConnectionString(
       String jdbcConnectionString, String user, String password)
       throws SQLException, VerdictDBDbmsException {
-    attemptLoadDriverClass(jdbcConnectionString);
-    Connection jdbcConn = DriverManager.getConnection(jdbcConnectionString, user, password);
-    return fromJdbcConnection(jdbcConn);
+    Properties info = new Properties();
+    if (user != null) {
+      info.setProperty("user", user);
+    }
+    if (password != null) {
+      info.setProperty("password", password);
+    }
+    return fromConnectionString(jdbcConnectionString, info);
   }
 
   private static void attemptLoadDriverClass(String jdbcConnectionString) {
@@ -111,6 +240,23 @@ public class VerdictContext {
     return conn.copy();
   }
 
+  public CachedScrambleMetaStore getScrambleMetaStore() {
+    return scrambleMetaStore;
+  }
+
+  public QueryPlanCache getPlanCache() {
+    return planCache;
+  }
+
+  public QueryResultCache getResultCache() {
+    return resultCache;
+  }
+
+  /** @param resultCache The cache of the answers to select queries; null to disable caching. */
+  public void setResultCache(QueryResultCache resultCache) {
+    this.resultCache = resultCache;
+  }
+
   public String getContextId() {
     return contextId;
   }
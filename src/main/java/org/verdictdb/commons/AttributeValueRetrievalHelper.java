@@ -30,6 +30,9 @@ import java.util.Map;
 
 public abstract class AttributeValueRetrievalHelper {
 
+  private static final VerdictDBLogger log =
+      VerdictDBLogger.getLogger(AttributeValueRetrievalHelper.class);
+
   private Map<String, Integer> lazyLabel2IndexMap = null;
 
   protected Integer getIndexOf(String label) {
@@ -97,6 +100,17 @@ public abstract class AttributeValueRetrievalHelper {
     if (value == null) {
       return null;
     }
+    if (value instanceof Clob) {
+      // e.g., H2 returns the values of text columns as clobs
+      try {
+        Clob clob = (Clob) value;
+        return clob.getSubString(1, (int) clob.length());
+      } catch (SQLException e) {
+        // the identity string of the clob is not a meaningful value for the caller.
+        log.error("Failed to read the clob value at the column " + index, e);
+        throw new RuntimeException(e);
+      }
+    }
     return String.valueOf(value);
   }
 
@@ -16,27 +16,195 @@
 
 package org.verdictdb.connection;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.verdictdb.commons.VerdictDBLogger;
 import org.verdictdb.exception.VerdictDBDbmsException;
 import org.verdictdb.sqlsyntax.SqlSyntax;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * Offers the same functionality as DbmsConnection; however, returns cached metadata whenever
- * possible to speed up query processing.
+ * possible to speed up query processing. The copies of this connection share the same cache.
  *
  * @author Yongjoo Park
  */
 public class CachedDbmsConnection extends CachedMetaDataProvider implements DbmsConnection {
 
+  private static final VerdictDBLogger log = VerdictDBLogger.getLogger(CachedDbmsConnection.class);
+
+  // the maximum number of the tables whose columns are retrieved concurrently in this process
+  public static final int MAX_CONCURRENT_METADATA_LOOKUPS = 8;
+
+  // shared by all the connections, so the number of the lookup threads is bounded.
+  private static final ExecutorService lookupExecutor = createLookupExecutor();
+
   DbmsConnection originalConn;
 
+  // the separate connections for the concurrent lookups, shared by the copies of this connection;
+  // null if the original connection cannot open separate connections.
+  final MetaDataConnectionPool lookupConnections;
+
   public CachedDbmsConnection(DbmsConnection conn) {
     super(conn);
     this.originalConn = conn;
+    this.lookupConnections =
+        (conn instanceof JdbcConnection && ((JdbcConnection) conn).canOpenSeparateConnection())
+            ? new MetaDataConnectionPool((JdbcConnection) conn)
+            : null;
+  }
+
+  private CachedDbmsConnection(DbmsConnection conn, CachedDbmsConnection sharedWith) {
+    super(conn, sharedWith);
+    this.originalConn = conn;
+    this.lookupConnections = sharedWith.lookupConnections;
+  }
+
+  private static ExecutorService createLookupExecutor() {
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            MAX_CONCURRENT_METADATA_LOOKUPS,
+            MAX_CONCURRENT_METADATA_LOOKUPS,
+            60,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactoryBuilder()
+                .setNameFormat("verdictdb-metadata-lookup-%d")
+                .setDaemon(true)
+                .build());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Retrieves the columns of the tables. The tables whose columns are not cached are looked up
+   * concurrently over separate connections (e.g., a DESCRIBE per table for Hive and Impala) if the
+   * original connection was opened from a connection string; otherwise, one by one.
+   *
+   * @param tableInfos The tables
+   * @return The columns of each table in the same order
+   * @throws VerdictDBDbmsException
+   */
+  public List<List<Pair<String, String>>> getColumns(List<StaticMetaData.TableInfo> tableInfos)
+      throws VerdictDBDbmsException {
+    List<Future<List<Pair<String, String>>>> futures = new ArrayList<>();
+    int uncachedCount = 0;
+    for (StaticMetaData.TableInfo tableInfo : tableInfos) {
+      if (!hasColumns(tableInfo.getSchema(), tableInfo.getTablename())) {
+        uncachedCount++;
+      }
+    }
+    if (lookupConnections != null && uncachedCount > 1) {
+      for (StaticMetaData.TableInfo tableInfo : tableInfos) {
+        futures.add(
+            hasColumns(tableInfo.getSchema(), tableInfo.getTablename())
+                ? null
+                : lookupExecutor.submit(createLookup(tableInfo)));
+      }
+    }
+
+    List<List<Pair<String, String>>> columnsOfTables = new ArrayList<>();
+    for (int i = 0; i < tableInfos.size(); i++) {
+      List<Pair<String, String>> columns =
+          (futures.isEmpty() || futures.get(i) == null) ? null : getResult(futures.get(i));
+      if (columns == null) {
+        StaticMetaData.TableInfo tableInfo = tableInfos.get(i);
+        columns = getColumns(tableInfo.getSchema(), tableInfo.getTablename());
+      }
+      columnsOfTables.add(columns);
+    }
+    return columnsOfTables;
+  }
+
+  /**
+   * @return The lookup over a separate connection, which returns null if the connection cannot be
+   *     opened. The columns are then looked up over this connection.
+   */
+  private Callable<List<Pair<String, String>>> createLookup(
+      final StaticMetaData.TableInfo tableInfo) {
+    return new Callable<List<Pair<String, String>>>() {
+      @Override
+      public List<Pair<String, String>> call() throws VerdictDBDbmsException {
+        JdbcConnection separateConn;
+        try {
+          separateConn = lookupConnections.borrow();
+        } catch (VerdictDBDbmsException e) {
+          log.warn("Failed to open a connection for metadata lookups: " + e.getMessage());
+          return null;
+        }
+        try {
+          CachedMetaDataProvider provider =
+              new CachedMetaDataProvider(separateConn, CachedDbmsConnection.this);
+          return provider.getColumns(tableInfo.getSchema(), tableInfo.getTablename());
+        } finally {
+          lookupConnections.release(separateConn);
+        }
+      }
+    };
+  }
+
+  private static List<Pair<String, String>> getResult(Future<List<Pair<String, String>>> future)
+      throws VerdictDBDbmsException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof VerdictDBDbmsException) {
+        throw (VerdictDBDbmsException) e.getCause();
+      }
+      throw new VerdictDBDbmsException(String.valueOf(e.getCause()));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new VerdictDBDbmsException("Interrupted while retrieving the columns of tables.");
+    }
   }
 
   @Override
   public DbmsQueryResult execute(String query) throws VerdictDBDbmsException {
-    return originalConn.execute(query);
+    try {
+      return originalConn.execute(query);
+    } finally {
+      invalidateMissingIfDdl(query);
+    }
+  }
+
+  @Override
+  public DbmsQueryResult executeStreaming(String query) throws VerdictDBDbmsException {
+    try {
+      return originalConn.executeStreaming(query);
+    } finally {
+      invalidateMissingIfDdl(query);
+    }
+  }
+
+  /**
+   * Removes the cached empty results if the query creates, drops, or alters a table since a table
+   * that was missing may exist now.
+   */
+  private void invalidateMissingIfDdl(String query) {
+    if (!hasMissing()) {
+      return;
+    }
+    boolean backslashEscapes = getSyntax().doesEscapeWithBackslash();
+    for (String sql : JdbcConnection.splitOnSemicolon(query, backslashEscapes)) {
+      String head = sql.trim().toLowerCase();
+      if (head.startsWith("create")
+          || head.startsWith("drop")
+          || head.startsWith("alter")
+          || head.startsWith("rename")) {
+        invalidateMissing();
+        return;
+      }
+    }
   }
 
   @Override
@@ -47,6 +215,9 @@ public class CachedDbmsConnection extends CachedMetaDataProvider implements Dbms
   @Override
   public void close() {
     originalConn.close();
+    if (lookupConnections != null) {
+      lookupConnections.close();
+    }
   }
 
   public DbmsConnection getOriginalConnection() {
@@ -55,7 +226,7 @@ public class CachedDbmsConnection extends CachedMetaDataProvider implements Dbms
 
   @Override
   public DbmsConnection copy() {
-    CachedDbmsConnection newConn = new CachedDbmsConnection(originalConn.copy());
+    CachedDbmsConnection newConn = new CachedDbmsConnection(originalConn.copy(), this);
     return newConn;
   }
 }
@@ -16,60 +16,194 @@
 
 package org.verdictdb.connection;
 
-import org.apache.commons.lang3.tuple.ImmutablePair;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.lang3.tuple.Pair;
 import org.verdictdb.exception.VerdictDBDbmsException;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Caches the metadata retrieved from another MetaDataProvider. The cache is thread-safe and can be
+ * shared by multiple providers (e.g., the copies of a CachedDbmsConnection).
+ *
+ * <ol>
+ *   <li>Each entry expires after a fixed time (ttlSeconds) since it was retrieved.
+ *   <li>The number of entries in each cache is bounded (maximumSize); the least recently used
+ *       entries are evicted first.
+ *   <li>When the columns of a table are requested for the first time, the columns of all the tables
+ *       in the same schema are retrieved at once if the underlying provider supports it. Concurrent
+ *       requests for the same schema share a single retrieval.
+ *   <li>Empty results (i.e., schemas without tables and tables without columns) expire after a
+ *       shorter time (negativeTtlSeconds) since the tables may be created at any time. They are
+ *       also removed when a DDL statement is executed through a CachedDbmsConnection sharing the
+ *       cache.
+ * </ol>
+ */
 public class CachedMetaDataProvider implements MetaDataProvider {
 
-  MetaDataProvider metaProvider;
-
-  //  private String defaultSchema = null;
+  public static final long DEFAULT_TTL_SECONDS = 600;
 
-  private List<String> schemaCache = new ArrayList<>();
+  public static final long DEFAULT_MAXIMUM_SIZE = 10000;
 
-  private HashMap<String, List<String>> tablesCache = new HashMap<>();
+  public static final long DEFAULT_NEGATIVE_TTL_SECONDS = 10;
 
-  private HashMap<Pair<String, String>, List<String>> partitionCache = new HashMap<>();
+  MetaDataProvider metaProvider;
 
-  // Get column name and type
-  private HashMap<Pair<String, String>, List<Pair<String, String>>> columnsCache = new HashMap<>();
+  private MetaDataCache cache;
 
   public CachedMetaDataProvider(MetaDataProvider metaProvider) {
+    this(
+        metaProvider,
+        new MetaDataCache(DEFAULT_TTL_SECONDS, DEFAULT_MAXIMUM_SIZE, Ticker.systemTicker()));
+  }
+
+  public CachedMetaDataProvider(MetaDataProvider metaProvider, long ttlSeconds, long maximumSize) {
+    this(metaProvider, new MetaDataCache(ttlSeconds, maximumSize, Ticker.systemTicker()));
+  }
+
+  /**
+   * Creates a provider that shares the cache of another.
+   *
+   * @param metaProvider The provider to retrieve metadata from on cache misses
+   * @param sharedWith The provider whose cache is shared
+   */
+  public CachedMetaDataProvider(MetaDataProvider metaProvider, CachedMetaDataProvider sharedWith) {
+    this(metaProvider, sharedWith.cache);
+  }
+
+  CachedMetaDataProvider(MetaDataProvider metaProvider, MetaDataCache cache) {
     this.metaProvider = metaProvider;
+    this.cache = cache;
   }
 
   @Override
   public List<String> getSchemas() throws VerdictDBDbmsException {
-    if (!schemaCache.isEmpty()) {
-      return schemaCache;
+    List<String> key = key();
+    List<String> schemas = cache.schemas.getIfPresent(key);
+    if (schemas == null) {
+      schemas = metaProvider.getSchemas();
+      cache.schemas.put(key, schemas);
     }
-    schemaCache.addAll(metaProvider.getSchemas());
-    return schemaCache;
+    return schemas;
   }
 
   @Override
   public List<String> getTables(String schema) throws VerdictDBDbmsException {
-    if (tablesCache.containsKey(schema) && !tablesCache.get(schema).isEmpty()) {
-      return tablesCache.get(schema);
+    List<String> key = key(schema);
+    List<String> tables = cache.tables.getIfPresent(key);
+    if (tables != null) {
+      return tables;
+    }
+    if (cache.missingTables.getIfPresent(key) != null) {
+      return new ArrayList<>();
+    }
+
+    tables = metaProvider.getTables(schema);
+    if (tables.isEmpty()) {
+      cache.missingTables.put(key, true);
+    } else {
+      cache.tables.put(key, tables);
     }
-    tablesCache.put(schema, metaProvider.getTables(schema));
-    return tablesCache.get(schema);
+    return tables;
   }
 
   @Override
   public List<Pair<String, String>> getColumns(String schema, String table)
       throws VerdictDBDbmsException {
-    Pair<String, String> key = new ImmutablePair<>(schema, table);
-    if (columnsCache.containsKey(key) && !columnsCache.get(key).isEmpty()) {
-      return columnsCache.get(key);
+    List<String> key = key(schema, table);
+    List<Pair<String, String>> columns = cache.columns.getIfPresent(key);
+    if (columns != null) {
+      return columns;
+    }
+    if (cache.missingColumns.getIfPresent(key) != null) {
+      return new ArrayList<>();
+    }
+
+    // the columns of all the tables in the schema are retrieved at once, if possible.
+    Map<String, List<Pair<String, String>>> allColumns = prefetchColumns(schema);
+    if (allColumns != null) {
+      columns = allColumns.get(table);
+      if (columns == null || columns.isEmpty()) {
+        cache.missingColumns.put(key, true);
+        return new ArrayList<>();
+      }
+      return columns;
+    }
+
+    // the columns may have been retrieved by a concurrent call.
+    columns = cache.columns.getIfPresent(key);
+    if (columns != null) {
+      return columns;
+    }
+
+    columns = metaProvider.getColumns(schema, table);
+    if (columns.isEmpty()) {
+      cache.missingColumns.put(key, true);
+    } else {
+      cache.columns.put(key, columns);
+    }
+    return columns;
+  }
+
+  /** @return True if getColumns() returns the columns of the table without a lookup. */
+  boolean hasColumns(String schema, String table) {
+    List<String> key = key(schema, table);
+    return cache.columns.getIfPresent(key) != null
+        || cache.missingColumns.getIfPresent(key) != null;
+  }
+
+  /**
+   * Retrieves the columns of all the tables in a schema unless they have been retrieved already.
+   * Concurrent calls for the same schema wait for a single retrieval.
+   *
+   * @return The columns of each table if retrieved by this call; null otherwise.
+   */
+  private Map<String, List<Pair<String, String>>> prefetchColumns(String schema)
+      throws VerdictDBDbmsException {
+    List<String> schemaKey = key(schema);
+    if (cache.prefetchedSchemas.getIfPresent(schemaKey) != null) {
+      return null;
+    }
+    synchronized (cache.getPrefetchLock(schemaKey)) {
+      if (cache.prefetchedSchemas.getIfPresent(schemaKey) != null) {
+        return null;
+      }
+      Map<String, List<Pair<String, String>>> allColumns = metaProvider.getAllColumns(schema);
+      if (allColumns != null) {
+        for (Entry<String, List<Pair<String, String>>> entry : allColumns.entrySet()) {
+          cache.columns.put(key(schema, entry.getKey()), entry.getValue());
+        }
+        cache.prefetchedSchemas.put(schemaKey, true);
+      }
+      return allColumns;
+    }
+  }
+
+  /**
+   * Retrieves the columns of all the tables in a schema, and caches them.
+   *
+   * @param schema The schema
+   * @return The columns of each table; null if the underlying provider does not support it.
+   * @throws VerdictDBDbmsException
+   */
+  @Override
+  public Map<String, List<Pair<String, String>>> getAllColumns(String schema)
+      throws VerdictDBDbmsException {
+    Map<String, List<Pair<String, String>>> allColumns = metaProvider.getAllColumns(schema);
+    if (allColumns != null) {
+      for (Entry<String, List<Pair<String, String>>> entry : allColumns.entrySet()) {
+        cache.columns.put(key(schema, entry.getKey()), entry.getValue());
+      }
+      cache.prefetchedSchemas.put(key(schema), true);
     }
-    columnsCache.put(key, metaProvider.getColumns(schema, table));
-    return columnsCache.get(key);
+    return allColumns;
   }
 
   /**
@@ -86,12 +220,41 @@ public class CachedMetaDataProvider implements MetaDataProvider {
     //    if (!syntax.doesSupportTablePartitioning()) {
     //      throw new VerdictDBDbmsException("Database does not support table partitioning");
     //    }
-    Pair<String, String> key = new ImmutablePair<>(schema, table);
-    if (columnsCache.containsKey(key) && !partitionCache.isEmpty()) {
-      return partitionCache.get(key);
+    List<String> key = key(schema, table);
+    List<String> partitions = cache.partitions.getIfPresent(key);
+    if (partitions == null) {
+      partitions = metaProvider.getPartitionColumns(schema, table);
+      cache.partitions.put(key, partitions);
     }
-    partitionCache.put(key, metaProvider.getPartitionColumns(schema, table));
-    return partitionCache.get(key);
+    return partitions;
+  }
+
+  /**
+   * Removes the cached metadata of a schema and its tables; the metadata is retrieved again when
+   * requested next time.
+   *
+   * @param schema The schema
+   */
+  public void invalidate(String schema) {
+    cache.invalidate(schema);
+  }
+
+  /** Removes all the cached metadata. */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * Removes the cached empty results, e.g., after a table is created. The metadata of the existing
+   * tables is kept.
+   */
+  public void invalidateMissing() {
+    cache.invalidateMissing();
+  }
+
+  /** @return True if an empty result is cached; invalidateMissing() is a no-op otherwise. */
+  boolean hasMissing() {
+    return cache.missingTables.size() > 0 || cache.missingColumns.size() > 0;
   }
 
   public String getDefaultSchema() {
@@ -106,4 +269,98 @@ public class CachedMetaDataProvider implements MetaDataProvider {
     metaProvider.setDefaultSchema(schema);
     //    defaultSchema = schema;
   }
+
+  // the schema and table names can be null; lists are used as keys since they allow nulls.
+  private static List<String> key(String... names) {
+    return Arrays.asList(names);
+  }
+
+  /** The caches shared by the providers. The keys are the lists of schema and table names. */
+  static class MetaDataCache {
+
+    final Cache<List<String>, List<String>> schemas;
+
+    final Cache<List<String>, List<String>> tables;
+
+    final Cache<List<String>, List<Pair<String, String>>> columns;
+
+    final Cache<List<String>, List<String>> partitions;
+
+    // the schemas whose columns have been retrieved at once
+    final Cache<List<String>, Boolean> prefetchedSchemas;
+
+    // the schemas without tables and the tables without columns (e.g., not created yet)
+    final Cache<List<String>, Boolean> missingTables;
+
+    final Cache<List<String>, Boolean> missingColumns;
+
+    // the locks held while the columns of a schema are retrieved at once. A schema is mapped to a
+    // lock by its hash, so the number of locks does not grow with the number of schemas.
+    private final Object[] prefetchLocks = new Object[PREFETCH_LOCK_COUNT];
+
+    private static final int PREFETCH_LOCK_COUNT = 64;
+
+    MetaDataCache(long ttlSeconds, long maximumSize, Ticker ticker) {
+      this(ttlSeconds, Math.min(ttlSeconds, DEFAULT_NEGATIVE_TTL_SECONDS), maximumSize, ticker);
+    }
+
+    MetaDataCache(long ttlSeconds, long negativeTtlSeconds, long maximumSize, Ticker ticker) {
+      schemas = build(ttlSeconds, maximumSize, ticker);
+      tables = build(ttlSeconds, maximumSize, ticker);
+      columns = build(ttlSeconds, maximumSize, ticker);
+      partitions = build(ttlSeconds, maximumSize, ticker);
+      prefetchedSchemas = build(ttlSeconds, maximumSize, ticker);
+      missingTables = build(negativeTtlSeconds, maximumSize, ticker);
+      missingColumns = build(negativeTtlSeconds, maximumSize, ticker);
+      for (int i = 0; i < prefetchLocks.length; i++) {
+        prefetchLocks[i] = new Object();
+      }
+    }
+
+    private static <V> Cache<List<String>, V> build(
+        long ttlSeconds, long maximumSize, Ticker ticker) {
+      return CacheBuilder.newBuilder()
+          .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+          .maximumSize(maximumSize)
+          .ticker(ticker)
+          .build();
+    }
+
+    Object getPrefetchLock(List<String> schemaKey) {
+      return prefetchLocks[(schemaKey.hashCode() & Integer.MAX_VALUE) % prefetchLocks.length];
+    }
+
+    void invalidate(String schema) {
+      schemas.invalidateAll();
+      invalidateSchema(tables, schema);
+      invalidateSchema(columns, schema);
+      invalidateSchema(partitions, schema);
+      invalidateSchema(prefetchedSchemas, schema);
+      invalidateSchema(missingTables, schema);
+      invalidateSchema(missingColumns, schema);
+    }
+
+    private static void invalidateSchema(Cache<List<String>, ?> c, String schema) {
+      for (List<String> key : c.asMap().keySet()) {
+        String keySchema = key.get(0);
+        if (keySchema == null ? schema == null : keySchema.equals(schema)) {
+          c.invalidate(key);
+        }
+      }
+    }
+
+    void invalidateAll() {
+      schemas.invalidateAll();
+      tables.invalidateAll();
+      columns.invalidateAll();
+      partitions.invalidateAll();
+      prefetchedSchemas.invalidateAll();
+      invalidateMissing();
+    }
+
+    void invalidateMissing() {
+      missingTables.invalidateAll();
+      missingColumns.invalidateAll();
+    }
+  }
 }
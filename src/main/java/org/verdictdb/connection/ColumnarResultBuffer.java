@@ -0,0 +1,448 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.connection;
+
+import java.io.Serializable;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the rows of a query result column by column. The storage of each column is chosen from its
+ * JDBC type:
+ *
+ * <ol>
+ *   <li>Integral types: long[]
+ *   <li>Floating-point types: double[]
+ *   <li>Character types: dictionary-encoded int[] (as long as the number of distinct values is
+ *       small relative to the number of rows)
+ *   <li>Others: Object[]
+ * </ol>
+ *
+ * <p>Nulls are recorded in a bitmap. getValue() returns the same object as the one added (e.g., an
+ * Integer for an INTEGER column); if a column receives a value its storage cannot restore exactly
+ * (e.g., a Long in a column that started with Integers), the column falls back to Object[].
+ */
+public class ColumnarResultBuffer implements Serializable {
+
+  private static final long serialVersionUID = 3402187716358312471L;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private ColumnVector[] columns;
+
+  private int rowCount = 0;
+
+  /** @param columnTypes The JDBC types (java.sql.Types) of the columns */
+  public ColumnarResultBuffer(List<Integer> columnTypes) {
+    columns = new ColumnVector[columnTypes.size()];
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = createVector(columnTypes.get(i));
+    }
+  }
+
+  private static ColumnVector createVector(int type) {
+    switch (type) {
+      case Types.BIGINT:
+      case Types.INTEGER:
+      case Types.SMALLINT:
+      case Types.TINYINT:
+        return new LongVector();
+      case Types.DOUBLE:
+      case Types.FLOAT:
+      case Types.REAL:
+        return new DoubleVector();
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.LONGNVARCHAR:
+        return new StringVector();
+      default:
+        return new ObjectVector(INITIAL_CAPACITY);
+    }
+  }
+
+  /** Appends the current row of a result set. */
+  public void addRow(ResultSet resultSet) throws SQLException {
+    for (int i = 0; i < columns.length; i++) {
+      append(i, resultSet.getObject(i + 1));
+    }
+    rowCount++;
+  }
+
+  public void addRow(List<Object> row) {
+    for (int i = 0; i < columns.length; i++) {
+      append(i, row.get(i));
+    }
+    rowCount++;
+  }
+
+  private void append(int column, Object value) {
+    if (!columns[column].append(value)) {
+      columns[column] = columns[column].toObjectVector();
+      columns[column].append(value);
+    }
+  }
+
+  /** Releases the memory reserved for the rows not added yet. */
+  public void trimToSize() {
+    for (ColumnVector column : columns) {
+      column.trimToSize();
+    }
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  public Object getValue(int row, int column) {
+    checkRow(row);
+    return columns[column].get(row);
+  }
+
+  public boolean isNull(int row, int column) {
+    checkRow(row);
+    return columns[column].isNull(row);
+  }
+
+  /** @return True if the column is stored as long[]; getLong() can be used. */
+  public boolean isLongColumn(int column) {
+    return columns[column] instanceof LongVector;
+  }
+
+  /** @return True if the column is stored as double[]; getDouble() can be used. */
+  public boolean isDoubleColumn(int column) {
+    return columns[column] instanceof DoubleVector;
+  }
+
+  /** @return True if the column is stored as dictionary-encoded strings. */
+  public boolean isStringColumn(int column) {
+    return columns[column] instanceof StringVector;
+  }
+
+  /** @return The value of a long column; 0 if null. */
+  public long getLong(int row, int column) {
+    checkRow(row);
+    return ((LongVector) columns[column]).values[row];
+  }
+
+  /** @return The value of a double column; 0 if null. */
+  public double getDouble(int row, int column) {
+    checkRow(row);
+    return ((DoubleVector) columns[column]).values[row];
+  }
+
+  /** @return The value of a string column; null if null. */
+  public String getString(int row, int column) {
+    checkRow(row);
+    return (String) columns[column].get(row);
+  }
+
+  public List<Object> getRow(int row) {
+    List<Object> values = new ArrayList<>(columns.length);
+    for (int i = 0; i < columns.length; i++) {
+      values.add(getValue(row, i));
+    }
+    return values;
+  }
+
+  private void checkRow(int row) {
+    if (row < 0 || row >= rowCount) {
+      throw new IndexOutOfBoundsException("Row: " + row + ", Row count: " + rowCount);
+    }
+  }
+
+  /** A column whose values are appended one by one. */
+  abstract static class ColumnVector implements Serializable {
+
+    private static final long serialVersionUID = -2467106919620926018L;
+
+    int size = 0;
+
+    // the i-th bit is set if the i-th value is null
+    long[] nulls = new long[1];
+
+    /**
+     * @param value The value to append
+     * @return False if the value cannot be stored in this vector; nothing is appended then.
+     */
+    abstract boolean append(Object value);
+
+    abstract Object get(int row);
+
+    abstract void trimToSize();
+
+    boolean isNull(int row) {
+      return (row >>> 6) < nulls.length && (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    void markNull(int row) {
+      if ((row >>> 6) >= nulls.length) {
+        nulls = Arrays.copyOf(nulls, Math.max(nulls.length * 2, (row >>> 6) + 1));
+      }
+      nulls[row >>> 6] |= 1L << row;
+    }
+
+    void trimNulls() {
+      nulls = Arrays.copyOf(nulls, Math.max(1, (size + 63) >>> 6));
+    }
+
+    int grow(int capacity) {
+      return Math.max(INITIAL_CAPACITY, capacity + (capacity >> 1));
+    }
+
+    ObjectVector toObjectVector() {
+      ObjectVector vector = new ObjectVector(grow(size));
+      for (int i = 0; i < size; i++) {
+        vector.append(get(i));
+      }
+      return vector;
+    }
+  }
+
+  static class LongVector extends ColumnVector {
+
+    private static final long serialVersionUID = 7021390575458227357L;
+
+    long[] values = new long[0];
+
+    // the class of the non-null values, e.g., Integer; null until a non-null value is added.
+    Class<?> boxType;
+
+    @Override
+    boolean append(Object value) {
+      if (value != null) {
+        if (boxType == null) {
+          if (!(value instanceof Long
+              || value instanceof Integer
+              || value instanceof Short
+              || value instanceof Byte)) {
+            return false;
+          }
+          boxType = value.getClass();
+        } else if (value.getClass() != boxType) {
+          return false;
+        }
+      }
+
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(size));
+      }
+      if (value == null) {
+        markNull(size);
+      } else {
+        values[size] = ((Number) value).longValue();
+      }
+      size++;
+      return true;
+    }
+
+    @Override
+    Object get(int row) {
+      if (isNull(row)) {
+        return null;
+      }
+      long value = values[row];
+      if (boxType == Integer.class) {
+        return (int) value;
+      } else if (boxType == Short.class) {
+        return (short) value;
+      } else if (boxType == Byte.class) {
+        return (byte) value;
+      } else {
+        return value;
+      }
+    }
+
+    @Override
+    void trimToSize() {
+      values = Arrays.copyOf(values, size);
+      trimNulls();
+    }
+  }
+
+  static class DoubleVector extends ColumnVector {
+
+    private static final long serialVersionUID = -4006342364958930322L;
+
+    double[] values = new double[0];
+
+    // either Double or Float; null until a non-null value is added.
+    Class<?> boxType;
+
+    @Override
+    boolean append(Object value) {
+      if (value != null) {
+        if (boxType == null) {
+          if (!(value instanceof Double || value instanceof Float)) {
+            return false;
+          }
+          boxType = value.getClass();
+        } else if (value.getClass() != boxType) {
+          return false;
+        }
+      }
+
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(size));
+      }
+      if (value == null) {
+        markNull(size);
+      } else {
+        values[size] = ((Number) value).doubleValue();
+      }
+      size++;
+      return true;
+    }
+
+    @Override
+    Object get(int row) {
+      if (isNull(row)) {
+        return null;
+      }
+      double value = values[row];
+      if (boxType == Float.class) {
+        return (float) value;
+      } else {
+        return value;
+      }
+    }
+
+    @Override
+    void trimToSize() {
+      values = Arrays.copyOf(values, size);
+      trimNulls();
+    }
+  }
+
+  /**
+   * Dictionary-encoded strings. Falls back to Object[] when the values are mostly distinct, in which
+   * case the dictionary only adds overhead.
+   */
+  static class StringVector extends ColumnVector {
+
+    private static final long serialVersionUID = 1815137412815380296L;
+
+    private static final int MIN_DICTIONARY_SIZE_TO_CHECK = 1024;
+
+    int[] codes = new int[0];
+
+    ArrayList<String> dictionary = new ArrayList<>();
+
+    // dropped by trimToSize(); rebuilt if more values are appended.
+    transient Map<String, Integer> codeOf;
+
+    @Override
+    boolean append(Object value) {
+      if (value != null && !(value instanceof String)) {
+        return false;
+      }
+      if (dictionary.size() > MIN_DICTIONARY_SIZE_TO_CHECK && dictionary.size() * 2 > size) {
+        return false;
+      }
+
+      if (size == codes.length) {
+        codes = Arrays.copyOf(codes, grow(size));
+      }
+      if (value == null) {
+        markNull(size);
+      } else {
+        codes[size] = encode((String) value);
+      }
+      size++;
+      return true;
+    }
+
+    private int encode(String value) {
+      if (codeOf == null) {
+        codeOf = new HashMap<>();
+        for (int i = 0; i < dictionary.size(); i++) {
+          codeOf.put(dictionary.get(i), i);
+        }
+      }
+      Integer code = codeOf.get(value);
+      if (code == null) {
+        code = dictionary.size();
+        dictionary.add(value);
+        codeOf.put(value, code);
+      }
+      return code;
+    }
+
+    @Override
+    Object get(int row) {
+      if (isNull(row)) {
+        return null;
+      }
+      return dictionary.get(codes[row]);
+    }
+
+    @Override
+    void trimToSize() {
+      codes = Arrays.copyOf(codes, size);
+      dictionary.trimToSize();
+      codeOf = null;
+      trimNulls();
+    }
+  }
+
+  static class ObjectVector extends ColumnVector {
+
+    private static final long serialVersionUID = -5306657291451519826L;
+
+    Object[] values;
+
+    ObjectVector(int capacity) {
+      values = new Object[capacity];
+    }
+
+    @Override
+    boolean append(Object value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(size));
+      }
+      if (value == null) {
+        markNull(size);
+      }
+      values[size] = value;
+      size++;
+      return true;
+    }
+
+    @Override
+    Object get(int row) {
+      return values[row];
+    }
+
+    @Override
+    void trimToSize() {
+      values = Arrays.copyOf(values, size);
+      trimNulls();
+    }
+  }
+}
@@ -33,6 +33,18 @@ public interface DbmsConnection extends MetaDataProvider {
    */
   public DbmsQueryResult execute(String query) throws VerdictDBDbmsException;
 
+  /**
+   * Executes a query (or queries) and returns the result of the last one as a stream if the
+   * connection is configured to stream results; otherwise, the same as execute(). Unlike execute(),
+   * the rows may be fetched from the database as they are read; thus, the caller must read the
+   * result to the end or close it to release the statement.
+   *
+   * @param query
+   * @return
+   * @throws VerdictDBDbmsException
+   */
+  public DbmsQueryResult executeStreaming(String query) throws VerdictDBDbmsException;
+
   //  /**
   //   *
   //   * @param sql
@@ -16,8 +16,6 @@
 
 package org.verdictdb.connection;
 
-import com.google.common.collect.Sets;
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.verdictdb.exception.VerdictDBDbmsException;
@@ -38,6 +36,32 @@ public class JdbcConnection implements DbmsConnection {
 
   private boolean outputDebugMessage = false;
 
+  public static final int DEFAULT_FETCH_SIZE = 1000;
+
+  // the number of rows fetched from the database at a time by streaming results.
+  private int fetchSize = DEFAULT_FETCH_SIZE;
+
+  // whether executeStreaming() streams results; if false, it is the same as execute().
+  private boolean streamingEnabled = false;
+
+  public static final int DEFAULT_STREAMING_BUFFER_LIMIT = 10000;
+
+  // the number of rows kept in memory by streaming results
+  private int streamingBufferLimit = DEFAULT_STREAMING_BUFFER_LIMIT;
+
+  // the first keywords of the statements that do not return results
+  private static final String[] UPDATE_KEYWORDS = {
+    "insert", "update", "delete", "create", "drop", "alter", "truncate", "grant", "revoke"
+  };
+
+  // whether the driver supports Statement.executeBatch(); null if not checked yet.
+  private Boolean supportsBatchUpdates = null;
+
+  // the settings to open another connection to the same database; null if not known.
+  private String connectionString = null;
+
+  private Properties connectionInfo = null;
+
   public static JdbcConnection create(Connection conn) throws VerdictDBDbmsException {
     String connectionString = null;
     try {
@@ -55,6 +79,24 @@ public class JdbcConnection implements DbmsConnection {
     return jdbcConn;
   }
 
+  /**
+   * Creates a connection that can also open separate connections to the same database, e.g., to
+   * retrieve metadata concurrently.
+   *
+   * @param conn The connection opened from the connection string
+   * @param connectionString The JDBC connection string
+   * @param info The properties passed to the driver
+   * @return The connection
+   * @throws VerdictDBDbmsException
+   */
+  public static JdbcConnection create(Connection conn, String connectionString, Properties info)
+      throws VerdictDBDbmsException {
+    JdbcConnection jdbcConn = create(conn);
+    jdbcConn.connectionString = connectionString;
+    jdbcConn.connectionInfo = info;
+    return jdbcConn;
+  }
+
   public JdbcConnection(Connection conn, SqlSyntax syntax) {
     this.conn = conn;
     try {
@@ -90,75 +132,162 @@ public class JdbcConnection implements DbmsConnection {
       System.out.println("About to issue this batch query: " + sql);
     }
 
-    //    String[] sqls = sql.split(";(?=(?:[^\']*\'[^\']*\')*[^\']*$)", -1);
-    String quoteChars = "'\"";
-    List<String> sqls = splitOnSemicolon(sql, quoteChars);
-    //  StrTokenizer tokenizer =
-    //  new StrTokenizer(sql, StrMatcher.charSetMatcher(";"), StrMatcher.charSetMatcher("'\""));
+    List<String> sqls = splitOnSemicolon(sql, syntax.doesEscapeWithBackslash());
+    if (sqls.size() == 1) {
+      return executeSingle(sqls.get(0));
+    }
+
+    // the statements before the last one do not return results; they are sent in a batch. The last
+    // one is also included if it does not return a result either.
+    int batchSize = sqls.size();
+    if (batchSize > 0 && mayReturnResult(sqls.get(batchSize - 1))) {
+      batchSize--;
+    }
+    if (batchSize > 1 && isBatchable(sqls.subList(0, batchSize))) {
+      executeBatch(sqls.subList(0, batchSize));
+      return (batchSize < sqls.size()) ? executeSingle(sqls.get(batchSize)) : null;
+    }
+
     DbmsQueryResult finalResult = null;
     for (String s : sqls) {
-      //    while (true) {
-      //      String s = tokenizer.nextToken();
-      //      if (s == null) {
-      //        break;
-      //      }
       finalResult = executeSingle(s);
     }
     return finalResult;
   }
 
   /**
-   * Splits a given query using the delimiter. The delimiters in quote chars are ignored.
+   * Splits a given query using the delimiter (i.e., semicolon). The delimiters in quotes (either
+   * single or double) are ignored. Empty statements are dropped.
    *
    * <p>Note: I have tried many regex-based and the Apache commons library for this, but they do not
    * work. Regex throws StackOverflowError, and the StringTokenizer by the commons library is
    * incorrect for our purpose.
    *
    * @param sql
+   * @return The statements without the delimiters
+   */
+  static List<String> splitOnSemicolon(String sql) {
+    return splitOnSemicolon(sql, false);
+  }
+
+  /**
+   * @param sql
+   * @param backslashEscapes True if a backslash in quotes escapes the next character (e.g.,
+   *     'it\'s' in Spark SQL)
+   * @return The statements without the delimiters
    */
-  private List<String> splitOnSemicolon(String sql, String quoteChars) {
+  static List<String> splitOnSemicolon(String sql, boolean backslashEscapes) {
     List<String> splitted = new ArrayList<>();
-    Map<Character, Integer> quoteCharCounts = new HashMap<>();
-    Set<Character> quoteCharSet = Sets.newHashSet(ArrayUtils.toObject(quoteChars.toCharArray()));
-    for (char c : quoteCharSet) {
-      quoteCharCounts.put(c, 0);
-    }
-    char delimiter = ';';
-
-    StringBuilder beginConstructed = new StringBuilder();
-    for (char c : sql.toCharArray()) {
-      // when encountered a delimiter
-      if (c == delimiter) {
-        // if there is no odd-count quote chars, we create a new sql
-        boolean oddCountQuoteExist = false;
-        for (int count : quoteCharCounts.values()) {
-          if (count % 2 == 1) {
-            oddCountQuoteExist = true;
-            break;
-          }
-        }
-        if (oddCountQuoteExist == false) {
-          // create a new sql
-          splitted.add(beginConstructed.toString());
-          beginConstructed = new StringBuilder();
-          ;
-        }
-      } else {
-        beginConstructed.append(c);
-        if (quoteCharSet.contains(c)) {
-          quoteCharCounts.put(c, quoteCharCounts.get(c) + 1);
+    char openQuote = 0; // the quote char of the currently open quote; 0 if none
+    int begin = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (openQuote != 0) {
+        if (backslashEscapes && c == '\\') {
+          i++;
+        } else if (c == openQuote) {
+          // an escaped quote (e.g., 'it''s') closes and reopens the quote.
+          openQuote = 0;
         }
+      } else if (c == '\'' || c == '"') {
+        openQuote = c;
+      } else if (c == ';') {
+        addStatement(splitted, sql, begin, i);
+        begin = i + 1;
       }
     }
-    // if there anything remaining, add it as a separate sql
-    if (beginConstructed.length() > 0) {
-      String s = beginConstructed.toString();
-      if (s.trim().length() > 0) {
-        splitted.add(s);
+    addStatement(splitted, sql, begin, sql.length());
+    return splitted;
+  }
+
+  private static void addStatement(List<String> splitted, String sql, int begin, int end) {
+    for (int i = begin; i < end; i++) {
+      if (!Character.isWhitespace(sql.charAt(i))) {
+        splitted.add(sql.substring(begin, end));
+        return;
       }
     }
+  }
 
-    return splitted;
+  /**
+   * Conservatively determines if a statement may return a result (i.e., a result set), based on
+   * its first keyword. Such statements cannot be included in a batch.
+   */
+  static boolean mayReturnResult(String sql) {
+    int i = 0;
+    while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+      i++;
+    }
+    for (String keyword : UPDATE_KEYWORDS) {
+      if (sql.regionMatches(true, i, keyword, 0, keyword.length())
+          && (i + keyword.length() == sql.length()
+              || !Character.isLetterOrDigit(sql.charAt(i + keyword.length())))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isBatchable(List<String> sqls) {
+    if (!supportsBatchUpdates()) {
+      return false;
+    }
+    for (String s : sqls) {
+      if (mayReturnResult(s)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean supportsBatchUpdates() {
+    if (supportsBatchUpdates == null) {
+      try {
+        supportsBatchUpdates = conn.getMetaData().supportsBatchUpdates();
+      } catch (SQLException e) {
+        supportsBatchUpdates = false;
+      }
+    }
+    return supportsBatchUpdates;
+  }
+
+  /**
+   * Issues the statements that do not return results in a single batch (i.e., a single round trip
+   * to the database if the driver supports it). If the driver does not support batch updates, the
+   * statements are issued one by one.
+   *
+   * @param sqls The statements without delimiters
+   * @throws VerdictDBDbmsException
+   */
+  public void executeBatch(List<String> sqls) throws VerdictDBDbmsException {
+    if (!supportsBatchUpdates()) {
+      for (String s : sqls) {
+        executeSingle(s);
+      }
+      return;
+    }
+    if (outputDebugMessage) {
+      System.out.println("About to issue these queries in a batch: " + sqls);
+    }
+
+    Statement stmt = null;
+    try {
+      stmt = conn.createStatement();
+      for (String s : sqls) {
+        stmt.addBatch(s);
+      }
+      stmt.executeBatch();
+    } catch (SQLException e) {
+      throw new VerdictDBDbmsException(e.getMessage());
+    } finally {
+      try {
+        if (stmt != null) {
+          stmt.close();
+        }
+      } catch (SQLException e) {
+        // the original exception (if any) is reported
+      }
+    }
   }
 
   public DbmsQueryResult executeSingle(String sql) throws VerdictDBDbmsException {
@@ -185,6 +314,71 @@ public class JdbcConnection implements DbmsConnection {
     }
   }
 
+  /**
+   * Executes a query without waiting for its entire result if streaming is enabled (see
+   * setStreamingEnabled()); otherwise, the same as execute(). The statement is kept open until the
+   * returned result is read to the end or closed, and the rows are fetched from the database
+   * fetchSize rows at a time. See StreamingJdbcQueryResult for the caveats of the drivers.
+   *
+   * <p>If the given sql includes multiple queries separated by semicolons, only the last one is
+   * streamed.
+   *
+   * @param sql A query (or queries)
+   * @return A StreamingJdbcQueryResult if the (last) query returns a result and streaming is
+   *     enabled; null if no result is returned.
+   * @throws VerdictDBDbmsException
+   */
+  @Override
+  public DbmsQueryResult executeStreaming(String sql) throws VerdictDBDbmsException {
+    if (!streamingEnabled) {
+      return execute(sql);
+    }
+    List<String> sqls = splitOnSemicolon(sql, syntax.doesEscapeWithBackslash());
+    if (sqls.isEmpty()) {
+      return null;
+    }
+    if (sqls.size() > 1) {
+      List<String> preceding = sqls.subList(0, sqls.size() - 1);
+      if (isBatchable(preceding)) {
+        executeBatch(preceding);
+      } else {
+        for (String s : preceding) {
+          executeSingle(s);
+        }
+      }
+    }
+    return executeSingleStreaming(sqls.get(sqls.size() - 1));
+  }
+
+  private DbmsQueryResult executeSingleStreaming(String sql) throws VerdictDBDbmsException {
+    if (outputDebugMessage) {
+      System.out.println("About to issue this streaming query: " + sql);
+    }
+
+    Statement stmt = null;
+    try {
+      stmt = conn.createStatement();
+      stmt.setFetchSize(fetchSize);
+      boolean doesResultExist = stmt.execute(sql);
+      if (doesResultExist) {
+        return new StreamingJdbcQueryResult(
+            stmt, stmt.getResultSet(), sql, streamingBufferLimit);
+      } else {
+        stmt.close();
+        return null;
+      }
+    } catch (SQLException e) {
+      try {
+        if (stmt != null) {
+          stmt.close();
+        }
+      } catch (SQLException e1) {
+        // the original exception is reported
+      }
+      throw new VerdictDBDbmsException(e.getMessage());
+    }
+  }
+
   //  @Override
   //  public DbmsQueryResult getResult() {
   //    return jrs;
@@ -264,31 +458,61 @@ public class JdbcConnection implements DbmsConnection {
     DbmsQueryResult queryResult = executeQuery(syntax.getColumnsCommand(schema, table));
 
     while (queryResult.next()) {
-      String type;
-      if (syntax instanceof PostgresqlSyntax) {
-        type = queryResult.getString(syntax.getColumnTypeColumnIndex());
-        if (queryResult.getInt(((PostgresqlSyntax) syntax).getCharacterMaximumLengthColumnIndex())
-            != 0) {
-          type =
-              type
-                  + "("
-                  + queryResult.getInt(
-                      ((PostgresqlSyntax) syntax).getCharacterMaximumLengthColumnIndex())
-                  + ")";
-        }
-      } else {
-        type = queryResult.getString(syntax.getColumnTypeColumnIndex());
-      }
-      type = type.toLowerCase();
+      columns.add(readColumn(queryResult));
+    }
 
-      //        // remove the size of type
-      //        type = type.replaceAll("\\(.*\\)", "");
+    return columns;
+  }
 
-      columns.add(
-          new ImmutablePair<>(queryResult.getString(syntax.getColumnNameColumnIndex()), type));
+  /**
+   * Retrieves the columns of all the tables in a schema with a single query, if the syntax
+   * supports it.
+   */
+  @Override
+  public Map<String, List<Pair<String, String>>> getAllColumns(String schema)
+      throws VerdictDBDbmsException {
+    String sql = syntax.getAllColumnsCommand(schema);
+    if (sql == null || syntax.getAllColumnsTableNameColumnIndex() < 0) {
+      return null;
     }
 
-    return columns;
+    Map<String, List<Pair<String, String>>> allColumns = new HashMap<>();
+    DbmsQueryResult queryResult = executeQuery(sql);
+    while (queryResult.next()) {
+      String table = queryResult.getString(syntax.getAllColumnsTableNameColumnIndex());
+      List<Pair<String, String>> columns = allColumns.get(table);
+      if (columns == null) {
+        columns = new ArrayList<>();
+        allColumns.put(table, columns);
+      }
+      columns.add(readColumn(queryResult));
+    }
+    return allColumns;
+  }
+
+  /** Reads the name and the type of a column from the current row of a columns command. */
+  private Pair<String, String> readColumn(DbmsQueryResult queryResult) {
+    String type;
+    if (syntax instanceof PostgresqlSyntax) {
+      type = queryResult.getString(syntax.getColumnTypeColumnIndex());
+      if (queryResult.getInt(((PostgresqlSyntax) syntax).getCharacterMaximumLengthColumnIndex())
+          != 0) {
+        type =
+            type
+                + "("
+                + queryResult.getInt(
+                    ((PostgresqlSyntax) syntax).getCharacterMaximumLengthColumnIndex())
+                + ")";
+      }
+    } else {
+      type = queryResult.getString(syntax.getColumnTypeColumnIndex());
+    }
+    type = type.toLowerCase();
+
+    //        // remove the size of type
+    //        type = type.replaceAll("\\(.*\\)", "");
+
+    return new ImmutablePair<>(queryResult.getString(syntax.getColumnNameColumnIndex()), type);
   }
 
   @Override
@@ -355,6 +579,40 @@ public class JdbcConnection implements DbmsConnection {
     currentSchema = schema;
   }
 
+  /** @return True if this connection was opened from a connection string. */
+  public boolean canOpenSeparateConnection() {
+    return connectionString != null;
+  }
+
+  /**
+   * Opens another connection to the same database with the same settings. Unlike copy(), the
+   * returned connection does not share the underlying java.sql.Connection, so the two can issue
+   * queries concurrently. The caller must close it.
+   *
+   * @return The new connection
+   * @throws VerdictDBDbmsException if the connection string is not known or the connection fails
+   */
+  public JdbcConnection openSeparateConnection() throws VerdictDBDbmsException {
+    if (connectionString == null) {
+      throw new VerdictDBDbmsException(
+          "A separate connection cannot be opened without the connection string.");
+    }
+    JdbcConnection newConn;
+    try {
+      Connection separateConn = DriverManager.getConnection(connectionString, connectionInfo);
+      newConn = create(separateConn, connectionString, connectionInfo);
+    } catch (SQLException e) {
+      throw new VerdictDBDbmsException(e);
+    }
+    newConn.setDefaultSchema(currentSchema);
+    newConn.outputDebugMessage = this.outputDebugMessage;
+    newConn.fetchSize = this.fetchSize;
+    newConn.streamingEnabled = this.streamingEnabled;
+    newConn.streamingBufferLimit = this.streamingBufferLimit;
+    newConn.supportsBatchUpdates = this.supportsBatchUpdates;
+    return newConn;
+  }
+
   public DatabaseMetaData getMetadata() throws VerdictDBDbmsException {
     try {
       return conn.getMetaData();
@@ -371,12 +629,51 @@ public class JdbcConnection implements DbmsConnection {
     this.outputDebugMessage = outputDebugMessage;
   }
 
+  public int getFetchSize() {
+    return fetchSize;
+  }
+
+  /** @param fetchSize The number of rows fetched at a time by executeStreaming() */
+  public void setFetchSize(int fetchSize) {
+    this.fetchSize = fetchSize;
+  }
+
+  public boolean isStreamingEnabled() {
+    return streamingEnabled;
+  }
+
+  /**
+   * @param streamingEnabled Whether executeStreaming() streams results. Disabled by default since
+   *     some drivers need additional settings for streaming (see StreamingJdbcQueryResult).
+   */
+  public void setStreamingEnabled(boolean streamingEnabled) {
+    this.streamingEnabled = streamingEnabled;
+  }
+
+  public int getStreamingBufferLimit() {
+    return streamingBufferLimit;
+  }
+
+  /**
+   * @param streamingBufferLimit The number of rows kept in memory by streaming results; the rows
+   *     beyond it are read again by executing the query again when they are read again.
+   */
+  public void setStreamingBufferLimit(int streamingBufferLimit) {
+    this.streamingBufferLimit = streamingBufferLimit;
+  }
+
   @Override
   public DbmsConnection copy() {
     JdbcConnection newConn = new JdbcConnection(conn, syntax);
     newConn.setDefaultSchema(currentSchema);
     newConn.jrs = this.jrs;
     newConn.outputDebugMessage = this.outputDebugMessage;
+    newConn.fetchSize = this.fetchSize;
+    newConn.streamingEnabled = this.streamingEnabled;
+    newConn.streamingBufferLimit = this.streamingBufferLimit;
+    newConn.supportsBatchUpdates = this.supportsBatchUpdates;
+    newConn.connectionString = this.connectionString;
+    newConn.connectionInfo = this.connectionInfo;
     return newConn;
   }
 }
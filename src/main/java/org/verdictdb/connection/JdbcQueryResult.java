@@ -34,13 +34,57 @@ public class JdbcQueryResult extends AttributeValueRetrievalHelper implements Db
 
   //  ResultSet resultSet;
 
-  List<List<Object>> result = new ArrayList<>();
+  ColumnarResultBuffer result;
 
   int cursor = -1;
 
   DbmsQueryResultMetaData dbmsQueryResultMetaData = new DbmsQueryResultMetaData();
 
   public JdbcQueryResult(ResultSet resultSet) throws SQLException {
+    dbmsQueryResultMetaData = readMetaData(resultSet.getMetaData(), columnNames, columnTypes);
+    result = new ColumnarResultBuffer(columnTypes);
+    while (resultSet.next()) {
+      result.addRow(resultSet);
+    }
+    result.trimToSize();
+  }
+
+  /**
+   * Buffers the rows of another result, e.g., a streaming result that holds a statement open.
+   * The given result is read to the end.
+   *
+   * @param other A result none of whose rows has been read
+   */
+  public JdbcQueryResult(DbmsQueryResult other) {
+    dbmsQueryResultMetaData = other.getMetaData();
+    for (int i = 0; i < other.getColumnCount(); i++) {
+      columnNames.add(other.getColumnName(i));
+      columnTypes.add(other.getColumnType(i));
+    }
+    result = new ColumnarResultBuffer(columnTypes);
+    other.rewind();
+    while (other.next()) {
+      List<Object> row = new ArrayList<>();
+      for (int i = 0; i < columnNames.size(); i++) {
+        row.add(other.getValue(i));
+      }
+      result.addRow(row);
+    }
+    result.trimToSize();
+  }
+
+  /**
+   * Reads the column names, the column types, and the other metadata of a result set.
+   *
+   * @param meta The metadata of a result set
+   * @param columnNames The list to which the (lower-cased) column names are added
+   * @param columnTypes The list to which the column types are added
+   * @return The other metadata
+   * @throws SQLException
+   */
+  static DbmsQueryResultMetaData readMetaData(
+      ResultSetMetaData meta, List<String> columnNames, List<Integer> columnTypes)
+      throws SQLException {
     List<Boolean> isCurrency = new ArrayList<>();
     List<Integer> isNullable = new ArrayList<>();
     List<Integer> precision = new ArrayList<>();
@@ -49,7 +93,6 @@ public class JdbcQueryResult extends AttributeValueRetrievalHelper implements Db
     List<Boolean> isAutoIncrement = new ArrayList<>();
     List<String> columnClassName = new ArrayList<>();
 
-    ResultSetMetaData meta = resultSet.getMetaData();
     int columnCount = meta.getColumnCount();
     for (int i = 0; i < columnCount; i++) {
       columnNames.add(meta.getColumnLabel(i + 1).toLowerCase());
@@ -62,6 +105,8 @@ public class JdbcQueryResult extends AttributeValueRetrievalHelper implements Db
       isAutoIncrement.add(meta.isAutoIncrement(i + 1));
       columnClassName.add(meta.getColumnClassName(i + 1));
     }
+
+    DbmsQueryResultMetaData dbmsQueryResultMetaData = new DbmsQueryResultMetaData();
     dbmsQueryResultMetaData.columnDisplaySize = columnDisplaySize;
     dbmsQueryResultMetaData.isAutoIncrement = isAutoIncrement;
     dbmsQueryResultMetaData.isCurrency = isCurrency;
@@ -69,19 +114,7 @@ public class JdbcQueryResult extends AttributeValueRetrievalHelper implements Db
     dbmsQueryResultMetaData.precision = precision;
     dbmsQueryResultMetaData.scale = scale;
     dbmsQueryResultMetaData.columnClassName = columnClassName;
-
-    while (resultSet.next()) {
-      List<Object> row = new ArrayList<>();
-      for (int i = 0; i < columnCount; i++) {
-        //        if (resultSet.getMetaData().getColumnType(i+1) == BIT) {
-        //          row.add(resultSet.getString(i+1));
-        //        } else {
-        Object value = resultSet.getObject(i + 1);
-        row.add(value);
-        //        }
-      }
-      result.add(row);
-    }
+    return dbmsQueryResultMetaData;
   }
 
   @Override
@@ -106,7 +139,7 @@ public class JdbcQueryResult extends AttributeValueRetrievalHelper implements Db
 
   @Override
   public boolean next() {
-    if (cursor < result.size() - 1) {
+    if (cursor < result.getRowCount() - 1) {
       cursor++;
       return true;
     } else {
@@ -119,7 +152,7 @@ public class JdbcQueryResult extends AttributeValueRetrievalHelper implements Db
 
     Object value = null;
     try {
-      value = (Object) result.get(cursor).get(index);
+      value = result.getValue(cursor, index);
       // value = resultSet.getObject(index + 1);
     } catch (Exception e) {
       e.printStackTrace();
@@ -127,6 +160,47 @@ public class JdbcQueryResult extends AttributeValueRetrievalHelper implements Db
     return value;
   }
 
+  /** @return True if the value of the column in the current row is null. */
+  public boolean isNull(int index) {
+    return result.isNull(cursor, index);
+  }
+
+  // The getters below read the primitive-typed columns without boxing.
+
+  @Override
+  public String getString(int index) {
+    if (result.isStringColumn(index)) {
+      return result.getString(cursor, index);
+    }
+    return super.getString(index);
+  }
+
+  @Override
+  public int getInt(int index) {
+    if (result.isLongColumn(index)) {
+      return (int) result.getLong(cursor, index);
+    }
+    return super.getInt(index);
+  }
+
+  @Override
+  public long getLong(int index) {
+    if (result.isLongColumn(index)) {
+      return result.getLong(cursor, index);
+    }
+    return super.getLong(index);
+  }
+
+  @Override
+  public double getDouble(int index) {
+    if (result.isDoubleColumn(index)) {
+      return result.getDouble(cursor, index);
+    } else if (result.isLongColumn(index)) {
+      return result.getLong(cursor, index);
+    }
+    return super.getDouble(index);
+  }
+
   @Override
   public void printContent() {
     int oldCursor = cursor;
@@ -166,8 +240,13 @@ public class JdbcQueryResult extends AttributeValueRetrievalHelper implements Db
     cursor = oldCursor;
   }
 
+  /** @return A copy of the rows in the row-major form */
   public List<List<Object>> getResult() {
-    return result;
+    List<List<Object>> rows = new ArrayList<>(result.getRowCount());
+    for (int i = 0; i < result.getRowCount(); i++) {
+      rows.add(result.getRow(i));
+    }
+    return rows;
   }
 
   @Override
@@ -177,6 +256,6 @@ public class JdbcQueryResult extends AttributeValueRetrievalHelper implements Db
 
   @Override
   public long getRowCount() {
-    return result.size();
+    return result.getRowCount();
   }
 }
@@ -0,0 +1,80 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.connection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.verdictdb.exception.VerdictDBDbmsException;
+
+/**
+ * Keeps the separate connections over which metadata is retrieved concurrently. A connection is
+ * opened only when no idle one is available, so the number of the connections is bounded by the
+ * number of the concurrent lookups. The idle connections are closed with the pool.
+ */
+class MetaDataConnectionPool {
+
+  private final JdbcConnection origin;
+
+  private final Deque<JdbcConnection> idle = new ArrayDeque<>();
+
+  private boolean closed = false;
+
+  MetaDataConnectionPool(JdbcConnection origin) {
+    this.origin = origin;
+  }
+
+  JdbcConnection borrow() throws VerdictDBDbmsException {
+    synchronized (this) {
+      if (closed) {
+        throw new VerdictDBDbmsException("The connection has been closed.");
+      }
+      if (!idle.isEmpty()) {
+        return idle.pop();
+      }
+    }
+    return origin.openSeparateConnection();
+  }
+
+  void release(JdbcConnection conn) {
+    synchronized (this) {
+      if (!closed) {
+        idle.push(conn);
+        return;
+      }
+    }
+    conn.close();
+  }
+
+  synchronized int getIdleCount() {
+    return idle.size();
+  }
+
+  void close() {
+    List<JdbcConnection> toClose;
+    synchronized (this) {
+      closed = true;
+      toClose = new ArrayList<>(idle);
+      idle.clear();
+    }
+    for (JdbcConnection conn : toClose) {
+      conn.close();
+    }
+  }
+}
@@ -20,6 +20,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.verdictdb.exception.VerdictDBDbmsException;
 
 import java.util.List;
+import java.util.Map;
 
 public interface MetaDataProvider {
 
@@ -33,6 +34,16 @@ public interface MetaDataProvider {
   public List<String> getPartitionColumns(String schema, String table)
       throws VerdictDBDbmsException;
 
+  /**
+   * Retrieves the columns of all the tables in a schema at once.
+   *
+   * @param schema The schema
+   * @return A map from table names to their columns; null if not supported.
+   * @throws VerdictDBDbmsException
+   */
+  public Map<String, List<Pair<String, String>>> getAllColumns(String schema)
+      throws VerdictDBDbmsException;
+
   public String getDefaultSchema();
 
   public void setDefaultSchema(String schema);
@@ -27,6 +27,7 @@ import org.verdictdb.sqlsyntax.SqlSyntax;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class SparkConnection implements DbmsConnection {
 
@@ -36,6 +37,20 @@ public class SparkConnection implements DbmsConnection {
 
   String currentSchema;
 
+  public static final int DEFAULT_STREAMING_BUFFER_LIMIT = 10000;
+
+  private int streamingBufferLimit = DEFAULT_STREAMING_BUFFER_LIMIT;
+
+  // whether executeStreaming() streams results; if false, it is the same as execute().
+  private boolean streamingEnabled = false;
+
+  private static final String GLOBAL_TEMP_DATABASE_PROPERTY = "spark.sql.globalTempDatabase";
+
+  private static final String DEFAULT_GLOBAL_TEMP_DATABASE = "global_temp";
+
+  // if true, the select queries keep their intermediate tables as cached temporary views.
+  private boolean useTemporaryViews = false;
+
   public SparkConnection(SparkSession sc) {
     this.sc = sc;
     this.syntax = new SparkSyntax();
@@ -88,6 +103,12 @@ public class SparkConnection implements DbmsConnection {
     return columns;
   }
 
+  /** DESCRIBE retrieves the columns of a single table; thus, not supported. */
+  @Override
+  public Map<String, List<Pair<String, String>>> getAllColumns(String schema) {
+    return null;
+  }
+
   @Override
   public List<String> getPartitionColumns(String schema, String table)
       throws VerdictDBDbmsException {
@@ -122,7 +143,7 @@ public class SparkConnection implements DbmsConnection {
     try {
       // System.out.println("query to issue " + query);
       SparkQueryResult srs = null;
-      Dataset<Row> result = sc.sql(query);
+      Dataset<Row> result = executeStatements(query);
       if (result != null) {
         srs = new SparkQueryResult(result);
       }
@@ -133,6 +154,86 @@ public class SparkConnection implements DbmsConnection {
     }
   }
 
+  /**
+   * Pulls the rows to the driver one partition at a time. The first streamingBufferLimit rows are
+   * kept in memory so that small results (e.g., the answers of progressive aggregates) can be read
+   * multiple times without evaluating the query again. Unless streaming is enabled (see
+   * setStreamingEnabled()), the same as execute().
+   */
+  @Override
+  public DbmsQueryResult executeStreaming(String query) throws VerdictDBDbmsException {
+    if (!streamingEnabled) {
+      return execute(query);
+    }
+    try {
+      Dataset<Row> result = executeStatements(query);
+      if (result == null) {
+        return null;
+      }
+      return new StreamingSparkQueryResult(result, streamingBufferLimit);
+    } catch (Exception e) {
+      throw new VerdictDBDbmsException(e.getMessage());
+    }
+  }
+
+  /**
+   * Runs the statements of a given query (separated by semicolons) in order, e.g., the creation and
+   * the caching of a temporary view.
+   *
+   * @return The result of the last statement
+   */
+  private Dataset<Row> executeStatements(String query) {
+    List<String> statements =
+        JdbcConnection.splitOnSemicolon(query, syntax.doesEscapeWithBackslash());
+    if (statements.size() <= 1) {
+      return sc.sql(query);
+    }
+    Dataset<Row> result = null;
+    for (String statement : statements) {
+      result = sc.sql(statement);
+    }
+    return result;
+  }
+
+  public int getStreamingBufferLimit() {
+    return streamingBufferLimit;
+  }
+
+  /** @param streamingBufferLimit The number of rows kept in memory by streaming results */
+  public void setStreamingBufferLimit(int streamingBufferLimit) {
+    this.streamingBufferLimit = streamingBufferLimit;
+  }
+
+  public boolean isStreamingEnabled() {
+    return streamingEnabled;
+  }
+
+  /** @param streamingEnabled Whether executeStreaming() streams results; disabled by default. */
+  public void setStreamingEnabled(boolean streamingEnabled) {
+    this.streamingEnabled = streamingEnabled;
+  }
+
+  public boolean isUsingTemporaryViews() {
+    return useTemporaryViews;
+  }
+
+  /**
+   * If set to true, the select queries using this connection keep their intermediate tables as
+   * cached global temporary views in the temporary view schema (i.e., the database of global
+   * temporary views) instead of Parquet tables; thus, no data is written to the warehouse directory
+   * and nothing is registered in the metastore. The views are dropped when the queries finish.
+   *
+   * @param useTemporaryViews True to enable
+   */
+  public void setUseTemporaryViews(boolean useTemporaryViews) {
+    this.useTemporaryViews = useTemporaryViews;
+  }
+
+  /** @return The database of global temporary views; "global_temp" by default. */
+  public String getTemporaryViewSchema() {
+    return sc.conf().get(GLOBAL_TEMP_DATABASE_PROPERTY, DEFAULT_GLOBAL_TEMP_DATABASE);
+  }
+
   @Override
   public SqlSyntax getSyntax() {
     return syntax;
@@ -155,6 +256,9 @@ public class SparkConnection implements DbmsConnection {
   public DbmsConnection copy() {
     SparkConnection newConn = new SparkConnection(sc, syntax);
     newConn.setDefaultSchema(currentSchema);
+    newConn.streamingBufferLimit = streamingBufferLimit;
+    newConn.streamingEnabled = streamingEnabled;
+    newConn.useTemporaryViews = useTemporaryViews;
     return newConn;
   }
 }
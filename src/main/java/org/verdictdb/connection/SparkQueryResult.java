@@ -19,6 +19,7 @@ package org.verdictdb.connection;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
 import org.verdictdb.commons.AttributeValueRetrievalHelper;
 
 import java.util.ArrayList;
@@ -43,9 +44,23 @@ public class SparkQueryResult extends AttributeValueRetrievalHelper implements D
 
   public SparkQueryResult(Dataset<Row> dataset) {
     //    Tuple2<String, String>[] colNameAndColType = dataset.dtypes();
+    dbmsQueryResultMetaData = readMetaData(dataset.schema(), columnNames, columnTypes);
+    result = dataset.collectAsList();
+  }
+
+  /**
+   * Reads the column names, the column types, and the other metadata of a dataset.
+   *
+   * @param schema The schema of a dataset
+   * @param columnNames The list to which the column names are added
+   * @param columnTypes The list to which the column types (java.sql.Types) are added
+   * @return The other metadata
+   */
+  static DbmsQueryResultMetaData readMetaData(
+      StructType schema, List<String> columnNames, List<Integer> columnTypes) {
     List<Integer> nullable = new ArrayList<>();
     List<String> columnClassName = new ArrayList<>();
-    for (StructField structField : dataset.schema().fields()) {
+    for (StructField structField : schema.fields()) {
       if (structField.nullable()) {
         nullable.add(columnNullable);
       } else {
@@ -56,9 +71,10 @@ public class SparkQueryResult extends AttributeValueRetrievalHelper implements D
       columnTypes.add(type);
       columnClassName.add(SparkDataTypeConverter.typeClassName(type));
     }
+    DbmsQueryResultMetaData dbmsQueryResultMetaData = new DbmsQueryResultMetaData();
     dbmsQueryResultMetaData.isNullable = nullable;
     dbmsQueryResultMetaData.columnClassName = columnClassName;
-    result = dataset.collectAsList();
+    return dbmsQueryResultMetaData;
   }
 
   @Override
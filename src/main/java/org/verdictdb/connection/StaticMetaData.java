@@ -42,6 +42,14 @@ public class StaticMetaData implements MetaDataProvider {
       return new TableInfo(schema, tablename);
     }
 
+    public String getSchema() {
+      return schema;
+    }
+
+    public String getTablename() {
+      return tablename;
+    }
+
     @Override
     public boolean equals(Object obj) {
       return EqualsBuilder.reflectionEquals(this, obj);
@@ -124,6 +132,17 @@ public class StaticMetaData implements MetaDataProvider {
     return nameAndType;
   }
 
+  @Override
+  public Map<String, List<Pair<String, String>>> getAllColumns(String schema) {
+    Map<String, List<Pair<String, String>>> allColumns = new HashMap<>();
+    for (Pair<String, String> t : columns.keySet()) {
+      if (t.getLeft() == null ? schema == null : t.getLeft().equals(schema)) {
+        allColumns.put(t.getRight(), getColumns(schema, t.getRight()));
+      }
+    }
+    return allColumns;
+  }
+
   @Override
   public List<String> getPartitionColumns(String schema, String table) {
     return partitions.get(new ImmutablePair<>(schema, table));
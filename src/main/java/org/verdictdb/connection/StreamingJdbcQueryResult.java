@@ -0,0 +1,312 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.connection;
+
+import com.rits.cloning.Immutable;
+import org.verdictdb.commons.AttributeValueRetrievalHelper;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A query result that reads rows from an open JDBC result set as next() is called. Unlike
+ * JdbcQueryResult, the query does not have to finish before the first row is read; the rows are
+ * fetched from the database fetchSize rows at a time as they are read.
+ *
+ * <p>The first bufferLimit rows are kept in a columnar buffer as they are read. If the result has
+ * no more rows than that (e.g., the answers of progressive aggregates), rewind() and getRowCount()
+ * cost nothing. Otherwise, only the current row is kept in memory: getRowCount() reads the
+ * remaining rows to count them, and the rows that are not in the buffer any more are read again by
+ * executing the query again. The statement is closed when the last row is read or close() is
+ * called; after close(), no more rows are read.
+ *
+ * <p>Whether the rows are actually fetched incrementally depends on the driver. For example, the
+ * PostgreSQL driver ignores the fetch size unless auto-commit is off; the MySQL driver requires
+ * either useCursorFetch=true or a fetch size of Integer.MIN_VALUE, and then no other statement can
+ * be issued on the connection until the result is read to the end or closed.
+ *
+ * <p>This object is not cloned by Cloner (annotated as Immutable); the execution tokens carrying it
+ * pass the same stream to its single reader.
+ */
+@Immutable
+public class StreamingJdbcQueryResult extends AttributeValueRetrievalHelper
+    implements DbmsQueryResult {
+
+  private static final long serialVersionUID = -1393405286016532512L;
+
+  private transient Connection connection;
+
+  private transient Statement statement;
+
+  private transient ResultSet resultSet;
+
+  // the query executed again to read the rows not in the buffer; null if not executed again.
+  private String sql;
+
+  private int fetchSize;
+
+  private int bufferLimit;
+
+  private boolean closed = false;
+
+  private List<String> columnNames = new ArrayList<>();
+
+  private List<Integer> columnTypes = new ArrayList<>();
+
+  private DbmsQueryResultMetaData dbmsQueryResultMetaData;
+
+  // the first min(row count, bufferLimit) rows
+  private ColumnarResultBuffer rows;
+
+  // the current row if it is not in the buffer
+  private List<Object> currentRow;
+
+  // the number of rows consumed from the result set
+  private long resultSetPosition = 0;
+
+  // the position of the current row; -1 before the first row.
+  private long position = -1;
+
+  // -1 if not known yet
+  private long rowCount = -1;
+
+  /**
+   * Creates a result that keeps every row read in memory.
+   *
+   * @param statement The statement that produced the result set; closed together with the result
+   *     set.
+   * @param resultSet The result set to read
+   * @throws SQLException
+   */
+  public StreamingJdbcQueryResult(Statement statement, ResultSet resultSet) throws SQLException {
+    this(statement, resultSet, null, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param statement The statement that produced the result set; closed together with the result
+   *     set.
+   * @param resultSet The result set to read
+   * @param sql The query that produced the result set. It is executed again on the connection of
+   *     the statement to read the rows beyond the buffer again.
+   * @param bufferLimit The maximum number of rows kept in memory
+   * @throws SQLException
+   */
+  public StreamingJdbcQueryResult(
+      Statement statement, ResultSet resultSet, String sql, int bufferLimit) throws SQLException {
+    this.connection = statement.getConnection();
+    this.statement = statement;
+    this.resultSet = resultSet;
+    this.sql = sql;
+    this.fetchSize = statement.getFetchSize();
+    this.bufferLimit = (sql == null) ? Integer.MAX_VALUE : bufferLimit;
+    dbmsQueryResultMetaData =
+        JdbcQueryResult.readMetaData(resultSet.getMetaData(), columnNames, columnTypes);
+    rows = new ColumnarResultBuffer(columnTypes);
+  }
+
+  @Override
+  public DbmsQueryResultMetaData getMetaData() {
+    return dbmsQueryResultMetaData;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return columnNames.size();
+  }
+
+  @Override
+  public String getColumnName(int index) {
+    return columnNames.get(index);
+  }
+
+  @Override
+  public int getColumnType(int index) {
+    return columnTypes.get(index);
+  }
+
+  /** The rows beyond the buffer are read again by executing the query again. */
+  @Override
+  public void rewind() {
+    position = -1;
+    currentRow = null;
+  }
+
+  @Override
+  public boolean next() {
+    currentRow = null;
+    if (closed || (rowCount >= 0 && position + 1 >= rowCount)) {
+      return false;
+    }
+    position++;
+    if (position < rows.getRowCount()) {
+      return true;
+    }
+
+    // the rows before the current position have been consumed by a previous read.
+    if (resultSetPosition > position || resultSet == null) {
+      if (sql == null) {
+        return false;
+      }
+      executeAgain();
+    }
+    while (resultSetPosition < position && readRow(false)) {}
+    if (resultSetPosition == position && readRow(true)) {
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the total number of rows. The rows not read yet are read to count them; they are kept
+   * in the buffer if it has room.
+   *
+   * @return The number of rows including the ones already read
+   */
+  @Override
+  public long getRowCount() {
+    while (rowCount < 0 && readRow(false)) {}
+    return (rowCount < 0) ? resultSetPosition : rowCount;
+  }
+
+  @Override
+  public Object getValue(int index) {
+    Object value = null;
+    try {
+      if (currentRow != null) {
+        value = currentRow.get(index);
+      } else {
+        value = rows.getValue((int) position, index);
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+    return value;
+  }
+
+  /** Prints the column names and the rows after the current one, to which the cursor moves. */
+  @Override
+  public void printContent() {
+    StringBuilder row = new StringBuilder();
+    for (int i = 0; i < columnNames.size(); i++) {
+      if (i > 0) {
+        row.append("\t");
+      }
+      row.append(columnNames.get(i));
+    }
+    System.out.println(row.toString());
+
+    int colCount = getColumnCount();
+    while (next()) {
+      row = new StringBuilder();
+      for (int i = 0; i < colCount; i++) {
+        if (i > 0) {
+          row.append("\t");
+        }
+        row.append(getString(i));
+      }
+      System.out.println(row.toString());
+    }
+  }
+
+  /** @return The number of rows kept in memory, excluding the current row */
+  int getBufferedRowCount() {
+    return rows.getRowCount();
+  }
+
+  /** @return True if the underlying statement has been closed. */
+  public boolean isClosed() {
+    return resultSet == null;
+  }
+
+  /** Closes the underlying statement. No more rows are read afterwards. */
+  public void close() {
+    closed = true;
+    currentRow = null;
+    closeStatement();
+  }
+
+  private void closeStatement() {
+    try {
+      if (resultSet != null) {
+        resultSet.close();
+      }
+      if (statement != null) {
+        statement.close();
+      }
+    } catch (SQLException e) {
+      e.printStackTrace();
+    } finally {
+      resultSet = null;
+      statement = null;
+      rows.trimToSize();
+    }
+  }
+
+  private void executeAgain() {
+    closeStatement();
+    try {
+      statement = connection.createStatement();
+      statement.setFetchSize(fetchSize);
+      resultSet = statement.executeQuery(sql);
+      resultSetPosition = 0;
+    } catch (SQLException e) {
+      closeStatement();
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Reads the next row of the result set. The row is added to the buffer if it is the next row to
+   * buffer and the buffer has room. The statement is closed once the last row is read.
+   *
+   * @param isCurrent True if the row becomes the current row
+   * @return False if there is no more row to read
+   */
+  private boolean readRow(boolean isCurrent) {
+    if (resultSet == null) {
+      return false;
+    }
+    try {
+      if (resultSet.next()) {
+        if (resultSetPosition == rows.getRowCount() && rows.getRowCount() < bufferLimit) {
+          rows.addRow(resultSet);
+        } else if (isCurrent) {
+          currentRow = new ArrayList<>(columnNames.size());
+          for (int i = 0; i < columnNames.size(); i++) {
+            currentRow.add(resultSet.getObject(i + 1));
+          }
+        }
+        resultSetPosition++;
+        if (resultSetPosition == rowCount) {
+          // the last row of a query executed again
+          closeStatement();
+        }
+        return true;
+      }
+    } catch (SQLException e) {
+      closeStatement();
+      throw new RuntimeException(e);
+    }
+    rowCount = resultSetPosition;
+    closeStatement();
+    return false;
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.connection;
+
+import com.rits.cloning.Immutable;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.verdictdb.commons.AttributeValueRetrievalHelper;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A query result that pulls the rows of a dataset to the driver one partition at a time (using
+ * toLocalIterator()) as next() is called. Unlike SparkQueryResult, the entire result is never
+ * collected onto the driver at once.
+ *
+ * <p>The first bufferLimit rows are kept in memory as they are read. If the result has no more rows
+ * than that (e.g., the answers of progressive aggregates), rewind() and getRowCount() cost nothing.
+ * Otherwise, they are computed only when called: rewind() re-iterates the dataset (i.e., Spark
+ * evaluates it again), and getRowCount() runs count() on the dataset unless all rows have been read.
+ *
+ * <p>This object is not cloned by Cloner (annotated as Immutable); the execution tokens carrying it
+ * pass the same result to its single reader.
+ */
+@Immutable
+public class StreamingSparkQueryResult extends AttributeValueRetrievalHelper
+    implements DbmsQueryResult {
+
+  private static final long serialVersionUID = 8233104612436807187L;
+
+  private transient Dataset<Row> dataset;
+
+  private transient Iterator<Row> iterator;
+
+  // the number of rows consumed from the iterator
+  private long iteratorPosition = 0;
+
+  private int bufferLimit;
+
+  // the first min(row count, bufferLimit) rows
+  private List<Row> buffer = new ArrayList<>();
+
+  // the position of the current row; -1 before the first row.
+  private long position = -1;
+
+  private Row currentRow;
+
+  // -1 if not known yet
+  private long rowCount = -1;
+
+  private List<String> columnNames = new ArrayList<>();
+
+  private List<Integer> columnTypes = new ArrayList<>();
+
+  private DbmsQueryResultMetaData dbmsQueryResultMetaData;
+
+  /** Creates a result that keeps no rows in memory. */
+  public StreamingSparkQueryResult(Dataset<Row> dataset) {
+    this(dataset, 0);
+  }
+
+  /**
+   * @param dataset The dataset to read
+   * @param bufferLimit The maximum number of rows kept in memory for rewind()
+   */
+  public StreamingSparkQueryResult(Dataset<Row> dataset, int bufferLimit) {
+    this.dataset = dataset;
+    this.bufferLimit = bufferLimit;
+    dbmsQueryResultMetaData =
+        SparkQueryResult.readMetaData(dataset.schema(), columnNames, columnTypes);
+  }
+
+  @Override
+  public DbmsQueryResultMetaData getMetaData() {
+    return dbmsQueryResultMetaData;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return columnNames.size();
+  }
+
+  @Override
+  public String getColumnName(int index) {
+    return columnNames.get(index);
+  }
+
+  @Override
+  public int getColumnType(int index) {
+    return columnTypes.get(index);
+  }
+
+  @Override
+  public boolean next() {
+    if (rowCount >= 0 && position + 1 >= rowCount) {
+      position = rowCount;
+      currentRow = null;
+      return false;
+    }
+    position++;
+
+    if (position < buffer.size()) {
+      currentRow = buffer.get((int) position);
+      return true;
+    }
+
+    // the rows before the current position have been consumed by a previous iteration.
+    if (iterator == null || iteratorPosition > position) {
+      iterator = dataset.toLocalIterator();
+      iteratorPosition = 0;
+    }
+    while (iteratorPosition < position && iterator.hasNext()) {
+      iterator.next();
+      iteratorPosition++;
+    }
+
+    if (iteratorPosition == position && iterator.hasNext()) {
+      currentRow = iterator.next();
+      iteratorPosition++;
+      if (position == buffer.size() && buffer.size() < bufferLimit) {
+        buffer.add(currentRow);
+      }
+      return true;
+    }
+
+    rowCount = position;
+    currentRow = null;
+    return false;
+  }
+
+  /** Rows are read again from the dataset if they are not kept in memory. */
+  @Override
+  public void rewind() {
+    position = -1;
+    currentRow = null;
+  }
+
+  /**
+   * Returns the number of rows. If not all rows have been read, count() is run on the dataset.
+   *
+   * @return The number of rows
+   */
+  @Override
+  public long getRowCount() {
+    if (rowCount < 0) {
+      rowCount = dataset.count();
+    }
+    return rowCount;
+  }
+
+  @Override
+  public Object getValue(int index) {
+    Object value = null;
+    try {
+      value = currentRow.get(index);
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+    return value;
+  }
+
+  @Override
+  public void printContent() {
+    long oldPosition = position;
+    rewind();
+
+    StringBuilder row = new StringBuilder();
+    for (int i = 0; i < columnNames.size(); i++) {
+      if (i > 0) {
+        row.append("\t");
+      }
+      row.append(columnNames.get(i));
+    }
+    System.out.println(row.toString());
+
+    int colCount = getColumnCount();
+    while (next()) {
+      row = new StringBuilder();
+      for (int i = 0; i < colCount; i++) {
+        if (i > 0) {
+          row.append("\t");
+        }
+        row.append(getString(i));
+      }
+      System.out.println(row.toString());
+    }
+
+    // restore the position; the current row is read again.
+    rewind();
+    while (position < oldPosition && next()) {}
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.coordinator;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.verdictdb.connection.DataTypeConverter;
+import org.verdictdb.connection.DbmsConnection;
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.core.sqlobject.AliasedColumn;
+import org.verdictdb.core.sqlobject.BaseColumn;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.ConstantColumn;
+import org.verdictdb.core.sqlobject.SelectItem;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.core.sqlobject.UnnamedColumn;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.exception.VerdictDBValueException;
+import org.verdictdb.sqlwriter.QueryToSql;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Chooses the size of the aggregation blocks of a scramble based on the latency of the backend.
+ *
+ * <p>The latency of a block query is modeled as (fixed overhead) + (per-row cost) * (block size).
+ * The fixed overhead is probed with a query that scans no rows; the per-row cost is probed with a
+ * query that aggregates a column of a bounded sample of the source table. The probe aggregates a
+ * column value rather than count(*) since many backends answer count(*) from the table metadata
+ * without reading any rows. The block size is then chosen so that the first block query finishes
+ * within the target latency.
+ */
+public class BlockSizeTuner {
+
+  /** The number of times the overhead probe is repeated; the smallest latency is used. */
+  static final int OVERHEAD_PROBE_COUNT = 3;
+
+  /** Upper bound on the number of blocks to keep the per-block metadata small. */
+  static final int MAX_BLOCK_COUNT = 1000;
+
+  /** The number of rows read by the per-row cost probe. */
+  static final long PROBE_SAMPLE_SIZE = 1000000;
+
+  private static final String COUNT_ALIAS_NAME = "verdictdbtotalcount";
+
+  private static final String PROBE_ALIAS_NAME = "verdictdbprobe";
+
+  private static final String SAMPLE_ALIAS_NAME = "verdictdbsample";
+
+  private DbmsConnection conn;
+
+  private double targetLatency;
+
+  private double overheadLatency = -1;
+
+  private double scanLatency = -1;
+
+  private long scannedRowCount = -1;
+
+  private long rowCount = -1;
+
+  /**
+   * @param conn Connection to the backend
+   * @param targetLatency The desired latency of the first answer (in seconds)
+   */
+  public BlockSizeTuner(DbmsConnection conn, double targetLatency) {
+    this.conn = conn;
+    this.targetLatency = targetLatency;
+  }
+
+  /**
+   * Probes the backend using the source table and returns the tuned block size.
+   *
+   * @param schemaName The schema of the source table
+   * @param tableName The source table
+   * @return The number of rows per block
+   * @throws VerdictDBException
+   */
+  public long tune(String schemaName, String tableName) throws VerdictDBException {
+    Pair<String, String> probeColumn = findProbeColumn(schemaName, tableName);
+    SelectItem count = new AliasedColumn(ColumnOp.count(), COUNT_ALIAS_NAME);
+
+    // the number of rows; this may be answered from the metadata, so it is not timed.
+    SelectQuery countQuery =
+        SelectQuery.create(Arrays.asList(count), new BaseTable(schemaName, tableName, "t"));
+    DbmsQueryResult countResult = conn.execute(QueryToSql.convert(conn.getSyntax(), countQuery));
+    countResult.next();
+    rowCount = countResult.getLong(0);
+
+    // fixed overhead: the probe query without any rows
+    String emptySql = QueryToSql.convert(
+        conn.getSyntax(), createProbeQuery(schemaName, tableName, probeColumn, true));
+    for (int i = 0; i < OVERHEAD_PROBE_COUNT; i++) {
+      long start = System.nanoTime();
+      conn.execute(emptySql);
+      double elapsed = (System.nanoTime() - start) / 1e9;
+      if (overheadLatency < 0 || elapsed < overheadLatency) {
+        overheadLatency = elapsed;
+      }
+    }
+
+    // per-row cost: the probe query reading up to PROBE_SAMPLE_SIZE rows
+    String scanSql = QueryToSql.convert(
+        conn.getSyntax(), createProbeQuery(schemaName, tableName, probeColumn, false));
+    long start = System.nanoTime();
+    DbmsQueryResult result = conn.execute(scanSql);
+    scanLatency = (System.nanoTime() - start) / 1e9;
+    result.next();
+    scannedRowCount = result.getLong(0);
+
+    return computeBlockSize(overheadLatency, scanLatency, scannedRowCount, rowCount, targetLatency);
+  }
+
+  /**
+   * Returns the name and type of a numeric column of the table if any; otherwise, the first
+   * column.
+   */
+  private Pair<String, String> findProbeColumn(String schemaName, String tableName)
+      throws VerdictDBException {
+    List<Pair<String, String>> columns = conn.getColumns(schemaName, tableName);
+    if (columns.isEmpty()) {
+      throw new VerdictDBValueException(
+          String.format("The table %s.%s has no columns.", schemaName, tableName));
+    }
+    for (Pair<String, String> column : columns) {
+      if (DataTypeConverter.isNumeric(column.getRight())) {
+        return column;
+      }
+    }
+    return columns.get(0);
+  }
+
+  /**
+   * Creates a query that aggregates the probe column of at most PROBE_SAMPLE_SIZE rows, i.e.,
+   * select count(*), sum(c) from (select c from t limit PROBE_SAMPLE_SIZE) s. A count of the
+   * column is used for non-numeric columns.
+   */
+  private SelectQuery createProbeQuery(
+      String schemaName, String tableName, Pair<String, String> probeColumn, boolean isEmpty) {
+    SelectQuery sample =
+        SelectQuery.create(
+            Arrays.<SelectItem>asList(new BaseColumn("t", probeColumn.getLeft())),
+            new BaseTable(schemaName, tableName, "t"));
+    if (isEmpty) {
+      sample.addFilterByAnd(
+          ColumnOp.equal(ConstantColumn.valueOf(1), ConstantColumn.valueOf(0)));
+    }
+    sample.addLimit(ConstantColumn.valueOf(PROBE_SAMPLE_SIZE));
+    sample.setAliasName(SAMPLE_ALIAS_NAME);
+
+    BaseColumn sampled = new BaseColumn(SAMPLE_ALIAS_NAME, probeColumn.getLeft());
+    ColumnOp touch =
+        DataTypeConverter.isNumeric(probeColumn.getRight())
+            ? ColumnOp.sum(sampled)
+            : new ColumnOp("count", Arrays.<UnnamedColumn>asList(sampled));
+    return SelectQuery.create(
+        Arrays.<SelectItem>asList(
+            new AliasedColumn(ColumnOp.count(), COUNT_ALIAS_NAME),
+            new AliasedColumn(touch, PROBE_ALIAS_NAME)),
+        sample);
+  }
+
+  /**
+   * Computes the block size from the probed latencies.
+   *
+   * @param overheadLatency The latency of a query scanning no rows (in seconds)
+   * @param scanLatency The latency of a query scanning scannedRowCount rows (in seconds)
+   * @param scannedRowCount The number of rows scanned by the per-row cost probe
+   * @param rowCount The number of rows in the table
+   * @param targetLatency The desired latency of a block query (in seconds)
+   * @return The number of rows per block; at least one.
+   */
+  static long computeBlockSize(
+      double overheadLatency,
+      double scanLatency,
+      long scannedRowCount,
+      long rowCount,
+      double targetLatency) {
+    if (rowCount <= 0) {
+      return 1;
+    }
+
+    // the smallest block size that keeps the number of blocks bounded
+    long minBlockSize = (long) Math.ceil(rowCount / (double) MAX_BLOCK_COUNT);
+
+    double perRowLatency =
+        (scannedRowCount > 0) ? Math.max(scanLatency - overheadLatency, 0) / scannedRowCount : 0;
+    double budget = targetLatency - overheadLatency;
+    if (budget <= 0) {
+      // the overhead alone exceeds the target; let a block scan take as long as the overhead.
+      budget = overheadLatency;
+    }
+    long blockSize;
+    if (perRowLatency == 0) {
+      // scanning the whole table is as cheap as the overhead
+      blockSize = rowCount;
+    } else {
+      blockSize = (long) Math.min(budget / perRowLatency, (double) rowCount);
+    }
+    return Math.max(Math.max(blockSize, minBlockSize), 1);
+  }
+
+  public double getOverheadLatency() {
+    return overheadLatency;
+  }
+
+  public double getScanLatency() {
+    return scanLatency;
+  }
+
+  public long getScannedRowCount() {
+    return scannedRowCount;
+  }
+
+  public long getRowCount() {
+    return rowCount;
+  }
+}
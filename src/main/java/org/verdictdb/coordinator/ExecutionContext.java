@@ -16,13 +16,22 @@
 
 package org.verdictdb.coordinator;
 
+import org.antlr.v4.runtime.misc.Interval;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.verdictdb.VerdictContext;
+import org.verdictdb.connection.CachedDbmsConnection;
+import org.verdictdb.connection.DbmsConnection;
 import org.verdictdb.connection.DbmsQueryResult;
 import org.verdictdb.core.resulthandler.ExecutionResultReader;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.sqlobject.AbstractRelation;
+import org.verdictdb.core.sqlobject.JoinTable;
+import org.verdictdb.core.sqlobject.SelectQuery;
 import org.verdictdb.exception.VerdictDBException;
 import org.verdictdb.exception.VerdictDBTypeException;
+import org.verdictdb.exception.VerdictDBValueException;
+import org.verdictdb.metastore.CachedScrambleMetaStore;
 import org.verdictdb.parser.VerdictSQLParser;
 import org.verdictdb.parser.VerdictSQLParserBaseVisitor;
 import org.verdictdb.sqlreader.NonValidatingSQLParser;
@@ -48,6 +57,7 @@ public class ExecutionContext {
   private enum QueryType {
     select,
     scrambling,
+    drop_scramble,
     set_default_schema,
     unknown,
     show_databases,
@@ -69,6 +79,11 @@ public class ExecutionContext {
   }
 
   public VerdictSingleResult sql(String query) throws VerdictDBException {
+    QueryResultCache resultCache = context.getResultCache();
+    if (resultCache != null && identifyQueryType(query).equals(QueryType.select)) {
+      return sqlWithResultCache(query, resultCache);
+    }
+
     VerdictResultStream stream = streamsql(query);
     if (stream == null) {
       return null;
@@ -79,19 +94,50 @@ public class ExecutionContext {
     return result;
   }
 
+  /**
+   * Only the first answer is read as in {@link #sql(String)}; it is cached unless the final answer
+   * has been cached by a stream that was read to the end.
+   */
+  private VerdictSingleResult sqlWithResultCache(String query, QueryResultCache resultCache)
+      throws VerdictDBException {
+    long scrambleMetaVersion = context.getScrambleMetaStore().getVersion();
+    String defaultSchema = context.getConnection().getDefaultSchema();
+    VerdictSingleResult cached = resultCache.getLatest(query, defaultSchema, scrambleMetaVersion);
+    if (cached != null) {
+      return cached;
+    }
+
+    ExecutionResultReader reader = processSelect(query, scrambleMetaVersion);
+    DbmsQueryResult result = QueryResultCache.buffer(reader.next());
+    resultCache.put(query, defaultSchema, scrambleMetaVersion, Arrays.asList(result), false);
+    return new VerdictSingleResultFromDbmsQueryResult(result);
+  }
+
   public VerdictResultStream streamsql(String query) throws VerdictDBException {
     // determines the type of the given query and forward it to an appropriate coordinator.
 
     QueryType queryType = identifyQueryType(query);
 
     if (queryType.equals(QueryType.select)) {
-      SelectQueryCoordinator coordinator =
-          new SelectQueryCoordinator(context.getCopiedConnection());
-      ExecutionResultReader reader = coordinator.process(query);
-      VerdictResultStream stream = new VerdictResultStreamFromExecutionResultReader(reader, this);
-      return stream;
+      long scrambleMetaVersion = context.getScrambleMetaStore().getVersion();
+      QueryResultCache resultCache = context.getResultCache();
+      if (resultCache == null) {
+        ExecutionResultReader reader = processSelect(query, scrambleMetaVersion);
+        return new VerdictResultStreamFromExecutionResultReader(reader, this);
+      }
+
+      String defaultSchema = context.getConnection().getDefaultSchema();
+      VerdictResultStream cached = resultCache.get(query, defaultSchema, scrambleMetaVersion);
+      if (cached != null) {
+        return cached;
+      }
+      ExecutionResultReader reader = processSelect(query, scrambleMetaVersion);
+      return resultCache.record(query, defaultSchema, scrambleMetaVersion, reader, this);
     } else if (queryType.equals(QueryType.scrambling)) {
-      ScramblingCoordinator coordinator = new ScramblingCoordinator(context.getCopiedConnection());
+      createScrambleFromQuery(query);
+      return null;
+    } else if (queryType.equals(QueryType.drop_scramble)) {
+      dropScrambleFromQuery(query);
       return null;
     } else if (queryType.equals(QueryType.set_default_schema)) {
       updateDefaultSchemaFromQuery(query);
@@ -110,6 +156,64 @@ public class ExecutionContext {
     }
   }
 
+  /**
+   * @param scrambleMetaVersion The version read before the metadata is retrieved; thus, neither a
+   *     plan nor an answer is cached with a newer version than its metadata.
+   */
+  private ExecutionResultReader processSelect(String query, long scrambleMetaVersion)
+      throws VerdictDBException {
+    SelectQueryCoordinator coordinator =
+        new SelectQueryCoordinator(
+            context.getCopiedConnection(), context.getScrambleMetaStore().retrieve());
+    coordinator.setPlanCache(context.getPlanCache(), scrambleMetaVersion);
+    return coordinator.process(query);
+  }
+
+  /**
+   * Compiles a select query with parameter placeholders ('?').
+   *
+   * @param query The query
+   * @return The compiled query; null if the query is not a select query.
+   */
+  public PreparedSelectQuery prepare(String query) throws VerdictDBException {
+    if (!identifyQueryType(query).equals(QueryType.select)) {
+      return null;
+    }
+    CachedScrambleMetaStore metaStore = context.getScrambleMetaStore();
+    long scrambleMetaVersion = metaStore.getVersion();
+    SelectQueryCoordinator coordinator =
+        new SelectQueryCoordinator(context.getCopiedConnection(), metaStore.retrieve());
+    coordinator.setPlanCache(null, scrambleMetaVersion);
+    return coordinator.prepare(query);
+  }
+
+  /**
+   * @return True if the prepared query was compiled with the current default schema and the
+   *     current scramble metadata.
+   */
+  public boolean isUpToDate(PreparedSelectQuery prepared) {
+    String defaultSchema = context.getConnection().getDefaultSchema();
+    return prepared.getScrambleMetaVersion() == context.getScrambleMetaStore().getVersion()
+        && (defaultSchema == null
+            ? prepared.getDefaultSchema() == null
+            : defaultSchema.equals(prepared.getDefaultSchema()));
+  }
+
+  public VerdictSingleResult sql(PreparedSelectQuery prepared, List<String> literals)
+      throws VerdictDBException {
+    VerdictResultStream stream = streamsql(prepared, literals);
+    VerdictSingleResult result = stream.next();
+    stream.close();
+    return result;
+  }
+
+  public VerdictResultStream streamsql(PreparedSelectQuery prepared, List<String> literals)
+      throws VerdictDBException {
+    // the scramble metadata is not needed since the query has been compiled.
+    SelectQueryCoordinator coordinator = new SelectQueryCoordinator(context.getCopiedConnection());
+    ExecutionResultReader reader = coordinator.process(prepared, literals);
+    return new VerdictResultStreamFromExecutionResultReader(reader, this);
+  }
 
   private VerdictResultStream generateShowSchemaResultFromQuery() throws VerdictDBException {
     List<String> header = Arrays.asList("schema");
@@ -159,6 +263,94 @@ public class ExecutionContext {
     return new VerdictResultStreamFromSingleResult(result);
   }
 
+  /**
+   * Creates a scramble and stores its metadata. If the source of the scramble is a join, a
+   * denormalized scramble is created from the join of the fact table (the first table) and the
+   * dimension tables; the SIZE clause is rejected for such a scramble unless it is 100%.
+   */
+  private void createScrambleFromQuery(String query) throws VerdictDBException {
+    VerdictSQLParser parser = NonValidatingSQLParser.parserOf(query);
+    VerdictSQLParser.Create_scramble_statementContext ctx = parser.create_scramble_statement();
+    DbmsConnection conn = context.getCopiedConnection();
+
+    String newSchema =
+        (ctx.scrambled_table.schema == null)
+            ? conn.getDefaultSchema()
+            : stripQuote(ctx.scrambled_table.schema.getText());
+    String newTable = stripQuote(ctx.scrambled_table.table.getText());
+    String methodName =
+        (ctx.scrambling_method_name() == null)
+            ? "uniform"
+            : stripQuote(ctx.scrambling_method_name().getText().replace("'", ""));
+
+    ScramblingCoordinator coordinator = new ScramblingCoordinator(conn);
+    ScrambleMeta meta;
+    if (ctx.join_part().isEmpty()) {
+      String originalSchema =
+          (ctx.original_table.schema == null)
+              ? conn.getDefaultSchema()
+              : stripQuote(ctx.original_table.schema.getText());
+      String originalTable = stripQuote(ctx.original_table.table.getText());
+      meta = coordinator.scramble(originalSchema, originalTable, newSchema, newTable, methodName);
+    } else {
+      // a denormalized scramble always includes every row of the join.
+      if (ctx.percent != null && Double.valueOf(ctx.percent.getText()) != 100.0) {
+        throw new VerdictDBValueException(
+            "The SIZE clause is not supported for a scramble of a join: "
+                + ctx.percent.getText()
+                + "%");
+      }
+
+      // the join source is parsed in the same way as the from clause of a select query.
+      int start = ctx.original_table.getStart().getStartIndex();
+      int stop = ctx.join_part(ctx.join_part().size() - 1).getStop().getStopIndex();
+      String source = ctx.getStart().getInputStream().getText(Interval.of(start, stop));
+      SelectQuery sourceQuery =
+          (SelectQuery) new NonValidatingSQLParser().toRelation("select * from " + source);
+      AbstractRelation join = sourceQuery.getFromList().get(0);
+      if (!(join instanceof JoinTable)) {
+        throw new VerdictDBValueException("Unexpected scramble source: " + source);
+      }
+      meta = coordinator.scramble((JoinTable) join, newSchema, newTable, methodName);
+    }
+
+    context.getScrambleMetaStore().addToStore(meta);
+
+    // the new scramble must be visible to the metadata cache shared by the connections.
+    if (context.getConnection() instanceof CachedDbmsConnection) {
+      ((CachedDbmsConnection) context.getConnection()).invalidate(newSchema);
+    }
+  }
+
+  /** Drops a scramble together with its synopsis, and removes its metadata. */
+  private void dropScrambleFromQuery(String query) throws VerdictDBException {
+    VerdictSQLParser parser = NonValidatingSQLParser.parserOf(query);
+    VerdictSQLParser.Delete_scramble_statementContext ctx = parser.delete_scramble_statement();
+    DbmsConnection conn = context.getCopiedConnection();
+
+    String schema =
+        (ctx.original_table.schema == null)
+            ? conn.getDefaultSchema()
+            : stripQuote(ctx.original_table.schema.getText());
+    String table = stripQuote(ctx.original_table.table.getText());
+
+    CachedScrambleMetaStore metaStore = context.getScrambleMetaStore();
+    ScrambleMeta meta = metaStore.retrieve().getMetaForTable(schema, table);
+    if (meta == null) {
+      throw new VerdictDBValueException("Not a scramble: " + schema + "." + table);
+    }
+    new ScramblingCoordinator(conn).dropScramble(meta);
+    metaStore.removeFromStore(schema, table);
+
+    if (context.getConnection() instanceof CachedDbmsConnection) {
+      ((CachedDbmsConnection) context.getConnection()).invalidate(schema);
+    }
+  }
+
+  private String stripQuote(String expr) {
+    return expr.replace("\"", "").replace("`", "");
+  }
+
   private void updateDefaultSchemaFromQuery(String query) {
     VerdictSQLParser parser = NonValidatingSQLParser.parserOf(query);
     String schema = parser.use_statement().database.getText();
@@ -174,7 +366,6 @@ public class ExecutionContext {
   }
 
   private QueryType identifyQueryType(String query) {
-    VerdictSQLParser parser = NonValidatingSQLParser.parserOf(query);
 
     VerdictSQLParserBaseVisitor<QueryType> visitor = new VerdictSQLParserBaseVisitor<QueryType>() {
 
@@ -188,6 +379,12 @@ public class ExecutionContext {
         return QueryType.scrambling;
       }
 
+      @Override
+      public QueryType visitDelete_scramble_statement(
+          VerdictSQLParser.Delete_scramble_statementContext ctx) {
+        return QueryType.drop_scramble;
+      }
+
       @Override
       public QueryType visitUse_statement(VerdictSQLParser.Use_statementContext ctx) {
         return QueryType.set_default_schema;
@@ -209,7 +406,8 @@ public class ExecutionContext {
       }
     };
 
-    QueryType type = visitor.visit(parser.verdict_statement());
+    // the parse tree is cached; it is reused when the query is converted to a relation.
+    QueryType type = visitor.visit(NonValidatingSQLParser.parseVerdictStatement(query));
     return type;
   }
 }
@@ -0,0 +1,88 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.coordinator;
+
+import org.verdictdb.core.querying.ExecutionPlanCopier;
+import org.verdictdb.core.querying.QueryExecutionPlan;
+import org.verdictdb.core.sqlobject.QueryParameters;
+import org.verdictdb.exception.VerdictDBValueException;
+
+import java.util.List;
+
+/**
+ * A select query compiled once with parameter placeholders. The compiled plan is a template, which
+ * is never executed; each execution binds the values of the parameters to a new copy of the
+ * template. Thus, the same prepared query can be executed concurrently with different values.
+ */
+public class PreparedSelectQuery {
+
+  private final String query;
+
+  private final String defaultSchema;
+
+  private final long scrambleMetaVersion;
+
+  private final QueryExecutionPlan plan;
+
+  private final QueryParameters parameters;
+
+  PreparedSelectQuery(
+      String query,
+      String defaultSchema,
+      long scrambleMetaVersion,
+      QueryExecutionPlan plan,
+      QueryParameters parameters) {
+    this.query = query;
+    this.defaultSchema = defaultSchema;
+    this.scrambleMetaVersion = scrambleMetaVersion;
+    this.plan = plan;
+    this.parameters = parameters;
+  }
+
+  public String getQuery() {
+    return query;
+  }
+
+  public String getDefaultSchema() {
+    return defaultSchema;
+  }
+
+  public long getScrambleMetaVersion() {
+    return scrambleMetaVersion;
+  }
+
+  public int getParameterCount() {
+    return parameters.getCount();
+  }
+
+  /**
+   * Creates an executable plan with the values bound to the parameters.
+   *
+   * @param literals The SQL literals of the values in order
+   * @return A new copy of the compiled plan
+   */
+  QueryExecutionPlan bind(List<String> literals) throws VerdictDBValueException {
+    // the placeholders in the copied plan refer to the copied parameters.
+    QueryParameters boundParameters = parameters.copy();
+    boundParameters.setValues(literals);
+    ExecutionPlanCopier copier = new ExecutionPlanCopier();
+    copier.setCopy(parameters, boundParameters);
+    QueryExecutionPlan boundPlan = plan.deepcopy(copier);
+    boundPlan.renewSerialNumbers();
+    return boundPlan;
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.coordinator;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.verdictdb.core.querying.QueryExecutionPlan;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the compiled (i.e., standardized, planned, and simplified) plans of select queries. A plan
+ * is keyed by the normalized query text, the default schema, the scratchpad schema, and the
+ * version of the scramble metadata; thus, the plans compiled with old scramble metadata are never
+ * reused.
+ *
+ * <p>The cache keeps a template of each plan, which is never executed. Every lookup returns a new
+ * copy of the template whose temporary tables are named differently from the other copies, so that
+ * the copies can run concurrently.
+ *
+ * <p>The plans also depend on the columns of the tables in the queries; they expire after a fixed
+ * time (ttlSeconds) as the cached metadata of the tables does.
+ */
+public class QueryPlanCache {
+
+  public static final long DEFAULT_MAXIMUM_SIZE = 1000;
+
+  public static final long DEFAULT_TTL_SECONDS = 600;
+
+  private final Cache<List<Object>, QueryExecutionPlan> plans;
+
+  public QueryPlanCache() {
+    this(DEFAULT_MAXIMUM_SIZE, DEFAULT_TTL_SECONDS);
+  }
+
+  public QueryPlanCache(long maximumSize, long ttlSeconds) {
+    plans =
+        CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+            .build();
+  }
+
+  /**
+   * @return A new executable copy of the cached plan; null if not cached.
+   */
+  public QueryExecutionPlan get(
+      String query, String defaultSchema, String scratchpadSchema, long scrambleMetaVersion) {
+    QueryExecutionPlan template =
+        plans.getIfPresent(key(query, defaultSchema, scratchpadSchema, scrambleMetaVersion));
+    if (template == null) {
+      return null;
+    }
+    QueryExecutionPlan plan = template.deepcopy();
+    plan.renewSerialNumbers();
+    return plan;
+  }
+
+  /**
+   * Stores a copy of a plan. This must be called before the plan is executed.
+   *
+   * @param plan A plan that has not been executed
+   */
+  public void put(
+      String query,
+      String defaultSchema,
+      String scratchpadSchema,
+      long scrambleMetaVersion,
+      QueryExecutionPlan plan) {
+    QueryExecutionPlan template = plan.deepcopy();
+    if (template != null) {
+      plans.put(key(query, defaultSchema, scratchpadSchema, scrambleMetaVersion), template);
+    }
+  }
+
+  public long size() {
+    return plans.size();
+  }
+
+  public void invalidateAll() {
+    plans.invalidateAll();
+  }
+
+  private static List<Object> key(
+      String query, String defaultSchema, String scratchpadSchema, long scrambleMetaVersion) {
+    return Arrays.<Object>asList(
+        NonValidatingSQLParser.normalize(query),
+        defaultSchema,
+        scratchpadSchema,
+        scrambleMetaVersion);
+  }
+}
@@ -0,0 +1,353 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.coordinator;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.connection.JdbcQueryResult;
+import org.verdictdb.core.resulthandler.ExecutionResultReader;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the answers to select queries, so that the identical queries issued repeatedly (e.g., by
+ * dashboards) are answered without running their plans again. The answers are keyed by the
+ * normalized query text, the default schema, and the version of the scramble metadata.
+ *
+ * <p>Once a query is answered with a newer version of the scramble metadata (i.e., a scramble has
+ * been added to the store), all the answers cached with the older versions are discarded.
+ *
+ * <p>The answers are buffered in memory before they are returned, even if the underlying
+ * connection streams the rows of the results.
+ *
+ * <p>The answers are bounded by their estimated sizes in memory; the least recently used ones are
+ * evicted first. The answers also expire after a fixed time (ttlSeconds) since the data in the
+ * tables may change.
+ */
+public class QueryResultCache {
+
+  public static final long DEFAULT_MAXIMUM_BYTES = 64L * 1024 * 1024;
+
+  public static final long DEFAULT_TTL_SECONDS = 60;
+
+  private final Cache<List<Object>, Answers> answers;
+
+  // if false, only the final answer of each query is kept.
+  private final boolean keepingIntermediateResults;
+
+  private final AtomicLong memoryUsage = new AtomicLong(0);
+
+  private final long maximumBytes;
+
+  // the newest version of the scramble metadata seen by this cache
+  private long latestScrambleMetaVersion = 0;
+
+  public QueryResultCache() {
+    this(DEFAULT_MAXIMUM_BYTES, DEFAULT_TTL_SECONDS, false);
+  }
+
+  /**
+   * @param maximumBytes The maximum estimated size of all the cached answers
+   * @param ttlSeconds The time after which a cached answer expires
+   * @param keepingIntermediateResults If true, the progressive answers before the final answer are
+   *     also kept and returned in order.
+   */
+  public QueryResultCache(
+      long maximumBytes, long ttlSeconds, boolean keepingIntermediateResults) {
+    this.maximumBytes = maximumBytes;
+    this.keepingIntermediateResults = keepingIntermediateResults;
+    // a single segment makes the size bound global and the eviction order strictly LRU.
+    answers =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumWeight(maximumBytes)
+            .weigher(
+                new Weigher<List<Object>, Answers>() {
+                  @Override
+                  public int weigh(List<Object> key, Answers value) {
+                    return value.bytes;
+                  }
+                })
+            .removalListener(
+                new RemovalListener<List<Object>, Answers>() {
+                  @Override
+                  public void onRemoval(RemovalNotification<List<Object>, Answers> notification) {
+                    memoryUsage.addAndGet(-notification.getValue().bytes);
+                  }
+                })
+            .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+            .build();
+  }
+
+  /**
+   * @return The cached answers (the final answer preceded by the intermediate ones if kept) in
+   *     order; null if the final answer is not cached.
+   */
+  public VerdictResultStream get(String query, String defaultSchema, long scrambleMetaVersion) {
+    if (!isCurrent(scrambleMetaVersion)) {
+      return null;
+    }
+    Answers cached = answers.getIfPresent(key(query, defaultSchema, scrambleMetaVersion));
+    if (cached == null || !cached.complete) {
+      return null;
+    }
+    return new VerdictResultStreamFromCachedResults(cached.results);
+  }
+
+  /**
+   * @return The most accurate answer cached, which is the final answer if the query has been run to
+   *     completion; null if no answer is cached.
+   */
+  public VerdictSingleResult getLatest(
+      String query, String defaultSchema, long scrambleMetaVersion) {
+    if (!isCurrent(scrambleMetaVersion)) {
+      return null;
+    }
+    Answers cached = answers.getIfPresent(key(query, defaultSchema, scrambleMetaVersion));
+    if (cached == null) {
+      return null;
+    }
+    return new VerdictSingleResultFromDbmsQueryResult(
+        cached.results.get(cached.results.size() - 1));
+  }
+
+  /**
+   * Stores the answers to a query. The answers of a query run to completion are not replaced by
+   * the answers of an incomplete run.
+   *
+   * @param results The answers in order; they must not be modified afterward.
+   * @param complete True if the last answer is the final answer
+   */
+  public void put(
+      String query,
+      String defaultSchema,
+      long scrambleMetaVersion,
+      List<DbmsQueryResult> results,
+      boolean complete) {
+    put(key(query, defaultSchema, scrambleMetaVersion), scrambleMetaVersion, results, complete);
+  }
+
+  private void put(
+      List<Object> key, long scrambleMetaVersion, List<DbmsQueryResult> results, boolean complete) {
+    if (results.isEmpty() || results.contains(null) || !isCurrent(scrambleMetaVersion)) {
+      return;
+    }
+    if (!complete) {
+      Answers cached = answers.getIfPresent(key);
+      if (cached != null && cached.complete) {
+        return;
+      }
+    }
+    if (complete && !keepingIntermediateResults) {
+      results = results.subList(results.size() - 1, results.size());
+    }
+
+    Answers value = new Answers(new ArrayList<>(results), complete);
+    if (value.bytes > maximumBytes) {
+      return;
+    }
+    memoryUsage.addAndGet(value.bytes);
+    answers.put(key, value);
+  }
+
+  /**
+   * Returns a stream of the answers read from a reader; the answers are stored once the reader is
+   * exhausted.
+   */
+  public VerdictResultStream record(
+      String query,
+      String defaultSchema,
+      long scrambleMetaVersion,
+      ExecutionResultReader reader,
+      ExecutionContext execContext) {
+    return new VerdictResultStreamRecordedToCache(
+        reader, execContext, key(query, defaultSchema, scrambleMetaVersion), scrambleMetaVersion);
+  }
+
+  public long size() {
+    return answers.size();
+  }
+
+  /** @return The estimated size of the cached answers in bytes */
+  public long getMemoryUsage() {
+    answers.cleanUp();
+    return memoryUsage.get();
+  }
+
+  public void invalidateAll() {
+    answers.invalidateAll();
+  }
+
+  /**
+   * The answers cached with an older version are discarded when a newer version is seen.
+   *
+   * @return False if the version is older than the latest version seen.
+   */
+  private synchronized boolean isCurrent(long scrambleMetaVersion) {
+    if (scrambleMetaVersion > latestScrambleMetaVersion) {
+      latestScrambleMetaVersion = scrambleMetaVersion;
+      answers.invalidateAll();
+    }
+    return scrambleMetaVersion == latestScrambleMetaVersion;
+  }
+
+  private static List<Object> key(String query, String defaultSchema, long scrambleMetaVersion) {
+    return Arrays.<Object>asList(
+        NonValidatingSQLParser.normalize(query), defaultSchema, scrambleMetaVersion);
+  }
+
+  /**
+   * @return A copy of a result whose rows can be read repeatedly; null if the result is null.
+   */
+  static DbmsQueryResult buffer(DbmsQueryResult result) {
+    return (result == null) ? null : new JdbcQueryResult(result);
+  }
+
+  /** Estimates the size of a query result in memory. */
+  static int estimateBytes(DbmsQueryResult result) {
+    long bytes = 64;
+    for (int i = 0; i < result.getColumnCount(); i++) {
+      bytes += 40 + 2 * result.getColumnName(i).length();
+    }
+    result.rewind();
+    while (result.next()) {
+      bytes += 16;
+      for (int i = 0; i < result.getColumnCount(); i++) {
+        bytes += estimateBytes(result.getValue(i));
+      }
+    }
+    result.rewind();
+    return (int) Math.min(bytes, Integer.MAX_VALUE);
+  }
+
+  private static long estimateBytes(Object value) {
+    if (value == null) {
+      return 8;
+    } else if (value instanceof String) {
+      return 40 + 2 * ((String) value).length();
+    } else if (value instanceof byte[]) {
+      return 16 + ((byte[]) value).length;
+    } else {
+      return 24;
+    }
+  }
+
+  private static class Answers {
+
+    final List<DbmsQueryResult> results;
+
+    final boolean complete;
+
+    final int bytes;
+
+    Answers(List<DbmsQueryResult> results, boolean complete) {
+      this.results = results;
+      this.complete = complete;
+      long bytes = 0;
+      for (DbmsQueryResult result : results) {
+        bytes += estimateBytes(result);
+      }
+      this.bytes = (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+  }
+
+  /** Stores the answers it has returned once its reader is exhausted. */
+  private class VerdictResultStreamRecordedToCache
+      extends VerdictResultStreamFromExecutionResultReader {
+
+    private final List<Object> key;
+
+    private final long scrambleMetaVersion;
+
+    private final List<DbmsQueryResult> results = new ArrayList<>();
+
+    private boolean recorded = false;
+
+    VerdictResultStreamRecordedToCache(
+        ExecutionResultReader reader,
+        ExecutionContext execContext,
+        List<Object> key,
+        long scrambleMetaVersion) {
+      super(reader, execContext);
+      this.key = key;
+      this.scrambleMetaVersion = scrambleMetaVersion;
+    }
+
+    @Override
+    public boolean hasNext() {
+      boolean hasNext = reader.hasNext();
+      if (!hasNext && !recorded) {
+        recorded = true;
+        put(key, scrambleMetaVersion, results, true);
+      }
+      return hasNext;
+    }
+
+    @Override
+    public VerdictSingleResult next() {
+      DbmsQueryResult internalResult = buffer(reader.next());
+      results.add(internalResult);
+      return new VerdictSingleResultFromDbmsQueryResult(internalResult);
+    }
+  }
+
+  /** Returns the copies of the cached answers, so that they can be read independently. */
+  private static class VerdictResultStreamFromCachedResults implements VerdictResultStream {
+
+    private final Iterator<DbmsQueryResult> results;
+
+    VerdictResultStreamFromCachedResults(List<DbmsQueryResult> results) {
+      this.results = results.iterator();
+    }
+
+    @Override
+    public VerdictResultStream create(VerdictSingleResult singleResult) {
+      return null;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return results.hasNext();
+    }
+
+    @Override
+    public VerdictSingleResult next() {
+      return new VerdictSingleResultFromDbmsQueryResult(results.next());
+    }
+
+    @Override
+    public Iterator<VerdictSingleResult> iterator() {
+      return this;
+    }
+
+    @Override
+    public void remove() {}
+
+    @Override
+    public void close() {}
+  }
+}
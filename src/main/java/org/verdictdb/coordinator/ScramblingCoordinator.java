@@ -17,11 +17,15 @@
 package org.verdictdb.coordinator;
 
 import com.google.common.base.Optional;
+import org.apache.commons.lang3.tuple.Pair;
 import org.verdictdb.connection.DbmsConnection;
 import org.verdictdb.core.execplan.ExecutablePlanRunner;
 import org.verdictdb.core.scrambling.*;
+import org.verdictdb.core.sqlobject.*;
 import org.verdictdb.exception.VerdictDBException;
 import org.verdictdb.exception.VerdictDBValueException;
+import org.verdictdb.sqlsyntax.SqliteSyntax;
+import org.verdictdb.sqlwriter.QueryToSql;
 
 import java.util.*;
 import java.util.Map.Entry;
@@ -29,7 +33,15 @@ import java.util.Map.Entry;
 public class ScramblingCoordinator {
 
   private final Set<String> scramblingMethods =
-      new HashSet<>(Arrays.asList("uniform", "fastconverge"));
+      new HashSet<>(Arrays.asList("uniform", "fastconverge", "hash"));
+
+  public static final String AUTO_BLOCK_SIZE = "auto";
+
+  /** The number of blocks of a hash scramble; tables co-scrambled on a join key share this. */
+  public static final String HASH_BLOCK_COUNT_OPTION = "hashBlockCount";
+
+  // the suffix of the intermediate table materializing a join before it is scrambled
+  static final String DENORMALIZED_TABLE_SUFFIX = "_verdictdbjoined";
 
   // default options
   private final Map<String, String> options =
@@ -41,6 +53,8 @@ public class ScramblingCoordinator {
           put("blockColumnName", "verdictdbblock");
           put("scrambleTableSuffix", "_scrambled");
           put("scrambleTableBlockSize", "1e6");
+          put("synopsisTableSuffix", "_synopsis");
+          put("scrambleTargetLatency", "1.0"); // in seconds; used when the block size is "auto"
         }
       };
 
@@ -73,6 +87,17 @@ public class ScramblingCoordinator {
     }
   }
 
+  /**
+   * Lets the scrambles created by this coordinator use the block size that is automatically tuned
+   * for the backend.
+   *
+   * @param targetLatency The desired latency (in seconds) of the first answer of a query
+   */
+  public void setAutoBlockSize(double targetLatency) {
+    options.put("scrambleTableBlockSize", AUTO_BLOCK_SIZE);
+    options.put("scrambleTargetLatency", String.valueOf(targetLatency));
+  }
+
   public ScrambleMeta scramble(String originalSchema, String originalTable)
       throws VerdictDBException {
     String newSchema;
@@ -159,8 +184,23 @@ public class ScramblingCoordinator {
       effectiveOptions.put(o.getKey(), o.getValue());
     }
 
+    // determine block size; "auto" probes the backend for the block size meeting the target
+    // first-answer latency.
+    long blockSize;
+    Double targetLatency = null;
+    String blockSizeOption = effectiveOptions.get("scrambleTableBlockSize");
+    if (blockSizeOption.equalsIgnoreCase(AUTO_BLOCK_SIZE)) {
+      targetLatency = Double.valueOf(effectiveOptions.get("scrambleTargetLatency"));
+      if (targetLatency <= 0) {
+        throw new VerdictDBValueException("The target latency must be positive: " + targetLatency);
+      }
+      BlockSizeTuner tuner = new BlockSizeTuner(conn, targetLatency);
+      blockSize = tuner.tune(originalSchema, originalTable);
+    } else {
+      blockSize = Double.valueOf(blockSizeOption).longValue();
+    }
+
     // determine scrambling method
-    long blockSize = Double.valueOf(effectiveOptions.get("scrambleTableBlockSize")).longValue();
     ScramblingMethod scramblingMethod;
     if (methodName.equalsIgnoreCase("uniform")) {
       scramblingMethod = new UniformScramblingMethod(blockSize);
@@ -169,6 +209,18 @@ public class ScramblingCoordinator {
     } else if (methodName.equalsIgnoreCase("FastConverge") && primaryColumn != null) {
       scramblingMethod =
           new FastConvergeScramblingMethod(blockSize, scratchpadSchema.get(), primaryColumn);
+    } else if (methodName.equalsIgnoreCase("hash")) {
+      if (primaryColumn == null) {
+        throw new VerdictDBValueException("The hash scrambling requires a join key column.");
+      }
+      // rejected before any table is created, instead of failing while the SQL is generated.
+      if (conn.getSyntax() instanceof SqliteSyntax) {
+        throw new VerdictDBValueException("The hash scrambling is not supported by SQLite.");
+      }
+      String blockCountOption = effectiveOptions.get(HASH_BLOCK_COUNT_OPTION);
+      Integer fixedBlockCount =
+          (blockCountOption == null) ? null : Integer.valueOf(blockCountOption);
+      scramblingMethod = new HashScramblingMethod(blockSize, primaryColumn, fixedBlockCount);
     } else {
       throw new VerdictDBValueException("Invalid scrambling method: " + methodName);
     }
@@ -202,7 +254,268 @@ public class ScramblingCoordinator {
             tierColumn,
             tierCount,
             cumulativeDistribution);
+    meta.setAggregationBlockSize(blockSize);
+    meta.setTargetFirstAnswerLatency(targetLatency);
+    if (scramblingMethod instanceof HashScramblingMethod) {
+      meta.setHashColumn(primaryColumn);
+    }
+
+    // record the per-block synopsis if it has been created
+    List<String> dimensions =
+        ScramblingPlan.parseColumnList(
+            effectiveOptions.get(ScramblingPlan.SYNOPSIS_DIMENSIONS_OPTION));
+    List<String> measures =
+        ScramblingPlan.parseColumnList(
+            effectiveOptions.get(ScramblingPlan.SYNOPSIS_MEASURES_OPTION));
+    if (!dimensions.isEmpty() || !measures.isEmpty()) {
+      meta.setSynopsisSchemaName(newSchema);
+      meta.setSynopsisTableName(newTable + effectiveOptions.get("synopsisTableSuffix"));
+      meta.setSynopsisDimensionColumns(dimensions);
+      meta.setSynopsisMeasureColumns(measures);
+    }
 
     return meta;
   }
+
+  /**
+   * Drops the tables of a scramble: the scrambled table and its per-block synopsis (if created).
+   * The metadata of the scramble should be removed from the metastore by the caller.
+   *
+   * @param meta The metadata of the scramble to drop
+   * @throws VerdictDBException
+   */
+  public void dropScramble(ScrambleMeta meta) throws VerdictDBException {
+    DropTableQuery dropScramble = new DropTableQuery(meta.getSchemaName(), meta.getTableName());
+    conn.execute(QueryToSql.convert(conn.getSyntax(), dropScramble));
+
+    if (meta.hasSynopsis()) {
+      DropTableQuery dropSynopsis =
+          new DropTableQuery(meta.getSynopsisSchemaName(), meta.getSynopsisTableName());
+      conn.execute(QueryToSql.convert(conn.getSyntax(), dropSynopsis));
+    }
+  }
+
+  /**
+   * Scrambles two tables by the hash of their join keys with the same number of blocks. When the
+   * two scrambles are joined on the keys, the block i of one scramble only joins with the block i
+   * of the other; thus, the query planner processes the blocks of the two scrambles together
+   * instead of processing every combination of the blocks.
+   *
+   * <p>The number of blocks is determined by the size of the first table (usually the larger one).
+   *
+   * @return The metadata of the two scrambles
+   * @throws VerdictDBException
+   */
+  public List<ScrambleMeta> coscramble(
+      String originalSchema1,
+      String originalTable1,
+      String joinKey1,
+      String originalSchema2,
+      String originalTable2,
+      String joinKey2,
+      String newSchema,
+      String newTable1,
+      String newTable2)
+      throws VerdictDBException {
+
+    Map<String, String> customOptions = new HashMap<>(options);
+    customOptions.remove(HASH_BLOCK_COUNT_OPTION);
+    ScrambleMeta meta1 =
+        scramble(
+            originalSchema1, originalTable1, newSchema, newTable1, "hash", joinKey1, customOptions);
+
+    customOptions.put(
+        HASH_BLOCK_COUNT_OPTION, String.valueOf(meta1.getAggregationBlockCount()));
+    ScrambleMeta meta2 =
+        scramble(
+            originalSchema2, originalTable2, newSchema, newTable2, "hash", joinKey2, customOptions);
+
+    return Arrays.asList(meta1, meta2);
+  }
+
+  public ScrambleMeta scramble(
+      JoinTable source, String newSchema, String newTable, String methodName)
+      throws VerdictDBException {
+    return scramble(source, newSchema, newTable, methodName, new HashMap<String, String>());
+  }
+
+  /**
+   * Creates a denormalized scramble, i.e., a scramble of the inner equi-join of a fact table (the
+   * first table of the join) and its dimension tables. The queries that join the same tables on the
+   * same conditions can then be answered from this scramble without any per-block joins.
+   *
+   * <p>If multiple tables have the columns of the same name, the columns of the later tables are
+   * renamed to "table_column" in the scramble.
+   *
+   * @param source The join of base tables; the tables and columns may be unqualified.
+   * @param newSchema
+   * @param newTable
+   * @param methodName
+   * @param customOptions
+   * @return
+   * @throws VerdictDBException
+   */
+  public ScrambleMeta scramble(
+      JoinTable source,
+      String newSchema,
+      String newTable,
+      String methodName,
+      Map<String, String> customOptions)
+      throws VerdictDBException {
+
+    // resolve the joined tables
+    List<BaseTable> tables = new ArrayList<>();
+    List<List<String>> tableColumns = new ArrayList<>();
+    for (AbstractRelation r : source.getJoinList()) {
+      if (!(r instanceof BaseTable)) {
+        throw new VerdictDBValueException("Only base tables can be joined for a scramble.");
+      }
+      BaseTable t = (BaseTable) r;
+      String schema = (t.getSchemaName() == null) ? conn.getDefaultSchema() : t.getSchemaName();
+      BaseTable resolved = new BaseTable(schema, t.getTableName(), "t" + tables.size());
+      List<String> columns = new ArrayList<>();
+      for (Pair<String, String> col : conn.getColumns(schema, t.getTableName())) {
+        columns.add(col.getLeft());
+      }
+      tables.add(resolved);
+      tableColumns.add(columns);
+    }
+
+    // resolve the join conditions
+    DenormalizedSource denormalized = new DenormalizedSource();
+    for (BaseTable t : tables) {
+      denormalized.addTable(t.getSchemaName(), t.getTableName());
+    }
+    JoinTable join =
+        JoinTable.createBase(
+            tables.get(0), new ArrayList<JoinTable.JoinType>(), new ArrayList<UnnamedColumn>());
+    for (int i = 1; i < tables.size(); i++) {
+      JoinTable.JoinType type = source.getJoinTypeList().get(i - 1);
+      UnnamedColumn condition = source.getCondition().get(i - 1);
+      if (type != JoinTable.JoinType.inner || condition == null) {
+        throw new VerdictDBValueException("Only inner equi-joins are supported for a scramble.");
+      }
+      UnnamedColumn resolvedCondition = null;
+      for (UnnamedColumn conjunct : flattenConjunction(condition)) {
+        if (!(conjunct instanceof ColumnOp)
+            || !((ColumnOp) conjunct).getOpType().equals("equal")
+            || !(((ColumnOp) conjunct).getOperand(0) instanceof BaseColumn)
+            || !(((ColumnOp) conjunct).getOperand(1) instanceof BaseColumn)) {
+          throw new VerdictDBValueException(
+              "Only equality conditions between columns are supported for a scramble.");
+        }
+        BaseColumn left =
+            resolveColumn(
+                (BaseColumn) ((ColumnOp) conjunct).getOperand(0), source, tables, tableColumns);
+        BaseColumn right =
+            resolveColumn(
+                (BaseColumn) ((ColumnOp) conjunct).getOperand(1), source, tables, tableColumns);
+        denormalized.addJoinCondition(
+            DenormalizedSource.columnKey(
+                left.getSchemaName(), left.getTableName(), left.getColumnName()),
+            DenormalizedSource.columnKey(
+                right.getSchemaName(), right.getTableName(), right.getColumnName()));
+        ColumnOp equal =
+            ColumnOp.equal(
+                new BaseColumn(left.getTableSourceAlias(), left.getColumnName()),
+                new BaseColumn(right.getTableSourceAlias(), right.getColumnName()));
+        resolvedCondition =
+            (resolvedCondition == null) ? equal : ColumnOp.and(resolvedCondition, equal);
+      }
+      join.addJoinTable(tables.get(i), JoinTable.JoinType.inner, resolvedCondition);
+    }
+
+    // compose the select list of the denormalized table
+    List<SelectItem> selectList = new ArrayList<>();
+    Set<String> usedNames = new HashSet<>();
+    for (int i = 0; i < tables.size(); i++) {
+      BaseTable t = tables.get(i);
+      for (String col : tableColumns.get(i)) {
+        String name = col;
+        if (usedNames.contains(name.toLowerCase())) {
+          name = t.getTableName() + "_" + col;
+        }
+        while (usedNames.contains(name.toLowerCase())) {
+          name = name + "_" + i;
+        }
+        usedNames.add(name.toLowerCase());
+        selectList.add(new AliasedColumn(new BaseColumn(t.getAliasName().get(), col), name));
+        denormalized.addColumn(t.getSchemaName(), t.getTableName(), col, name);
+      }
+    }
+
+    // materialize the join, and then scramble it
+    String joinedTable = newTable + DENORMALIZED_TABLE_SUFFIX;
+    SelectQuery joinQuery = SelectQuery.create(selectList, join);
+    CreateTableAsSelectQuery createJoined =
+        new CreateTableAsSelectQuery(newSchema, joinedTable, joinQuery);
+    conn.execute(QueryToSql.convert(conn.getSyntax(), createJoined));
+
+    ScrambleMeta meta;
+    try {
+      meta =
+          scramble(
+              newSchema, joinedTable, newSchema, newTable, methodName, null, customOptions);
+    } finally {
+      DropTableQuery dropJoined = new DropTableQuery(newSchema, joinedTable);
+      conn.execute(QueryToSql.convert(conn.getSyntax(), dropJoined));
+    }
+
+    meta.setOriginalSchemaName(tables.get(0).getSchemaName());
+    meta.setOriginalTableName(tables.get(0).getTableName());
+    meta.setDenormalizedSource(denormalized);
+    return meta;
+  }
+
+  private List<UnnamedColumn> flattenConjunction(UnnamedColumn condition) {
+    List<UnnamedColumn> conjuncts = new ArrayList<>();
+    if (condition instanceof ColumnOp && ((ColumnOp) condition).getOpType().equals("and")) {
+      for (UnnamedColumn operand : ((ColumnOp) condition).getOperands()) {
+        conjuncts.addAll(flattenConjunction(operand));
+      }
+    } else {
+      conjuncts.add(condition);
+    }
+    return conjuncts;
+  }
+
+  /**
+   * Finds the joined table to which a column in a join condition belongs.
+   *
+   * @return A fully qualified column of a resolved table
+   */
+  private BaseColumn resolveColumn(
+      BaseColumn column, JoinTable source, List<BaseTable> tables, List<List<String>> tableColumns)
+      throws VerdictDBValueException {
+    String qualifier = column.getTableSourceAlias();
+    Integer found = null;
+    for (int i = 0; i < tables.size(); i++) {
+      AbstractRelation original = source.getJoinList().get(i);
+      boolean qualifierMatches =
+          qualifier == null
+              || qualifier.isEmpty()
+              || qualifier.equalsIgnoreCase(tables.get(i).getTableName())
+              || (original.getAliasName().isPresent()
+                  && qualifier.equalsIgnoreCase(original.getAliasName().get()));
+      if (!qualifierMatches) {
+        continue;
+      }
+      for (String col : tableColumns.get(i)) {
+        if (col.equalsIgnoreCase(column.getColumnName())) {
+          if (found != null) {
+            throw new VerdictDBValueException("Ambiguous column: " + column.getColumnName());
+          }
+          found = i;
+          column = new BaseColumn(column.getTableSourceAlias(), col);
+          break;
+        }
+      }
+    }
+    if (found == null) {
+      throw new VerdictDBValueException("Column not found: " + column.getColumnName());
+    }
+    BaseTable t = tables.get(found);
+    return new BaseColumn(
+        t.getSchemaName(), t.getTableName(), t.getAliasName().get(), column.getColumnName());
+  }
 }
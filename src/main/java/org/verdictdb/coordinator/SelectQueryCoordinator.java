@@ -18,11 +18,15 @@ package org.verdictdb.coordinator;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
+import org.verdictdb.commons.VerdictDBLogger;
+import org.verdictdb.connection.CachedDbmsConnection;
 import org.verdictdb.connection.DataTypeConverter;
 import org.verdictdb.connection.DbmsConnection;
 import org.verdictdb.connection.MetaDataProvider;
+import org.verdictdb.connection.SparkConnection;
 import org.verdictdb.connection.StaticMetaData;
 import org.verdictdb.core.execplan.ExecutablePlanRunner;
+import org.verdictdb.core.querying.DenormalizedScrambleRewriter;
 import org.verdictdb.core.querying.QueryExecutionPlan;
 import org.verdictdb.core.querying.QueryExecutionPlanFactory;
 import org.verdictdb.core.querying.QueryExecutionPlanSimplifier;
@@ -33,6 +37,7 @@ import org.verdictdb.core.sqlobject.*;
 import org.verdictdb.exception.VerdictDBException;
 import org.verdictdb.sqlreader.NonValidatingSQLParser;
 import org.verdictdb.sqlreader.RelationStandardizer;
+import org.verdictdb.sqlwriter.QueryToSql;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -40,18 +45,27 @@ import java.util.List;
 
 public class SelectQueryCoordinator {
 
+  private static final VerdictDBLogger log =
+      VerdictDBLogger.getLogger(SelectQueryCoordinator.class);
+
   DbmsConnection conn;
 
   ScrambleMetaSet scrambleMetaSet;
 
   String scratchpadSchema;
 
+  // the cache of compiled plans; null if plans are not cached.
+  QueryPlanCache planCache;
+
+  // the version of scrambleMetaSet, which is a part of the keys of the cached plans
+  long scrambleMetaVersion;
+
   public SelectQueryCoordinator(DbmsConnection conn) {
     this(conn, new ScrambleMetaSet());
   }
 
   public SelectQueryCoordinator(DbmsConnection conn, ScrambleMetaSet scrambleMetaSet) {
-    this(conn, scrambleMetaSet, conn.getDefaultSchema());
+    this(conn, scrambleMetaSet, getDefaultScratchpadSchema(conn));
   }
 
   public SelectQueryCoordinator(
@@ -65,13 +79,103 @@ public class SelectQueryCoordinator {
     return scrambleMetaSet;
   }
 
+  /** The plans are not cached afterward since the version of the new metadata is unknown. */
   public void setScrambleMetaSet(ScrambleMetaSet scrambleMetaSet) {
     this.scrambleMetaSet = scrambleMetaSet;
+    this.planCache = null;
+  }
+
+  /**
+   * Lets this coordinator reuse the plans compiled for the same queries.
+   *
+   * @param planCache The cache of compiled plans
+   * @param scrambleMetaVersion The version of the scramble metadata given to this coordinator
+   */
+  public void setPlanCache(QueryPlanCache planCache, long scrambleMetaVersion) {
+    this.planCache = planCache;
+    this.scrambleMetaVersion = scrambleMetaVersion;
   }
 
   public ExecutionResultReader process(String query) throws VerdictDBException {
+    // parsing, metadata lookups, and planning are skipped if the plan is cached.
+    QueryExecutionPlan simplifiedAsyncPlan = null;
+    String defaultSchema = conn.getDefaultSchema();
+    if (planCache != null) {
+      simplifiedAsyncPlan =
+          planCache.get(query, defaultSchema, scratchpadSchema, scrambleMetaVersion);
+    }
+    if (simplifiedAsyncPlan == null) {
+      simplifiedAsyncPlan = compile(parseQuery(query));
+      if (planCache != null) {
+        planCache.put(
+            query, defaultSchema, scratchpadSchema, scrambleMetaVersion, simplifiedAsyncPlan);
+      }
+    }
+    return run(simplifiedAsyncPlan);
+  }
+
+  /**
+   * Compiles a query with parameter placeholders ('?') once; the compiled plan is executed with
+   * different values by {@link #process(PreparedSelectQuery, List)}.
+   *
+   * @param query A select query
+   * @return The compiled query
+   */
+  public PreparedSelectQuery prepare(String query) throws VerdictDBException {
+    SelectQuery selectQuery = parseQuery(query);
+    QueryParameters parameters = QueryParameters.attach(selectQuery);
+    QueryExecutionPlan plan = compile(selectQuery);
+    return new PreparedSelectQuery(
+        query, conn.getDefaultSchema(), scrambleMetaVersion, plan, parameters);
+  }
+
+  /**
+   * Executes a prepared query; only the values of the parameters are bound to a copy of its plan.
+   *
+   * @param prepared The prepared query
+   * @param literals The SQL literals of the values of the parameters in order
+   */
+  public ExecutionResultReader process(PreparedSelectQuery prepared, List<String> literals)
+      throws VerdictDBException {
+    return run(prepared.bind(literals));
+  }
+
+  private ExecutionResultReader run(final QueryExecutionPlan simplifiedAsyncPlan) {
+    // execute the plan
+    ExecutablePlanRunner runner = new ExecutablePlanRunner(conn, simplifiedAsyncPlan);
+    if (getTemporaryViewConnection(conn) != null) {
+      // the temporary views created by the plan are dropped when it finishes.
+      runner.setCompletionHandler(
+          new Runnable() {
+            @Override
+            public void run() {
+              dropTemporaryViews(simplifiedAsyncPlan);
+            }
+          });
+    }
+    ExecutionResultReader reader = runner.getResultReader();
+
+    return reader;
+  }
+
+  private void dropTemporaryViews(QueryExecutionPlan plan) {
+    for (Pair<String, String> view : plan.getTemporaryViews()) {
+      DropTableQuery drop = new DropTableQuery(view.getLeft(), view.getRight());
+      drop.setTemporaryView(true);
+      try {
+        conn.execute(QueryToSql.convert(conn.getSyntax(), drop));
+      } catch (VerdictDBException e) {
+        log.warn("Failed to drop the temporary view " + view.getRight(), e);
+      }
+    }
+  }
 
-    SelectQuery selectQuery = standardizeQuery(query);
+  /** Standardizes a query and creates an (asynchronous and simplified) plan for it. */
+  private QueryExecutionPlan compile(SelectQuery selectQuery) throws VerdictDBException {
+    selectQuery = standardizeQuery(selectQuery);
+
+    // route the joins of the fact and dimension tables to denormalized scrambles, if any.
+    selectQuery = new DenormalizedScrambleRewriter(scrambleMetaSet).rewrite(selectQuery);
 
     // make plan
     // if the plan does not include any aggregates, it will simply be a parsed structure of the
@@ -85,19 +189,42 @@ public class SelectQueryCoordinator {
     QueryExecutionPlan asyncPlan = AsyncQueryExecutionPlan.create(plan);
 
     // simplify the plan
-    QueryExecutionPlan simplifiedAsyncPlan = QueryExecutionPlanSimplifier.simplify(asyncPlan);
+    QueryExecutionPlan simplifiedPlan = QueryExecutionPlanSimplifier.simplify(asyncPlan);
+    if (getTemporaryViewConnection(conn) != null) {
+      simplifiedPlan.setCreatingTemporaryViews(true);
+    }
+    return simplifiedPlan;
+  }
 
-    // execute the plan
-    ExecutionResultReader reader = ExecutablePlanRunner.getResultReader(conn, simplifiedAsyncPlan);
+  /**
+   * The intermediate tables are created in the default schema, except for the Spark connections
+   * that keep them as temporary views.
+   */
+  private static String getDefaultScratchpadSchema(DbmsConnection conn) {
+    SparkConnection viewConn = getTemporaryViewConnection(conn);
+    if (viewConn != null) {
+      return viewConn.getTemporaryViewSchema();
+    }
+    return conn.getDefaultSchema();
+  }
 
-    return reader;
+  /** @return The Spark connection if it keeps intermediate tables as temporary views. */
+  private static SparkConnection getTemporaryViewConnection(DbmsConnection conn) {
+    if (conn instanceof CachedDbmsConnection) {
+      conn = ((CachedDbmsConnection) conn).getOriginalConnection();
+    }
+    if (conn instanceof SparkConnection && ((SparkConnection) conn).isUsingTemporaryViews()) {
+      return (SparkConnection) conn;
+    }
+    return null;
   }
 
-  private SelectQuery standardizeQuery(String query) throws VerdictDBException {
-    // parse the query
-    RelationStandardizer.resetItemID();
+  private SelectQuery parseQuery(String query) throws VerdictDBException {
     NonValidatingSQLParser sqlToRelation = new NonValidatingSQLParser();
-    SelectQuery relation = (SelectQuery) sqlToRelation.toRelation(query);
+    return (SelectQuery) sqlToRelation.toRelation(query);
+  }
+
+  private SelectQuery standardizeQuery(SelectQuery relation) throws VerdictDBException {
     MetaDataProvider metaData = createMetaDataFor(relation);
     RelationStandardizer gen = new RelationStandardizer(metaData);
     relation = gen.standardize(relation);
@@ -143,26 +270,48 @@ public class SelectQueryCoordinator {
     }
 
     // Get table info from cached meta
+    List<StaticMetaData.TableInfo> tableInfos = new ArrayList<>();
     for (BaseTable t : tables) {
-      List<Pair<String, String>> columns;
-      StaticMetaData.TableInfo tableInfo;
-
-      if (t.getSchemaName() == null) {
-        columns = conn.getColumns(defaultSchema, t.getTableName());
-        tableInfo = new StaticMetaData.TableInfo(defaultSchema, t.getTableName());
-      } else {
-        columns = conn.getColumns(t.getSchemaName(), t.getTableName());
-        tableInfo = new StaticMetaData.TableInfo(t.getSchemaName(), t.getTableName());
+      String schema = (t.getSchemaName() == null) ? defaultSchema : t.getSchemaName();
+      StaticMetaData.TableInfo tableInfo = new StaticMetaData.TableInfo(schema, t.getTableName());
+      if (!tableInfos.contains(tableInfo)) {
+        tableInfos.add(tableInfo);
       }
+    }
+    List<List<Pair<String, String>>> columnsOfTables = retrieveColumns(tableInfos);
+
+    for (int i = 0; i < tableInfos.size(); i++) {
       List<Pair<String, Integer>> colInfo = new ArrayList<>();
-      for (Pair<String, String> col : columns) {
+      for (Pair<String, String> col : columnsOfTables.get(i)) {
         colInfo.add(
             new ImmutablePair<>(
                 col.getLeft(), DataTypeConverter.typeInt(col.getRight().toLowerCase())));
       }
-      meta.addTableData(tableInfo, colInfo);
+      meta.addTableData(tableInfos.get(i), colInfo);
     }
 
     return meta;
   }
+
+  /**
+   * Retrieves the columns of the tables. If the connection caches metadata, the columns of all the
+   * tables in the same schema are retrieved by a single catalog query where supported, and the
+   * other lookups are issued concurrently over separate connections where possible (see
+   * CachedDbmsConnection.getColumns()).
+   *
+   * @param tableInfos The tables
+   * @return The columns of each table in the same order
+   */
+  private List<List<Pair<String, String>>> retrieveColumns(
+      List<StaticMetaData.TableInfo> tableInfos) throws VerdictDBException {
+    if (conn instanceof CachedDbmsConnection) {
+      return ((CachedDbmsConnection) conn).getColumns(tableInfos);
+    }
+
+    List<List<Pair<String, String>>> columnsOfTables = new ArrayList<>();
+    for (StaticMetaData.TableInfo tableInfo : tableInfos) {
+      columnsOfTables.add(conn.getColumns(tableInfo.getSchema(), tableInfo.getTablename()));
+    }
+    return columnsOfTables;
+  }
 }
@@ -56,6 +56,9 @@ public interface VerdictSingleResult {
    */
   public void rewind();
 
+  /** Releases the resources held by this result (e.g., the statement of a streamed result). */
+  public void close();
+
   /**
    * Forward a cursor to rows by one. Similar to JDBC ResultSet.next().
    *
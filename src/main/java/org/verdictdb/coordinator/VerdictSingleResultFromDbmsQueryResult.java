@@ -5,6 +5,8 @@ import com.rits.cloning.Cloner;
 import org.verdictdb.commons.AttributeValueRetrievalHelper;
 import org.verdictdb.connection.DbmsQueryResult;
 import org.verdictdb.connection.DbmsQueryResultMetaData;
+import org.verdictdb.connection.JdbcQueryResult;
+import org.verdictdb.connection.StreamingJdbcQueryResult;
 
 import java.io.*;
 
@@ -14,7 +16,7 @@ public class VerdictSingleResultFromDbmsQueryResult
   private Optional<DbmsQueryResult> result;
 
   // used to support wasnull()
-  private Object lastValueRead;
+  private boolean lastValueWasNull;
 
   public VerdictSingleResultFromDbmsQueryResult(DbmsQueryResult result) {
     super();
@@ -102,13 +104,63 @@ public class VerdictSingleResultFromDbmsQueryResult
       throw new RuntimeException("An empty result is accessed.");
     } else {
       Object value = result.get().getValue(index);
-      lastValueRead = value;
+      lastValueWasNull = (value == null);
       return value;
     }
   }
 
+  // The getters below read the primitive-typed columns of a columnar result without boxing.
+
+  @Override
+  public String getString(int index) {
+    JdbcQueryResult columnar = getColumnarResult();
+    if (columnar == null) {
+      return super.getString(index);
+    }
+    lastValueWasNull = columnar.isNull(index);
+    return columnar.getString(index);
+  }
+
+  @Override
+  public int getInt(int index) {
+    JdbcQueryResult columnar = getColumnarResult();
+    if (columnar == null) {
+      return super.getInt(index);
+    }
+    lastValueWasNull = columnar.isNull(index);
+    return columnar.getInt(index);
+  }
+
+  @Override
+  public long getLong(int index) {
+    JdbcQueryResult columnar = getColumnarResult();
+    if (columnar == null) {
+      return super.getLong(index);
+    }
+    lastValueWasNull = columnar.isNull(index);
+    return columnar.getLong(index);
+  }
+
+  @Override
+  public double getDouble(int index) {
+    JdbcQueryResult columnar = getColumnarResult();
+    if (columnar == null) {
+      return super.getDouble(index);
+    }
+    lastValueWasNull = columnar.isNull(index);
+    return columnar.getDouble(index);
+  }
+
+  /** @return The underlying result if its rows are stored column by column; null otherwise. */
+  private JdbcQueryResult getColumnarResult() {
+    if (result.isPresent() && result.get() instanceof JdbcQueryResult) {
+      return (JdbcQueryResult) result.get();
+    }
+    return null;
+  }
+
   public boolean wasNull() {
-    return lastValueRead == null;
+    return lastValueWasNull;
   }
 
   public boolean next() {
@@ -124,4 +176,12 @@ public class VerdictSingleResultFromDbmsQueryResult
       result.get().rewind();
     }
   }
+
+  /** Closes the statement of the underlying result if it is streamed. */
+  @Override
+  public void close() {
+    if (result.isPresent() && result.get() instanceof StreamingJdbcQueryResult) {
+      ((StreamingJdbcQueryResult) result.get()).close();
+    }
+  }
 }
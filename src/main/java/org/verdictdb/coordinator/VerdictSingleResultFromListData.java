@@ -158,6 +158,9 @@ public class VerdictSingleResultFromListData
     cursor = -1;
   }
 
+  @Override
+  public void close() {}
+
   public static VerdictSingleResultFromListData createWithSingleColumn(List<String> header, List<Object> result) {
     VerdictSingleResultFromListData singleResultFromListData = new VerdictSingleResultFromListData();
     if (result == null) {
@@ -42,6 +42,15 @@ public interface ExecutableNode {
 
   public ExecutionInfoToken createToken(DbmsQueryResult result);
 
+  /**
+   * Whether the result of the query created by createQuery() must be buffered in memory. If false,
+   * the result may be streamed if the connection is configured to do so (see
+   * DbmsConnection.executeStreaming()). A node whose result is read by other nodes must return true.
+   *
+   * @return True if the result must be buffered
+   */
+  public boolean requiresBufferedResult();
+
   /**
    * The tokens are retrieved from these queues.
    *
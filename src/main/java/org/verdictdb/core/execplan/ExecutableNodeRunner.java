@@ -156,7 +156,11 @@ public class ExecutableNodeRunner implements Runnable {
     DbmsQueryResult intermediate = null;
     if (sqlObj != null) {
       String sql = QueryToSql.convert(conn.getSyntax(), sqlObj);
-      intermediate = conn.execute(sql);
+      if (node.requiresBufferedResult()) {
+        intermediate = conn.execute(sql);
+      } else {
+        intermediate = conn.executeStreaming(sql);
+      }
     }
     ExecutionInfoToken token = node.createToken(intermediate);
 
@@ -37,6 +37,8 @@ public class ExecutablePlanRunner {
 
   private int nThreads = 2;
 
+  private Runnable completionHandler;
+
   public ExecutablePlanRunner(DbmsConnection conn, ExecutablePlan plan) {
     this.conn = conn;
     this.plan = plan;
@@ -62,6 +64,16 @@ public class ExecutablePlanRunner {
     }
   }
 
+  /**
+   * Sets a task to run once the plan has finished (either successfully or not), regardless of
+   * whether its results are read. The task runs only if the plan has a reporting node.
+   *
+   * @param completionHandler The task to run
+   */
+  public void setCompletionHandler(Runnable completionHandler) {
+    this.completionHandler = completionHandler;
+  }
+
   public ExecutionTokenReader getTokenReader() {
     // set up to get the results
     ExecutionTokenReader reader;
@@ -71,6 +83,9 @@ public class ExecutablePlanRunner {
       node.subscribeTo((ExecutableNodeBase) plan.getReportingNode());
       //      plan.getReportingNode().getDestinationQueues().add(outputQueue);
       reader = new ExecutionTokenReader(node.getSourceQueues().get(0));
+      if (completionHandler != null) {
+        watchCompletion((ExecutableNodeBase) plan.getReportingNode());
+      }
     } else {
       reader = new ExecutionTokenReader();
     }
@@ -119,6 +134,28 @@ public class ExecutablePlanRunner {
     return reader;
   }
 
+  /**
+   * The reporting node sends a status token after all the other nodes have finished; the
+   * completion handler runs when it is received.
+   */
+  private void watchCompletion(ExecutableNodeBase reportingNode) {
+    ExecutableNodeBase watcher = ExecutableNodeBase.create();
+    watcher.subscribeTo(reportingNode);
+    final ExecutionTokenQueue queue = watcher.getSourceQueues().get(0);
+    final Runnable handler = completionHandler;
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    executor.submit(
+        new Runnable() {
+          @Override
+          public void run() {
+            while (!queue.take().isStatusToken()) {}
+            handler.run();
+          }
+        });
+    executor.shutdown();
+  }
+
   public ExecutionResultReader getResultReader() {
     ExecutionTokenReader reader = getTokenReader();
     return new ExecutionResultReader(reader);
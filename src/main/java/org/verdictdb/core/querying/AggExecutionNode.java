@@ -20,10 +20,14 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.verdictdb.connection.DbmsQueryResult;
 import org.verdictdb.core.execplan.ExecutionInfoToken;
+import org.verdictdb.core.querying.ola.BlockQueryTemplate;
+import org.verdictdb.core.sqlobject.ConstantColumn;
+import org.verdictdb.core.sqlobject.CreateTableAsSelectQuery;
 import org.verdictdb.core.sqlobject.SelectQuery;
 import org.verdictdb.core.sqlobject.SqlConvertible;
 import org.verdictdb.exception.VerdictDBException;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class AggExecutionNode extends CreateTableAsSelectNode {
@@ -32,6 +36,11 @@ public class AggExecutionNode extends CreateTableAsSelectNode {
 
   // List<HyperTableCube> cubes = new ArrayList<>();
 
+  // set if this node aggregates a block of a progressive aggregation
+  BlockQueryTemplate blockQueryTemplate;
+
+  List<ConstantColumn> blockRangeConstants = new ArrayList<>();
+
   protected AggExecutionNode(IdCreator namer, SelectQuery query) {
     super(namer, query);
   }
@@ -44,9 +53,27 @@ public class AggExecutionNode extends CreateTableAsSelectNode {
     return node;
   }
 
+  /**
+   * Makes this node produce its SQL from a template shared by the nodes aggregating the other
+   * blocks.
+   *
+   * @param template The template
+   * @param blockRangeConstants The constants of the block range of this node
+   */
+  public void setBlockQueryTemplate(
+      BlockQueryTemplate template, List<ConstantColumn> blockRangeConstants) {
+    this.blockQueryTemplate = template;
+    this.blockRangeConstants = blockRangeConstants;
+  }
+
   @Override
   public SqlConvertible createQuery(List<ExecutionInfoToken> tokens) throws VerdictDBException {
-    return super.createQuery(tokens);
+    SqlConvertible query = super.createQuery(tokens);
+    if (blockQueryTemplate != null) {
+      return blockQueryTemplate.bind(
+          (CreateTableAsSelectQuery) query, blockRangeConstants, placeholderTables);
+    }
+    return query;
   }
 
   @Override
@@ -65,6 +92,21 @@ public class AggExecutionNode extends CreateTableAsSelectNode {
     return node;
   }
 
+  @Override
+  protected ExecutableNodeBase copyForPlan(ExecutionPlanCopier copier) {
+    AggExecutionNode node = new AggExecutionNode(null, null);
+    copyFieldsForPlan(node, copier);
+    return node;
+  }
+
+  @Override
+  protected void copyFieldsForPlan(ExecutableNodeBase to, ExecutionPlanCopier copier) {
+    super.copyFieldsForPlan(to, copier);
+    AggExecutionNode node = (AggExecutionNode) to;
+    node.blockQueryTemplate = copier.copy(blockQueryTemplate);
+    node.blockRangeConstants = copier.copy(blockRangeConstants);
+  }
+
   @Override
   public String toString() {
     return new ToStringBuilder(this, ToStringStyle.DEFAULT_STYLE)
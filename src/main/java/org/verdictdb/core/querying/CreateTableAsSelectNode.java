@@ -59,6 +59,12 @@ public class CreateTableAsSelectNode extends QueryNodeWithPlaceHolders {
     this.namer = namer;
   }
 
+  /** @return True if the namer names the temporary views to create instead of tables. */
+  protected boolean isCreatingTemporaryViews() {
+    return namer instanceof TempIdCreatorInScratchpadSchema
+        && ((TempIdCreatorInScratchpadSchema) namer).isCreatingTemporaryViews();
+  }
+
   public void addPartitionColumn(String column) {
     partitionColumns.add(column);
   }
@@ -71,6 +77,7 @@ public class CreateTableAsSelectNode extends QueryNodeWithPlaceHolders {
     newTableName = tempTableFullName.getRight();
     CreateTableAsSelectQuery createQuery =
         new CreateTableAsSelectQuery(newTableSchemaName, newTableName, selectQuery);
+    createQuery.setTemporaryView(isCreatingTemporaryViews());
     for (String col : partitionColumns) {
       createQuery.addPartitionColumn(col);
     }
@@ -95,4 +102,22 @@ public class CreateTableAsSelectNode extends QueryNodeWithPlaceHolders {
   void copyFields(CreateTableAsSelectNode from, CreateTableAsSelectNode to) {
     super.copyFields(from, to);
   }
+
+  @Override
+  protected ExecutableNodeBase copyForPlan(ExecutionPlanCopier copier) {
+    CreateTableAsSelectNode node = new CreateTableAsSelectNode(null, null);
+    copyFieldsForPlan(node, copier);
+    return node;
+  }
+
+  @Override
+  protected void copyFieldsForPlan(ExecutableNodeBase to, ExecutionPlanCopier copier) {
+    super.copyFieldsForPlan(to, copier);
+    CreateTableAsSelectNode node = (CreateTableAsSelectNode) to;
+    node.namer = copier.copy(namer);
+    node.newTableSchemaName = newTableSchemaName;
+    node.newTableName = newTableName;
+    node.partitionColumns = copier.copy(partitionColumns);
+    node.ifNotExists = ifNotExists;
+  }
 }
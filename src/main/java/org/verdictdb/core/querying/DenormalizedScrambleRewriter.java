@@ -0,0 +1,332 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.querying;
+
+import org.verdictdb.core.scrambling.DenormalizedSource;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.core.sqlobject.AbstractRelation;
+import org.verdictdb.core.sqlobject.AliasReference;
+import org.verdictdb.core.sqlobject.AliasedColumn;
+import org.verdictdb.core.sqlobject.AsteriskColumn;
+import org.verdictdb.core.sqlobject.BaseColumn;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.ConstantColumn;
+import org.verdictdb.core.sqlobject.GroupingAttribute;
+import org.verdictdb.core.sqlobject.JoinTable;
+import org.verdictdb.core.sqlobject.OrderbyAttribute;
+import org.verdictdb.core.sqlobject.SelectItem;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.core.sqlobject.UnnamedColumn;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Routes the queries over the join graph of a denormalized scramble to the denormalized scramble.
+ *
+ * <p>A select query is rewritten if (1) its from clause consists only of the inner joins of base
+ * tables, (2) the joined tables are exactly the tables of a denormalized scramble, and (3) the join
+ * conditions (either in the on clauses or in the where clause) include all the join conditions of
+ * the denormalized scramble. The rewritten query reads the denormalized scramble alone; thus, the
+ * block queries of the rewritten query do not perform any joins.
+ *
+ * <p>This rewriting is applied to standardized queries, i.e., every column is qualified by the alias
+ * of its table. If the rewriting is not applicable, the query is returned as it is.
+ */
+public class DenormalizedScrambleRewriter {
+
+  private ScrambleMetaSet scrambleMetaSet;
+
+  public DenormalizedScrambleRewriter(ScrambleMetaSet scrambleMetaSet) {
+    this.scrambleMetaSet = scrambleMetaSet;
+  }
+
+  /**
+   * @param query A standardized select query
+   * @return The rewritten query; the same query if no denormalized scramble can be used.
+   */
+  public SelectQuery rewrite(SelectQuery query) {
+    SelectQuery rewritten = rewriteJoin(query);
+    if (rewritten != null) {
+      return rewritten;
+    }
+
+    // the subqueries in the from clause may be rewritten
+    List<AbstractRelation> fromList = query.getFromList();
+    for (int i = 0; i < fromList.size(); i++) {
+      AbstractRelation source = fromList.get(i);
+      if (source instanceof SelectQuery) {
+        fromList.set(i, rewrite((SelectQuery) source));
+      } else if (source instanceof JoinTable) {
+        List<AbstractRelation> joinList = ((JoinTable) source).getJoinList();
+        for (int j = 0; j < joinList.size(); j++) {
+          if (joinList.get(j) instanceof SelectQuery) {
+            joinList.set(j, rewrite((SelectQuery) joinList.get(j)));
+          }
+        }
+      }
+    }
+    return query;
+  }
+
+  /** @return The query reading a denormalized scramble; null if there is no matching scramble. */
+  private SelectQuery rewriteJoin(SelectQuery query) {
+    // collect the joined tables and the conjuncts of the join conditions and the filter
+    List<BaseTable> tables = new ArrayList<>();
+    List<UnnamedColumn> conjuncts = new ArrayList<>();
+    List<AbstractRelation> sources = query.getFromList();
+    if (sources.size() == 1 && sources.get(0) instanceof JoinTable) {
+      JoinTable join = (JoinTable) sources.get(0);
+      sources = join.getJoinList();
+      for (int i = 0; i < join.getJoinTypeList().size(); i++) {
+        if (join.getJoinTypeList().get(i) != JoinTable.JoinType.inner
+            && join.getJoinTypeList().get(i) != JoinTable.JoinType.cross) {
+          return null;
+        }
+        UnnamedColumn condition = join.getCondition().get(i);
+        if (condition != null) {
+          conjuncts.addAll(flattenConjunction(condition));
+        }
+      }
+    }
+    if (sources.size() < 2) {
+      return null;
+    }
+    for (AbstractRelation source : sources) {
+      if (!(source instanceof BaseTable) || !source.getAliasName().isPresent()) {
+        return null;
+      }
+      tables.add((BaseTable) source);
+    }
+    if (query.getFilter().isPresent()) {
+      conjuncts.addAll(flattenConjunction(query.getFilter().get()));
+    }
+
+    Map<String, BaseTable> aliasToTable = new HashMap<>();
+    Set<String> tableKeys = new HashSet<>();
+    for (BaseTable t : tables) {
+      aliasToTable.put(t.getAliasName().get(), t);
+      tableKeys.add(DenormalizedSource.tableKey(t.getSchemaName(), t.getTableName()));
+    }
+    if (tableKeys.size() != tables.size()) {
+      return null; // self-joins are not supported
+    }
+
+    for (ScrambleMeta meta : scrambleMetaSet) {
+      DenormalizedSource denormalized = meta.getDenormalizedSource();
+      if (denormalized == null || !tableKeys.equals(new HashSet<>(denormalized.getTables()))) {
+        continue;
+      }
+      SelectQuery rewritten = rewriteForScramble(query, aliasToTable, conjuncts, meta);
+      if (rewritten != null) {
+        return rewritten;
+      }
+    }
+    return null;
+  }
+
+  private SelectQuery rewriteForScramble(
+      SelectQuery query,
+      Map<String, BaseTable> aliasToTable,
+      List<UnnamedColumn> conjuncts,
+      ScrambleMeta meta) {
+    DenormalizedSource denormalized = meta.getDenormalizedSource();
+
+    // the join conditions of the scramble must all appear in the query
+    Set<String> scrambleConditions = new HashSet<>(denormalized.getJoinConditions());
+    Set<String> matchedConditions = new HashSet<>();
+    List<UnnamedColumn> remainingConjuncts = new ArrayList<>();
+    for (UnnamedColumn conjunct : conjuncts) {
+      String key = joinConditionKeyOf(conjunct, aliasToTable);
+      if (key != null && scrambleConditions.contains(key)) {
+        matchedConditions.add(key);
+      } else {
+        remainingConjuncts.add(conjunct);
+      }
+    }
+    if (!matchedConditions.equals(scrambleConditions)) {
+      return null;
+    }
+
+    // the alias of the fact table is used for the scramble.
+    String factAlias = null;
+    for (BaseTable t : aliasToTable.values()) {
+      String key = DenormalizedSource.tableKey(t.getSchemaName(), t.getTableName());
+      if (key.equals(denormalized.getTables().get(0))) {
+        factAlias = t.getAliasName().get();
+      }
+    }
+    BaseTable scramble = new BaseTable(meta.getSchemaName(), meta.getTableName(), factAlias);
+    ColumnRewriter rewriter = new ColumnRewriter(aliasToTable, denormalized, scramble);
+
+    SelectQuery rewritten = new SelectQuery();
+    for (SelectItem item : query.getSelectList()) {
+      if (!(item instanceof AliasedColumn)) {
+        return null;
+      }
+      AliasedColumn aliased = (AliasedColumn) item;
+      UnnamedColumn column = rewriter.rewrite(aliased.getColumn());
+      if (column == null) {
+        return null;
+      }
+      rewritten.addSelectItem(new AliasedColumn(column, aliased.getAliasName()));
+    }
+    rewritten.addTableSource(scramble);
+    for (UnnamedColumn conjunct : remainingConjuncts) {
+      UnnamedColumn column = rewriter.rewrite(conjunct);
+      if (column == null) {
+        return null;
+      }
+      rewritten.addFilterByAnd(column);
+    }
+    for (GroupingAttribute attr : query.getGroupby()) {
+      GroupingAttribute newAttr = rewriter.rewrite(attr);
+      if (newAttr == null) {
+        return null;
+      }
+      rewritten.addGroupby(newAttr);
+    }
+    if (query.getHaving().isPresent()) {
+      UnnamedColumn having = rewriter.rewrite(query.getHaving().get());
+      if (having == null) {
+        return null;
+      }
+      rewritten.addHavingByAnd(having);
+    }
+    for (OrderbyAttribute attr : query.getOrderby()) {
+      GroupingAttribute newAttr = rewriter.rewrite(attr.getAttribute());
+      if (newAttr == null) {
+        return null;
+      }
+      rewritten.addOrderby(new OrderbyAttribute(newAttr, attr.getOrder()));
+    }
+    if (query.getLimit().isPresent()) {
+      rewritten.addLimit(query.getLimit().get());
+    }
+    if (query.getAliasName().isPresent()) {
+      rewritten.setAliasName(query.getAliasName().get());
+    }
+    return rewritten;
+  }
+
+  /** @return The key of an equi-join condition between two tables; null if not a join condition. */
+  private String joinConditionKeyOf(UnnamedColumn conjunct, Map<String, BaseTable> aliasToTable) {
+    if (!(conjunct instanceof ColumnOp) || !((ColumnOp) conjunct).getOpType().equals("equal")) {
+      return null;
+    }
+    ColumnOp equal = (ColumnOp) conjunct;
+    if (!(equal.getOperand(0) instanceof BaseColumn)
+        || !(equal.getOperand(1) instanceof BaseColumn)) {
+      return null;
+    }
+    BaseColumn left = (BaseColumn) equal.getOperand(0);
+    BaseColumn right = (BaseColumn) equal.getOperand(1);
+    BaseTable leftTable = aliasToTable.get(left.getTableSourceAlias());
+    BaseTable rightTable = aliasToTable.get(right.getTableSourceAlias());
+    if (leftTable == null || rightTable == null || leftTable == rightTable) {
+      return null;
+    }
+    return DenormalizedSource.joinConditionKey(
+        DenormalizedSource.columnKey(
+            leftTable.getSchemaName(), leftTable.getTableName(), left.getColumnName()),
+        DenormalizedSource.columnKey(
+            rightTable.getSchemaName(), rightTable.getTableName(), right.getColumnName()));
+  }
+
+  private List<UnnamedColumn> flattenConjunction(UnnamedColumn condition) {
+    List<UnnamedColumn> conjuncts = new ArrayList<>();
+    if (condition instanceof ColumnOp && ((ColumnOp) condition).getOpType().equals("and")) {
+      for (UnnamedColumn operand : ((ColumnOp) condition).getOperands()) {
+        conjuncts.addAll(flattenConjunction(operand));
+      }
+    } else {
+      conjuncts.add(condition);
+    }
+    return conjuncts;
+  }
+
+  /** Replaces the columns of the joined tables with the columns of the denormalized scramble. */
+  private static class ColumnRewriter {
+
+    private Map<String, BaseTable> aliasToTable;
+
+    private DenormalizedSource denormalized;
+
+    private BaseTable scramble;
+
+    ColumnRewriter(
+        Map<String, BaseTable> aliasToTable, DenormalizedSource denormalized, BaseTable scramble) {
+      this.aliasToTable = aliasToTable;
+      this.denormalized = denormalized;
+      this.scramble = scramble;
+    }
+
+    /** @return The rewritten attribute; null if the attribute cannot be rewritten. */
+    GroupingAttribute rewrite(GroupingAttribute attr) {
+      if (attr instanceof UnnamedColumn) {
+        return rewrite((UnnamedColumn) attr);
+      }
+      return attr;
+    }
+
+    /** @return The rewritten column; null if the column cannot be rewritten. */
+    UnnamedColumn rewrite(UnnamedColumn column) {
+      if (column instanceof BaseColumn) {
+        BaseColumn base = (BaseColumn) column;
+        BaseTable table = aliasToTable.get(base.getTableSourceAlias());
+        if (table == null) {
+          return null;
+        }
+        String scrambleColumn =
+            denormalized.findScrambleColumn(
+                table.getSchemaName(), table.getTableName(), base.getColumnName());
+        if (scrambleColumn == null) {
+          return null;
+        }
+        return new BaseColumn(
+            scramble.getSchemaName(),
+            scramble.getTableName(),
+            scramble.getAliasName().get(),
+            scrambleColumn);
+      } else if (column instanceof ColumnOp) {
+        ColumnOp op = (ColumnOp) column;
+        List<UnnamedColumn> operands = new ArrayList<>();
+        for (UnnamedColumn operand : op.getOperands()) {
+          UnnamedColumn newOperand = rewrite(operand);
+          if (newOperand == null) {
+            return null;
+          }
+          operands.add(newOperand);
+        }
+        return new ColumnOp(op.getOpType(), operands);
+      } else if (column instanceof ConstantColumn || column instanceof AliasReference) {
+        return column;
+      } else if (column instanceof AsteriskColumn
+          && ((AsteriskColumn) column).getTablename() == null) {
+        return column; // e.g., count(*)
+      }
+      // subqueries, table-qualified asterisks, etc. are not rewritten
+      return null;
+    }
+  }
+}
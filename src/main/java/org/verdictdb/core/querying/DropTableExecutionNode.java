@@ -65,6 +65,13 @@ public class DropTableExecutionNode extends ExecutableNodeBase {
     return node;
   }
 
+  @Override
+  protected ExecutableNodeBase copyForPlan(ExecutionPlanCopier copier) {
+    DropTableExecutionNode node = new DropTableExecutionNode();
+    copyFieldsForPlan(node, copier);
+    return node;
+  }
+
   void copyFields(DropTableExecutionNode from, DropTableExecutionNode to) {
     super.copyFields(from, to);
   }
@@ -51,6 +51,12 @@ public class ExecutableNodeBase implements ExecutableNode, Serializable {
 
   private int groupId; // copied when deepcopying; used by ExecutablePlanRunner
 
+  // incremented whenever the subscribers or the sources of this node change
+  private transient volatile int subscriptionVersion = 0;
+
+  // the subscribers in the order of getSubscribers(); null if not ordered yet
+  private transient volatile OrderedSubscribers orderedSubscribers = null;
+
   public ExecutableNodeBase() {
     uniqueId = RandomStringUtils.randomAlphanumeric(10);
     groupId = Integer.valueOf(RandomStringUtils.randomNumeric(5));
@@ -93,10 +99,20 @@ public class ExecutableNodeBase implements ExecutableNode, Serializable {
     if (!channels.containsKey(channel)) {
       channels.put(channel, new ExecutionTokenQueue());
     }
+    subscriptionsChanged();
   }
 
   private void addSubscriber(ExecutableNodeBase node) {
     subscribers.add(node);
+    subscriptionsChanged();
+  }
+
+  /**
+   * Must be called after the subscribers or the sources of this node are changed, so that
+   * getSubscribers() of this node and of its sources orders the subscribers again.
+   */
+  void subscriptionsChanged() {
+    subscriptionVersion++;
   }
 
   /**
@@ -115,6 +131,7 @@ public class ExecutableNodeBase implements ExecutableNode, Serializable {
       }
     }
     sources = newSources;
+    subscriptionsChanged();
 
     // if there are no other nodes broadcasting to this channel, remove the queue
     if (leftChannels.size() > 0) {
@@ -133,6 +150,7 @@ public class ExecutableNodeBase implements ExecutableNode, Serializable {
 
   private void removeSubscriber(ExecutableNodeBase node) {
     subscribers.remove(node);
+    subscriptionsChanged();
   }
 
   public void cancelSubscriptionsFromAllSubscribers() {
@@ -168,13 +186,79 @@ public class ExecutableNodeBase implements ExecutableNode, Serializable {
     return new ArrayList<ExecutionTokenQueue>(channels.values());
   }
 
+  /**
+   * The subscribers that are also the sources of other subscribers come last. Such a subscriber
+   * broadcasts its own result only after it is notified; thus, the other subscribers receive the
+   * token of this node before the one of that subscriber (e.g., the progressive answers of an
+   * AsyncAggExecutionNode are produced in order).
+   *
+   * <p>The order is kept until the subscriptions of this node or of its subscribers change, since
+   * this method is called every time this node broadcasts a token.
+   *
+   * @return The subscribers, which must not be modified
+   */
   @Override
   public List<ExecutableNode> getSubscribers() {
-    List<ExecutableNode> nodes = new ArrayList<>();
-    for (ExecutableNodeBase s : subscribers) {
-      nodes.add(s);
+    OrderedSubscribers ordered = orderedSubscribers;
+    if (ordered == null || !ordered.isValidFor(this)) {
+      ordered = new OrderedSubscribers(this);
+      orderedSubscribers = ordered;
+    }
+    return ordered.nodes;
+  }
+
+  /** The subscribers of a node in order, with the versions of the subscriptions they reflect. */
+  private static class OrderedSubscribers {
+
+    final int version;
+
+    final int[] subscriberVersions;
+
+    final List<ExecutableNode> nodes;
+
+    OrderedSubscribers(ExecutableNodeBase node) {
+      // the versions are read first; a concurrent change makes this outdated.
+      version = node.subscriptionVersion;
+      List<ExecutableNodeBase> subscribers = new ArrayList<>(node.subscribers);
+      subscriberVersions = new int[subscribers.size()];
+      for (int i = 0; i < subscribers.size(); i++) {
+        subscriberVersions[i] = subscribers.get(i).subscriptionVersion;
+      }
+
+      Set<ExecutableNodeBase> sourcesOfOthers =
+          Collections.newSetFromMap(new IdentityHashMap<ExecutableNodeBase, Boolean>());
+      for (ExecutableNodeBase other : subscribers) {
+        for (Pair<ExecutableNodeBase, Integer> source : other.sources) {
+          if (source.getLeft() != other) {
+            sourcesOfOthers.add(source.getLeft());
+          }
+        }
+      }
+      List<ExecutableNode> ordered = new ArrayList<>();
+      List<ExecutableNode> last = new ArrayList<>();
+      for (ExecutableNodeBase s : subscribers) {
+        if (sourcesOfOthers.contains(s)) {
+          last.add(s);
+        } else {
+          ordered.add(s);
+        }
+      }
+      ordered.addAll(last);
+      nodes = Collections.unmodifiableList(ordered);
+    }
+
+    boolean isValidFor(ExecutableNodeBase node) {
+      if (version != node.subscriptionVersion
+          || subscriberVersions.length != node.subscribers.size()) {
+        return false;
+      }
+      for (int i = 0; i < subscriberVersions.length; i++) {
+        if (subscriberVersions[i] != node.subscribers.get(i).subscriptionVersion) {
+          return false;
+        }
+      }
+      return true;
     }
-    return nodes;
   }
 
   @Override
@@ -187,6 +271,12 @@ public class ExecutableNodeBase implements ExecutableNode, Serializable {
     return null;
   }
 
+  /** By default, the result is streamed to its reader. */
+  @Override
+  public boolean requiresBufferedResult() {
+    return false;
+  }
+
   @Override
   public int getDependentNodeCount() {
     return sources.size();
@@ -265,6 +355,7 @@ public class ExecutableNodeBase implements ExecutableNode, Serializable {
   protected void copyFields(ExecutableNodeBase from, ExecutableNodeBase to) {
     to.subscribers = new ArrayList<>(from.subscribers);
     to.sources = new ArrayList<>(from.sources);
+    to.subscriptionsChanged();
     to.channels = new TreeMap<>();
     for (Entry<Integer, ExecutionTokenQueue> a : from.channels.entrySet()) {
       to.channels.put(a.getKey(), new ExecutionTokenQueue());
@@ -273,6 +364,26 @@ public class ExecutableNodeBase implements ExecutableNode, Serializable {
     //    to.channels = new TreeMap<>(from.channels);
   }
 
+  /**
+   * Creates a copy of this node for the copy of the plan including it. Unlike deepcopy(), the
+   * objects this node refers to are copied as well, by the copier; the subscriptions are restored
+   * by the copier after all the nodes are copied. The subclasses create their own instances here.
+   *
+   * @param copier The copier of the plan
+   * @return The copy of this node
+   */
+  protected ExecutableNodeBase copyForPlan(ExecutionPlanCopier copier) {
+    ExecutableNodeBase node = new ExecutableNodeBase();
+    copyFieldsForPlan(node, copier);
+    return node;
+  }
+
+  protected void copyFieldsForPlan(ExecutableNodeBase to, ExecutionPlanCopier copier) {
+    copier.setCopy(this, to);
+    to.aggMeta = copier.copy(aggMeta);
+    to.groupId = groupId;
+  }
+
   public void print() {
     print(0);
   }
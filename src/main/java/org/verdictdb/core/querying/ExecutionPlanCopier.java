@@ -0,0 +1,214 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.querying;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.verdictdb.core.execplan.ExecutionTokenQueue;
+import org.verdictdb.core.querying.ola.AggMeta;
+import org.verdictdb.core.querying.ola.BlockQueryTemplate;
+import org.verdictdb.core.querying.ola.Dimension;
+import org.verdictdb.core.querying.ola.HyperTableCube;
+import org.verdictdb.core.rewriter.aggresult.AggNameAndType;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.core.sqlobject.SqlObjectCopier;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Copies execution plans without serialization. When a node is copied, all the nodes connected to
+ * it (through either subscriptions or sources) are copied one after another; then, the copies are
+ * connected to each other in the same way as the originals. Unlike serialization, the depth of
+ * the copy does not grow with the number of nodes (e.g., the chain of combiners of a query with
+ * many blocks).
+ *
+ * <p>The scramble metadata and the hyper table cubes are not changed once a plan is created; they
+ * are shared by the copies.
+ *
+ * <p>Each node is copied by its copyForPlan(). The nodes of the classes not implementing it are
+ * copied by their deepcopy() instead.
+ */
+public class ExecutionPlanCopier extends SqlObjectCopier {
+
+  // whether each class of nodes implements copyForPlan() itself
+  private static final ConcurrentMap<Class<?>, Boolean> COPYABLE_NODE_CLASSES =
+      new ConcurrentHashMap<>();
+
+  // the nodes found connected to a node being copied, but not copied yet
+  private final Set<ExecutableNodeBase> pendingNodes =
+      Collections.newSetFromMap(new IdentityHashMap<ExecutableNodeBase, Boolean>());
+
+  // the nodes whose copies must be connected
+  private final List<ExecutableNodeBase> copiedNodes = new ArrayList<>();
+
+  private boolean copyingNodes = false;
+
+  @Override
+  protected boolean isImmutable(Object object) {
+    return super.isImmutable(object)
+        || object instanceof ScrambleMetaSet
+        || object instanceof ScrambleMeta
+        || object instanceof HyperTableCube
+        || object instanceof Dimension
+        || object instanceof AggNameAndType;
+  }
+
+  @Override
+  protected Object copyObject(Object object) {
+    if (object instanceof ExecutableNodeBase) {
+      return copyConnectedNodes((ExecutableNodeBase) object);
+    } else if (object instanceof QueryExecutionPlan) {
+      return ((QueryExecutionPlan) object).deepcopy(this);
+    } else if (object instanceof TempIdCreatorInScratchpadSchema) {
+      TempIdCreatorInScratchpadSchema creator = (TempIdCreatorInScratchpadSchema) object;
+      TempIdCreatorInScratchpadSchema copied =
+          new TempIdCreatorInScratchpadSchema(creator.scratchpadSchemaName);
+      copied.serialNum = creator.serialNum;
+      copied.identifierNum = creator.identifierNum;
+      copied.creatingTemporaryViews = creator.creatingTemporaryViews;
+      return copied;
+    } else if (object instanceof AggMeta) {
+      return copyAggMeta((AggMeta) object);
+    } else if (object instanceof ExecutionTokenQueue) {
+      return new ExecutionTokenQueue();
+    } else if (object instanceof BlockQueryTemplate) {
+      // the template is rendered again for the copy, whose queries may differ (e.g., in the
+      // values of the parameters).
+      return new BlockQueryTemplate();
+    }
+    return super.copyObject(object);
+  }
+
+  private ExecutableNodeBase copyConnectedNodes(ExecutableNodeBase node) {
+    List<ExecutableNodeBase> found = new ArrayList<>();
+    List<ExecutableNodeBase> toVisit = new ArrayList<>();
+    toVisit.add(node);
+    while (!toVisit.isEmpty()) {
+      ExecutableNodeBase n = toVisit.remove(toVisit.size() - 1);
+      if (getCopy(n) != null || !pendingNodes.add(n)) {
+        continue;
+      }
+      found.add(n);
+      toVisit.addAll(n.subscribers);
+      for (Pair<ExecutableNodeBase, Integer> source : n.sources) {
+        toVisit.add(source.getLeft());
+      }
+    }
+
+    // a node may be copied while another is copied (e.g., if referred to by the other's fields);
+    // only the outermost call connects the copies.
+    boolean outermost = !copyingNodes;
+    copyingNodes = true;
+    ExecutableNodeBase copied = copyNode(node);
+    for (ExecutableNodeBase n : found) {
+      copyNode(n);
+    }
+    if (outermost) {
+      connectCopiedNodes();
+      copyingNodes = false;
+    }
+    return copied;
+  }
+
+  private ExecutableNodeBase copyNode(ExecutableNodeBase node) {
+    ExecutableNodeBase copied = (ExecutableNodeBase) getCopy(node);
+    if (copied != null) {
+      return copied;
+    }
+    pendingNodes.remove(node);
+    if (implementsCopyForPlan(node.getClass())) {
+      copied = node.copyForPlan(this);
+    } else {
+      copied = copyNodeByDeepcopy(node);
+    }
+    setCopy(node, copied);
+    copiedNodes.add(node);
+    return copied;
+  }
+
+  /**
+   * Copies a node whose class does not implement copyForPlan() (e.g., the nodes of a scrambling
+   * plan) by its own deepcopy(), or by serialization if deepcopy() is not implemented either. The
+   * connections of the copy are restored by connectCopiedNodes() in either case.
+   */
+  private ExecutableNodeBase copyNodeByDeepcopy(ExecutableNodeBase node) {
+    ExecutableNodeBase copied = node.deepcopy();
+    if (copied.getClass() != node.getClass()) {
+      copied = SerializationUtils.clone(node);
+    }
+    copied.aggMeta = copy(node.aggMeta);
+    return copied;
+  }
+
+  static boolean implementsCopyForPlan(Class<?> nodeClass) {
+    Boolean implemented = COPYABLE_NODE_CLASSES.get(nodeClass);
+    if (implemented == null) {
+      try {
+        nodeClass.getDeclaredMethod("copyForPlan", ExecutionPlanCopier.class);
+        implemented = true;
+      } catch (NoSuchMethodException e) {
+        implemented = false;
+      }
+      COPYABLE_NODE_CLASSES.put(nodeClass, implemented);
+    }
+    return implemented;
+  }
+
+  private void connectCopiedNodes() {
+    for (ExecutableNodeBase node : copiedNodes) {
+      ExecutableNodeBase copied = (ExecutableNodeBase) getCopy(node);
+      copied.subscribers = new ArrayList<>();
+      for (ExecutableNodeBase subscriber : node.subscribers) {
+        copied.subscribers.add((ExecutableNodeBase) getCopy(subscriber));
+      }
+      copied.sources = new ArrayList<>();
+      for (Pair<ExecutableNodeBase, Integer> source : node.sources) {
+        copied.sources.add(
+            Pair.of((ExecutableNodeBase) getCopy(source.getLeft()), source.getRight()));
+      }
+      copied.channels = new TreeMap<>();
+      for (Integer channel : node.channels.keySet()) {
+        copied.channels.put(channel, new ExecutionTokenQueue());
+      }
+      copied.subscriptionsChanged();
+    }
+    copiedNodes.clear();
+  }
+
+  private AggMeta copyAggMeta(AggMeta meta) {
+    AggMeta copied = new AggMeta();
+    setCopy(meta, copied);
+    copied.setCubes(copy(meta.getCubes()));
+    copied.setOriginalSelectList(copy(meta.getOriginalSelectList()));
+    copied.setAggAlias(copy(meta.getAggAlias()));
+    copied.setScrambleTableTierColumnAlias(copy(meta.getScrambleTableTierColumnAlias()));
+    copied.setMaxminAggAlias(copy(meta.getMaxminAggAlias()));
+    copied.setAggColumn(copy(meta.getAggColumn()));
+    copied.setAggColumnAggAliasPair(copy(meta.getAggColumnAggAliasPair()));
+    copied.setAggColumnAggAliasPairOfMaxMin(copy(meta.getAggColumnAggAliasPairOfMaxMin()));
+    copied.setTierColumnName(meta.getTierColumnName());
+    return copied;
+  }
+}
@@ -55,4 +55,11 @@ public class ProjectionNode extends CreateTableAsSelectNode {
     copyFields(this, node);
     return node;
   }
+
+  @Override
+  protected ExecutableNodeBase copyForPlan(ExecutionPlanCopier copier) {
+    ProjectionNode node = new ProjectionNode(null, null);
+    copyFieldsForPlan(node, copier);
+    return node;
+  }
 }
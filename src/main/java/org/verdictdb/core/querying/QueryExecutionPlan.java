@@ -222,19 +222,97 @@ public class QueryExecutionPlan implements ExecutablePlan, IdCreator, Serializab
     return idCreator.generateTempTableName();
   }
 
-  public QueryExecutionPlan deepcopy() {
-    try {
-      ByteArrayOutputStream bos = new ByteArrayOutputStream();
-      ObjectOutputStream out = new ObjectOutputStream(bos);
-      out.writeObject(this);
-      out.flush();
-      out.close();
-
-      ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
-      return (QueryExecutionPlan) in.readObject();
-    } catch (ClassNotFoundException | IOException e) {
-      e.printStackTrace();
+  /**
+   * Renews the serial numbers of the id creators used by this plan and its nodes. A copy of a plan
+   * must be renewed before it is executed; otherwise, it creates the temporary tables with the same
+   * names as the original.
+   */
+  public void renewSerialNumbers() {
+    for (TempIdCreatorInScratchpadSchema creator : getTempIdCreators()) {
+      creator.renewSerialNumber();
+    }
+  }
+
+  /**
+   * Lets this plan create its temporary tables as temporary views, which are only supported by
+   * some databases (see SqlSyntax.doesSupportTemporaryViews()).
+   *
+   * @param creatingTemporaryViews True to create temporary views
+   */
+  public void setCreatingTemporaryViews(boolean creatingTemporaryViews) {
+    for (TempIdCreatorInScratchpadSchema creator : getTempIdCreators()) {
+      creator.setCreatingTemporaryViews(creatingTemporaryViews);
     }
-    return null;
+  }
+
+  /** @return The schema and table names of the temporary views created by this plan so far */
+  public List<Pair<String, String>> getTemporaryViews() {
+    List<Pair<String, String>> views = new ArrayList<>();
+    for (TempIdCreatorInScratchpadSchema creator : getTempIdCreators()) {
+      views.addAll(creator.getTemporaryViews());
+    }
+    return views;
+  }
+
+  /** @return The id creators used by this plan and its nodes */
+  private Set<TempIdCreatorInScratchpadSchema> getTempIdCreators() {
+    Set<IdCreator> idCreators =
+        Collections.newSetFromMap(new IdentityHashMap<IdCreator, Boolean>());
+    idCreators.add(idCreator);
+
+    Set<ExecutableNodeBase> visited =
+        Collections.newSetFromMap(new IdentityHashMap<ExecutableNodeBase, Boolean>());
+    List<ExecutableNodeBase> toVisit = new ArrayList<>();
+    if (root != null) {
+      toVisit.add(root);
+    }
+    while (!toVisit.isEmpty()) {
+      ExecutableNodeBase node = toVisit.remove(toVisit.size() - 1);
+      if (!visited.add(node)) {
+        continue;
+      }
+      if (node instanceof CreateTableAsSelectNode) {
+        idCreators.add(((CreateTableAsSelectNode) node).getNamer());
+      }
+      toVisit.addAll(node.getSources());
+    }
+
+    Set<TempIdCreatorInScratchpadSchema> creators =
+        Collections.newSetFromMap(new IdentityHashMap<TempIdCreatorInScratchpadSchema, Boolean>());
+    for (IdCreator creator : idCreators) {
+      if (creator instanceof TempIdCreatorInScratchpadSchema) {
+        creators.add((TempIdCreatorInScratchpadSchema) creator);
+      }
+    }
+    return creators;
+  }
+
+  /**
+   * Copies this plan including its nodes and their queries; see ExecutionPlanCopier.
+   *
+   * @return The copy of this plan
+   */
+  public QueryExecutionPlan deepcopy() {
+    return deepcopy(new ExecutionPlanCopier());
+  }
+
+  /**
+   * Copies this plan with a given copier, which may have been told to replace some objects (e.g.,
+   * the parameters of a prepared query) in the copy.
+   *
+   * @param copier The copier
+   * @return The copy of this plan
+   */
+  public QueryExecutionPlan deepcopy(ExecutionPlanCopier copier) {
+    QueryExecutionPlan plan = new QueryExecutionPlan();
+    copyFields(plan, copier);
+    return plan;
+  }
+
+  protected void copyFields(QueryExecutionPlan to, ExecutionPlanCopier copier) {
+    copier.setCopy(this, to);
+    to.scrambleMeta = copier.copy(scrambleMeta);
+    to.idCreator = copier.copy(idCreator);
+    to.root = copier.copy(root);
   }
 }
@@ -74,6 +74,19 @@ public class QueryNodeBase extends ExecutableNodeBase {
     to.selectQuery = from.selectQuery.deepcopy();
   }
 
+  @Override
+  protected ExecutableNodeBase copyForPlan(ExecutionPlanCopier copier) {
+    QueryNodeBase node = new QueryNodeBase(null);
+    copyFieldsForPlan(node, copier);
+    return node;
+  }
+
+  @Override
+  protected void copyFieldsForPlan(ExecutableNodeBase to, ExecutionPlanCopier copier) {
+    super.copyFieldsForPlan(to, copier);
+    ((QueryNodeBase) to).selectQuery = copier.copy(selectQuery);
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (obj == null) {
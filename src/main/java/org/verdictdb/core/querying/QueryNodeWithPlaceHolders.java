@@ -107,6 +107,68 @@ public abstract class QueryNodeWithPlaceHolders extends QueryNodeBase {
     to.placeholderTablesinFilter = new ArrayList<>();
     to.placeholderTablesinFilter.addAll(from.placeholderTablesinFilter);
     deepcopyPlaceHolderTable(to.placeholderTables, to.selectQuery);
+    deepcopyPlaceHolderTableInFilter(to);
+  }
+
+  // the placeholder tables remain the ones in the copied query since the copier copies each once.
+  @Override
+  protected void copyFieldsForPlan(ExecutableNodeBase to, ExecutionPlanCopier copier) {
+    super.copyFieldsForPlan(to, copier);
+    QueryNodeWithPlaceHolders node = (QueryNodeWithPlaceHolders) to;
+    node.placeholderTables = copier.copy(placeholderTables);
+    node.placeholderTablesinFilter = copier.copy(placeholderTablesinFilter);
+  }
+
+  /**
+   * The subqueries in the filter (and their placeholder tables) are not copied by deepcopy() of a
+   * select query; without this, the copies of a node (e.g., the aggregations of different blocks)
+   * would fill the same placeholder tables concurrently.
+   */
+  private void deepcopyPlaceHolderTableInFilter(QueryNodeWithPlaceHolders to) {
+    if (!to.selectQuery.getFilter().isPresent()) {
+      return;
+    }
+    List<UnnamedColumn> filters = new ArrayList<>();
+    filters.add(to.selectQuery.getFilter().get());
+    while (!filters.isEmpty()) {
+      UnnamedColumn filter = filters.remove(0);
+      if (!(filter instanceof ColumnOp)) {
+        continue;
+      }
+      ColumnOp op = (ColumnOp) filter;
+      for (int i = 0; i < op.getOperands().size(); i++) {
+        UnnamedColumn operand = op.getOperand(i);
+        int index = indexOfSame(to.placeholderTablesinFilter, operand);
+        if (index < 0) {
+          filters.add(operand);
+          continue;
+        }
+        // the subquery reads its placeholder table only (see SubqueriesToDependentNodes)
+        SelectQuery subquery = ((SubqueryColumn) operand).getSubquery();
+        SelectQuery newSubquery = subquery.deepcopy();
+        AbstractRelation t = subquery.getFromList().get(0);
+        int tableIndex = indexOfSame(to.placeholderTables, t);
+        if (t instanceof BaseTable && tableIndex >= 0) {
+          BaseTable newT =
+              new BaseTable(((BaseTable) t).getSchemaName(), ((BaseTable) t).getTableName());
+          if (t.getAliasName().isPresent()) newT.setAliasName(t.getAliasName().get());
+          newSubquery.getFromList().set(0, newT);
+          to.placeholderTables.set(tableIndex, newT);
+        }
+        SubqueryColumn newOperand = new SubqueryColumn(newSubquery);
+        op.setOperand(i, newOperand);
+        to.placeholderTablesinFilter.set(index, newOperand);
+      }
+    }
+  }
+
+  private static int indexOfSame(List<?> list, Object o) {
+    for (int i = 0; i < list.size(); i++) {
+      if (list.get(i) == o) {
+        return i;
+      }
+    }
+    return -1;
   }
 
   private void deepcopyPlaceHolderTable(List<BaseTable> to, SelectQuery relation) {
@@ -100,6 +100,13 @@ public class SelectAllExecutionNode extends QueryNodeWithPlaceHolders {
     return node;
   }
 
+  @Override
+  protected ExecutableNodeBase copyForPlan(ExecutionPlanCopier copier) {
+    SelectAllExecutionNode node = new SelectAllExecutionNode(null);
+    copyFieldsForPlan(node, copier);
+    return node;
+  }
+
   void copyFields(CreateTableAsSelectNode from, CreateTableAsSelectNode to) {
     super.copyFields(from, to);
   }
@@ -19,18 +19,37 @@ package org.verdictdb.core.querying;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TempIdCreatorInScratchpadSchema implements IdCreator, Serializable {
 
   private static final long serialVersionUID = -8241890224536966759L;
 
+  private static final int MAX_SERIAL_NUM = 1000000;
+
+  // the serial numbers are taken in turn from a random start; the plans created concurrently in the
+  // same process never generate the same names, while the ones in different processes are unlikely
+  // to.
+  private static final AtomicInteger nextSerialNum =
+      new AtomicInteger(ThreadLocalRandom.current().nextInt(0, MAX_SERIAL_NUM));
+
   String scratchpadSchemaName;
 
-  final int serialNum = ThreadLocalRandom.current().nextInt(0, 1000000);
+  int serialNum = nextSerialNumber();
 
   int identifierNum = 0;
 
+  // if true, the temporary tables are created as temporary views.
+  boolean creatingTemporaryViews = false;
+
+  // the names of the temporary views generated so far; they are dropped after the plan finishes.
+  private final List<Pair<String, String>> temporaryViews =
+      Collections.synchronizedList(new ArrayList<Pair<String, String>>());
+
   public TempIdCreatorInScratchpadSchema(String scratchpadSchemaName) {
     this.scratchpadSchemaName = scratchpadSchemaName;
   }
@@ -39,10 +58,45 @@ public class TempIdCreatorInScratchpadSchema implements IdCreator, Serializable
     return serialNum;
   }
 
+  /**
+   * Changes the serial number, e.g., for a copy of a plan; the names generated afterward differ
+   * from the ones generated by the original.
+   */
+  public synchronized void renewSerialNumber() {
+    int newSerialNum = serialNum;
+    while (newSerialNum == serialNum) {
+      newSerialNum = nextSerialNumber();
+    }
+    serialNum = newSerialNum;
+  }
+
+  private static int nextSerialNumber() {
+    return (nextSerialNum.getAndIncrement() & Integer.MAX_VALUE) % MAX_SERIAL_NUM;
+  }
+
   public void reset() {
     identifierNum = 0;
   }
 
+  public boolean isCreatingTemporaryViews() {
+    return creatingTemporaryViews;
+  }
+
+  /**
+   * @param creatingTemporaryViews True if the temporary tables are created as temporary views,
+   *     whose names are then kept (see getTemporaryViews()).
+   */
+  public void setCreatingTemporaryViews(boolean creatingTemporaryViews) {
+    this.creatingTemporaryViews = creatingTemporaryViews;
+  }
+
+  /** @return The schema and table names of the temporary views generated so far */
+  public List<Pair<String, String>> getTemporaryViews() {
+    synchronized (temporaryViews) {
+      return new ArrayList<>(temporaryViews);
+    }
+  }
+
   public String getScratchpadSchemaName() {
     return scratchpadSchemaName;
   }
@@ -58,7 +112,13 @@ public class TempIdCreatorInScratchpadSchema implements IdCreator, Serializable
   public Pair<String, String> generateTempTableName() {
     //    return Pair.of(scratchpadSchemaName, String.format("verdictdbtemptable_%d",
     // tempTableNameNum++));
-    return Pair.of(
-        scratchpadSchemaName, String.format("verdictdbtemptable_%s", generateUniqueIdentifier()));
+    Pair<String, String> name =
+        Pair.of(
+            scratchpadSchemaName,
+            String.format("verdictdbtemptable_%s", generateUniqueIdentifier()));
+    if (creatingTemporaryViews) {
+      temporaryViews.add(name);
+    }
+    return name;
   }
 }
@@ -163,4 +163,17 @@ public class AggCombinerExecutionNode extends CreateTableAsSelectNode {
     token.setKeyValue("dependentQuery", this.selectQuery);
     return token;
   }
+
+  @Override
+  protected ExecutableNodeBase copyForPlan(ExecutionPlanCopier copier) {
+    AggCombinerExecutionNode node = new AggCombinerExecutionNode(null);
+    copyFieldsForPlan(node, copier);
+    return node;
+  }
+
+  @Override
+  protected void copyFieldsForPlan(ExecutableNodeBase to, ExecutionPlanCopier copier) {
+    super.copyFieldsForPlan(to, copier);
+    ((AggCombinerExecutionNode) to).aggMeta = copier.copy(aggMeta);
+  }
 }
@@ -23,17 +23,32 @@ import org.verdictdb.core.querying.ExecutableNodeBase;
 import org.verdictdb.core.querying.QueryNodeBase;
 import org.verdictdb.core.scrambling.ScrambleMetaSet;
 import org.verdictdb.core.sqlobject.AbstractRelation;
+import org.verdictdb.core.sqlobject.AliasedColumn;
 import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.ColumnOp;
 import org.verdictdb.core.sqlobject.JoinTable;
+import org.verdictdb.core.sqlobject.OrderbyAttribute;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.core.sqlobject.SetOperationRelation;
+import org.verdictdb.core.sqlobject.SubqueryColumn;
 import org.verdictdb.exception.VerdictDBValueException;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 
 /**
  * Contains the references to the ExecutionNodes that contain scrambled tables. This does not
  * include the scrambled tables in sub aggregate queries.
  *
+ * <p>If the scramble meta is given, the subqueries that do not read any scrambled table are not
+ * included either. Their results are the same for all blocks; thus, like sub aggregate queries,
+ * they are computed once and shared by the copies of the block.
+ *
  * @author Yongjoo Park
  */
 public class AggExecutionNodeBlock {
@@ -42,9 +57,17 @@ public class AggExecutionNodeBlock {
 
   List<ExecutableNodeBase> blockNodes;
 
+  // null if every non-aggregate subquery belongs to the block
+  ScrambleMetaSet scrambleMeta;
+
   public AggExecutionNodeBlock(ExecutableNodeBase blockRoot) {
+    this(blockRoot, null);
+  }
+
+  public AggExecutionNodeBlock(ExecutableNodeBase blockRoot, ScrambleMetaSet scrambleMeta) {
     //    this.idCreator = idCreator;
     this.blockRoot = blockRoot;
+    this.scrambleMeta = scrambleMeta;
     this.blockNodes = getNodesInBlock(blockRoot);
   }
 
@@ -63,6 +86,8 @@ public class AggExecutionNodeBlock {
     for (ExecutableNodeBase dep : root.getExecutableNodeBaseDependents()) {
       if (dep instanceof AggExecutionNode) {
         continue;
+      } else if (scrambleMeta != null && !containsScramble(dep)) {
+        continue;
       } else {
         List<ExecutableNodeBase> depNodes = getNodesInBlock(dep);
         nodes.addAll(depNodes);
@@ -72,6 +97,71 @@ public class AggExecutionNodeBlock {
     return nodes;
   }
 
+  /** Whether the node or its non-aggregate dependents read a scrambled table. */
+  private boolean containsScramble(ExecutableNodeBase node) {
+    if (node instanceof QueryNodeBase && readsScramble(((QueryNodeBase) node).getSelectQuery())) {
+      return true;
+    }
+    for (ExecutableNodeBase dep : node.getExecutableNodeBaseDependents()) {
+      if (!(dep instanceof AggExecutionNode) && containsScramble(dep)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Whether a query reads a scrambled table anywhere in it, i.e., in its joins, derived tables, set
+   * operations, and the subqueries in its expressions.
+   */
+  private boolean readsScramble(SelectQuery query) {
+    if (query == null) {
+      return false;
+    }
+    Deque<Object> toVisit = new ArrayDeque<>();
+    toVisit.push(query);
+    while (!toVisit.isEmpty()) {
+      Object object = toVisit.pop();
+      if (object instanceof BaseTable) {
+        BaseTable table = (BaseTable) object;
+        if (scrambleMeta.isScrambled(table.getSchemaName(), table.getTableName())) {
+          return true;
+        }
+      } else if (object instanceof SelectQuery) {
+        SelectQuery select = (SelectQuery) object;
+        pushAll(toVisit, select.getSelectList());
+        pushAll(toVisit, select.getFromList());
+        pushAll(toVisit, select.getFilter().asSet());
+        pushAll(toVisit, select.getGroupby());
+        pushAll(toVisit, select.getHaving().asSet());
+        for (OrderbyAttribute orderby : select.getOrderby()) {
+          pushAll(toVisit, Collections.singleton(orderby.getAttribute()));
+        }
+      } else if (object instanceof JoinTable) {
+        pushAll(toVisit, ((JoinTable) object).getJoinList());
+        pushAll(toVisit, ((JoinTable) object).getCondition());
+      } else if (object instanceof SetOperationRelation) {
+        SetOperationRelation setOp = (SetOperationRelation) object;
+        pushAll(toVisit, Arrays.asList(setOp.getLeft(), setOp.getRight()));
+      } else if (object instanceof ColumnOp) {
+        pushAll(toVisit, ((ColumnOp) object).getOperands());
+      } else if (object instanceof AliasedColumn) {
+        pushAll(toVisit, Collections.singleton(((AliasedColumn) object).getColumn()));
+      } else if (object instanceof SubqueryColumn) {
+        pushAll(toVisit, Collections.singleton(((SubqueryColumn) object).getSubquery()));
+      }
+    }
+    return false;
+  }
+
+  private static void pushAll(Deque<Object> toVisit, Collection<?> objects) {
+    for (Object object : objects) {
+      if (object != null) {
+        toVisit.push(object);
+      }
+    }
+  }
+
   //  /**
   //   * Converts the root node and its descendants into the configuration that enables progressive
   // aggregation.
@@ -324,7 +414,7 @@ public class AggExecutionNodeBlock {
 
     // compose a return value
     int rootIdx = blockNodes.indexOf(blockRoot);
-    return new AggExecutionNodeBlock(newNodes.get(rootIdx));
+    return new AggExecutionNodeBlock(newNodes.get(rootIdx), scrambleMeta);
   }
 
   // judge the aggregate column
@@ -22,6 +22,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.verdictdb.connection.DbmsQueryResult;
 import org.verdictdb.core.execplan.ExecutionInfoToken;
 import org.verdictdb.core.querying.ExecutableNodeBase;
+import org.verdictdb.core.querying.ExecutionPlanCopier;
 import org.verdictdb.core.querying.IdCreator;
 import org.verdictdb.core.querying.ProjectionNode;
 import org.verdictdb.core.rewriter.aggresult.AggNameAndType;
@@ -171,6 +172,7 @@ public class AsyncAggExecutionNode extends ProjectionNode {
 
     CreateTableAsSelectQuery createQuery =
         new CreateTableAsSelectQuery(newTableSchemaName, newTableName, createTableQuery);
+    createQuery.setTemporaryView(isCreatingTemporaryViews());
     return createQuery;
   }
 
@@ -182,6 +184,15 @@ public class AsyncAggExecutionNode extends ProjectionNode {
     return token;
   }
 
+  /**
+   * The progressive answers are small, and a reader may skip some of them; buffering them ensures
+   * no statement is left open.
+   */
+  @Override
+  public boolean requiresBufferedResult() {
+    return true;
+  }
+
   @Override
   public ExecutableNodeBase deepcopy() {
     AsyncAggExecutionNode copy = new AsyncAggExecutionNode();
@@ -195,6 +206,27 @@ public class AsyncAggExecutionNode extends ProjectionNode {
     to.aggColumns = from.aggColumns;
   }
 
+  @Override
+  protected ExecutableNodeBase copyForPlan(ExecutionPlanCopier copier) {
+    AsyncAggExecutionNode node = new AsyncAggExecutionNode();
+    copyFieldsForPlan(node, copier);
+    return node;
+  }
+
+  @Override
+  protected void copyFieldsForPlan(ExecutableNodeBase to, ExecutionPlanCopier copier) {
+    super.copyFieldsForPlan(to, copier);
+    AsyncAggExecutionNode node = (AsyncAggExecutionNode) to;
+    node.scrambleMeta = scrambleMeta;
+    node.nonaggColumns = copier.copy(nonaggColumns);
+    node.aggColumns = copier.copy(aggColumns);
+    node.tableNum = tableNum;
+    node.multipleTierTableTierInfo = copier.copy(multipleTierTableTierInfo);
+    node.Initiated = Initiated;
+    node.newTableSchemaName = newTableSchemaName;
+    node.newTableName = newTableName;
+  }
+
   public ScrambleMetaSet getScrambleMeta() {
     return scrambleMeta;
   }
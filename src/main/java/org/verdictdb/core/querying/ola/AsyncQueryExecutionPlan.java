@@ -23,6 +23,7 @@ import org.verdictdb.core.execplan.ExecutableNode;
 import org.verdictdb.core.querying.*;
 import org.verdictdb.core.scrambling.ScrambleMeta;
 import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.core.scrambling.SynopsisCreationNode;
 import org.verdictdb.core.sqlobject.*;
 import org.verdictdb.exception.VerdictDBException;
 import org.verdictdb.exception.VerdictDBTypeException;
@@ -40,11 +41,29 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
 
   static final String VERDICTDB_TIER_COLUMN_NAME = "verdictdb_tier_internal";
 
+  // the operations whose results cannot be computed from the per-group counts and sums
+  private static final Set<String> NON_DECOMPOSABLE_OPS =
+      new HashSet<>(
+          Arrays.asList(
+              "countdistinct", "approx_distinct", "std", "stddev", "variance", "percentile",
+              "rand"));
+
   private AsyncQueryExecutionPlan(String scratchpadSchemaName, ScrambleMetaSet scrambleMeta)
       throws VerdictDBException {
     super(scratchpadSchemaName, scrambleMeta);
   }
 
+  private AsyncQueryExecutionPlan() {}
+
+  @Override
+  public QueryExecutionPlan deepcopy(ExecutionPlanCopier copier) {
+    AsyncQueryExecutionPlan plan = new AsyncQueryExecutionPlan();
+    copyFields(plan, copier);
+    plan.aggColumnIdentiferNum = aggColumnIdentiferNum;
+    plan.verdictdbTierIndentiferNum = verdictdbTierIndentiferNum;
+    return plan;
+  }
+
   public static AsyncQueryExecutionPlan create(QueryExecutionPlan plan) throws VerdictDBException {
     if (plan instanceof AsyncQueryExecutionPlan) {
       System.err.println("It is already an asyncronous plan.");
@@ -130,11 +149,17 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
       String tableName = a.getRight().getMiddle();
       scrambles.add(Pair.of(schemaName, tableName));
     }
-    OlaAggregationPlan aggPlan = new OlaAggregationPlan(scrambleMeta, scrambles);
+    OlaAggregationPlan aggPlan =
+        new OlaAggregationPlan(
+            scrambleMeta,
+            scrambles,
+            identifyCoScrambledTables(scrambleMeta, scrambledNodes, blockNodes));
     List<Pair<ExecutableNodeBase, ExecutableNodeBase>> oldSubscriptionInformation =
         new ArrayList<>();
 
     // Second, according to the plan, create individual nodes that perform aggregations.
+    // Their queries differ only in the block ranges; their SQL is produced from the same template.
+    BlockQueryTemplate blockQueryTemplate = new BlockQueryTemplate();
     for (int i = 0; i < aggPlan.totalBlockAggCount(); i++) {
 
       // copy and remove the dependency to its parents
@@ -159,7 +184,11 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
       // I created a skeleton function: rewriteSelectListOfRootAndListedDependents
       addTierColumnsRecursively(copy, aggroot, new HashSet<ExecutableNode>());
 
+      // Use the per-block synopsis instead of the scramble if the synopsis can answer the query.
+      answerFromSynopsisIfPossible(copy, aggroot);
+
       // Insert predicates into individual aggregation nodes
+      List<ConstantColumn> blockRangeConstants = new ArrayList<>();
       for (Pair<ExecutableNodeBase, Triple<String, String, String>> a : scrambledNodeAndTableName) {
         ExecutableNodeBase scrambledNode = a.getLeft();
         String schemaName = a.getRight().getLeft();
@@ -177,19 +206,22 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
 
         int left = span.getLeft();
         int right = span.getRight();
+        ConstantColumn leftConstant = ConstantColumn.valueOf(left);
         if (left == right) {
           q.addFilterByAnd(
-              ColumnOp.equal(
-                  new BaseColumn(aliasName, aggblockColumn), ConstantColumn.valueOf(left)));
+              ColumnOp.equal(new BaseColumn(aliasName, aggblockColumn), leftConstant));
+          blockRangeConstants.add(leftConstant);
         } else {
+          ConstantColumn rightConstant = ConstantColumn.valueOf(right);
           q.addFilterByAnd(
-              ColumnOp.greaterequal(
-                  new BaseColumn(aliasName, aggblockColumn), ConstantColumn.valueOf(left)));
+              ColumnOp.greaterequal(new BaseColumn(aliasName, aggblockColumn), leftConstant));
           q.addFilterByAnd(
-              ColumnOp.lessequal(
-                  new BaseColumn(aliasName, aggblockColumn), ConstantColumn.valueOf(right)));
+              ColumnOp.lessequal(new BaseColumn(aliasName, aggblockColumn), rightConstant));
+          blockRangeConstants.add(leftConstant);
+          blockRangeConstants.add(rightConstant);
         }
       }
+      aggroot.setBlockQueryTemplate(blockQueryTemplate, blockRangeConstants);
 
       individualAggNodes.add(aggroot);
     }
@@ -271,6 +303,255 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
     return identified;
   }
 
+  /**
+   * Identifies the hash scrambles that are joined on their hash columns within the same query. The
+   * blocks of such scrambles can be processed along the diagonal.
+   *
+   * <p>The hash columns are followed through the select lists of the subqueries in the block; thus,
+   * the scrambles joined through derived tables or IN subqueries are identified as well, and every
+   * block query reads only the same block of each of them.
+   *
+   * @param scrambleMeta
+   * @param scrambledNodes The result of identifyScrambledNodes()
+   * @param blockNodes The nodes in the aggregation block
+   * @return Key: a scrambled table; value: the co-scrambled table whose blocks the key table
+   *     follows.
+   */
+  private static Map<Pair<String, String>, Pair<String, String>> identifyCoScrambledTables(
+      ScrambleMetaSet scrambleMeta,
+      List<Pair<ExecutableNodeBase, Triple<String, String, String>>> scrambledNodes,
+      List<ExecutableNodeBase> blockNodes) {
+
+    // the columns through which the hash column of each occurrence is referenced
+    int n = scrambledNodes.size();
+    List<List<Triple<ExecutableNodeBase, String, String>>> hashColumnRefs = new ArrayList<>();
+    for (Pair<ExecutableNodeBase, Triple<String, String, String>> scrambled : scrambledNodes) {
+      hashColumnRefs.add(findHashColumnReferences(scrambleMeta, scrambled, blockNodes));
+    }
+
+    // groups the occurrences of scrambled tables that are joined on their hash columns
+    int[] group = new int[n];
+    for (int i = 0; i < n; i++) {
+      group[i] = i;
+    }
+    for (int i = 0; i < n; i++) {
+      for (int j = i + 1; j < n; j++) {
+        if (isJoinedOnHashColumns(
+            scrambleMeta,
+            scrambledNodes.get(i),
+            hashColumnRefs.get(i),
+            scrambledNodes.get(j),
+            hashColumnRefs.get(j))) {
+          int from = group[j];
+          int to = group[i];
+          for (int k = 0; k < n; k++) {
+            if (group[k] == from) {
+              group[k] = to;
+            }
+          }
+        }
+      }
+    }
+
+    // every occurrence of a table must belong to the same group
+    Map<Pair<String, String>, Set<Pair<String, String>>> leaderCandidates = new HashMap<>();
+    for (int i = 0; i < n; i++) {
+      Pair<String, String> leader = null;
+      for (int k = 0; k < n; k++) {
+        if (k != i && group[k] == group[i]) {
+          leader = tableOf(scrambledNodes.get(group[i]));
+          break;
+        }
+      }
+      Pair<String, String> table = tableOf(scrambledNodes.get(i));
+      if (!leaderCandidates.containsKey(table)) {
+        leaderCandidates.put(table, new HashSet<Pair<String, String>>());
+      }
+      leaderCandidates.get(table).add(leader);
+    }
+    Map<Pair<String, String>, Pair<String, String>> leaders = new HashMap<>();
+    for (Map.Entry<Pair<String, String>, Set<Pair<String, String>>> entry :
+        leaderCandidates.entrySet()) {
+      Set<Pair<String, String>> candidates = entry.getValue();
+      if (candidates.size() == 1 && !candidates.contains(null)) {
+        leaders.put(entry.getKey(), candidates.iterator().next());
+      }
+    }
+    return leaders;
+  }
+
+  private static Pair<String, String> tableOf(
+      Pair<ExecutableNodeBase, Triple<String, String, String>> scrambledNode) {
+    Triple<String, String, String> t = scrambledNode.getRight();
+    return Pair.of(t.getLeft(), t.getMiddle());
+  }
+
+  /**
+   * Finds the columns that refer to the hash column of a scrambled table: the hash column itself
+   * and the columns of the subqueries (within the block) that select it as it is.
+   *
+   * @return The triples of (node, table alias, column name) where the column is referenced.
+   */
+  private static List<Triple<ExecutableNodeBase, String, String>> findHashColumnReferences(
+      ScrambleMetaSet scrambleMeta,
+      Pair<ExecutableNodeBase, Triple<String, String, String>> scrambled,
+      List<ExecutableNodeBase> blockNodes) {
+    List<Triple<ExecutableNodeBase, String, String>> refs = new ArrayList<>();
+    Triple<String, String, String> t = scrambled.getRight();
+    String hashColumn = scrambleMeta.getMetaForTable(t.getLeft(), t.getMiddle()).getHashColumn();
+    if (hashColumn == null) {
+      return refs;
+    }
+    refs.add(Triple.of(scrambled.getLeft(), t.getRight(), hashColumn));
+
+    for (int k = 0; k < refs.size(); k++) {
+      ExecutableNodeBase node = refs.get(k).getLeft();
+      String aliasName = refs.get(k).getMiddle();
+      String columnName = refs.get(k).getRight();
+      for (ExecutableNodeBase parent : node.getExecutableNodeBaseParents()) {
+        if (!blockNodes.contains(parent) || !(parent instanceof QueryNodeWithPlaceHolders)) {
+          continue;
+        }
+        // the i-th placeholder of a parent is filled by its i-th dependent
+        List<BaseTable> placeholders = ((QueryNodeWithPlaceHolders) parent).getPlaceholderTables();
+        int index = parent.getExecutableNodeBaseDependents().indexOf(node);
+        if (index < 0
+            || index >= placeholders.size()
+            || !placeholders.get(index).getAliasName().isPresent()) {
+          continue;
+        }
+        String placeholderAlias = placeholders.get(index).getAliasName().get();
+
+        for (SelectItem item : ((QueryNodeBase) node).getSelectQuery().getSelectList()) {
+          String selectedName = null;
+          if (item instanceof AliasedColumn
+              && ((AliasedColumn) item).getColumn() instanceof BaseColumn
+              && isColumnOf(
+                  (BaseColumn) ((AliasedColumn) item).getColumn(), aliasName, columnName)) {
+            selectedName = ((AliasedColumn) item).getAliasName();
+          } else if (item instanceof BaseColumn
+              && isColumnOf((BaseColumn) item, aliasName, columnName)) {
+            selectedName = columnName;
+          } else if (item instanceof AsteriskColumn
+              && (((AsteriskColumn) item).getTablename() == null
+                  || ((AsteriskColumn) item).getTablename().equals(aliasName))) {
+            selectedName = columnName;
+          }
+          if (selectedName != null) {
+            Triple<ExecutableNodeBase, String, String> ref =
+                Triple.of(parent, placeholderAlias, selectedName);
+            if (!refs.contains(ref)) {
+              refs.add(ref);
+            }
+          }
+        }
+      }
+    }
+    return refs;
+  }
+
+  private static boolean isJoinedOnHashColumns(
+      ScrambleMetaSet scrambleMeta,
+      Pair<ExecutableNodeBase, Triple<String, String, String>> scrambled1,
+      List<Triple<ExecutableNodeBase, String, String>> hashColumnRefs1,
+      Pair<ExecutableNodeBase, Triple<String, String, String>> scrambled2,
+      List<Triple<ExecutableNodeBase, String, String>> hashColumnRefs2) {
+    Triple<String, String, String> t1 = scrambled1.getRight();
+    Triple<String, String, String> t2 = scrambled2.getRight();
+    ScrambleMeta meta1 = scrambleMeta.getMetaForTable(t1.getLeft(), t1.getMiddle());
+    ScrambleMeta meta2 = scrambleMeta.getMetaForTable(t2.getLeft(), t2.getMiddle());
+    if (meta1.getHashColumn() == null
+        || meta2.getHashColumn() == null
+        || meta1.getAggregationBlockCount() != meta2.getAggregationBlockCount()
+        || !meta1
+            .getCumulativeDistributionForTier(0)
+            .equals(meta2.getCumulativeDistributionForTier(0))) {
+      return false;
+    }
+
+    Set<ExecutableNodeBase> nodes = new HashSet<>();
+    for (Triple<ExecutableNodeBase, String, String> ref : hashColumnRefs1) {
+      nodes.add(ref.getLeft());
+    }
+    for (ExecutableNodeBase node : nodes) {
+      // looks for the equi-join condition in the join conditions and the filter
+      SelectQuery query = ((QueryNodeBase) node).getSelectQuery();
+      List<UnnamedColumn> conditions = new ArrayList<>();
+      if (query.getFilter().isPresent()) {
+        conditions.add(query.getFilter().get());
+      }
+      for (AbstractRelation rel : query.getFromList()) {
+        if (rel instanceof JoinTable) {
+          for (UnnamedColumn cond : ((JoinTable) rel).getCondition()) {
+            if (cond != null) {
+              conditions.add(cond);
+            }
+          }
+        }
+      }
+      while (!conditions.isEmpty()) {
+        UnnamedColumn cond = conditions.remove(0);
+        if (!(cond instanceof ColumnOp)) {
+          continue;
+        }
+        ColumnOp op = (ColumnOp) cond;
+        if (op.getOpType().equals("and")) {
+          conditions.addAll(op.getOperands());
+        } else if (op.getOpType().equals("equal")
+            && op.getOperand(0) instanceof BaseColumn
+            && op.getOperand(1) instanceof BaseColumn) {
+          BaseColumn c1 = (BaseColumn) op.getOperand(0);
+          BaseColumn c2 = (BaseColumn) op.getOperand(1);
+          if (refersTo(c1, node, hashColumnRefs1) && refersTo(c2, node, hashColumnRefs2)
+              || refersTo(c1, node, hashColumnRefs2) && refersTo(c2, node, hashColumnRefs1)) {
+            return true;
+          }
+        } else if (op.getOpType().equals("in")
+            && op.getOperands().size() == 2
+            && op.getOperand(0) instanceof BaseColumn
+            && op.getOperand(1) instanceof SubqueryColumn) {
+          // the subquery of IN selects the column of its placeholder
+          BaseColumn c1 = (BaseColumn) op.getOperand(0);
+          List<SelectItem> selectList =
+              ((SubqueryColumn) op.getOperand(1)).getSubquery().getSelectList();
+          if (selectList.size() != 1) {
+            continue;
+          }
+          SelectItem item = selectList.get(0);
+          if (item instanceof AliasedColumn) {
+            item = ((AliasedColumn) item).getColumn();
+          }
+          if (!(item instanceof BaseColumn)) {
+            continue;
+          }
+          BaseColumn c2 = (BaseColumn) item;
+          if (refersTo(c1, node, hashColumnRefs1) && refersTo(c2, node, hashColumnRefs2)
+              || refersTo(c1, node, hashColumnRefs2) && refersTo(c2, node, hashColumnRefs1)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean refersTo(
+      BaseColumn column,
+      ExecutableNodeBase node,
+      List<Triple<ExecutableNodeBase, String, String>> hashColumnRefs) {
+    for (Triple<ExecutableNodeBase, String, String> ref : hashColumnRefs) {
+      if (ref.getLeft() == node && isColumnOf(column, ref.getMiddle(), ref.getRight())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isColumnOf(BaseColumn column, String aliasName, String columnName) {
+    return aliasName.equals(column.getTableSourceAlias())
+        && columnName.equalsIgnoreCase(column.getColumnName());
+  }
+
   private List<ColumnOp> getAggregateColumn(UnnamedColumn sel) {
     List<SelectItem> itemToCheck = new ArrayList<>();
     itemToCheck.add(sel);
@@ -304,7 +585,7 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
     if (root instanceof AggExecutionNode) {
       // check if it contains at least one scrambled table.
       if (doesContainScramble(root, scrambleMeta)) {
-        AggExecutionNodeBlock block = new AggExecutionNodeBlock(root);
+        AggExecutionNodeBlock block = new AggExecutionNodeBlock(root, scrambleMeta);
         aggblocks.add(block);
         return aggblocks;
       }
@@ -717,4 +998,149 @@ public class AsyncQueryExecutionPlan extends QueryExecutionPlan {
       rewrittenProjectionNode(block, (ProjectionNode) node);
     }
   }
+
+  /**
+   * Rewrites an individual aggregate node to read from the per-block synopsis of its scrambled
+   * table. The synopsis keeps the tier and block columns of the scramble; thus, the aggregates are
+   * computed from the synopsis exactly as they are computed from the scramble as long as (1) the
+   * node reads a single scrambled table without any subqueries, (2) every column outside the
+   * aggregate functions is a dimension column of the synopsis, and (3) every aggregate is either
+   * count(*) or the sum of a measure column.
+   *
+   * <p>If any of the conditions is not satisfied, the node is left untouched (i.e., it reads the
+   * scramble).
+   *
+   * @param block The block that includes the node
+   * @param node The individual aggregate node whose select list has already been rewritten with
+   *     basic aggregates
+   */
+  void answerFromSynopsisIfPossible(AggExecutionNodeBlock block, AggExecutionNode node) {
+    if (block.getNodesInBlock().size() != 1
+        || !node.getPlaceholderTables().isEmpty()
+        || !node.getPlaceholderTablesinFilter().isEmpty()) {
+      return;
+    }
+
+    SelectQuery query = node.getSelectQuery();
+    if (query.getFromList().size() != 1 || !(query.getFromList().get(0) instanceof BaseTable)) {
+      return;
+    }
+    BaseTable table = (BaseTable) query.getFromList().get(0);
+    if (!table.getAliasName().isPresent()
+        || !scrambleMeta.isScrambled(table.getSchemaName(), table.getTableName())) {
+      return;
+    }
+    ScrambleMeta meta = scrambleMeta.getMetaForTable(table.getSchemaName(), table.getTableName());
+    if (!meta.hasSynopsis()
+        || query.getHaving().isPresent()
+        || !node.getAggMeta().getMaxminAggAlias().isEmpty()) {
+      return;
+    }
+
+    Set<String> groupColumns = new HashSet<>();
+    groupColumns.add(meta.getTierColumn().toLowerCase());
+    groupColumns.add(meta.getAggregationBlockColumn().toLowerCase());
+    if (meta.getSynopsisDimensionColumns() != null) {
+      for (String col : meta.getSynopsisDimensionColumns()) {
+        groupColumns.add(col.toLowerCase());
+      }
+    }
+    Map<String, String> measureColumns = new HashMap<>();
+    if (meta.getSynopsisMeasureColumns() != null) {
+      for (String col : meta.getSynopsisMeasureColumns()) {
+        measureColumns.put(col.toLowerCase(), SynopsisCreationNode.getSumColumnName(col));
+      }
+    }
+
+    // check and rewrite the select list
+    String alias = table.getAliasName().get();
+    List<String> aggAlias = node.getAggMeta().getAggAlias();
+    List<SelectItem> newSelectList = new ArrayList<>();
+    for (SelectItem item : query.getSelectList()) {
+      if (!(item instanceof AliasedColumn)) {
+        return;
+      }
+      AliasedColumn aliased = (AliasedColumn) item;
+      if (aggAlias.contains(aliased.getAliasName())) {
+        UnnamedColumn rewritten =
+            rewriteAggregateForSynopsis(aliased.getColumn(), alias, measureColumns);
+        if (rewritten == null) {
+          return;
+        }
+        newSelectList.add(new AliasedColumn(rewritten, aliased.getAliasName()));
+      } else if (isComputableFromSynopsis(aliased.getColumn(), groupColumns)) {
+        newSelectList.add(item);
+      } else {
+        return;
+      }
+    }
+
+    // check the predicates and the groups
+    if (query.getFilter().isPresent()
+        && !isComputableFromSynopsis(query.getFilter().get(), groupColumns)) {
+      return;
+    }
+    for (GroupingAttribute group : query.getGroupby()) {
+      if (!(group instanceof UnnamedColumn)
+          || !isComputableFromSynopsis((UnnamedColumn) group, groupColumns)) {
+        return;
+      }
+    }
+
+    query.clearSelectList();
+    query.getSelectList().addAll(newSelectList);
+    query.getFromList()
+        .set(0, new BaseTable(meta.getSynopsisSchemaName(), meta.getSynopsisTableName(), alias));
+  }
+
+  /**
+   * @return The aggregate on the synopsis that corresponds to the given aggregate on the scramble;
+   *     null if no such aggregate exists.
+   */
+  private UnnamedColumn rewriteAggregateForSynopsis(
+      UnnamedColumn agg, String tableAlias, Map<String, String> measureColumns) {
+    if (!(agg instanceof ColumnOp)) {
+      return null;
+    }
+    ColumnOp op = (ColumnOp) agg;
+    if (op.getOpType().equals("count")) {
+      if (op.getOperands().size() > 1
+          || (op.getOperands().size() == 1 && !(op.getOperand() instanceof AsteriskColumn))) {
+        return null;
+      }
+      return ColumnOp.sum(new BaseColumn(tableAlias, SynopsisCreationNode.COUNT_COLUMN_NAME));
+    } else if (op.getOpType().equals("sum")
+        && op.getOperands().size() == 1
+        && op.getOperand() instanceof BaseColumn) {
+      String column = ((BaseColumn) op.getOperand()).getColumnName().toLowerCase();
+      if (measureColumns.containsKey(column)) {
+        return ColumnOp.sum(new BaseColumn(tableAlias, measureColumns.get(column)));
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return True if the expression only involves the columns in the synopsis groups and the
+   *     operations that are preserved by the grouping.
+   */
+  private boolean isComputableFromSynopsis(UnnamedColumn column, Set<String> groupColumns) {
+    if (column instanceof BaseColumn) {
+      return groupColumns.contains(((BaseColumn) column).getColumnName().toLowerCase());
+    } else if (column instanceof ConstantColumn || column instanceof AliasReference) {
+      return true;
+    } else if (column instanceof ColumnOp) {
+      ColumnOp op = (ColumnOp) column;
+      if (op.isColumnOpAggregate() || NON_DECOMPOSABLE_OPS.contains(op.getOpType())) {
+        return false;
+      }
+      for (UnnamedColumn operand : op.getOperands()) {
+        if (!isComputableFromSynopsis(operand, groupColumns)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
 }
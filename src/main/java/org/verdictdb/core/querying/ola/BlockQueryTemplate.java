@@ -0,0 +1,135 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.querying.ola;
+
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.ConstantColumn;
+import org.verdictdb.core.sqlobject.CreateTableAsSelectQuery;
+import org.verdictdb.core.sqlobject.SqlObjectCopier;
+import org.verdictdb.sqlwriter.SqlTemplate;
+import org.verdictdb.sqlwriter.TemplatedQuery;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The SQL template shared by the individual aggregations of the blocks of a progressive
+ * aggregation. Their queries are the copies of the same query, which differ only in the block
+ * ranges, the names of the tables they read from their sources, and the names of the tables they
+ * create. The SQL of the first query is converted with holes in place of those, and the SQL of the
+ * others is produced by filling the holes.
+ *
+ * <p>Before its holes are filled, each query is compared with the first one (with the holes of both
+ * masked by the same markers); the queries that differ otherwise (e.g., the blocks answered from
+ * synopses) are converted as usual.
+ */
+public class BlockQueryTemplate implements Serializable {
+
+  private static final long serialVersionUID = -6412338951853270817L;
+
+  // the first query bound, whose holes are the markers
+  private transient CreateTableAsSelectQuery reference;
+
+  private transient SqlTemplate template;
+
+  /**
+   * Binds a query of a block to the template.
+   *
+   * @param query The query to execute
+   * @param blockRangeConstants The constants of the block ranges in the query
+   * @param placeholderTables The tables whose names are set from the sources
+   * @return The query with the template if the query matches it; otherwise, the query itself.
+   */
+  public synchronized CreateTableAsSelectQuery bind(
+      CreateTableAsSelectQuery query,
+      List<ConstantColumn> blockRangeConstants,
+      List<BaseTable> placeholderTables) {
+    List<String> values = new ArrayList<>();
+    values.add(query.getSchemaName());
+    values.add(query.getTableName());
+    for (BaseTable table : placeholderTables) {
+      values.add(table.getSchemaName());
+      values.add(table.getTableName());
+    }
+    for (ConstantColumn constant : blockRangeConstants) {
+      values.add(constant.getValue() == null ? null : constant.getValue().toString());
+    }
+    for (String value : values) {
+      if (!canFill(value)) {
+        return query;
+      }
+    }
+
+    // mask the holes
+    int hole = 2;
+    for (BaseTable table : placeholderTables) {
+      table.setSchemaName(SqlTemplate.marker(hole++));
+      table.setTableName(SqlTemplate.marker(hole++));
+    }
+    List<Object> constantValues = new ArrayList<>();
+    for (ConstantColumn constant : blockRangeConstants) {
+      constantValues.add(constant.getValue());
+      constant.setValue(SqlTemplate.marker(hole++));
+    }
+
+    boolean matches;
+    try {
+      if (template == null) {
+        reference =
+            new CreateTableAsSelectQuery(
+                SqlTemplate.marker(0),
+                SqlTemplate.marker(1),
+                new SqlObjectCopier().copy(query.getSelect()));
+        for (String column : query.getPartitionColumns()) {
+          reference.addPartitionColumn(column);
+        }
+        reference.setIfNotExists(query.isIfNotExists());
+        reference.setTemporaryView(query.isTemporaryView());
+        template = new SqlTemplate(reference, values.size());
+        matches = true;
+      } else {
+        matches =
+            template.getHoleCount() == values.size()
+                && reference.isIfNotExists() == query.isIfNotExists()
+                && reference.isTemporaryView() == query.isTemporaryView()
+                && reference.getPartitionColumns().equals(query.getPartitionColumns())
+                && reference.getSelect().equals(query.getSelect());
+      }
+    } finally {
+      // unmask the holes
+      for (int i = 0; i < placeholderTables.size(); i++) {
+        placeholderTables.get(i).setSchemaName(values.get(2 + 2 * i));
+        placeholderTables.get(i).setTableName(values.get(3 + 2 * i));
+      }
+      for (int i = 0; i < blockRangeConstants.size(); i++) {
+        blockRangeConstants.get(i).setValue(constantValues.get(i));
+      }
+    }
+
+    return matches ? new TemplatedQuery(query, template, values) : query;
+  }
+
+  // the values are written as they are in place of the markers; thus, a value cannot be empty or
+  // quoted, which would be written differently.
+  private static boolean canFill(String value) {
+    if (value == null || value.isEmpty()) {
+      return false;
+    }
+    return value.indexOf('"') < 0 && value.indexOf('`') < 0 && value.indexOf('\'') < 0;
+  }
+}
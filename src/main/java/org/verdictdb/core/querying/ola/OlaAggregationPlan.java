@@ -21,8 +21,12 @@ import org.verdictdb.core.scrambling.ScrambleMetaSet;
 import org.verdictdb.exception.VerdictDBValueException;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Plans how to chop a big query into multiple small queries.
@@ -33,6 +37,9 @@ public class OlaAggregationPlan {
 
   List<HyperTableCube> cubes = new ArrayList<>();
 
+  // key: a scrambled table; value: the co-scrambled table whose block spans the key table follows
+  Map<Pair<String, String>, Pair<String, String>> coScrambledTables = new HashMap<>();
+
   // alias name for aggregate item and their aggregate type
 
   /**
@@ -42,19 +49,52 @@ public class OlaAggregationPlan {
    */
   public OlaAggregationPlan(ScrambleMetaSet scrambleMeta, List<Pair<String, String>> scrambles)
       throws VerdictDBValueException {
+    this(scrambleMeta, scrambles, new HashMap<Pair<String, String>, Pair<String, String>>());
+  }
+
+  /**
+   * The tables co-scrambled on a join key (i.e., hash scrambles joined on their hash columns) are
+   * sliced along the diagonal: the block i of a table is only combined with the block i of its
+   * co-scrambled table. Such a group of tables forms a single dimension of the cube.
+   *
+   * @param scrambleMeta
+   * @param scrambles The scrambled tables that appear in a query.
+   * @param coScrambledTables Key: a scrambled table; value: the co-scrambled table whose blocks the
+   *     key table follows. A table joined with itself on its hash column maps to itself.
+   * @throws VerdictDBValueException
+   */
+  public OlaAggregationPlan(
+      ScrambleMetaSet scrambleMeta,
+      List<Pair<String, String>> scrambles,
+      Map<Pair<String, String>, Pair<String, String>> coScrambledTables)
+      throws VerdictDBValueException {
 
     // exception checks
     if (scrambles.size() == 0) {
       return;
     }
-    if ((new HashSet<>(scrambles)).size() < scrambles.size()) {
-      throw new VerdictDBValueException(
-          "The same scrambled table cannot be included more than once.");
+    Set<Pair<String, String>> seen = new HashSet<>();
+    for (Pair<String, String> table : scrambles) {
+      if (!seen.add(table) && !coScrambledTables.containsKey(table)) {
+        throw new VerdictDBValueException(
+            "The same scrambled table cannot be included more than once.");
+      }
     }
+    this.coScrambledTables = coScrambledTables;
 
-    // construct a cube for slicing
+    // construct a cube for slicing; co-scrambled tables share a dimension.
+    Set<Pair<String, String>> dimensionTables = new LinkedHashSet<>();
+    for (Pair<String, String> table : scrambles) {
+      Pair<String, String> leader = getLeaderOf(table);
+      if (scrambleMeta.getAggregationBlockCount(table.getLeft(), table.getRight())
+          != scrambleMeta.getAggregationBlockCount(leader.getLeft(), leader.getRight())) {
+        throw new VerdictDBValueException(
+            "Co-scrambled tables must have the same number of blocks: " + table + ", " + leader);
+      }
+      dimensionTables.add(leader);
+    }
     List<Dimension> dims = new ArrayList<>();
-    for (Pair<String, String> fullTableName : scrambles) {
+    for (Pair<String, String> fullTableName : dimensionTables) {
       String schemaName = fullTableName.getLeft();
       String tableName = fullTableName.getRight();
       int aggBlockCount = scrambleMeta.getAggregationBlockCount(schemaName, tableName);
@@ -66,6 +106,11 @@ public class OlaAggregationPlan {
     cubes = originalCube.roundRobinSlice();
   }
 
+  private Pair<String, String> getLeaderOf(Pair<String, String> table) {
+    Pair<String, String> leader = coScrambledTables.get(table);
+    return (leader == null) ? table : leader;
+  }
+
   // TODO: use this method to create a merged metadata
   // this method is supposed to rely on HyperTableCube's merge method.
   public static OlaAggregationPlan createMergedOlaAggMeta(
@@ -81,6 +126,7 @@ public class OlaAggregationPlan {
   public Pair<Integer, Integer> getAggBlockSpanForTable(
       String schemaName, String tableName, int sequence) {
     HyperTableCube cube = cubes.get(sequence);
-    return cube.getSpanOf(schemaName, tableName);
+    Pair<String, String> leader = getLeaderOf(Pair.of(schemaName, tableName));
+    return cube.getSpanOf(leader.getLeft(), leader.getRight());
   }
 }
@@ -0,0 +1,170 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.scrambling;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.Base64Variants;
+import org.verdictdb.exception.VerdictDBValueException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes the cumulative distribution of a tier into a compact string. An encoded string starts
+ * with a format identifier and a version followed by a colon:
+ *
+ * <ol>
+ *   <li>"u1:n": the uniform distribution over n blocks, i.e., (i+1)/n for the i-th block. This is
+ *       what the uniform scrambling always produces.
+ *   <li>"r1:base64": the increments of the cumulative distribution, run-length encoded. Effective
+ *       when most blocks have the same size (e.g., the later tiers of fast-converge scrambling).
+ *   <li>"d1:base64": the raw binary doubles.
+ * </ol>
+ *
+ * <p>A distribution is encoded only in the format that restores exactly the same values.
+ */
+public class CumulativeDistributionEncoder {
+
+  private static final String UNIFORM_PREFIX = "u1:";
+
+  private static final String RUN_LENGTH_PREFIX = "r1:";
+
+  private static final String DOUBLES_PREFIX = "d1:";
+
+  private static final Base64Variant BASE64 = Base64Variants.MIME_NO_LINEFEEDS;
+
+  private CumulativeDistributionEncoder() {}
+
+  public static String encode(List<Double> cumulativeDistribution) {
+    int n = cumulativeDistribution.size();
+    if (n > 0 && cumulativeDistribution.equals(uniform(n))) {
+      return UNIFORM_PREFIX + n;
+    }
+
+    String runLength = RUN_LENGTH_PREFIX + BASE64.encode(encodeRunLength(cumulativeDistribution));
+    String doubles = DOUBLES_PREFIX + BASE64.encode(encodeDoubles(cumulativeDistribution));
+    if (runLength.length() < doubles.length()) {
+      try {
+        if (decode(runLength).equals(cumulativeDistribution)) {
+          return runLength;
+        }
+      } catch (VerdictDBValueException e) {
+        // falls back to the raw doubles
+      }
+    }
+    return doubles;
+  }
+
+  public static List<Double> decode(String encoded) throws VerdictDBValueException {
+    try {
+      if (encoded.startsWith(UNIFORM_PREFIX)) {
+        return uniform(Integer.parseInt(encoded.substring(UNIFORM_PREFIX.length())));
+      } else if (encoded.startsWith(RUN_LENGTH_PREFIX)) {
+        return decodeRunLength(BASE64.decode(encoded.substring(RUN_LENGTH_PREFIX.length())));
+      } else if (encoded.startsWith(DOUBLES_PREFIX)) {
+        return decodeDoubles(BASE64.decode(encoded.substring(DOUBLES_PREFIX.length())));
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      throw new VerdictDBValueException(e);
+    }
+    throw new VerdictDBValueException("Unknown encoding of a cumulative distribution: " + encoded);
+  }
+
+  /** The same values as the ones UniformScramblingMethod computes. */
+  private static List<Double> uniform(int blockCount) {
+    List<Double> dist = new ArrayList<>(blockCount);
+    for (int i = 0; i < blockCount; i++) {
+      dist.add((i + 1) / (double) blockCount);
+    }
+    return dist;
+  }
+
+  private static byte[] encodeRunLength(List<Double> dist) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeInt(dist.size());
+      double previous = 0;
+      double runIncrement = 0;
+      int runLength = 0;
+      for (Double value : dist) {
+        double increment = value - previous;
+        if (runLength > 0 && increment != runIncrement) {
+          out.writeInt(runLength);
+          out.writeDouble(runIncrement);
+          runLength = 0;
+        }
+        runIncrement = increment;
+        runLength++;
+        previous = value;
+      }
+      if (runLength > 0) {
+        out.writeInt(runLength);
+        out.writeDouble(runIncrement);
+      }
+      out.flush();
+    } catch (IOException e) {
+      // never happens with an in-memory stream
+      throw new RuntimeException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static List<Double> decodeRunLength(byte[] bytes) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    int n = in.readInt();
+    List<Double> dist = new ArrayList<>(n);
+    double value = 0;
+    while (dist.size() < n) {
+      int runLength = in.readInt();
+      double increment = in.readDouble();
+      for (int i = 0; i < runLength; i++) {
+        value += increment;
+        dist.add(value);
+      }
+    }
+    return dist;
+  }
+
+  private static byte[] encodeDoubles(List<Double> dist) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      for (Double value : dist) {
+        out.writeDouble(value);
+      }
+      out.flush();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static List<Double> decodeDoubles(byte[] bytes) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    List<Double> dist = new ArrayList<>(bytes.length / 8);
+    for (int i = 0; i < bytes.length / 8; i++) {
+      dist.add(in.readDouble());
+    }
+    return dist;
+  }
+}
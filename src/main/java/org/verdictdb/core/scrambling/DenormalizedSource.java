@@ -0,0 +1,143 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.scrambling;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The join graph from which a denormalized scramble was created. A denormalized scramble is the
+ * scramble of the inner equi-join of a fact table and its dimension tables.
+ *
+ * <p>Tables, columns, and join conditions are stored as qualified strings so that this object can
+ * be serialized together with ScrambleMeta.
+ */
+public class DenormalizedSource implements Serializable {
+
+  private static final long serialVersionUID = 6270135470315617052L;
+
+  /** schema.table of the joined tables; the first one is the fact table. */
+  List<String> tables = new ArrayList<>();
+
+  /** Equi-join conditions in the form of "schema.table.column=schema.table.column". */
+  List<String> joinConditions = new ArrayList<>();
+
+  /** Key: schema.table.column of a joined table; value: the column name in the scramble. */
+  Map<String, String> columns = new HashMap<>();
+
+  public DenormalizedSource() {}
+
+  public static String tableKey(String schemaName, String tableName) {
+    return schemaName + "." + tableName;
+  }
+
+  public static String columnKey(String schemaName, String tableName, String columnName) {
+    return schemaName + "." + tableName + "." + columnName;
+  }
+
+  /**
+   * @return A key that does not depend on the order of the two sides of the equality
+   */
+  public static String joinConditionKey(String columnKey1, String columnKey2) {
+    if (columnKey1.compareTo(columnKey2) <= 0) {
+      return columnKey1 + "=" + columnKey2;
+    } else {
+      return columnKey2 + "=" + columnKey1;
+    }
+  }
+
+  public void addTable(String schemaName, String tableName) {
+    tables.add(tableKey(schemaName, tableName));
+  }
+
+  public void addJoinCondition(String columnKey1, String columnKey2) {
+    joinConditions.add(joinConditionKey(columnKey1, columnKey2));
+  }
+
+  public void addColumn(
+      String schemaName, String tableName, String columnName, String scrambleColumnName) {
+    columns.put(columnKey(schemaName, tableName, columnName), scrambleColumnName);
+  }
+
+  /** @return The column of the scramble; null if the column does not exist. */
+  public String findScrambleColumn(String schemaName, String tableName, String columnName) {
+    return columns.get(columnKey(schemaName, tableName, columnName));
+  }
+
+  public List<String> getTables() {
+    return tables;
+  }
+
+  public void setTables(List<String> tables) {
+    this.tables = tables;
+  }
+
+  public List<String> getJoinConditions() {
+    return joinConditions;
+  }
+
+  public void setJoinConditions(List<String> joinConditions) {
+    this.joinConditions = joinConditions;
+  }
+
+  public Map<String, String> getColumns() {
+    return columns;
+  }
+
+  public void setColumns(Map<String, String> columns) {
+    this.columns = columns;
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + ((tables == null) ? 0 : tables.hashCode());
+    result = prime * result + ((joinConditions == null) ? 0 : joinConditions.hashCode());
+    result = prime * result + ((columns == null) ? 0 : columns.hashCode());
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    DenormalizedSource other = (DenormalizedSource) obj;
+    if (tables == null) {
+      if (other.tables != null) return false;
+    } else if (!tables.equals(other.tables)) return false;
+    if (joinConditions == null) {
+      if (other.joinConditions != null) return false;
+    } else if (!joinConditions.equals(other.joinConditions)) return false;
+    if (columns == null) {
+      if (other.columns != null) return false;
+    } else if (!columns.equals(other.columns)) return false;
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+  }
+}
@@ -588,6 +588,12 @@ class PercentilesAndCountNode extends QueryNodeBase {
     token.setKeyValue(this.getClass().getSimpleName(), result);
     return token;
   }
+
+  /** The statistics are read by the scrambling method. */
+  @Override
+  public boolean requiresBufferedResult() {
+    return true;
+  }
 }
 
 /**
@@ -637,6 +643,12 @@ class OutlierProportionNode extends QueryNodeBase {
     token.setKeyValue(this.getClass().getSimpleName(), result);
     return token;
   }
+
+  /** The statistics are read by the scrambling method. */
+  @Override
+  public boolean requiresBufferedResult() {
+    return true;
+  }
 }
 
 class LargeGroupListNode extends CreateTableAsSelectNode {
@@ -796,6 +808,12 @@ class LargeGroupSizeNode extends QueryNodeWithPlaceHolders {
     token.setKeyValue(this.getClass().getSimpleName(), result);
     return token;
   }
+
+  /** The statistics are read by the scrambling method. */
+  @Override
+  public boolean requiresBufferedResult() {
+    return true;
+  }
 }
 
 /**
@@ -0,0 +1,142 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.scrambling;
+
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.core.querying.ExecutableNodeBase;
+import org.verdictdb.core.sqlobject.AbstractRelation;
+import org.verdictdb.core.sqlobject.BaseColumn;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.UnnamedColumn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns tuples to blocks by the hash of a join key (i.e., universe sampling). The tuples of
+ * different tables with the same join key value are placed in the blocks of the same index as long
+ * as the tables are scrambled with the same number of blocks. Thus, when two such tables are joined
+ * on the key, the block i of one table only needs to be joined with the block i of the other.
+ *
+ * <p>The tuples whose join keys are null are placed at random since they never satisfy an
+ * equi-join condition.
+ */
+public class HashScramblingMethod extends ScramblingMethodBase {
+
+  private final String MAIN_TABLE_SOURCE_ALIAS = "t";
+
+  private String hashColumnName;
+
+  // if set, the number of blocks is fixed regardless of the table size.
+  private Integer fixedBlockCount;
+
+  private int totalNumberOfblocks = -1;
+
+  public HashScramblingMethod(long blockSize, String hashColumnName) {
+    this(blockSize, hashColumnName, null);
+  }
+
+  /**
+   * @param blockSize Used for determining the number of blocks if fixedBlockCount is null
+   * @param hashColumnName The join key
+   * @param fixedBlockCount The number of blocks; the tables co-scrambled on the same join key must
+   *     have the same number of blocks.
+   */
+  public HashScramblingMethod(long blockSize, String hashColumnName, Integer fixedBlockCount) {
+    super(blockSize);
+    this.hashColumnName = hashColumnName;
+    this.fixedBlockCount = fixedBlockCount;
+  }
+
+  @Override
+  public List<ExecutableNodeBase> getStatisticsNode(
+      String oldSchemaName,
+      String oldTableName,
+      String columnMetaTokenKey,
+      String partitionMetaTokenKey) {
+    if (fixedBlockCount != null) {
+      return Arrays.asList();
+    }
+    TableSizeCountNode countNode = new TableSizeCountNode(oldSchemaName, oldTableName);
+    return Arrays.<ExecutableNodeBase>asList(countNode);
+  }
+
+  @Override
+  public List<UnnamedColumn> getTierExpressions(Map<String, Object> metaData) {
+    return Arrays.asList();
+  }
+
+  @Override
+  public List<Double> getCumulativeProbabilityDistributionForTier(
+      Map<String, Object> metaData, int tier) {
+
+    if (fixedBlockCount != null) {
+      totalNumberOfblocks = fixedBlockCount;
+    } else {
+      DbmsQueryResult tableSizeResult =
+          (DbmsQueryResult) metaData.get(TableSizeCountNode.class.getSimpleName());
+      tableSizeResult.next();
+      long tableSize = tableSizeResult.getLong(TableSizeCountNode.TOTAL_COUNT_ALIAS_NAME);
+      totalNumberOfblocks = Math.max((int) Math.ceil(tableSize / (float) blockSize), 1);
+    }
+
+    List<Double> prob = new ArrayList<>();
+    for (int i = 0; i < totalNumberOfblocks; i++) {
+      prob.add((i + 1) / (double) totalNumberOfblocks);
+    }
+
+    storeCumulativeProbabilityDistribution(tier, prob);
+
+    return prob;
+  }
+
+  @Override
+  public AbstractRelation getScramblingSource(
+      String originalSchema, String originalTable, Map<String, Object> metaData) {
+    return new BaseTable(originalSchema, originalTable, MAIN_TABLE_SOURCE_ALIAS);
+  }
+
+  @Override
+  public String getMainTableAlias() {
+    return MAIN_TABLE_SOURCE_ALIAS;
+  }
+
+  @Override
+  public UnnamedColumn getBlockHashExpression() {
+    BaseColumn key = new BaseColumn(MAIN_TABLE_SOURCE_ALIAS, hashColumnName);
+    return ColumnOp.casewhen(
+        Arrays.<UnnamedColumn>asList(
+            ColumnOp.rightisnull(key), ColumnOp.rand(), ColumnOp.hash(key)));
+  }
+
+  public String getHashColumnName() {
+    return hashColumnName;
+  }
+
+  @Override
+  public int getBlockCount() {
+    return totalNumberOfblocks;
+  }
+
+  @Override
+  public int getTierCount() {
+    return 1;
+  }
+}
@@ -17,10 +17,12 @@
 package org.verdictdb.core.scrambling;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -33,6 +35,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
 
 /**
  * Table-specific information
@@ -49,6 +52,14 @@ public class ScrambleMeta implements Serializable {
 
   private static final long serialVersionUID = -8422601151874567149L;
 
+  // thread-safe once configured; creating a mapper is expensive.
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  // the prefix of the compact form; the version is increased when the compact form changes.
+  private static final String COMPACT_FORMAT_PREFIX = "verdictdbmeta1:";
+
+  private static final String ENCODED_DISTRIBUTIONS_PROPERTY = "encodedCumulativeDistributions";
+
   // key
   String schemaName;
 
@@ -59,6 +70,14 @@ public class ScrambleMeta implements Serializable {
 
   int aggregationBlockCount; // agg block total count
 
+  // the number of rows per block used when creating this scramble
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  Long aggregationBlockSize;
+
+  // the first-answer latency (in seconds) targeted when the block size was tuned automatically
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  Double targetFirstAnswerLatency;
+
   // tier
   String tierColumn;
 
@@ -80,6 +99,34 @@ public class ScrambleMeta implements Serializable {
   // subsample column; not used currently
   @JsonIgnore String subsampleColumn;
 
+  /**
+   * The location of the per-block synopsis of this scramble (if created). A synopsis stores, for
+   * every (tier, block, dimension values) group, the row count and the sums of the measure columns.
+   * Those fields are absent for the scrambles created without a synopsis.
+   */
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  String synopsisSchemaName;
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  String synopsisTableName;
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  List<String> synopsisDimensionColumns;
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  List<String> synopsisMeasureColumns;
+
+  /** The join graph if this is a scramble of the join of multiple tables; null otherwise. */
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  DenormalizedSource denormalizedSource;
+
+  /**
+   * The join key whose hash determines the blocks if this scramble was created by hash scrambling;
+   * null otherwise.
+   */
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  String hashColumn;
+
   public ScrambleMeta() {}
 
   public ScrambleMeta(
@@ -126,6 +173,20 @@ public class ScrambleMeta implements Serializable {
     return aggregationBlockCount;
   }
 
+  public Long getAggregationBlockSize() {
+    return aggregationBlockSize;
+  }
+
+  public Double getTargetFirstAnswerLatency() {
+    return targetFirstAnswerLatency;
+  }
+
+  /** @return True if the block size of this scramble was chosen by probing the backend. */
+  @JsonIgnore
+  public boolean isBlockSizeAutoTuned() {
+    return targetFirstAnswerLatency != null;
+  }
+
   public List<Double> getCumulativeDistributionForTier(int tier) {
     return cumulativeDistributionForTier.get(tier);
   }
@@ -158,6 +219,35 @@ public class ScrambleMeta implements Serializable {
     return tierColumn;
   }
 
+  public String getSynopsisSchemaName() {
+    return synopsisSchemaName;
+  }
+
+  public String getSynopsisTableName() {
+    return synopsisTableName;
+  }
+
+  public List<String> getSynopsisDimensionColumns() {
+    return synopsisDimensionColumns;
+  }
+
+  public List<String> getSynopsisMeasureColumns() {
+    return synopsisMeasureColumns;
+  }
+
+  public DenormalizedSource getDenormalizedSource() {
+    return denormalizedSource;
+  }
+
+  public String getHashColumn() {
+    return hashColumn;
+  }
+
+  /** @return True if a per-block synopsis has been created for this scramble. */
+  public boolean hasSynopsis() {
+    return synopsisSchemaName != null && synopsisTableName != null;
+  }
+
   public void setAggregationBlockColumn(String aggregationBlockColumn) {
     this.aggregationBlockColumn = aggregationBlockColumn;
   }
@@ -166,11 +256,31 @@ public class ScrambleMeta implements Serializable {
     this.aggregationBlockCount = aggregationBlockCount;
   }
 
+  public void setAggregationBlockSize(Long aggregationBlockSize) {
+    this.aggregationBlockSize = aggregationBlockSize;
+  }
+
+  public void setTargetFirstAnswerLatency(Double targetFirstAnswerLatency) {
+    this.targetFirstAnswerLatency = targetFirstAnswerLatency;
+  }
+
   public void setCumulativeDistributionForTier(
       Map<Integer, List<Double>> cumulativeDistributionForTier) {
     this.cumulativeDistributionForTier = cumulativeDistributionForTier;
   }
 
+  /** Reads the distributions of the compact form. */
+  @JsonProperty(ENCODED_DISTRIBUTIONS_PROPERTY)
+  private void setEncodedCumulativeDistributions(Map<Integer, String> encoded)
+      throws VerdictDBValueException {
+    Map<Integer, List<Double>> decoded = new HashMap<>();
+    for (Entry<Integer, String> tierAndDist : encoded.entrySet()) {
+      decoded.put(
+          tierAndDist.getKey(), CumulativeDistributionEncoder.decode(tierAndDist.getValue()));
+    }
+    this.cumulativeDistributionForTier = decoded;
+  }
+
   public void setNumberOfTiers(int numberOfTiers) {
     this.numberOfTiers = numberOfTiers;
   }
@@ -199,8 +309,31 @@ public class ScrambleMeta implements Serializable {
     this.tierColumn = tierColumn;
   }
 
+  public void setDenormalizedSource(DenormalizedSource denormalizedSource) {
+    this.denormalizedSource = denormalizedSource;
+  }
+
+  public void setHashColumn(String hashColumn) {
+    this.hashColumn = hashColumn;
+  }
+
+  public void setSynopsisSchemaName(String synopsisSchemaName) {
+    this.synopsisSchemaName = synopsisSchemaName;
+  }
+
+  public void setSynopsisTableName(String synopsisTableName) {
+    this.synopsisTableName = synopsisTableName;
+  }
+
+  public void setSynopsisDimensionColumns(List<String> synopsisDimensionColumns) {
+    this.synopsisDimensionColumns = synopsisDimensionColumns;
+  }
+
+  public void setSynopsisMeasureColumns(List<String> synopsisMeasureColumns) {
+    this.synopsisMeasureColumns = synopsisMeasureColumns;
+  }
+
   public String toJsonString() {
-    ObjectMapper objectMapper = new ObjectMapper();
     String jsonString;
     try {
       jsonString = objectMapper.writeValueAsString(this);
@@ -211,8 +344,39 @@ public class ScrambleMeta implements Serializable {
     }
   }
 
+  /**
+   * Serializes this object in a compact form, which is the JSON string whose cumulative
+   * distributions are encoded by CumulativeDistributionEncoder. For a scramble with many blocks, the
+   * result is much shorter than toJsonString().
+   *
+   * @return The compact string readable by fromJsonString()
+   */
+  public String toCompactString() {
+    try {
+      ObjectNode node = objectMapper.valueToTree(this);
+      node.remove("cumulativeDistributions");
+      ObjectNode encoded = node.putObject(ENCODED_DISTRIBUTIONS_PROPERTY);
+      for (Entry<Integer, List<Double>> tierAndDist :
+          new TreeMap<>(cumulativeDistributionForTier).entrySet()) {
+        encoded.put(
+            String.valueOf(tierAndDist.getKey()),
+            CumulativeDistributionEncoder.encode(tierAndDist.getValue()));
+      }
+      return COMPACT_FORMAT_PREFIX + objectMapper.writeValueAsString(node);
+    } catch (JsonProcessingException e) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  /**
+   * @param jsonString Either the result of toJsonString() or the result of toCompactString()
+   * @return Deserialized object; null if the string cannot be parsed.
+   */
   public static ScrambleMeta fromJsonString(String jsonString) {
-    ObjectMapper objectMapper = new ObjectMapper();
+    if (jsonString.startsWith(COMPACT_FORMAT_PREFIX)) {
+      jsonString = jsonString.substring(COMPACT_FORMAT_PREFIX.length());
+    }
     try {
       ScrambleMeta meta = objectMapper.readValue(jsonString, ScrambleMeta.class);
       return meta;
@@ -20,6 +20,7 @@ import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -32,6 +33,18 @@ public class ScrambleMetaSet implements Serializable, Iterable<ScrambleMeta> {
 
   public ScrambleMetaSet() {}
 
+  /**
+   * Returns a copy of this set to which no entry can be added. Used for handing the same set of
+   * scramble metadata to multiple queries.
+   *
+   * @return A read-only copy
+   */
+  public ScrambleMetaSet createImmutableCopy() {
+    ScrambleMetaSet copy = new ScrambleMetaSet();
+    copy.meta = Collections.unmodifiableMap(new HashMap<>(meta));
+    return copy;
+  }
+
   /**
    * Returns the column name used for indicating aggregation block. Typically, the underlying
    * database is physically partitioned on this column to speed up accessing particular blocks.
@@ -89,6 +102,17 @@ public class ScrambleMetaSet implements Serializable, Iterable<ScrambleMeta> {
     meta.put(metaKey(schema, table), tablemeta);
   }
 
+  /**
+   * Removes the entry for a scrambled table if it exists.
+   *
+   * @param schemaName
+   * @param tableName
+   * @return The removed entry; null if no entry exists for the table.
+   */
+  public ScrambleMeta removeScrambleMeta(String schemaName, String tableName) {
+    return meta.remove(metaKey(schemaName, tableName));
+  }
+
   @Deprecated
   public void insertScrambleMetaEntry(
       String aliasName,
@@ -142,6 +166,22 @@ public class ScrambleMetaSet implements Serializable, Iterable<ScrambleMeta> {
     return Pair.of(schemaName, tableName);
   }
 
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof ScrambleMetaSet)) {
+      return false;
+    }
+    return meta.equals(((ScrambleMetaSet) obj).meta);
+  }
+
+  @Override
+  public int hashCode() {
+    return meta.hashCode();
+  }
+
   @Override
   public Iterator<ScrambleMeta> iterator() {
     return meta.values().iterator();
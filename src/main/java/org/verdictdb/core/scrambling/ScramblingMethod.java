@@ -68,4 +68,13 @@ public interface ScramblingMethod {
       String originalSchema, String originalTable, Map<String, Object> metaData);
 
   public String getMainTableAlias();
+
+  /**
+   * Returns the expression that assigns tuples to blocks deterministically. The expression must
+   * evaluate to a value uniformly distributed in [0, 1); a tuple goes to the first block whose
+   * cumulative probability is not smaller than the value.
+   *
+   * @return null if the tuples are assigned to blocks at random.
+   */
+  public UnnamedColumn getBlockHashExpression();
 }
@@ -16,6 +16,8 @@
 
 package org.verdictdb.core.scrambling;
 
+import org.verdictdb.core.sqlobject.UnnamedColumn;
+
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,4 +44,9 @@ public abstract class ScramblingMethodBase implements ScramblingMethod {
   public List<Double> getStoredCumulativeProbabilityDistributionForTier(int tier) {
     return storedProbDist.get(tier);
   }
+
+  @Override
+  public UnnamedColumn getBlockHashExpression() {
+    return null;
+  }
 }
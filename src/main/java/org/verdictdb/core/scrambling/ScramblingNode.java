@@ -146,6 +146,9 @@ public class ScramblingNode extends CreateScrambledTableNode {
     selectItems.add(new AliasedColumn(tierExpr, tierColumnName));
 
     // compose block expression
+    // a hash expression evaluates to the same value in every "when" part; thus, it is compared
+    // against the cumulative probabilities instead of the conditional probabilities.
+    UnnamedColumn hashExpr = method.getBlockHashExpression();
     UnnamedColumn blockExpr = null;
     List<UnnamedColumn> blockOperands = new ArrayList<>();
     for (int i = 0; i < tierCount; i++) {
@@ -155,8 +158,13 @@ public class ScramblingNode extends CreateScrambledTableNode {
 
       List<UnnamedColumn> blockForTierOperands = new ArrayList<>();
       for (int j = 0; j < blockCount; j++) {
-        blockForTierOperands.add(
-            ColumnOp.lessequal(ColumnOp.rand(), ConstantColumn.valueOf(condProb.get(j))));
+        if (hashExpr == null) {
+          blockForTierOperands.add(
+              ColumnOp.lessequal(ColumnOp.rand(), ConstantColumn.valueOf(condProb.get(j))));
+        } else {
+          blockForTierOperands.add(
+              ColumnOp.less(hashExpr, ConstantColumn.valueOf(cumulProb.get(j))));
+        }
         blockForTierOperands.add(ConstantColumn.valueOf(j));
       }
       UnnamedColumn blockForTierExpr;
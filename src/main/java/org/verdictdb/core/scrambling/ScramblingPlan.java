@@ -18,6 +18,7 @@ package org.verdictdb.core.scrambling;
 
 import org.verdictdb.core.querying.ExecutableNodeBase;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -30,6 +31,7 @@ import java.util.Map;
  *   <li>metadata retrieval node
  *   <li>statistics computation node
  *   <li>actual scramble table creation node
+ *   <li>per-block synopsis creation node (optional)
  * </ol>
  *
  * Those nodes should be provided by the ScramblingMethod instance
@@ -50,6 +52,12 @@ public class ScramblingPlan extends SimpleTreePlan {
 
   static final String PARTITION_METADATA_KEY = "scramblingPlan:partitionMetaData";
 
+  public static final String SYNOPSIS_DIMENSIONS_OPTION = "synopsisDimensionColumns";
+
+  public static final String SYNOPSIS_MEASURES_OPTION = "synopsisMeasureColumns";
+
+  static final String DEFAULT_SYNOPSIS_TABLE_SUFFIX = "_synopsis";
+
   /**
    * Limitations: <br>
    * Currently, this class only works for the databases that support "CREATE TABLE ... PARTITION BY
@@ -61,7 +69,8 @@ public class ScramblingPlan extends SimpleTreePlan {
    * @param oldTableName
    * @param method
    * @param options Key-value map. It must contain the following keys: "blockColumnName",
-   *     "tierColumnName", "blockCount" (optional)
+   *     "tierColumnName", "blockCount" (optional), "synopsisDimensionColumns" (optional),
+   *     "synopsisMeasureColumns" (optional), "synopsisTableSuffix" (optional)
    * @return
    */
   public static ScramblingPlan create(
@@ -99,7 +108,48 @@ public class ScramblingPlan extends SimpleTreePlan {
       scramblingNode.subscribeTo(statsNodes.get(i), i);
     }
 
-    ScramblingPlan scramblingPlan = new ScramblingPlan(scramblingNode);
+    // create a node for (optional) step 4 - synopsis creation
+    ExecutableNodeBase root = scramblingNode;
+    List<String> dimensions = parseColumnList(options.get(SYNOPSIS_DIMENSIONS_OPTION));
+    List<String> measures = parseColumnList(options.get(SYNOPSIS_MEASURES_OPTION));
+    if (!dimensions.isEmpty() || !measures.isEmpty()) {
+      String suffix = options.get("synopsisTableSuffix");
+      if (suffix == null) {
+        suffix = DEFAULT_SYNOPSIS_TABLE_SUFFIX;
+      }
+      root =
+          SynopsisCreationNode.create(
+              newSchemaName,
+              newTableName,
+              newSchemaName,
+              newTableName + suffix,
+              options.get("tierColumnName"),
+              options.get("blockColumnName"),
+              dimensions,
+              measures);
+      root.subscribeTo(scramblingNode, 0);
+    }
+
+    ScramblingPlan scramblingPlan = new ScramblingPlan(root);
     return scramblingPlan;
   }
+
+  /**
+   * Parses a comma-separated list of column names.
+   *
+   * @param columns
+   * @return An empty list if null is passed.
+   */
+  public static List<String> parseColumnList(String columns) {
+    List<String> parsed = new ArrayList<>();
+    if (columns == null) {
+      return parsed;
+    }
+    for (String col : columns.split(",")) {
+      if (col.trim().length() > 0) {
+        parsed.add(col.trim());
+      }
+    }
+    return parsed;
+  }
 }
@@ -65,6 +65,12 @@ public class StatisticsRetrievalNode extends QueryNodeBase {
     return token;
   }
 
+  /** The statistics are read by the scrambling method. */
+  @Override
+  public boolean requiresBufferedResult() {
+    return true;
+  }
+
   @Override
   public ExecutableNodeBase deepcopy() {
     QueryNodeBase node = new StatisticsRetrievalNode(schemaName, tableName);
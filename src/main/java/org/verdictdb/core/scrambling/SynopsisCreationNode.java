@@ -0,0 +1,129 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.scrambling;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.verdictdb.core.querying.CreateTableAsSelectNode;
+import org.verdictdb.core.querying.ExecutableNodeBase;
+import org.verdictdb.core.querying.IdCreator;
+import org.verdictdb.core.sqlobject.AliasedColumn;
+import org.verdictdb.core.sqlobject.BaseColumn;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.SelectItem;
+import org.verdictdb.core.sqlobject.SelectQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates a per-block synopsis of a scrambled table. This node runs after the scrambled table is
+ * created.
+ *
+ * <p>The synopsis has a single row for each (tier, block, dimension values) group. Each row stores
+ * the number of the tuples in the group and the sum of every measure column. Since the synopsis
+ * keeps the tier and block columns of the scramble, the aggregate queries that group and filter
+ * only on the dimension columns can be answered block by block from the synopsis.
+ */
+public class SynopsisCreationNode extends CreateTableAsSelectNode {
+
+  private static final long serialVersionUID = 2276301648325470317L;
+
+  public static final String COUNT_COLUMN_NAME = "verdictdbsynopsiscount";
+
+  static final String SUM_COLUMN_PREFIX = "verdictdbsynopsissum_";
+
+  private static final String SCRAMBLE_TABLE_ALIAS = "t";
+
+  private SynopsisCreationNode(IdCreator namer, SelectQuery query) {
+    super(namer, query);
+  }
+
+  /**
+   * @param scrambleSchemaName
+   * @param scrambleTableName
+   * @param synopsisSchemaName
+   * @param synopsisTableName
+   * @param tierColumnName
+   * @param blockColumnName
+   * @param dimensionColumns Columns by which the synopsis is grouped
+   * @param measureColumns Columns whose sums are stored in the synopsis
+   * @return
+   */
+  public static SynopsisCreationNode create(
+      String scrambleSchemaName,
+      String scrambleTableName,
+      final String synopsisSchemaName,
+      final String synopsisTableName,
+      String tierColumnName,
+      String blockColumnName,
+      List<String> dimensionColumns,
+      List<String> measureColumns) {
+
+    IdCreator idCreator =
+        new IdCreator() {
+          @Override
+          public String generateAliasName() {
+            return null; // we don't need this method
+          }
+
+          @Override
+          public Pair<String, String> generateTempTableName() {
+            return Pair.of(synopsisSchemaName, synopsisTableName);
+          }
+        };
+
+    List<String> groupColumns = new ArrayList<>();
+    groupColumns.add(tierColumnName);
+    groupColumns.add(blockColumnName);
+    groupColumns.addAll(dimensionColumns);
+
+    List<SelectItem> selectItems = new ArrayList<>();
+    for (String col : groupColumns) {
+      selectItems.add(new AliasedColumn(new BaseColumn(SCRAMBLE_TABLE_ALIAS, col), col));
+    }
+    selectItems.add(new AliasedColumn(ColumnOp.count(), COUNT_COLUMN_NAME));
+    for (String col : measureColumns) {
+      selectItems.add(
+          new AliasedColumn(
+              ColumnOp.sum(new BaseColumn(SCRAMBLE_TABLE_ALIAS, col)), getSumColumnName(col)));
+    }
+
+    SelectQuery query =
+        SelectQuery.create(
+            selectItems,
+            new BaseTable(scrambleSchemaName, scrambleTableName, SCRAMBLE_TABLE_ALIAS));
+    for (String col : groupColumns) {
+      query.addGroupby(new BaseColumn(SCRAMBLE_TABLE_ALIAS, col));
+    }
+
+    return new SynopsisCreationNode(idCreator, query);
+  }
+
+  /**
+   * @param measureColumn A measure column of the original table
+   * @return The name of the synopsis column that stores the sum of the measure column
+   */
+  public static String getSumColumnName(String measureColumn) {
+    return SUM_COLUMN_PREFIX + measureColumn;
+  }
+
+  @Override
+  public ExecutableNodeBase deepcopy() {
+    return new SynopsisCreationNode(getNamer(), selectQuery);
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.scrambling;
+
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.core.execplan.ExecutionInfoToken;
+import org.verdictdb.core.querying.QueryNodeBase;
+import org.verdictdb.core.sqlobject.AliasedColumn;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.SelectItem;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.core.sqlobject.SqlConvertible;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.exception.VerdictDBValueException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Counts the rows of a table; used by the scrambling methods to determine the block count. */
+class TableSizeCountNode extends QueryNodeBase {
+
+  private static final long serialVersionUID = 4363953197389542868L;
+
+  private String schemaName;
+
+  private String tableName;
+
+  public static final String TOTAL_COUNT_ALIAS_NAME = "verdictdbtotalcount";
+
+  public TableSizeCountNode(String schemaName, String tableName) {
+    super(null);
+    this.schemaName = schemaName;
+    this.tableName = tableName;
+  }
+
+  @Override
+  public SqlConvertible createQuery(List<ExecutionInfoToken> tokens) throws VerdictDBException {
+    if (tokens.size() == 0) {
+      // no token information passed
+      throw new VerdictDBValueException("No token is passed.");
+    }
+
+    String tableSourceAlias = "t";
+
+    // compose a select list
+    List<SelectItem> selectList = new ArrayList<>();
+    selectList.add(new AliasedColumn(ColumnOp.count(), TOTAL_COUNT_ALIAS_NAME));
+
+    selectQuery =
+        SelectQuery.create(selectList, new BaseTable(schemaName, tableName, tableSourceAlias));
+    return selectQuery;
+  }
+
+  @Override
+  public ExecutionInfoToken createToken(DbmsQueryResult result) {
+    ExecutionInfoToken token = new ExecutionInfoToken();
+    token.setKeyValue(this.getClass().getSimpleName(), result);
+    return token;
+  }
+
+  /** The statistics are read by the scrambling method. */
+  @Override
+  public boolean requiresBufferedResult() {
+    return true;
+  }
+}
@@ -17,12 +17,8 @@
 package org.verdictdb.core.scrambling;
 
 import org.verdictdb.connection.DbmsQueryResult;
-import org.verdictdb.core.execplan.ExecutionInfoToken;
 import org.verdictdb.core.querying.ExecutableNodeBase;
-import org.verdictdb.core.querying.QueryNodeBase;
 import org.verdictdb.core.sqlobject.*;
-import org.verdictdb.exception.VerdictDBException;
-import org.verdictdb.exception.VerdictDBValueException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -96,45 +92,3 @@ public class UniformScramblingMethod extends ScramblingMethodBase {
     return 1;
   }
 }
-
-class TableSizeCountNode extends QueryNodeBase {
-
-  private static final long serialVersionUID = 4363953197389542868L;
-
-  private String schemaName;
-
-  private String tableName;
-
-  public static final String TOTAL_COUNT_ALIAS_NAME = "verdictdbtotalcount";
-
-  public TableSizeCountNode(String schemaName, String tableName) {
-    super(null);
-    this.schemaName = schemaName;
-    this.tableName = tableName;
-  }
-
-  @Override
-  public SqlConvertible createQuery(List<ExecutionInfoToken> tokens) throws VerdictDBException {
-    if (tokens.size() == 0) {
-      // no token information passed
-      throw new VerdictDBValueException("No token is passed.");
-    }
-
-    String tableSourceAlias = "t";
-
-    // compose a select list
-    List<SelectItem> selectList = new ArrayList<>();
-    selectList.add(new AliasedColumn(ColumnOp.count(), TOTAL_COUNT_ALIAS_NAME));
-
-    selectQuery =
-        SelectQuery.create(selectList, new BaseTable(schemaName, tableName, tableSourceAlias));
-    return selectQuery;
-  }
-
-  @Override
-  public ExecutionInfoToken createToken(DbmsQueryResult result) {
-    ExecutionInfoToken token = new ExecutionInfoToken();
-    token.setKeyValue(this.getClass().getSimpleName(), result);
-    return token;
-  }
-}
@@ -16,8 +16,6 @@
 
 package org.verdictdb.core.sqlobject;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
@@ -35,6 +33,9 @@ public class AliasReference implements UnnamedColumn {
 
   String tableAlias;
 
+  // memoized; the fields are never changed.
+  private transient int hashCode;
+
   public AliasReference(String aliasName) {
     this.aliasName = aliasName;
   }
@@ -54,12 +55,30 @@ public class AliasReference implements UnnamedColumn {
 
   @Override
   public int hashCode() {
-    return HashCodeBuilder.reflectionHashCode(this);
+    int result = hashCode;
+    if (result == 0) {
+      final int prime = 31;
+      result = 1;
+      result = prime * result + ((aliasName == null) ? 0 : aliasName.hashCode());
+      result = prime * result + ((tableAlias == null) ? 0 : tableAlias.hashCode());
+      hashCode = result;
+    }
+    return result;
   }
 
   @Override
   public boolean equals(Object obj) {
-    return EqualsBuilder.reflectionEquals(this, obj);
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    AliasReference other = (AliasReference) obj;
+    if (aliasName == null) {
+      if (other.aliasName != null) return false;
+    } else if (!aliasName.equals(other.aliasName)) return false;
+    if (tableAlias == null) {
+      if (other.tableAlias != null) return false;
+    } else if (!tableAlias.equals(other.tableAlias)) return false;
+    return true;
   }
 
   @Override
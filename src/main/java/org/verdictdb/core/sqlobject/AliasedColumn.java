@@ -16,8 +16,6 @@
 
 package org.verdictdb.core.sqlobject;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
@@ -57,12 +55,26 @@ public class AliasedColumn implements SelectItem {
 
   @Override
   public int hashCode() {
-    return HashCodeBuilder.reflectionHashCode(this);
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + ((aliasName == null) ? 0 : aliasName.hashCode());
+    result = prime * result + ((column == null) ? 0 : column.hashCode());
+    return result;
   }
 
   @Override
   public boolean equals(Object obj) {
-    return EqualsBuilder.reflectionEquals(this, obj);
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    AliasedColumn other = (AliasedColumn) obj;
+    if (aliasName == null) {
+      if (other.aliasName != null) return false;
+    } else if (!aliasName.equals(other.aliasName)) return false;
+    if (column == null) {
+      if (other.column != null) return false;
+    } else if (!column.equals(other.column)) return false;
+    return true;
   }
 
   @Override
@@ -16,9 +16,6 @@
 
 package org.verdictdb.core.sqlobject;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
-
 public class AsteriskColumn implements UnnamedColumn, SelectItem {
 
   private static final long serialVersionUID = -930230895524125223L;
@@ -45,12 +42,19 @@ public class AsteriskColumn implements UnnamedColumn, SelectItem {
 
   @Override
   public int hashCode() {
-    return HashCodeBuilder.reflectionHashCode(this);
+    return 31 + ((tablename == null) ? 0 : tablename.hashCode());
   }
 
   @Override
   public boolean equals(Object obj) {
-    return EqualsBuilder.reflectionEquals(this, obj);
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    AsteriskColumn other = (AsteriskColumn) obj;
+    if (tablename == null) {
+      if (other.tablename != null) return false;
+    } else if (!tablename.equals(other.tablename)) return false;
+    return true;
   }
 
   @Override
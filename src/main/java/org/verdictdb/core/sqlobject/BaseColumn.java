@@ -16,8 +16,6 @@
 
 package org.verdictdb.core.sqlobject;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
@@ -33,6 +31,9 @@ public class BaseColumn implements UnnamedColumn, SelectItem, GroupingAttribute
 
   String columnName;
 
+  // memoized; reset whenever a field is set. Zero means not computed yet.
+  private transient int hashCode;
+
   public BaseColumn(String columnName) {
     this.columnName = columnName;
   }
@@ -70,10 +71,12 @@ public class BaseColumn implements UnnamedColumn, SelectItem, GroupingAttribute
 
   public void setSchemaName(String schemaName) {
     this.schemaName = schemaName;
+    hashCode = 0;
   }
 
   public void setTableSourceAlias(String tableSourceAlias) {
     this.tableSourceAlias = tableSourceAlias;
+    hashCode = 0;
   }
 
   public String getColumnName() {
@@ -82,10 +85,12 @@ public class BaseColumn implements UnnamedColumn, SelectItem, GroupingAttribute
 
   public void setColumnName(String columnName) {
     this.columnName = columnName;
+    hashCode = 0;
   }
 
   public void setTableName(String tableName) {
     this.tableName = tableName;
+    hashCode = 0;
   }
 
   public static BaseColumn create(String tableSourceAlias, String columnName) {
@@ -94,12 +99,39 @@ public class BaseColumn implements UnnamedColumn, SelectItem, GroupingAttribute
 
   @Override
   public int hashCode() {
-    return HashCodeBuilder.reflectionHashCode(this);
+    int result = hashCode;
+    if (result == 0) {
+      final int prime = 31;
+      result = 1;
+      result = prime * result + ((schemaName == null) ? 0 : schemaName.hashCode());
+      result = prime * result + ((tableSourceAlias == null) ? 0 : tableSourceAlias.hashCode());
+      result = prime * result + ((tableName == null) ? 0 : tableName.hashCode());
+      result = prime * result + ((columnName == null) ? 0 : columnName.hashCode());
+      hashCode = result;
+    }
+    return result;
   }
 
   @Override
   public boolean equals(Object obj) {
-    return EqualsBuilder.reflectionEquals(this, obj);
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    BaseColumn other = (BaseColumn) obj;
+    if (hashCode() != other.hashCode()) return false;
+    if (columnName == null) {
+      if (other.columnName != null) return false;
+    } else if (!columnName.equals(other.columnName)) return false;
+    if (tableSourceAlias == null) {
+      if (other.tableSourceAlias != null) return false;
+    } else if (!tableSourceAlias.equals(other.tableSourceAlias)) return false;
+    if (tableName == null) {
+      if (other.tableName != null) return false;
+    } else if (!tableName.equals(other.tableName)) return false;
+    if (schemaName == null) {
+      if (other.schemaName != null) return false;
+    } else if (!schemaName.equals(other.schemaName)) return false;
+    return true;
   }
 
   @Override
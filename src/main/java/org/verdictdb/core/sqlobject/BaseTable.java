@@ -16,8 +16,6 @@
 
 package org.verdictdb.core.sqlobject;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.verdictdb.exception.VerdictDBTypeException;
@@ -31,6 +29,9 @@ public class BaseTable extends AbstractRelation {
 
   String tableName;
 
+  // memoized; reset whenever a field is set. Zero means not computed yet.
+  private transient int hashCode;
+
   public BaseTable(String schemaName, String tableName, String tableSourceAlias) {
     this.schemaName = schemaName;
     this.tableName = tableName;
@@ -58,6 +59,7 @@ public class BaseTable extends AbstractRelation {
 
   public void setSchemaName(String schemaName) {
     this.schemaName = schemaName;
+    hashCode = 0;
   }
 
   public String getTableName() {
@@ -66,6 +68,13 @@ public class BaseTable extends AbstractRelation {
 
   public void setTableName(String tableName) {
     this.tableName = tableName;
+    hashCode = 0;
+  }
+
+  @Override
+  public void setAliasName(String aliasName) {
+    super.setAliasName(aliasName);
+    hashCode = 0;
   }
 
   //    public String getTableSourceAlias() {
@@ -82,12 +91,34 @@ public class BaseTable extends AbstractRelation {
 
   @Override
   public int hashCode() {
-    return HashCodeBuilder.reflectionHashCode(this);
+    int result = hashCode;
+    if (result == 0) {
+      final int prime = 31;
+      result = 1;
+      result = prime * result + ((aliasName == null) ? 0 : aliasName.hashCode());
+      result = prime * result + ((schemaName == null) ? 0 : schemaName.hashCode());
+      result = prime * result + ((tableName == null) ? 0 : tableName.hashCode());
+      hashCode = result;
+    }
+    return result;
   }
 
   @Override
   public boolean equals(Object obj) {
-    return EqualsBuilder.reflectionEquals(this, obj);
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    BaseTable other = (BaseTable) obj;
+    if (tableName == null) {
+      if (other.tableName != null) return false;
+    } else if (!tableName.equals(other.tableName)) return false;
+    if (schemaName == null) {
+      if (other.schemaName != null) return false;
+    } else if (!schemaName.equals(other.schemaName)) return false;
+    if (aliasName == null) {
+      if (other.aliasName != null) return false;
+    } else if (!aliasName.equals(other.aliasName)) return false;
+    return true;
   }
 
   @Override
@@ -16,8 +16,6 @@
 
 package org.verdictdb.core.sqlobject;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
@@ -316,6 +314,14 @@ public class ColumnOp implements UnnamedColumn, SelectItem {
     return new ColumnOp("rand");
   }
 
+  /**
+   * @param column The column to hash
+   * @return A value in [0, 1) determined by the hash of the column
+   */
+  public static ColumnOp hash(UnnamedColumn column) {
+    return new ColumnOp("hash", column);
+  }
+
   public static ColumnOp floor(UnnamedColumn column) {
     return new ColumnOp("floor", column);
   }
@@ -330,12 +336,26 @@ public class ColumnOp implements UnnamedColumn, SelectItem {
 
   @Override
   public int hashCode() {
-    return HashCodeBuilder.reflectionHashCode(this);
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + ((opType == null) ? 0 : opType.hashCode());
+    result = prime * result + ((operands == null) ? 0 : operands.hashCode());
+    return result;
   }
 
   @Override
   public boolean equals(Object obj) {
-    return EqualsBuilder.reflectionEquals(this, obj);
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    ColumnOp other = (ColumnOp) obj;
+    if (opType == null) {
+      if (other.opType != null) return false;
+    } else if (!opType.equals(other.opType)) return false;
+    if (operands == null) {
+      if (other.operands != null) return false;
+    } else if (!operands.equals(other.operands)) return false;
+    return true;
   }
 
   @Override
@@ -16,8 +16,6 @@
 
 package org.verdictdb.core.sqlobject;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
@@ -27,8 +25,12 @@ public class ConstantColumn implements UnnamedColumn, SelectItem {
 
   Object value;
 
+  // memoized; reset whenever a field is set. Zero means not computed yet.
+  private transient int hashCode;
+
   public void setValue(Object value) {
     this.value = value;
+    hashCode = 0;
   }
 
   public Object getValue() {
@@ -55,12 +57,24 @@ public class ConstantColumn implements UnnamedColumn, SelectItem {
 
   @Override
   public int hashCode() {
-    return HashCodeBuilder.reflectionHashCode(this);
+    int result = hashCode;
+    if (result == 0) {
+      result = 31 + ((value == null) ? 0 : value.hashCode());
+      hashCode = result;
+    }
+    return result;
   }
 
   @Override
   public boolean equals(Object obj) {
-    return EqualsBuilder.reflectionEquals(this, obj);
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    ConstantColumn other = (ConstantColumn) obj;
+    if (value == null) {
+      if (other.value != null) return false;
+    } else if (!value.equals(other.value)) return false;
+    return true;
   }
 
   @Override
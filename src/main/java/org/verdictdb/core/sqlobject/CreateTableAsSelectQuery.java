@@ -41,6 +41,9 @@ public class CreateTableAsSelectQuery extends CreateTableQuery {
 
   protected boolean overwrite = false;
 
+  // if true, the result of the select is kept as a temporary view instead of a table.
+  protected boolean temporaryView = false;
+
   public CreateTableAsSelectQuery(String schemaName, String tableName, SelectQuery select) {
     this.schemaName = schemaName;
     this.tableName = tableName;
@@ -76,6 +79,18 @@ public class CreateTableAsSelectQuery extends CreateTableQuery {
     this.overwrite = overwrite;
   }
 
+  public boolean isTemporaryView() {
+    return temporaryView;
+  }
+
+  /**
+   * @param temporaryView True to keep the result as a temporary view, which is only supported by
+   *     some databases (see SqlSyntax.doesSupportTemporaryViews()).
+   */
+  public void setTemporaryView(boolean temporaryView) {
+    this.temporaryView = temporaryView;
+  }
+
   @Override
   public boolean equals(Object obj) {
     return EqualsBuilder.reflectionEquals(this, obj);
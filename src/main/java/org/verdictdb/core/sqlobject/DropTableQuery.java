@@ -24,6 +24,9 @@ public class DropTableQuery implements SqlConvertible {
 
   String tableName;
 
+  // if true, a temporary view is dropped instead of a table.
+  boolean temporaryView = false;
+
   public DropTableQuery(String schemaName, String tableName) {
     this.schemaName = schemaName;
     this.tableName = tableName;
@@ -40,4 +43,12 @@ public class DropTableQuery implements SqlConvertible {
   public String getTableName() {
     return tableName;
   }
+
+  public boolean isTemporaryView() {
+    return temporaryView;
+  }
+
+  public void setTemporaryView(boolean temporaryView) {
+    this.temporaryView = temporaryView;
+  }
 }
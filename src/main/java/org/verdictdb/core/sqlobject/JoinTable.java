@@ -16,8 +16,6 @@
 
 package org.verdictdb.core.sqlobject;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 import java.util.ArrayList;
@@ -82,12 +80,34 @@ public class JoinTable extends AbstractRelation {
 
   @Override
   public int hashCode() {
-    return HashCodeBuilder.reflectionHashCode(this);
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + ((aliasName == null) ? 0 : aliasName.hashCode());
+    result = prime * result + ((joinList == null) ? 0 : joinList.hashCode());
+    result = prime * result + ((joinTypeList == null) ? 0 : joinTypeList.hashCode());
+    result = prime * result + ((condition == null) ? 0 : condition.hashCode());
+    return result;
   }
 
   @Override
   public boolean equals(Object obj) {
-    return EqualsBuilder.reflectionEquals(this, obj);
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    JoinTable other = (JoinTable) obj;
+    if (aliasName == null) {
+      if (other.aliasName != null) return false;
+    } else if (!aliasName.equals(other.aliasName)) return false;
+    if (joinList == null) {
+      if (other.joinList != null) return false;
+    } else if (!joinList.equals(other.joinList)) return false;
+    if (joinTypeList == null) {
+      if (other.joinTypeList != null) return false;
+    } else if (!joinTypeList.equals(other.joinTypeList)) return false;
+    if (condition == null) {
+      if (other.condition != null) return false;
+    } else if (!condition.equals(other.condition)) return false;
+    return true;
   }
 
   @Override
@@ -16,8 +16,6 @@
 
 package org.verdictdb.core.sqlobject;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 import java.io.Serializable;
@@ -58,12 +56,26 @@ public class OrderbyAttribute implements Serializable {
 
   @Override
   public int hashCode() {
-    return HashCodeBuilder.reflectionHashCode(this);
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + ((attribute == null) ? 0 : attribute.hashCode());
+    result = prime * result + ((order == null) ? 0 : order.hashCode());
+    return result;
   }
 
   @Override
   public boolean equals(Object obj) {
-    return EqualsBuilder.reflectionEquals(this, obj);
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    OrderbyAttribute other = (OrderbyAttribute) obj;
+    if (attribute == null) {
+      if (other.attribute != null) return false;
+    } else if (!attribute.equals(other.attribute)) return false;
+    if (order == null) {
+      if (other.order != null) return false;
+    } else if (!order.equals(other.order)) return false;
+    return true;
   }
 
   @Override
@@ -0,0 +1,119 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.sqlobject;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.verdictdb.exception.VerdictDBValueException;
+
+/**
+ * A parameter placeholder ('?') of a prepared statement. It is treated as a constant by the
+ * planner; its value is the literal bound to the parameter when the query is written as SQL.
+ *
+ * <p>The copies of a placeholder share the parameters it is attached to, so the values bound to
+ * the parameters of a plan are seen by all the queries of the plan.
+ */
+public class ParameterPlaceholder extends ConstantColumn {
+
+  private static final long serialVersionUID = 2873391578624139512L;
+
+  // the position of the placeholder in the query text; determines the order of the parameters.
+  private int position;
+
+  // zero-based; -1 until attached to parameters.
+  private int index = -1;
+
+  private QueryParameters parameters;
+
+  public ParameterPlaceholder(int position) {
+    this.position = position;
+  }
+
+  public int getPosition() {
+    return position;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public QueryParameters getParameters() {
+    return parameters;
+  }
+
+  void attach(QueryParameters parameters, int index) {
+    this.parameters = parameters;
+    this.index = index;
+  }
+
+  /** @return The literal bound to this parameter; '?' if not bound. */
+  @Override
+  public Object getValue() {
+    if (parameters == null || !parameters.isSet(index)) {
+      return "?";
+    }
+    return parameters.getValue(index);
+  }
+
+  /**
+   * Binds a literal to this parameter; the value is set in the parameters this placeholder is
+   * attached to, so it is also seen by the copies of this placeholder.
+   *
+   * @param value The SQL literal of the value; null to unset.
+   */
+  @Override
+  public void setValue(Object value) {
+    if (parameters == null) {
+      throw new IllegalStateException("The placeholder is not attached to any parameters.");
+    }
+    try {
+      parameters.setValue(index, (value == null) ? null : value.toString());
+    } catch (VerdictDBValueException e) {
+      throw new IllegalStateException(e.getMessage());
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * position + index;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof ParameterPlaceholder)) {
+      return false;
+    }
+    ParameterPlaceholder other = (ParameterPlaceholder) obj;
+    return position == other.position && index == other.index;
+  }
+
+  @Override
+  public String toString() {
+    return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+        .append("position", position)
+        .append("index", index)
+        .toString();
+  }
+
+  @Override
+  public ParameterPlaceholder deepcopy() {
+    ParameterPlaceholder c = new ParameterPlaceholder(position);
+    c.index = index;
+    c.parameters = parameters;
+    return c;
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.sqlobject;
+
+import org.verdictdb.exception.VerdictDBValueException;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The values of the parameters of a prepared query. The values are SQL literals (e.g., 10, 'abc',
+ * NULL), which are written in place of the placeholders attached to this object.
+ */
+public class QueryParameters implements Serializable {
+
+  private static final long serialVersionUID = -3719305937125960391L;
+
+  // null if not set
+  private List<String> values = new ArrayList<>();
+
+  private QueryParameters(int count) {
+    for (int i = 0; i < count; i++) {
+      values.add(null);
+    }
+  }
+
+  /**
+   * Attaches the parameter placeholders in a query to a new QueryParameters object. The
+   * parameters are numbered in the order they appear in the query text.
+   *
+   * @param query The parsed query
+   * @return The parameters of the query
+   */
+  public static QueryParameters attach(SelectQuery query) throws VerdictDBValueException {
+    List<ParameterPlaceholder> placeholders = findPlaceholders(query);
+    Collections.sort(
+        placeholders,
+        new Comparator<ParameterPlaceholder>() {
+          @Override
+          public int compare(ParameterPlaceholder o1, ParameterPlaceholder o2) {
+            return Integer.compare(o1.getPosition(), o2.getPosition());
+          }
+        });
+
+    QueryParameters parameters = new QueryParameters(placeholders.size());
+    for (int i = 0; i < placeholders.size(); i++) {
+      placeholders.get(i).attach(parameters, i);
+    }
+    return parameters;
+  }
+
+  /**
+   * Creates a copy with the same values. No placeholders are attached to the copy; the copies of
+   * the placeholders refer to it if it is given to a SqlObjectCopier by setCopy().
+   *
+   * @return The copy of this object
+   */
+  public QueryParameters copy() {
+    QueryParameters copied = new QueryParameters(0);
+    copied.values.addAll(values);
+    return copied;
+  }
+
+  /**
+   * Finds all the placeholders in a query by walking its columns, relations, and subqueries. An
+   * object referenced from several places is visited once.
+   */
+  private static List<ParameterPlaceholder> findPlaceholders(SelectQuery root) {
+    List<ParameterPlaceholder> found = new ArrayList<>();
+    Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+    Deque<Object> toVisit = new ArrayDeque<>();
+    toVisit.push(root);
+    while (!toVisit.isEmpty()) {
+      Object object = toVisit.pop();
+      if (!visited.add(object)) {
+        continue;
+      }
+      if (object instanceof ParameterPlaceholder) {
+        found.add((ParameterPlaceholder) object);
+      } else if (object instanceof ColumnOp) {
+        pushAll(toVisit, ((ColumnOp) object).operands);
+      } else if (object instanceof AliasedColumn) {
+        pushIfNotNull(toVisit, ((AliasedColumn) object).column);
+      } else if (object instanceof SubqueryColumn) {
+        pushIfNotNull(toVisit, ((SubqueryColumn) object).subquery);
+      } else if (object instanceof OrderbyAttribute) {
+        pushIfNotNull(toVisit, ((OrderbyAttribute) object).attribute);
+      } else if (object instanceof SelectQuery) {
+        SelectQuery query = (SelectQuery) object;
+        pushAll(toVisit, query.selectList);
+        pushAll(toVisit, query.fromList);
+        pushAll(toVisit, query.filter.asSet());
+        pushAll(toVisit, query.groupby);
+        pushAll(toVisit, query.orderby);
+        pushAll(toVisit, query.having.asSet());
+        pushAll(toVisit, query.limit.asSet());
+      } else if (object instanceof JoinTable) {
+        JoinTable join = (JoinTable) object;
+        pushAll(toVisit, join.joinList);
+        pushAll(toVisit, join.condition);
+      } else if (object instanceof SetOperationRelation) {
+        SetOperationRelation setOp = (SetOperationRelation) object;
+        pushIfNotNull(toVisit, setOp.left);
+        pushIfNotNull(toVisit, setOp.right);
+      }
+    }
+    return found;
+  }
+
+  private static void pushIfNotNull(Deque<Object> toVisit, Object object) {
+    if (object != null) {
+      toVisit.push(object);
+    }
+  }
+
+  private static void pushAll(Deque<Object> toVisit, Collection<?> objects) {
+    for (Object object : objects) {
+      pushIfNotNull(toVisit, object);
+    }
+  }
+
+  public int getCount() {
+    return values.size();
+  }
+
+  public boolean isSet(int index) {
+    return index >= 0 && index < values.size() && values.get(index) != null;
+  }
+
+  public String getValue(int index) {
+    return values.get(index);
+  }
+
+  /**
+   * @param index Zero-based index of the parameter
+   * @param literal The SQL literal of the value
+   */
+  public void setValue(int index, String literal) throws VerdictDBValueException {
+    if (index < 0 || index >= values.size()) {
+      throw new VerdictDBValueException(
+          String.format(
+              "The parameter index %d is out of range; the query has %d parameters.",
+              index + 1, values.size()));
+    }
+    values.set(index, literal);
+  }
+
+  /**
+   * Sets the values of all the parameters at once.
+   *
+   * @param literals The SQL literals of the values in order
+   */
+  public void setValues(List<String> literals) throws VerdictDBValueException {
+    if (literals.size() != values.size()) {
+      throw new VerdictDBValueException(
+          String.format(
+              "%d values are given for %d parameters.", literals.size(), values.size()));
+    }
+    for (int i = 0; i < literals.size(); i++) {
+      if (literals.get(i) == null) {
+        throw new VerdictDBValueException(
+            String.format("The value of the parameter %d is not set.", i + 1));
+      }
+      values.set(i, literals.get(i));
+    }
+  }
+
+  public void clear() {
+    Collections.fill(values, null);
+  }
+}
@@ -17,8 +17,6 @@
 package org.verdictdb.core.sqlobject;
 
 import com.google.common.base.Optional;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
@@ -207,13 +205,51 @@ public class SelectQuery extends AbstractRelation implements SqlConvertible {
   }
 
   @Override
-  public boolean equals(Object obj) {
-    return EqualsBuilder.reflectionEquals(this, obj);
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + ((aliasName == null) ? 0 : aliasName.hashCode());
+    result = prime * result + ((selectList == null) ? 0 : selectList.hashCode());
+    result = prime * result + ((fromList == null) ? 0 : fromList.hashCode());
+    result = prime * result + ((filter == null) ? 0 : filter.hashCode());
+    result = prime * result + ((groupby == null) ? 0 : groupby.hashCode());
+    result = prime * result + ((orderby == null) ? 0 : orderby.hashCode());
+    result = prime * result + ((having == null) ? 0 : having.hashCode());
+    result = prime * result + ((limit == null) ? 0 : limit.hashCode());
+    return result;
   }
 
   @Override
-  public int hashCode() {
-    return HashCodeBuilder.reflectionHashCode(this);
+  public boolean equals(Object obj) {
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    SelectQuery other = (SelectQuery) obj;
+    if (aliasName == null) {
+      if (other.aliasName != null) return false;
+    } else if (!aliasName.equals(other.aliasName)) return false;
+    if (selectList == null) {
+      if (other.selectList != null) return false;
+    } else if (!selectList.equals(other.selectList)) return false;
+    if (fromList == null) {
+      if (other.fromList != null) return false;
+    } else if (!fromList.equals(other.fromList)) return false;
+    if (filter == null) {
+      if (other.filter != null) return false;
+    } else if (!filter.equals(other.filter)) return false;
+    if (groupby == null) {
+      if (other.groupby != null) return false;
+    } else if (!groupby.equals(other.groupby)) return false;
+    if (orderby == null) {
+      if (other.orderby != null) return false;
+    } else if (!orderby.equals(other.orderby)) return false;
+    if (having == null) {
+      if (other.having != null) return false;
+    } else if (!having.equals(other.having)) return false;
+    if (limit == null) {
+      if (other.limit != null) return false;
+    } else if (!limit.equals(other.limit)) return false;
+    return true;
   }
 
   @Override
@@ -0,0 +1,278 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.core.sqlobject;
+
+import com.google.common.base.Optional;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.MutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Deep-copies sql objects without reflection. Unlike deepcopy() of each object, which copies a
+ * single tree, a copier copies a group of objects (e.g., all the queries in an execution plan) at
+ * once: an object referenced from several places is copied once, and the copies refer to the same
+ * copy. Thus, the copies keep the references the originals share with each other (e.g., the
+ * placeholder tables of a node that also appear in its query).
+ *
+ * <p>The collections, pairs, and optionals holding sql objects are copied as well. The immutable
+ * objects (e.g., strings, numbers, and alias references) and the parameters of a prepared query are
+ * not copied; the latter can be replaced by setCopy(). The objects of any other types cannot be
+ * copied unless a subclass copies them by overriding copyObject(); an
+ * UnsupportedOperationException is thrown for them.
+ */
+public class SqlObjectCopier {
+
+  // original -> copy
+  private final Map<Object, Object> copies = new IdentityHashMap<>();
+
+  /**
+   * @param object The object to copy
+   * @return The copy of the object; the same copy is returned for the same object.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T copy(T object) {
+    if (object == null) {
+      return null;
+    }
+    Object copied = copies.get(object);
+    if (copied == null) {
+      if (isImmutable(object)) {
+        return object;
+      }
+      copied = copyObject(object);
+      copies.put(object, copied);
+    }
+    return (T) copied;
+  }
+
+  /**
+   * Makes the copier use a given object as the copy of another.
+   *
+   * @param original The original object
+   * @param copy The object to be used in place of the original in the copies
+   */
+  public void setCopy(Object original, Object copy) {
+    copies.put(original, copy);
+  }
+
+  /** @return The copy of an object if it has been copied; null otherwise. */
+  protected Object getCopy(Object original) {
+    return copies.get(original);
+  }
+
+  protected boolean isImmutable(Object object) {
+    return object instanceof String
+        || object instanceof Number
+        || object instanceof Boolean
+        || object instanceof Character
+        || object instanceof Enum
+        || object instanceof AliasReference
+        || object instanceof QueryParameters;
+  }
+
+  /**
+   * Creates a copy of an object. The objects that the copy refers to must be copied by copy() so
+   * that the shared ones are copied only once; to this end, the copy of an object referring to
+   * others is registered by setCopy() before the others are copied.
+   *
+   * @throws UnsupportedOperationException if the type of the object is unknown
+   */
+  protected Object copyObject(Object object) {
+    if (object instanceof UnnamedColumn || object instanceof SelectItem) {
+      return copyColumn(object);
+    }
+    if (object instanceof AbstractRelation) {
+      return copyRelation((AbstractRelation) object);
+    }
+    if (object instanceof OrderbyAttribute) {
+      OrderbyAttribute orderby = (OrderbyAttribute) object;
+      OrderbyAttribute copied = new OrderbyAttribute((GroupingAttribute) null, orderby.order);
+      setCopy(orderby, copied);
+      copied.attribute = copy(orderby.attribute);
+      return copied;
+    }
+    if (object instanceof Collection) {
+      return copyCollection((Collection<?>) object);
+    }
+    if (object instanceof Map) {
+      return copyMap((Map<?, ?>) object);
+    }
+    if (object instanceof Optional) {
+      Optional<?> optional = (Optional<?>) object;
+      if (!optional.isPresent()) {
+        return optional;
+      }
+      Object value = copy(optional.get());
+      return (value == optional.get()) ? optional : Optional.of(value);
+    }
+    if (object instanceof ImmutablePair) {
+      Pair<?, ?> pair = (Pair<?, ?>) object;
+      return ImmutablePair.of(copy(pair.getLeft()), copy(pair.getRight()));
+    }
+    if (object instanceof MutablePair) {
+      Pair<?, ?> pair = (Pair<?, ?>) object;
+      return MutablePair.of(copy(pair.getLeft()), copy(pair.getRight()));
+    }
+    if (object instanceof Date) {
+      // e.g., the values of date and timestamp constants
+      return ((Date) object).clone();
+    }
+    throw unsupported(object);
+  }
+
+  private static UnsupportedOperationException unsupported(Object object) {
+    return new UnsupportedOperationException(
+        String.format("%s cannot be copied.", object.getClass().getName()));
+  }
+
+  private Object copyColumn(Object object) {
+    if (object instanceof BaseColumn) {
+      BaseColumn column = (BaseColumn) object;
+      return new BaseColumn(
+          column.schemaName, column.tableName, column.tableSourceAlias, column.columnName);
+    } else if (object instanceof ColumnOp) {
+      ColumnOp column = (ColumnOp) object;
+      ColumnOp copied = new ColumnOp(column.opType);
+      setCopy(column, copied);
+      copied.operands = copy(column.operands);
+      return copied;
+    } else if (object instanceof ParameterPlaceholder) {
+      ParameterPlaceholder placeholder = (ParameterPlaceholder) object;
+      ParameterPlaceholder copied = new ParameterPlaceholder(placeholder.getPosition());
+      copied.attach(copy(placeholder.getParameters()), placeholder.getIndex());
+      return copied;
+    } else if (object instanceof ConstantColumn) {
+      ConstantColumn copied = new ConstantColumn();
+      copied.setValue(copy(((ConstantColumn) object).value));
+      return copied;
+    } else if (object instanceof AliasedColumn) {
+      AliasedColumn column = (AliasedColumn) object;
+      AliasedColumn copied = new AliasedColumn(null, column.aliasName);
+      setCopy(column, copied);
+      copied.column = copy(column.column);
+      return copied;
+    } else if (object instanceof AsteriskColumn) {
+      return new AsteriskColumn(((AsteriskColumn) object).tablename);
+    } else if (object instanceof SubqueryColumn) {
+      SubqueryColumn column = (SubqueryColumn) object;
+      SubqueryColumn copied = new SubqueryColumn();
+      setCopy(column, copied);
+      copied.subquery = copy(column.subquery);
+      return copied;
+    }
+    throw unsupported(object);
+  }
+
+  private Object copyRelation(AbstractRelation relation) {
+    if (relation instanceof BaseTable) {
+      BaseTable table = (BaseTable) relation;
+      BaseTable copied = new BaseTable(table.schemaName, table.tableName);
+      copied.aliasName = table.aliasName;
+      return copied;
+    } else if (relation instanceof SelectQuery) {
+      SelectQuery query = (SelectQuery) relation;
+      SelectQuery copied = new SelectQuery();
+      setCopy(query, copied);
+      copied.aliasName = query.aliasName;
+      copied.selectList = copy(query.selectList);
+      copied.fromList = copy(query.fromList);
+      copied.filter = copy(query.filter);
+      copied.groupby = copy(query.groupby);
+      copied.orderby = copy(query.orderby);
+      copied.having = copy(query.having);
+      copied.limit = copy(query.limit);
+      return copied;
+    } else if (relation instanceof JoinTable) {
+      JoinTable join = (JoinTable) relation;
+      JoinTable copied = new JoinTable();
+      setCopy(join, copied);
+      copied.aliasName = join.aliasName;
+      copied.joinList = copy(join.joinList);
+      copied.joinTypeList = copy(join.joinTypeList);
+      copied.condition = copy(join.condition);
+      return copied;
+    } else if (relation instanceof SetOperationRelation) {
+      SetOperationRelation setOp = (SetOperationRelation) relation;
+      SetOperationRelation copied = new SetOperationRelation(null, null, setOp.setOpType);
+      setCopy(setOp, copied);
+      copied.aliasName = setOp.aliasName;
+      copied.left = copy(setOp.left);
+      copied.right = copy(setOp.right);
+      return copied;
+    }
+    throw unsupported(relation);
+  }
+
+  // the lists and sets become array lists and hash sets unless sorted or ordered.
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private Object copyCollection(Collection<?> collection) {
+    Collection<Object> copied;
+    if (collection instanceof SortedSet) {
+      copied = new TreeSet<>(((SortedSet) collection).comparator());
+    } else if (collection instanceof LinkedHashSet) {
+      copied = new LinkedHashSet<>();
+    } else if (collection instanceof Set) {
+      copied = new HashSet<>();
+    } else if (collection instanceof LinkedList) {
+      copied = new LinkedList<>();
+    } else if (collection instanceof List) {
+      copied = new ArrayList<>(collection.size());
+    } else {
+      throw unsupported(collection);
+    }
+    setCopy(collection, copied);
+    for (Object element : collection) {
+      copied.add(copy(element));
+    }
+    return copied;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private Map<Object, Object> copyMap(Map<?, ?> map) {
+    Map<Object, Object> copied;
+    if (map instanceof SortedMap) {
+      copied = new TreeMap<>(((SortedMap) map).comparator());
+    } else if (map instanceof LinkedHashMap) {
+      copied = new LinkedHashMap<>();
+    } else {
+      copied = new HashMap<>();
+    }
+    setCopy(map, copied);
+    for (Entry<?, ?> entry : map.entrySet()) {
+      copied.put(copy(entry.getKey()), copy(entry.getValue()));
+    }
+    return copied;
+  }
+}
@@ -16,8 +16,6 @@
 
 package org.verdictdb.core.sqlobject;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 /** Subquery that may appear in the where clause. */
@@ -47,12 +45,22 @@ public class SubqueryColumn implements UnnamedColumn {
 
   @Override
   public int hashCode() {
-    return HashCodeBuilder.reflectionHashCode(this);
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + ((subquery == null) ? 0 : subquery.hashCode());
+    return result;
   }
 
   @Override
   public boolean equals(Object obj) {
-    return EqualsBuilder.reflectionEquals(this, obj);
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    SubqueryColumn other = (SubqueryColumn) obj;
+    if (subquery == null) {
+      if (other.subquery != null) return false;
+    } else if (!subquery.equals(other.subquery)) return false;
+    return true;
   }
 
   @Override
@@ -16,21 +16,104 @@
 
 package org.verdictdb.jdbc41;
 
+import org.verdictdb.coordinator.PreparedSelectQuery;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+
 import java.io.InputStream;
 import java.io.Reader;
 import java.math.BigDecimal;
 import java.net.URL;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.Calendar;
-
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A prepared statement with parameter placeholders ('?'). A select statement is compiled once when
+ * it is prepared; each execution binds the values of the parameters to a copy of the compiled plan
+ * without parsing and planning the statement again. The other statements are executed with the
+ * values substituted for the placeholders in the statement text.
+ *
+ * <p>The values are bound as SQL literals; strings, dates, and timestamps are quoted as the string
+ * literals of the backend database (see SqlSyntax.quoteLiteral()).
+ */
 public class VerdictPreparedStatement implements java.sql.PreparedStatement {
 
   VerdictStatement stmt;
 
+  private String sql;
+
+  // the positions of the placeholders in sql
+  private List<Integer> parameterPositions = new ArrayList<>();
+
+  // the literals of the values set for the parameters; null if not set.
+  private List<String> literals = new ArrayList<>();
+
+  // the compiled select statement; null if not a select statement.
+  private PreparedSelectQuery prepared;
+
   public VerdictPreparedStatement(VerdictStatement stmt) {
     this.stmt = stmt;
   }
 
+  public VerdictPreparedStatement(String sql, VerdictStatement stmt) throws SQLException {
+    this.stmt = stmt;
+    this.sql = sql;
+    parameterPositions = NonValidatingSQLParser.findParameterPositions(sql);
+    literals = new ArrayList<>(Collections.nCopies(parameterPositions.size(), (String) null));
+    try {
+      prepared = stmt.executionContext.prepare(sql);
+    } catch (VerdictDBException e) {
+      throw new SQLException(e);
+    }
+  }
+
+  private void setLiteral(int parameterIndex, String literal) throws SQLException {
+    if (parameterIndex < 1 || parameterIndex > literals.size()) {
+      throw new SQLException(
+          String.format(
+              "The parameter index %d is out of range; the statement has %d parameters.",
+              parameterIndex, literals.size()));
+    }
+    literals.set(parameterIndex - 1, literal);
+  }
+
+  /** Quotes a value as a string literal of the syntax of the backend database. */
+  private String quote(String value) {
+    if (value == null) {
+      return "NULL";
+    }
+    return stmt.context.getConnection().getSyntax().quoteLiteral(value);
+  }
+
+  private List<String> getBoundLiterals() throws SQLException {
+    if (sql == null) {
+      throw new SQLException("The statement was not prepared with a query.");
+    }
+    for (int i = 0; i < literals.size(); i++) {
+      if (literals.get(i) == null) {
+        throw new SQLException(String.format("The value of the parameter %d is not set.", i + 1));
+      }
+    }
+    return new ArrayList<>(literals);
+  }
+
+  /** Substitutes the literals for the placeholders in the statement text. */
+  private String bindToText(List<String> literals) {
+    StringBuilder bound = new StringBuilder();
+    int start = 0;
+    for (int i = 0; i < parameterPositions.size(); i++) {
+      int position = parameterPositions.get(i);
+      bound.append(sql, start, position);
+      bound.append(literals.get(i));
+      start = position + 1;
+    }
+    bound.append(sql.substring(start));
+    return bound.toString();
+  }
+
   @Override
   public ResultSet executeQuery(String sql) throws SQLException {
     return stmt.executeQuery(sql);
@@ -253,62 +336,74 @@ public class VerdictPreparedStatement implements java.sql.PreparedStatement {
 
   @Override
   public ResultSet executeQuery() throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    List<String> literals = getBoundLiterals();
+    if (prepared == null) {
+      return stmt.executeQuery(bindToText(literals));
+    }
+    try {
+      if (!stmt.executionContext.isUpToDate(prepared)) {
+        prepared = stmt.executionContext.prepare(sql);
+      }
+      stmt.result = stmt.executionContext.sql(prepared, literals);
+      return new VerdictResultSet(stmt.result);
+    } catch (VerdictDBException e) {
+      throw new SQLException(e);
+    }
   }
 
   @Override
   public int executeUpdate() throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    return stmt.executeUpdate(bindToText(getBoundLiterals()));
   }
 
   @Override
   public void setNull(int parameterIndex, int sqlType) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setLiteral(parameterIndex, "NULL");
   }
 
   @Override
   public void setBoolean(int parameterIndex, boolean x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setLiteral(parameterIndex, String.valueOf(x));
   }
 
   @Override
   public void setByte(int parameterIndex, byte x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setLiteral(parameterIndex, String.valueOf(x));
   }
 
   @Override
   public void setShort(int parameterIndex, short x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setLiteral(parameterIndex, String.valueOf(x));
   }
 
   @Override
   public void setInt(int parameterIndex, int x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setLiteral(parameterIndex, String.valueOf(x));
   }
 
   @Override
   public void setLong(int parameterIndex, long x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setLiteral(parameterIndex, String.valueOf(x));
   }
 
   @Override
   public void setFloat(int parameterIndex, float x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setLiteral(parameterIndex, String.valueOf(x));
   }
 
   @Override
   public void setDouble(int parameterIndex, double x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setLiteral(parameterIndex, String.valueOf(x));
   }
 
   @Override
   public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setLiteral(parameterIndex, (x == null) ? "NULL" : x.toPlainString());
   }
 
   @Override
   public void setString(int parameterIndex, String x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setLiteral(parameterIndex, quote(x));
   }
 
   @Override
@@ -318,17 +413,17 @@ public class VerdictPreparedStatement implements java.sql.PreparedStatement {
 
   @Override
   public void setDate(int parameterIndex, Date x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setLiteral(parameterIndex, (x == null) ? "NULL" : quote(x.toString()));
   }
 
   @Override
   public void setTime(int parameterIndex, Time x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setLiteral(parameterIndex, (x == null) ? "NULL" : quote(x.toString()));
   }
 
   @Override
   public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setLiteral(parameterIndex, (x == null) ? "NULL" : quote(x.toString()));
   }
 
   @Override
@@ -348,22 +443,37 @@ public class VerdictPreparedStatement implements java.sql.PreparedStatement {
 
   @Override
   public void clearParameters() throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    Collections.fill(literals, null);
   }
 
   @Override
   public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setObject(parameterIndex, x);
   }
 
   @Override
   public void setObject(int parameterIndex, Object x) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    if (x == null) {
+      setLiteral(parameterIndex, "NULL");
+    } else if (x instanceof BigDecimal) {
+      setBigDecimal(parameterIndex, (BigDecimal) x);
+    } else if (x instanceof Number || x instanceof Boolean) {
+      setLiteral(parameterIndex, x.toString());
+    } else if (x instanceof String || x instanceof java.util.Date) {
+      setLiteral(parameterIndex, quote(x.toString()));
+    } else {
+      throw new SQLFeatureNotSupportedException(
+          "Unsupported parameter type: " + x.getClass().getName());
+    }
   }
 
   @Override
   public boolean execute() throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    if (prepared == null) {
+      return stmt.execute(bindToText(getBoundLiterals()));
+    }
+    executeQuery();
+    return !stmt.result.isEmpty();
   }
 
   @Override
@@ -419,7 +529,7 @@ public class VerdictPreparedStatement implements java.sql.PreparedStatement {
 
   @Override
   public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setNull(parameterIndex, sqlType);
   }
 
   @Override
@@ -439,7 +549,7 @@ public class VerdictPreparedStatement implements java.sql.PreparedStatement {
 
   @Override
   public void setNString(int parameterIndex, String value) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    setString(parameterIndex, value);
   }
 
   @Override
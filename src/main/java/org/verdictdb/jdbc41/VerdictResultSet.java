@@ -38,6 +38,8 @@ public class VerdictResultSet implements ResultSet {
 
   private HashMap<String, Integer> colNameIdx = new HashMap<>();
 
+  private boolean isClosed = false;
+
   public VerdictResultSet(VerdictSingleResult queryResult) {
     this.queryResult = queryResult;
     for (int i = 0; i < queryResult.getColumnCount(); i++) {
@@ -80,7 +82,10 @@ public class VerdictResultSet implements ResultSet {
   }
 
   @Override
-  public void close() {}
+  public void close() {
+    isClosed = true;
+    queryResult.close();
+  }
 
   @Override
   public void deleteRow() throws SQLException {
@@ -611,7 +616,7 @@ public class VerdictResultSet implements ResultSet {
 
   @Override
   public boolean isClosed() throws SQLException {
-    return false;
+    return isClosed;
   }
 
   @Override
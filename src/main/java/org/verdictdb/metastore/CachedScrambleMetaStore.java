@@ -0,0 +1,166 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.metastore;
+
+import org.verdictdb.connection.DbmsConnection;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.exception.VerdictDBException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the scramble metadata of a VerdictContext in memory. The metadata is loaded from the
+ * underlying store only when it has changed; thus, a query does not need to query the catalog of
+ * the database to find the scrambles it can use.
+ *
+ * <p>Every change made through this object increments its version. The snapshots handed to queries
+ * are immutable, so a query keeps using the same metadata even if a scramble is added while it is
+ * running.
+ *
+ * <p>The changes made by other contexts or processes are picked up when the snapshot expires: once
+ * the time-to-live has passed since the snapshot was loaded, the metadata is reloaded, and the
+ * version is incremented if the reloaded metadata differs.
+ */
+public class CachedScrambleMetaStore {
+
+  public static final long DEFAULT_TTL_SECONDS = 60;
+
+  private VerdictMetaStore store;
+
+  private long version = 0;
+
+  // the version at which the snapshot was loaded; -1 if never loaded.
+  private long loadedVersion = -1;
+
+  private ScrambleMetaSet snapshot;
+
+  // the time (System.nanoTime()) at which the snapshot was loaded
+  private long loadedAt;
+
+  // non-positive if the snapshot never expires
+  private long ttlNanos = TimeUnit.SECONDS.toNanos(DEFAULT_TTL_SECONDS);
+
+  public CachedScrambleMetaStore(DbmsConnection conn) {
+    this(conn, ScrambleMetaStore.getDefaultStoreSchema());
+  }
+
+  public CachedScrambleMetaStore(DbmsConnection conn, String storeSchema) {
+    this(new ScrambleMetaStore(conn, storeSchema));
+  }
+
+  /** @param store The underlying store, e.g., a ScrambleMetaStore or a LocalScrambleMetaStore */
+  public CachedScrambleMetaStore(VerdictMetaStore store) {
+    this.store = store;
+  }
+
+  public VerdictMetaStore getStore() {
+    return store;
+  }
+
+  /**
+   * @param ttl The time after which the snapshot is reloaded from the underlying store. If not
+   *     positive, the snapshot is reloaded only when changed through this object or refreshed.
+   * @param unit The unit of ttl
+   */
+  public synchronized void setTimeToLive(long ttl, TimeUnit unit) {
+    ttlNanos = unit.toNanos(ttl);
+  }
+
+  /**
+   * Returns the version of the metadata. The version changes whenever the metadata is changed
+   * through this object or refreshed; thus, it can be used as a part of a cache key.
+   *
+   * @return The current version
+   */
+  public synchronized long getVersion() {
+    reloadIfExpired();
+    return version;
+  }
+
+  /**
+   * Returns the scramble metadata loaded at the current version. The metadata is loaded from the
+   * underlying store only if it has not been loaded since the last change.
+   *
+   * @return An immutable set of scramble metadata
+   */
+  public synchronized ScrambleMetaSet retrieve() {
+    reloadIfExpired();
+    if (snapshot == null || loadedVersion != version) {
+      snapshot = store.retrieve().createImmutableCopy();
+      loadedVersion = version;
+      loadedAt = System.nanoTime();
+    }
+    return snapshot;
+  }
+
+  /** Reloads an expired snapshot; the version changes only if the metadata has changed. */
+  private void reloadIfExpired() {
+    if (snapshot == null || loadedVersion != version || ttlNanos <= 0) {
+      return;
+    }
+    if (System.nanoTime() - loadedAt < ttlNanos) {
+      return;
+    }
+    ScrambleMetaSet reloaded = store.retrieve();
+    loadedAt = System.nanoTime();
+    if (!reloaded.equals(snapshot)) {
+      version++;
+      snapshot = reloaded.createImmutableCopy();
+      loadedVersion = version;
+    }
+  }
+
+  public void addToStore(ScrambleMeta scrambleMeta) throws VerdictDBException {
+    ScrambleMetaSet scrambleMetaSet = new ScrambleMetaSet();
+    scrambleMetaSet.addScrambleMeta(scrambleMeta);
+    addToStore(scrambleMetaSet);
+  }
+
+  /**
+   * Adds the metadata to the underlying store. The next call to retrieve() reloads the metadata.
+   *
+   * @param scrambleMetaSet
+   * @throws VerdictDBException
+   */
+  public synchronized void addToStore(ScrambleMetaSet scrambleMetaSet) throws VerdictDBException {
+    store.addToStore(scrambleMetaSet);
+    version++;
+  }
+
+  /**
+   * Removes the metadata of a scramble from the underlying store. The next call to retrieve()
+   * reloads the metadata.
+   *
+   * @param schemaName The schema of the scrambled table
+   * @param tableName The scrambled table
+   * @throws VerdictDBException
+   */
+  public synchronized void removeFromStore(String schemaName, String tableName)
+      throws VerdictDBException {
+    store.removeFromStore(schemaName, tableName);
+    version++;
+  }
+
+  /**
+   * Forces the next call to retrieve() to reload the metadata without waiting for the snapshot to
+   * expire. Needed only when scrambles are added by other contexts or processes.
+   */
+  public synchronized void refresh() {
+    version++;
+  }
+}
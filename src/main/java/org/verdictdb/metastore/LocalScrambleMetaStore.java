@@ -0,0 +1,241 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.metastore;
+
+import org.verdictdb.commons.VerdictDBLogger;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.exception.VerdictDBException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Stores the metadata of scrambles in a local file. Unlike ScrambleMetaStore, retrieving the
+ * metadata does not require any query to the DBMS; thus, VerdictDB can start instantly even if
+ * the catalog of the DBMS is slow to access (e.g., Hive).
+ *
+ * <p>The file consists of a header (a magic number and a format version) followed by the entries,
+ * each of which is the length of the serialized metadata and the serialized metadata. A new entry
+ * is appended to the end of the file; when retrieved, a later entry takes precedence over an
+ * earlier entry for the same scramble.
+ *
+ * <p>If another store (typically a ScrambleMetaStore) is given, this store is synchronized with
+ * it: new metadata is added to both stores, and the local file is populated from the other store
+ * if the file does not exist yet.
+ */
+public class LocalScrambleMetaStore extends VerdictMetaStore {
+
+  private static final int MAGIC_NUMBER = 0x5644424d; // "VDBM"
+
+  private static final int FORMAT_VERSION = 1;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final VerdictDBLogger log =
+      VerdictDBLogger.getLogger(LocalScrambleMetaStore.class);
+
+  private File file;
+
+  // null if not synchronized with another store
+  private VerdictMetaStore syncedStore;
+
+  public LocalScrambleMetaStore(String filePath) {
+    this(new File(filePath));
+  }
+
+  public LocalScrambleMetaStore(File file) {
+    this(file, null);
+  }
+
+  /**
+   * @param file The file that stores the metadata
+   * @param syncedStore The store synchronized with this store; may be null.
+   */
+  public LocalScrambleMetaStore(File file, VerdictMetaStore syncedStore) {
+    this.file = file;
+    this.syncedStore = syncedStore;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  public VerdictMetaStore getSyncedStore() {
+    return syncedStore;
+  }
+
+  @Override
+  public synchronized void addToStore(ScrambleMetaSet scrambleMetaSet)
+      throws VerdictDBException {
+    if (syncedStore != null) {
+      syncedStore.addToStore(scrambleMetaSet);
+      if (!file.exists()) {
+        // populates the file with the existing entries as well
+        synchronize();
+        return;
+      }
+    }
+
+    boolean isNewFile = !file.exists() || file.length() == 0;
+    if (isNewFile && file.getAbsoluteFile().getParentFile() != null) {
+      file.getAbsoluteFile().getParentFile().mkdirs();
+    }
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)))) {
+      if (isNewFile) {
+        writeHeader(out);
+      }
+      for (ScrambleMeta meta : scrambleMetaSet) {
+        writeEntry(out, meta);
+      }
+    } catch (IOException e) {
+      throw new VerdictDBException("Failed to write to the metastore file: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public synchronized ScrambleMetaSet retrieve() {
+    if (!file.exists() && syncedStore != null) {
+      try {
+        synchronize();
+      } catch (VerdictDBException e) {
+        log.warn("Failed to populate " + file + "; the synchronized store is read instead.", e);
+        return syncedStore.retrieve();
+      }
+    }
+
+    ScrambleMetaSet retrieved = new ScrambleMetaSet();
+    if (!file.exists()) {
+      return retrieved;
+    }
+
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC_NUMBER) {
+        throw new IOException("Not a metastore file: " + file);
+      }
+      int version = in.readInt();
+      if (version > FORMAT_VERSION) {
+        throw new IOException("Unsupported metastore file version: " + version);
+      }
+
+      while (true) {
+        ScrambleMeta meta;
+        try {
+          meta = readEntry(in);
+        } catch (EOFException e) {
+          // the end of the file, or an entry partially written by an interrupted write
+          break;
+        }
+        if (meta != null) {
+          retrieved.addScrambleMeta(meta);
+        }
+      }
+    } catch (IOException e) {
+      // an unreadable file must not hide the scrambles stored in the synchronized store.
+      if (syncedStore != null) {
+        log.error("Failed to read " + file + "; the synchronized store is read instead.", e);
+        return syncedStore.retrieve();
+      }
+      log.error("Failed to read " + file + "; the entries read so far are returned.", e);
+    }
+
+    return retrieved;
+  }
+
+  /**
+   * Replaces the content of the local file with the metadata retrieved from the synchronized
+   * store. Needed when scrambles are added to the other store without going through this store.
+   *
+   * @throws VerdictDBException
+   */
+  public synchronized void synchronize() throws VerdictDBException {
+    if (syncedStore == null) {
+      throw new VerdictDBException("No metastore is synchronized with " + file);
+    }
+    rewrite(syncedStore.retrieve());
+  }
+
+  /**
+   * Removes the metadata from the synchronized store (if any) and rewrites the local file without
+   * the entries of the scramble.
+   */
+  @Override
+  public synchronized void removeFromStore(String schemaName, String tableName)
+      throws VerdictDBException {
+    if (syncedStore != null) {
+      syncedStore.removeFromStore(schemaName, tableName);
+      synchronize();
+      return;
+    }
+
+    ScrambleMetaSet remaining = retrieve();
+    if (remaining.removeScrambleMeta(schemaName, tableName) != null) {
+      rewrite(remaining);
+    }
+  }
+
+  private void rewrite(ScrambleMetaSet retrieved) throws VerdictDBException {
+    // writes to a temporary file first so that readers never see a partially written file.
+    File parent = file.getAbsoluteFile().getParentFile();
+    try {
+      if (parent != null) {
+        parent.mkdirs();
+      }
+      File temp = File.createTempFile(file.getName(), ".tmp", parent);
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+        writeHeader(out);
+        for (ScrambleMeta meta : retrieved) {
+          writeEntry(out, meta);
+        }
+      }
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new VerdictDBException("Failed to write to the metastore file: " + e.getMessage());
+    }
+  }
+
+  private void writeHeader(DataOutputStream out) throws IOException {
+    out.writeInt(MAGIC_NUMBER);
+    out.writeInt(FORMAT_VERSION);
+  }
+
+  private void writeEntry(DataOutputStream out, ScrambleMeta meta) throws IOException {
+    byte[] data = meta.toCompactString().getBytes(UTF8);
+    out.writeInt(data.length);
+    out.write(data);
+  }
+
+  private ScrambleMeta readEntry(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    byte[] data = new byte[length];
+    in.readFully(data);
+    return ScrambleMeta.fromJsonString(new String(data, UTF8));
+  }
+}
@@ -17,6 +17,7 @@
 package org.verdictdb.metastore;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.verdictdb.commons.VerdictDBLogger;
 import org.verdictdb.connection.DbmsConnection;
 import org.verdictdb.connection.DbmsQueryResult;
 import org.verdictdb.core.querying.CreateSchemaQuery;
@@ -43,6 +44,8 @@ public class ScrambleMetaStore extends VerdictMetaStore {
 
   private static final String DATA_COLUMN = "data";
 
+  private static final VerdictDBLogger log = VerdictDBLogger.getLogger(ScrambleMetaStore.class);
+
   private DbmsConnection conn;
 
   private String storeSchema = DEFAULT_STORE_SCHEMA;
@@ -51,6 +54,11 @@ public class ScrambleMetaStore extends VerdictMetaStore {
     this(conn, DEFAULT_STORE_SCHEMA);
   }
 
+  /**
+   * @param conn The connection to the DBMS. It should not cache the schemas and tables (e.g., a
+   *     CachedDbmsConnection); otherwise, the store created after they are cached is not found.
+   * @param storeSchema The schema of the table storing the metadata
+   */
   public ScrambleMetaStore(DbmsConnection conn, String storeSchema) {
     this.conn = conn;
     this.storeSchema = storeSchema;
@@ -80,18 +88,13 @@ public class ScrambleMetaStore extends VerdictMetaStore {
     return DATA_COLUMN;
   }
 
-  public void addToStore(ScrambleMeta scrambleMeta) throws VerdictDBException {
-    ScrambleMetaSet scrambleMetaSet = new ScrambleMetaSet();
-    scrambleMetaSet.addScrambleMeta(scrambleMeta);
-    addToStore(scrambleMetaSet);
-  }
-
   /**
    * This will add on top of existing entries.
    *
    * @param scrambleMetaSet
    * @throws VerdictDBException
    */
+  @Override
   public void addToStore(ScrambleMetaSet scrambleMetaSet) throws VerdictDBException {
 
     // create a schema if not exists
@@ -116,6 +119,24 @@ public class ScrambleMetaStore extends VerdictMetaStore {
     conn.execute(insertSqls.toString());
   }
 
+  /**
+   * Rewrites the store table without the entries of the scramble. The table is rewritten instead
+   * of deleting the entries since some DBMS (e.g., Hive) do not support deletion.
+   */
+  @Override
+  public void removeFromStore(String schemaName, String tableName) throws VerdictDBException {
+    ScrambleMetaSet remaining = retrieve();
+    if (remaining.removeScrambleMeta(schemaName, tableName) == null) {
+      return;
+    }
+
+    DropTableQuery dropQuery = new DropTableQuery(storeSchema, getMetaStoreTableName());
+    conn.execute(QueryToSql.convert(conn.getSyntax(), dropQuery));
+    if (remaining.iterator().hasNext()) {
+      addToStore(remaining);
+    }
+  }
+
   private CreateTableDefinitionQuery createScrambleMetaStoreTableStatement() {
     // create table
     CreateTableDefinitionQuery query = new CreateTableDefinitionQuery();
@@ -137,11 +158,13 @@ public class ScrambleMetaStore extends VerdictMetaStore {
     String timeStamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
     String scrambleSchema = meta.getSchemaName();
     String scrambleTable = meta.getTableName();
-    String jsonString = meta.toJsonString();
-    query.setValues(Arrays.<Object>asList(timeStamp, scrambleSchema, scrambleTable, jsonString));
+    // the rows stored as plain json by older versions are still readable.
+    String serialized = meta.toCompactString();
+    query.setValues(Arrays.<Object>asList(timeStamp, scrambleSchema, scrambleTable, serialized));
     return query;
   }
 
+  @Override
   public ScrambleMetaSet retrieve() {
     ScrambleMetaSet retrieved = new ScrambleMetaSet();
 
@@ -181,7 +204,7 @@ public class ScrambleMetaStore extends VerdictMetaStore {
         retrieved.addScrambleMeta(meta);
       }
     } catch (VerdictDBException e) {
-      e.printStackTrace();
+      log.error("Failed to retrieve the scramble metadata from " + storeSchema, e);
     }
 
     return retrieved;
@@ -16,11 +16,49 @@
 
 package org.verdictdb.metastore;
 
-public class VerdictMetaStore {
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.exception.VerdictDBException;
+
+/**
+ * Stores the metadata of scrambles. The metadata may be stored in the DBMS (ScrambleMetaStore) or
+ * in a local file (LocalScrambleMetaStore).
+ */
+public abstract class VerdictMetaStore {
 
   private final String METASTORE_TABLE_NAME = "verdictdbmeta";
 
   public String getMetaStoreTableName() {
     return METASTORE_TABLE_NAME;
   }
+
+  public void addToStore(ScrambleMeta scrambleMeta) throws VerdictDBException {
+    ScrambleMetaSet scrambleMetaSet = new ScrambleMetaSet();
+    scrambleMetaSet.addScrambleMeta(scrambleMeta);
+    addToStore(scrambleMetaSet);
+  }
+
+  /**
+   * This will add on top of existing entries. If an entry for the same scramble exists, the new
+   * entry takes precedence when retrieved.
+   *
+   * @param scrambleMetaSet
+   * @throws VerdictDBException
+   */
+  public abstract void addToStore(ScrambleMetaSet scrambleMetaSet) throws VerdictDBException;
+
+  /**
+   * Removes the metadata of a scramble. Nothing happens if the scramble is not in the store.
+   *
+   * @param schemaName The schema of the scrambled table
+   * @param tableName The scrambled table
+   * @throws VerdictDBException
+   */
+  public abstract void removeFromStore(String schemaName, String tableName)
+      throws VerdictDBException;
+
+  /**
+   * @return All the stored metadata. An empty set if nothing has been stored.
+   */
+  public abstract ScrambleMetaSet retrieve();
 }
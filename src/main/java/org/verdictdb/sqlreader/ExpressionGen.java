@@ -68,6 +68,12 @@ public class ExpressionGen extends VerdictSQLParserBaseVisitor<UnnamedColumn> {
     return ConstantColumn.valueOf(ctx.getText());
   }
 
+  @Override
+  public ParameterPlaceholder visitParameter_expression(
+      VerdictSQLParser.Parameter_expressionContext ctx) {
+    return new ParameterPlaceholder(ctx.start.getStartIndex());
+  }
+
   @Override
   public ConstantColumn visitTime_unit(VerdictSQLParser.Time_unitContext ctx) {
     return ConstantColumn.valueOf(ctx.getText());
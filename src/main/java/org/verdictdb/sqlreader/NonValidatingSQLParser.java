@@ -16,14 +16,23 @@
 
 package org.verdictdb.sqlreader;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.apache.commons.lang3.tuple.Pair;
 import org.verdictdb.core.sqlobject.AbstractRelation;
 import org.verdictdb.core.sqlobject.CreateScrambleQuery;
 import org.verdictdb.parser.VerdictSQLLexer;
 import org.verdictdb.parser.VerdictSQLParser;
+import org.verdictdb.parser.VerdictSQLParser.Verdict_statementContext;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -34,10 +43,20 @@ import java.util.List;
  *
  * <p>method_name := 'uniform' | 'fastconverge' percent := NOT SUPPORTED YET
  *
+ * <p>Statements are parsed in two stages: first with the faster SLL prediction mode, and then with
+ * the full LL prediction mode only if the first stage fails. The parse trees of the statements are
+ * kept in an LRU cache keyed by their normalized text, so a statement is parsed only once while it
+ * stays in the cache (e.g., when its type is identified and then it is converted to a relation).
+ *
  * @author Yongjoo Park
  */
 public class NonValidatingSQLParser {
 
+  public static final int PARSE_TREE_CACHE_SIZE = 1000;
+
+  private static final Cache<String, Verdict_statementContext> parseTreeCache =
+      CacheBuilder.newBuilder().maximumSize(PARSE_TREE_CACHE_SIZE).build();
+
   //  MetaData meta;
 
   public NonValidatingSQLParser() {}
@@ -56,16 +75,149 @@ public class NonValidatingSQLParser {
     return p;
   }
 
+  /**
+   * Parses a statement with the rule for all the statements supported by VerdictDB. The parse tree
+   * is retrieved from the cache if the same statement (ignoring the difference in whitespace) has
+   * been parsed recently. The returned tree must not be modified.
+   *
+   * @param sql A statement
+   * @return The parse tree
+   */
+  public static Verdict_statementContext parseVerdictStatement(String sql) {
+    String key = normalize(sql);
+    Verdict_statementContext tree = parseTreeCache.getIfPresent(key);
+    if (tree == null) {
+      tree =
+          parse(
+              sql,
+              new ParseRule<Verdict_statementContext>() {
+                @Override
+                public Verdict_statementContext apply(VerdictSQLParser parser) {
+                  return parser.verdict_statement();
+                }
+              });
+      parseTreeCache.put(key, tree);
+    }
+    return tree;
+  }
+
+  /**
+   * Parses a text with a rule, first with the SLL prediction mode; if it fails, the text is parsed
+   * again with the LL prediction mode, which reports syntax errors as usual.
+   *
+   * @param text The text to parse
+   * @param rule The rule to apply
+   * @return The parse tree
+   */
+  public static <T> T parse(String text, ParseRule<T> rule) {
+    VerdictDBErrorListener verdictDBErrorListener = new VerdictDBErrorListener();
+    VerdictSQLLexer l = new VerdictSQLLexer(new ANTLRInputStream(text));
+    l.removeErrorListeners();
+    l.addErrorListener(verdictDBErrorListener);
+    CommonTokenStream tokens = new CommonTokenStream(l);
+
+    VerdictSQLParser p = new VerdictSQLParser(tokens);
+    p.removeErrorListeners();
+    p.setErrorHandler(new BailErrorStrategy());
+    p.getInterpreter().setPredictionMode(PredictionMode.SLL);
+    try {
+      return rule.apply(p);
+    } catch (ParseCancellationException e) {
+      // the tokens are reused
+      tokens.seek(0);
+      p.reset();
+      p.addErrorListener(verdictDBErrorListener);
+      p.setErrorHandler(new DefaultErrorStrategy());
+      p.getInterpreter().setPredictionMode(PredictionMode.LL);
+      return rule.apply(p);
+    }
+  }
+
+  /** A parser rule to apply (e.g., VerdictSQLParser.select_statement()). */
+  public interface ParseRule<T> {
+    T apply(VerdictSQLParser parser);
+  }
+
+  /**
+   * Collapses the whitespace outside quotes. A run of whitespace including a line break becomes a
+   * line break since it ends a line comment; other runs become a single space. A backslash in a
+   * string literal escapes the next char (e.g., \' in MySQL), so the escaped quote does not end
+   * the literal.
+   */
+  public static String normalize(String sql) {
+    StringBuilder normalized = new StringBuilder(sql.length());
+    char openQuote = 0; // the quote char of the currently open quote; 0 if none
+    char pendingSpace = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (openQuote == 0 && Character.isWhitespace(c)) {
+        if (c == '\n' || c == '\r') {
+          pendingSpace = '\n';
+        } else if (pendingSpace == 0) {
+          pendingSpace = ' ';
+        }
+        continue;
+      }
+      if (pendingSpace != 0 && normalized.length() > 0) {
+        normalized.append(pendingSpace);
+      }
+      pendingSpace = 0;
+      normalized.append(c);
+      if (openQuote != 0) {
+        if (c == '\\' && openQuote == '\'' && i + 1 < sql.length()) {
+          normalized.append(sql.charAt(++i));
+        } else if (c == openQuote) {
+          openQuote = 0;
+        }
+      } else if (c == '\'' || c == '"' || c == '`') {
+        openQuote = c;
+      }
+    }
+    return normalized.toString();
+  }
+
+  /**
+   * Finds the parameter placeholders ('?') in a statement; the question marks in string literals
+   * and quoted identifiers are not placeholders.
+   *
+   * @param sql A statement
+   * @return The positions of the placeholders in order
+   */
+  public static List<Integer> findParameterPositions(String sql) {
+    VerdictSQLLexer l = new VerdictSQLLexer(new ANTLRInputStream(sql));
+    l.removeErrorListeners();
+    List<Integer> positions = new ArrayList<>();
+    for (Token token : l.getAllTokens()) {
+      if (token.getType() == VerdictSQLLexer.QUESTION) {
+        positions.add(token.getStartIndex());
+      }
+    }
+    return positions;
+  }
+
+  /** Removes all the parse trees in the cache. */
+  public static void clearParseTreeCache() {
+    parseTreeCache.invalidateAll();
+  }
+
   public AbstractRelation toRelation(String sql) {
-    VerdictSQLParser p = parserOf(sql);
+    VerdictSQLParser.Select_statementContext tree = parseVerdictStatement(sql).select_statement();
+    if (tree == null) {
+      // not a select statement; the parser reports the error.
+      tree = parserOf(sql).select_statement();
+    }
     RelationGen g = new RelationGen();
-    return g.visit(p.select_statement());
+    return g.visit(tree);
   }
 
   public CreateScrambleQuery toCreateScrambleQuery(String sql) {
-    VerdictSQLParser p = parserOf(sql);
+    VerdictSQLParser.Create_scramble_statementContext tree =
+        parseVerdictStatement(sql).create_scramble_statement();
+    if (tree == null) {
+      tree = parserOf(sql).create_scramble_statement();
+    }
     ScramblingQueryGenerator generator = new ScramblingQueryGenerator();
-    CreateScrambleQuery query = generator.visit(p.create_scramble_statement());
+    CreateScrambleQuery query = generator.visit(tree);
     return query;
   }
 
@@ -28,9 +28,9 @@ public class RelationStandardizer {
 
   private MetaDataProvider meta;
 
-  private static long itemID = 1;
-
-  private static long duplicateIdentifer = 1;
+  // the numbers in the generated aliases; shared with the standardizers of the subqueries, but
+  // not with the standardizers of other queries.
+  private final AliasCounters counters;
 
   private static String verdictTableAliasPrefix = "vt";
 
@@ -61,7 +61,12 @@ public class RelationStandardizer {
   private HashMap<String, String> oldTableAliasMap = new HashMap<>();
 
   public RelationStandardizer(MetaDataProvider meta) {
+    this(meta, new AliasCounters());
+  }
+
+  private RelationStandardizer(MetaDataProvider meta, AliasCounters counters) {
     this.meta = meta;
+    this.counters = counters;
   }
 
   private BaseColumn replaceBaseColumn(BaseColumn col) {
@@ -117,10 +122,11 @@ public class RelationStandardizer {
             duplicateColNameAndColAlias.put(
                 new ImmutablePair<>(
                     ((BaseColumn) sel).getTableSourceAlias(), ((BaseColumn) sel).getColumnName()),
-                ((BaseColumn) sel).getColumnName() + duplicateIdentifer);
+                ((BaseColumn) sel).getColumnName() + counters.duplicateIdentifer);
             newSelectItemList.add(
                 new AliasedColumn(
-                    (BaseColumn) sel, ((BaseColumn) sel).getColumnName() + duplicateIdentifer++));
+                    (BaseColumn) sel,
+                    ((BaseColumn) sel).getColumnName() + counters.duplicateIdentifer++));
           }
         } else if (sel instanceof ColumnOp) {
           // First replace the possible base column inside the columnop using the same way we did on
@@ -128,20 +134,20 @@ public class RelationStandardizer {
           sel = replaceFilter((ColumnOp) sel);
 
           if (((ColumnOp) sel).getOpType().equals("count")) {
-            columnOpAliasMap.put((ColumnOp) sel, "c" + itemID);
-            newSelectItemList.add(new AliasedColumn((ColumnOp) sel, "c" + itemID++));
+            columnOpAliasMap.put((ColumnOp) sel, "c" + counters.itemID);
+            newSelectItemList.add(new AliasedColumn((ColumnOp) sel, "c" + counters.itemID++));
           } else if (((ColumnOp) sel).getOpType().equals("sum")) {
-            columnOpAliasMap.put((ColumnOp) sel, "s" + itemID);
-            newSelectItemList.add(new AliasedColumn((ColumnOp) sel, "s" + itemID++));
+            columnOpAliasMap.put((ColumnOp) sel, "s" + counters.itemID);
+            newSelectItemList.add(new AliasedColumn((ColumnOp) sel, "s" + counters.itemID++));
           } else if (((ColumnOp) sel).getOpType().equals("avg")) {
-            columnOpAliasMap.put((ColumnOp) sel, "a" + itemID);
-            newSelectItemList.add(new AliasedColumn((ColumnOp) sel, "a" + itemID++));
+            columnOpAliasMap.put((ColumnOp) sel, "a" + counters.itemID);
+            newSelectItemList.add(new AliasedColumn((ColumnOp) sel, "a" + counters.itemID++));
           } else if (((ColumnOp) sel).getOpType().equals("countdistinct")) {
-            columnOpAliasMap.put((ColumnOp) sel, "cd" + itemID);
-            newSelectItemList.add(new AliasedColumn((ColumnOp) sel, "cd" + itemID++));
+            columnOpAliasMap.put((ColumnOp) sel, "cd" + counters.itemID);
+            newSelectItemList.add(new AliasedColumn((ColumnOp) sel, "cd" + counters.itemID++));
           } else {
-            columnOpAliasMap.put((ColumnOp) sel, "vc" + itemID);
-            newSelectItemList.add(new AliasedColumn((ColumnOp) sel, "vc" + itemID++));
+            columnOpAliasMap.put((ColumnOp) sel, "vc" + counters.itemID);
+            newSelectItemList.add(new AliasedColumn((ColumnOp) sel, "vc" + counters.itemID++));
           }
         }
       } else {
@@ -178,7 +184,7 @@ public class RelationStandardizer {
           searchList.add(col);
         }
       } else if (cond instanceof SubqueryColumn) {
-        RelationStandardizer g = new RelationStandardizer(meta);
+        RelationStandardizer g = new RelationStandardizer(meta, counters);
         g.oldTableAliasMap.putAll(oldTableAliasMap);
         g.setColNameAndColAlias(colNameAndColAlias);
         g.setColumnOpAliasMap(columnOpAliasMap);
@@ -226,6 +232,8 @@ public class RelationStandardizer {
         if (columnOpAliasMap.containsKey(replaced)) {
           newGroupby.add(new AliasReference(columnOpAliasMap.get(replaced)));
         } else newGroupby.add(replaced);
+      } else if (g instanceof ParameterPlaceholder) {
+        newGroupby.add(g);
       } else if (g instanceof ConstantColumn) {
         // replace index with column alias
         String value = (String) ((ConstantColumn) g).getValue();
@@ -274,9 +282,9 @@ public class RelationStandardizer {
         String alias = table.getAliasName().get();
         alias = alias.replace("`", "");
         alias = alias.replace("\"", "");
-        oldTableAliasMap.put(alias, verdictTableAliasPrefix + itemID);
+        oldTableAliasMap.put(alias, verdictTableAliasPrefix + counters.itemID);
       }
-      table.setAliasName(verdictTableAliasPrefix + itemID++);
+      table.setAliasName(verdictTableAliasPrefix + counters.itemID++);
     }
     // if (!table.getAliasName().isPresent() && !(table instanceof JoinTable)) {
     //  table.setAliasName(verdictTableAliasPrefix + itemID++);
@@ -313,7 +321,7 @@ public class RelationStandardizer {
       return new ImmutablePair<>(joinColName, table);
     } else if (table instanceof SelectQuery) {
       List<String> colName = new ArrayList<>();
-      RelationStandardizer g = new RelationStandardizer(meta);
+      RelationStandardizer g = new RelationStandardizer(meta, counters);
       g.oldTableAliasMap.putAll(oldTableAliasMap);
       g.setTableInfoAndAlias(tableInfoAndAlias);
       g.setColNameAndTableAlias(colNameAndTableAlias);
@@ -462,7 +470,19 @@ public class RelationStandardizer {
     return columnOpAliasMap;
   }
 
-  public static void resetItemID() {
-    itemID = 1;
+  /**
+   * The alias numbers are no longer shared by the queries; each standardizer starts from 1, so
+   * queries can be standardized concurrently.
+   *
+   * @deprecated Not needed; kept for compatibility.
+   */
+  @Deprecated
+  public static void resetItemID() {}
+
+  private static class AliasCounters {
+
+    long itemID = 1;
+
+    long duplicateIdentifer = 1;
   }
 }
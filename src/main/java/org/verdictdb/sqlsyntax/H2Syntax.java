@@ -58,6 +58,14 @@ public class H2Syntax extends SqlSyntax {
     return "rand()";
   }
 
+  @Override
+  public String hashFunction(String column) {
+    // ora_hash() of an integer is the integer itself; the multiplicative (Fibonacci) hashing spreads
+    // consecutive keys over [0, 1).
+    String hash = String.format("ora_hash(%s) * 0.6180339887498949", column);
+    return String.format("(%s - floor(%s))", hash, hash);
+  }
+
   @Override
   public String getSchemaCommand() {
     return "show schemas";
@@ -73,6 +81,20 @@ public class H2Syntax extends SqlSyntax {
     return "show columns from " + quoteName(table) + " from " + quoteName(schema);
   }
 
+  /** The columns and the types are formatted in the same way as "show columns". */
+  @Override
+  public String getAllColumnsCommand(String schema) {
+    return "select column_name, type_name || '(' || numeric_precision || ')', table_name "
+        + "from information_schema.columns where table_schema = "
+        + quoteLiteral(schema)
+        + " order by table_name, ordinal_position";
+  }
+
+  @Override
+  public int getAllColumnsTableNameColumnIndex() {
+    return 2;
+  }
+
   /** H2 does not support partitioning. */
   @Override
   public String getPartitionCommand(String schema, String table) {
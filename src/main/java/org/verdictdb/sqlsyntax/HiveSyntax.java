@@ -63,6 +63,17 @@ public class HiveSyntax extends SqlSyntax {
     return "`";
   }
 
+  /** Two adjacent literals are concatenated; thus, a quote is escaped by a backslash. */
+  @Override
+  public String quoteLiteral(String value) {
+    return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+  }
+
+  @Override
+  public boolean doesEscapeWithBackslash() {
+    return true;
+  }
+
   @Override
   public String getSchemaCommand() {
     return "SHOW DATABASES";
@@ -88,6 +99,15 @@ public class HiveSyntax extends SqlSyntax {
     return "rand()";
   }
 
+  @Override
+  public String hashFunction(String column) {
+    // hash() depends on the argument type (an int and a bigint of the same value differ), so the
+    // key is hashed as a string; the multiplicative (Fibonacci) hashing spreads the hash values
+    // over [0, 1).
+    String hash = String.format("hash(cast(%s as string)) * 0.6180339887498949", column);
+    return String.format("(%s - floor(%s))", hash, hash);
+  }
+
   @Override
   public boolean isAsRequiredBeforeSelectInCreateTable() {
     return true;
@@ -73,6 +73,17 @@ public class ImpalaSyntax extends SqlSyntax {
     return "`";
   }
 
+  /** A quote is escaped by a backslash. */
+  @Override
+  public String quoteLiteral(String value) {
+    return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+  }
+
+  @Override
+  public boolean doesEscapeWithBackslash() {
+    return true;
+  }
+
   @Override
   public String getSchemaCommand() {
     return "SHOW DATABASES";
@@ -103,6 +114,13 @@ public class ImpalaSyntax extends SqlSyntax {
     return String.format("rand(unix_timestamp()+%d)", randomNum);
   }
 
+  @Override
+  public String hashFunction(String column) {
+    // fnv_hash() hashes the binary representation, which differs between integer types.
+    return String.format(
+        "(pmod(fnv_hash(cast(%s as string)), 4294967296) / 4294967296.0)", column);
+  }
+
   @Override
   public boolean isAsRequiredBeforeSelectInCreateTable() {
     return true;
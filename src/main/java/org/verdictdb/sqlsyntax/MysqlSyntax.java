@@ -18,6 +18,9 @@ package org.verdictdb.sqlsyntax;
 
 public class MysqlSyntax extends SqlSyntax {
 
+  // https://dev.mysql.com/doc/refman/5.7/en/partitioning-limitations.html
+  public static final int MAX_PARTITION_COUNT = 8192;
+
   @Override
   public boolean doesSupportTablePartitioning() {
     return true;
@@ -41,6 +44,20 @@ public class MysqlSyntax extends SqlSyntax {
     return "show columns in " + quoteName(table) + " in " + quoteName(schema);
   }
 
+  /** The columns and the types are formatted in the same way as "show columns". */
+  @Override
+  public String getAllColumnsCommand(String schema) {
+    return "select column_name, column_type, table_name "
+        + "from information_schema.columns where table_schema = "
+        + quoteLiteral(schema)
+        + " order by table_name, ordinal_position";
+  }
+
+  @Override
+  public int getAllColumnsTableNameColumnIndex() {
+    return 2;
+  }
+
   @Override
   public int getColumnTypeColumnIndex() {
     return 1;
@@ -67,6 +84,17 @@ public class MysqlSyntax extends SqlSyntax {
     return "`";
   }
 
+  /** A backslash is an escape character unless the NO_BACKSLASH_ESCAPES mode is set. */
+  @Override
+  public String quoteLiteral(String value) {
+    return "'" + value.replace("\\", "\\\\").replace("'", "''") + "'";
+  }
+
+  @Override
+  public boolean doesEscapeWithBackslash() {
+    return true;
+  }
+
   @Override
   public String getSchemaCommand() {
     return "show schemas";
@@ -92,6 +120,11 @@ public class MysqlSyntax extends SqlSyntax {
     return "rand()";
   }
 
+  @Override
+  public String hashFunction(String column) {
+    return String.format("(crc32(%s) / 4294967296)", column);
+  }
+
   @Override
   public boolean isAsRequiredBeforeSelectInCreateTable() {
     return false;
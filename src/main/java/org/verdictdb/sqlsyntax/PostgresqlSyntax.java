@@ -54,6 +54,15 @@ public class PostgresqlSyntax extends SqlSyntax {
     return "\"";
   }
 
+  /**
+   * An escape string literal is used, in which backslashes are escape characters regardless of the
+   * standard_conforming_strings setting.
+   */
+  @Override
+  public String quoteLiteral(String value) {
+    return "E'" + value.replace("\\", "\\\\").replace("'", "''") + "'";
+  }
+
   @Override
   public void dropTable(String schema, String tablename) {}
 
@@ -67,6 +76,11 @@ public class PostgresqlSyntax extends SqlSyntax {
     return "random()";
   }
 
+  @Override
+  public String hashFunction(String column) {
+    return String.format("((hashtext(cast(%s as text)) + 2147483648) / 4294967296.0)", column);
+  }
+
   @Override
   public String getSchemaCommand() {
     return "select schema_name from information_schema.schemata";
@@ -90,6 +104,19 @@ public class PostgresqlSyntax extends SqlSyntax {
         + "'";
   }
 
+  @Override
+  public String getAllColumnsCommand(String schema) {
+    return "select column_name, data_type, character_maximum_length, table_name "
+        + "from INFORMATION_SCHEMA.COLUMNS where table_schema = "
+        + quoteLiteral(schema)
+        + " order by table_name, ordinal_position";
+  }
+
+  @Override
+  public int getAllColumnsTableNameColumnIndex() {
+    return 3;
+  }
+
   @Override
   public String getPartitionCommand(String schema, String table) {
     return "select partattrs from pg_partitioned_table join pg_class on pg_class.relname='"
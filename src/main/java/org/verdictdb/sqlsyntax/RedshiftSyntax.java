@@ -133,6 +133,17 @@ public class RedshiftSyntax extends SqlSyntax {
     return "\"";
   }
 
+  /** A backslash is an escape character in the string literals of Redshift. */
+  @Override
+  public String quoteLiteral(String value) {
+    return "'" + value.replace("\\", "\\\\").replace("'", "''") + "'";
+  }
+
+  @Override
+  public boolean doesEscapeWithBackslash() {
+    return true;
+  }
+
   @Override
   public String getSchemaCommand() {
     return "select schema_name from information_schema.schemata";
@@ -165,4 +176,10 @@ public class RedshiftSyntax extends SqlSyntax {
   public String randFunction() {
     return "random()";
   }
+
+  @Override
+  public String hashFunction(String column) {
+    return String.format(
+        "(strtol(substring(md5(cast(%s as varchar)), 1, 8), 16) / 4294967296.0)", column);
+  }
 }
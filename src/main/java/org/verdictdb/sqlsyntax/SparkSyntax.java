@@ -23,6 +23,12 @@ public class SparkSyntax extends SqlSyntax {
     return true;
   }
 
+  /** The temporary views are created as the global temporary views. */
+  @Override
+  public boolean doesSupportTemporaryViews() {
+    return true;
+  }
+
   @Override
   public void dropTable(String schema, String tablename) {}
 
@@ -63,6 +69,17 @@ public class SparkSyntax extends SqlSyntax {
     return "`";
   }
 
+  /** Two adjacent literals are concatenated; thus, a quote is escaped by a backslash. */
+  @Override
+  public String quoteLiteral(String value) {
+    return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+  }
+
+  @Override
+  public boolean doesEscapeWithBackslash() {
+    return true;
+  }
+
   @Override
   public String getSchemaCommand() {
     return "SHOW DATABASES";
@@ -88,6 +105,14 @@ public class SparkSyntax extends SqlSyntax {
     return "rand()";
   }
 
+  @Override
+  public String hashFunction(String column) {
+    // hash() depends on the argument type (an int and a bigint of the same value differ), so the
+    // key is hashed as a string to make the join keys of both sides agree.
+    return String.format(
+        "(pmod(hash(cast(%s as string)), 2147483647) / 2147483647.0)", column);
+  }
+
   @Override
   public boolean isAsRequiredBeforeSelectInCreateTable() {
     return true;
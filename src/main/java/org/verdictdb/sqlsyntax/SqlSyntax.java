@@ -23,6 +23,14 @@ public abstract class SqlSyntax {
 
   public abstract boolean doesSupportTablePartitioning();
 
+  /**
+   * If true, the results of create-table-as-select can be kept as (cached) temporary views instead
+   * of tables; see CreateTableAsSelectQuery.setTemporaryView().
+   */
+  public boolean doesSupportTemporaryViews() {
+    return false;
+  }
+
   public abstract void dropTable(String schema, String tablename);
 
   // The column index that stored meta information in the original database
@@ -33,6 +41,39 @@ public abstract class SqlSyntax {
   // The column index that stored meta information in the original database
   public abstract int getColumnTypeColumnIndex();
 
+  /**
+   * Returns a query that retrieves the columns of all the tables in a schema at once. The query
+   * returns the same columns as getColumnsCommand() does, plus the table name.
+   *
+   * @param schema The schema
+   * @return The query; null if not supported.
+   */
+  public String getAllColumnsCommand(String schema) {
+    return null;
+  }
+
+  // The column index of the table name in the result of getAllColumnsCommand(); -1 if the
+  // command is not supported, in which case the columns are retrieved table by table.
+  public int getAllColumnsTableNameColumnIndex() {
+    return -1;
+  }
+
+  /**
+   * Writes a value as a string literal; by default, the quotes in the value are doubled. The
+   * databases that treat backslashes as escape characters must escape the backslashes as well, so
+   * that the value cannot end the literal.
+   *
+   * @return A string literal of the given value
+   */
+  public String quoteLiteral(String value) {
+    return "'" + value.replace("'", "''") + "'";
+  }
+
+  /** @return True if a backslash in a string literal escapes the next character */
+  public boolean doesEscapeWithBackslash() {
+    return false;
+  }
+
   public abstract String getPartitionByInCreateTable();
 
   public abstract String getPartitionCommand(String schema, String table);
@@ -50,6 +91,14 @@ public abstract class SqlSyntax {
 
   public abstract String randFunction();
 
+  /**
+   * @param column The expression to hash
+   * @return An expression whose value is determined by the hash of the column and is uniformly
+   *     distributed in [0, 1). Equal values must hash to the same value even if their types
+   *     differ (e.g., int and bigint join keys).
+   */
+  public abstract String hashFunction(String column);
+
   public abstract boolean isAsRequiredBeforeSelectInCreateTable();
 
   public String getStddevPopulationFunctionName() {
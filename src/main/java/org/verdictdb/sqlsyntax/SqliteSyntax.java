@@ -66,8 +66,7 @@ public class SqliteSyntax extends SqlSyntax {
 
   @Override
   public String getQuoteString() {
-    // TODO Auto-generated method stub
-    return null;
+    return "\"";
   }
 
   @Override
@@ -100,10 +99,15 @@ public class SqliteSyntax extends SqlSyntax {
     return null;
   }
 
+  @Override
+  public String hashFunction(String column) {
+    throw new UnsupportedOperationException(
+        "Hash scrambling is not supported by SQLite, which has no built-in hash function.");
+  }
+
   @Override
   public boolean isAsRequiredBeforeSelectInCreateTable() {
-    // TODO Auto-generated method stub
-    return false;
+    return true;
   }
 
   @Override
@@ -21,6 +21,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.verdictdb.core.sqlobject.*;
 import org.verdictdb.exception.VerdictDBException;
 import org.verdictdb.exception.VerdictDBTypeException;
+import org.verdictdb.exception.VerdictDBValueException;
 import org.verdictdb.sqlsyntax.*;
 
 import java.util.ArrayList;
@@ -46,7 +47,13 @@ public class CreateTableToSql {
         sql = createPostgresqlPartitionTableToSql((CreateScrambledTableQuery) query);
       } else if (syntax instanceof ImpalaSyntax) {
         sql = createImpalaPartitionTableToSql((CreateScrambledTableQuery) query);
+      } else if (syntax instanceof MysqlSyntax) {
+        sql = createMysqlPartitionTableToSql((CreateScrambledTableQuery) query);
+      } else if (syntax instanceof H2Syntax || syntax instanceof SqliteSyntax) {
+        sql = createIndexedTableToSql((CreateScrambledTableQuery) query);
       } else {
+        // Redshift falls into this case; the block column becomes the (leading) sort key of the
+        // scrambled table, which lets the zone maps skip the blocks outside of a block range.
         sql =
             createAsSelectQueryToSql(
                 new CreateTableAsSelectQuery((CreateScrambledTableQuery) query));
@@ -186,7 +193,123 @@ public class CreateTableToSql {
     return sql.toString();
   }
 
+  private String createMysqlPartitionTableToSql(CreateScrambledTableQuery query)
+      throws VerdictDBException {
+
+    // 1. This method should only get called when the target DB is MySQL.
+    // 2. 'partition by key' hashes the block column into a single partition by default, which
+    // does not allow partition pruning. Instead, we use 'partition by list' with one partition per
+    // block. If there are more blocks than MySQL allows partitions, consecutive blocks are grouped
+    // into the same partition using 'partition by range'.
+    if (!(syntax instanceof MysqlSyntax)) {
+      throw new VerdictDBException("Target database must be MySQL.");
+    } else if (query.getPartitionColumns().size() != 1) {
+      throw new VerdictDBException(
+          "Scrambled tables must have a single partition column in MySQL.");
+    }
+
+    StringBuilder sql = new StringBuilder();
+
+    int blockCount = Math.max(query.getBlockCount(), 1);
+    String schemaName = query.getSchemaName();
+    String tableName = query.getTableName();
+    SelectQuery select = query.getSelect();
+    String partitionColumn = query.getPartitionColumns().get(0);
+
+    // table
+    sql.append("create table ");
+    if (query.isIfNotExists()) {
+      sql.append("if not exists ");
+    }
+    sql.append(quoteName(schemaName));
+    sql.append(".");
+    sql.append(quoteName(tableName));
+
+    // partitions
+    List<String> partitions = new ArrayList<>();
+    if (blockCount <= MysqlSyntax.MAX_PARTITION_COUNT) {
+      sql.append(" partition by list (");
+      sql.append(quoteName(partitionColumn));
+      sql.append(") (");
+      for (int blockNum = 0; blockNum < blockCount; ++blockNum) {
+        partitions.add(String.format("partition p%d values in (%d)", blockNum, blockNum));
+      }
+    } else {
+      int blocksPerPartition =
+          (int) Math.ceil(blockCount / (double) MysqlSyntax.MAX_PARTITION_COUNT);
+      int partitionCount = (int) Math.ceil(blockCount / (double) blocksPerPartition);
+      sql.append(" partition by range (");
+      sql.append(quoteName(partitionColumn));
+      sql.append(") (");
+      for (int partNum = 0; partNum < partitionCount - 1; ++partNum) {
+        partitions.add(
+            String.format(
+                "partition p%d values less than (%d)", partNum, (partNum + 1) * blocksPerPartition));
+      }
+      partitions.add(String.format("partition p%d values less than maxvalue", partitionCount - 1));
+    }
+    sql.append(Joiner.on(", ").join(partitions));
+    sql.append(")");
+
+    // select
+    sql.append(" ");
+    SelectQueryToSql selectWriter = new SelectQueryToSql(syntax);
+    String selectSql = selectWriter.toSql(select);
+    sql.append(selectSql);
+
+    return sql.toString();
+  }
+
+  /**
+   * Creates a scrambled table and an index on its block column for the databases that do not
+   * support table partitioning (i.e., H2 and SQLite). With the index, a block query reads only the
+   * rows of the blocks it asks for instead of scanning the entire scrambled table.
+   */
+  private String createIndexedTableToSql(CreateScrambledTableQuery query)
+      throws VerdictDBException {
+    if (!(syntax instanceof H2Syntax || syntax instanceof SqliteSyntax)) {
+      throw new VerdictDBException("Target database must be H2 or SQLite.");
+    }
+
+    StringBuilder sql = new StringBuilder();
+
+    String schemaName = query.getSchemaName();
+    String tableName = query.getTableName();
+    String blockColumn = query.getBlockColumnName();
+
+    // create a table as a select
+    sql.append(createAsSelectQueryToSql(new CreateTableAsSelectQuery(query)));
+    sql.append("; ");
+
+    // create an index on the block column
+    String indexName = tableName + "_" + blockColumn + "_idx";
+    sql.append("create index ");
+    if (query.isIfNotExists()) {
+      sql.append("if not exists ");
+    }
+    sql.append(quoteName(schemaName));
+    sql.append(".");
+    sql.append(quoteName(indexName));
+    sql.append(" on ");
+    // SQLite does not allow a schema name for the indexed table; the table is looked up in the
+    // schema of the index.
+    if (syntax instanceof H2Syntax) {
+      sql.append(quoteName(schemaName));
+      sql.append(".");
+    }
+    sql.append(quoteName(tableName));
+    sql.append(" (");
+    sql.append(quoteName(blockColumn));
+    sql.append(")");
+
+    return sql.toString();
+  }
+
   String createAsSelectQueryToSql(CreateTableAsSelectQuery query) throws VerdictDBException {
+    if (query.isTemporaryView()) {
+      return createTemporaryViewToSql(query);
+    }
+
     StringBuilder sql = new StringBuilder();
 
     String schemaName = query.getSchemaName();
@@ -235,6 +358,35 @@ public class CreateTableToSql {
     return sql.toString();
   }
 
+  /**
+   * Creates a global temporary view of Spark and caches it; the name of a global temporary view
+   * cannot be qualified when it is created, but it must be qualified by the database of the global
+   * temporary views (i.e., the schema of the query) when it is referred to.
+   */
+  private String createTemporaryViewToSql(CreateTableAsSelectQuery query)
+      throws VerdictDBException {
+    if (!syntax.doesSupportTemporaryViews()) {
+      throw new VerdictDBValueException(
+          "Temporary views are not supported by " + syntax.getClass().getSimpleName() + ".");
+    }
+
+    StringBuilder sql = new StringBuilder();
+    sql.append("create global temporary view ");
+    sql.append(quoteName(query.getTableName()));
+    sql.append(" as ");
+    SelectQueryToSql selectWriter = new SelectQueryToSql(syntax);
+    sql.append(selectWriter.toSql(query.getSelect()));
+    sql.append("; ");
+
+    // caching a table is eager; the view is materialized now, as create-table-as-select would do,
+    // so that its readers do not compute it concurrently.
+    sql.append("cache table ");
+    sql.append(quoteName(query.getSchemaName()));
+    sql.append(".");
+    sql.append(quoteName(query.getTableName()));
+    return sql.toString();
+  }
+
   String createTableToSql(CreateTableDefinitionQuery query) {
     StringBuilder sql = new StringBuilder();
 
@@ -18,6 +18,7 @@ package org.verdictdb.sqlwriter;
 
 import org.verdictdb.core.sqlobject.DropTableQuery;
 import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.exception.VerdictDBValueException;
 import org.verdictdb.sqlsyntax.SqlSyntax;
 
 public class DropTableToSql {
@@ -35,7 +36,16 @@ public class DropTableToSql {
     String tableName = query.getTableName();
 
     // table
-    sql.append("drop table ");
+    if (query.isTemporaryView()) {
+      if (!syntax.doesSupportTemporaryViews()) {
+        throw new VerdictDBValueException(
+            "Temporary views are not supported by " + syntax.getClass().getSimpleName() + ".");
+      }
+      // a cached view is uncached when it is dropped.
+      sql.append("drop view if exists ");
+    } else {
+      sql.append("drop table ");
+    }
     sql.append(quoteName(schemaName));
     sql.append(".");
     sql.append(quoteName(tableName));
@@ -36,6 +36,8 @@ public class QueryToSql {
     } else if (query instanceof CreateSchemaQuery) {
       CreateSchemaToSql tosql = new CreateSchemaToSql(syntax);
       return tosql.toSql((CreateSchemaQuery) query);
+    } else if (query instanceof TemplatedQuery) {
+      return ((TemplatedQuery) query).toSql(syntax);
     } else if (query instanceof CreateTableQuery) {
       CreateTableToSql tosql = new CreateTableToSql(syntax);
       return tosql.toSql((CreateTableQuery) query);
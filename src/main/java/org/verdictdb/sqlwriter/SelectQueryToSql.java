@@ -44,6 +44,7 @@ public class SelectQueryToSql {
           "is_not_null",
           "is_null",
           "rand",
+          "hash",
           "floor");
 
   public SelectQueryToSql(SqlSyntax syntax) {
@@ -287,6 +288,8 @@ public class SelectQueryToSql {
         }
       } else if (columnOp.getOpType().equals("rand")) {
         return syntax.randFunction();
+      } else if (columnOp.getOpType().equals("hash")) {
+        return syntax.hashFunction(unnamedColumnToSqlPart(columnOp.getOperand()));
       } else if (columnOp.getOpType().equals("cast")) {
         return "cast("
             + withParentheses(columnOp.getOperand(0))
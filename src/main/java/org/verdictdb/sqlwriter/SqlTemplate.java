@@ -0,0 +1,147 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.sqlwriter;
+
+import org.verdictdb.core.sqlobject.SqlConvertible;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.exception.VerdictDBValueException;
+import org.verdictdb.sqlsyntax.SqlSyntax;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The SQL of a query converted once with markers in place of some of its values (i.e., holes).
+ * The SQL of the queries that differ from it only in those values is produced by filling the
+ * holes, without converting them again.
+ *
+ * <p>The holes can be the values that are written as they are, e.g., the constants and the schema
+ * and table names (which are only enclosed by quotes).
+ */
+public class SqlTemplate implements Serializable {
+
+  private static final long serialVersionUID = 2716457003467146592L;
+
+  private static final String MARKER_PREFIX = "verdictdbtemplatehole";
+
+  private static final char MARKER_SUFFIX = 'x';
+
+  private final SqlConvertible query;
+
+  private final int holeCount;
+
+  private transient volatile Rendered rendered;
+
+  /**
+   * @param query The query with the markers (see marker()) in place of the values
+   * @param holeCount The number of the holes
+   */
+  public SqlTemplate(SqlConvertible query, int holeCount) {
+    this.query = query;
+    this.holeCount = holeCount;
+  }
+
+  /**
+   * @param index The zero-based index of a hole
+   * @return The marker of the hole, which consists of letters and digits only.
+   */
+  public static String marker(int index) {
+    return MARKER_PREFIX + index + MARKER_SUFFIX;
+  }
+
+  public int getHoleCount() {
+    return holeCount;
+  }
+
+  /**
+   * @param syntax The syntax of the SQL
+   * @param values The values of the holes in order
+   * @return The SQL with the values in place of the markers
+   */
+  public String fill(SqlSyntax syntax, List<String> values) throws VerdictDBException {
+    if (values.size() != holeCount) {
+      throw new VerdictDBValueException(
+          String.format("%d values are given for %d holes.", values.size(), holeCount));
+    }
+    Rendered r = render(syntax);
+    StringBuilder sql = new StringBuilder(r.length);
+    for (int i = 0; i < r.holes.length; i++) {
+      sql.append(r.parts[i]);
+      sql.append(values.get(r.holes[i]));
+    }
+    sql.append(r.parts[r.holes.length]);
+    return sql.toString();
+  }
+
+  private Rendered render(SqlSyntax syntax) throws VerdictDBException {
+    Rendered r = rendered;
+    if (r != null && r.syntax == syntax.getClass()) {
+      return r;
+    }
+    r = new Rendered(syntax.getClass(), QueryToSql.convert(syntax, query));
+    rendered = r;
+    return r;
+  }
+
+  /** The SQL split at the markers. */
+  private class Rendered {
+
+    final Class<?> syntax;
+
+    // the i-th hole is between the i-th and the (i+1)-th parts.
+    final String[] parts;
+
+    final int[] holes;
+
+    final int length;
+
+    Rendered(Class<?> syntax, String sql) {
+      this.syntax = syntax;
+      List<String> partList = new ArrayList<>();
+      List<Integer> holeList = new ArrayList<>();
+      int start = 0;
+      int markerStart = sql.indexOf(MARKER_PREFIX);
+      while (markerStart >= 0) {
+        int indexStart = markerStart + MARKER_PREFIX.length();
+        int indexEnd = indexStart;
+        while (indexEnd < sql.length() && Character.isDigit(sql.charAt(indexEnd))) {
+          indexEnd++;
+        }
+        if (indexEnd > indexStart
+            && indexEnd < sql.length()
+            && sql.charAt(indexEnd) == MARKER_SUFFIX) {
+          int index = Integer.parseInt(sql.substring(indexStart, indexEnd));
+          if (index < holeCount) {
+            partList.add(sql.substring(start, markerStart));
+            holeList.add(index);
+            start = indexEnd + 1;
+          }
+        }
+        markerStart = sql.indexOf(MARKER_PREFIX, indexStart);
+      }
+      partList.add(sql.substring(start));
+
+      parts = partList.toArray(new String[partList.size()]);
+      holes = new int[holeList.size()];
+      for (int i = 0; i < holes.length; i++) {
+        holes[i] = holeList.get(i);
+      }
+      length = sql.length();
+    }
+  }
+}
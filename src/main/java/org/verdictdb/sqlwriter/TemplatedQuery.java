@@ -0,0 +1,58 @@
+/*
+ *    Copyright 2018 University of Michigan
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.verdictdb.sqlwriter;
+
+import org.verdictdb.core.sqlobject.CreateTableAsSelectQuery;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlsyntax.SqlSyntax;
+
+import java.util.List;
+
+/**
+ * A create-table-as-select query whose SQL is produced by filling the holes of a template with its
+ * values. The query itself is kept as well, so the query can be inspected as usual.
+ */
+public class TemplatedQuery extends CreateTableAsSelectQuery {
+
+  private static final long serialVersionUID = -3261795124339427416L;
+
+  private final SqlTemplate template;
+
+  private final List<String> values;
+
+  public TemplatedQuery(
+      CreateTableAsSelectQuery query, SqlTemplate template, List<String> values) {
+    super(query.getSchemaName(), query.getTableName(), query.getSelect());
+    this.partitionColumns.addAll(query.getPartitionColumns());
+    this.overwrite = query.getOverwrite();
+    this.ifNotExists = query.isIfNotExists();
+    this.template = template;
+    this.values = values;
+  }
+
+  public SqlTemplate getTemplate() {
+    return template;
+  }
+
+  public List<String> getValues() {
+    return values;
+  }
+
+  String toSql(SqlSyntax syntax) throws VerdictDBException {
+    return template.fill(syntax, values);
+  }
+}
@@ -0,0 +1,371 @@
+package org.verdictdb.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+import org.verdictdb.connection.CachedMetaDataProvider.MetaDataCache;
+import org.verdictdb.exception.VerdictDBDbmsException;
+
+import com.google.common.base.Ticker;
+
+public class CachedMetaDataProviderTest {
+
+  /** Counts the number of calls to the underlying provider. */
+  static class CountingProvider implements MetaDataProvider {
+
+    Map<String, List<Pair<String, String>>> tables = new HashMap<>();
+
+    boolean supportsAllColumns = true;
+
+    int schemaCalls = 0;
+
+    int tableCalls = 0;
+
+    int columnCalls = 0;
+
+    int allColumnCalls = 0;
+
+    int partitionCalls = 0;
+
+    long allColumnsDelayMillis = 0;
+
+    CountingProvider() {
+      List<Pair<String, String>> columns = new ArrayList<>();
+      columns.add(new ImmutablePair<>("a", "int"));
+      tables.put("t1", columns);
+      tables.put("t2", columns);
+    }
+
+    @Override
+    public List<String> getSchemas() {
+      schemaCalls++;
+      return Arrays.asList("s");
+    }
+
+    @Override
+    public List<String> getTables(String schema) {
+      tableCalls++;
+      return schema.equals("s") ? new ArrayList<>(tables.keySet()) : new ArrayList<String>();
+    }
+
+    @Override
+    public List<Pair<String, String>> getColumns(String schema, String table) {
+      columnCalls++;
+      List<Pair<String, String>> columns = tables.get(table);
+      return columns == null ? new ArrayList<Pair<String, String>>() : columns;
+    }
+
+    @Override
+    public Map<String, List<Pair<String, String>>> getAllColumns(String schema) {
+      if (!supportsAllColumns) {
+        return null;
+      }
+      allColumnCalls++;
+      try {
+        Thread.sleep(allColumnsDelayMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return new HashMap<>(tables);
+    }
+
+    @Override
+    public List<String> getPartitionColumns(String schema, String table) {
+      partitionCalls++;
+      return new ArrayList<>();
+    }
+
+    @Override
+    public String getDefaultSchema() {
+      return "s";
+    }
+
+    @Override
+    public void setDefaultSchema(String schema) {}
+  }
+
+  static class FakeTicker extends Ticker {
+
+    long nanos = 0;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advance(long seconds) {
+      nanos += TimeUnit.SECONDS.toNanos(seconds);
+    }
+  }
+
+  @Test
+  public void testPrefetchColumnsOfSchema() throws VerdictDBDbmsException {
+    CountingProvider provider = new CountingProvider();
+    CachedMetaDataProvider cache = new CachedMetaDataProvider(provider);
+
+    assertEquals(1, cache.getColumns("s", "t1").size());
+    assertEquals(1, cache.getColumns("s", "t2").size());
+    assertEquals(1, cache.getColumns("s", "t1").size());
+    assertEquals(1, provider.allColumnCalls);
+    assertEquals(0, provider.columnCalls);
+
+    // the tables not found in the prefetched schema are retrieved one by one, since they may have
+    // been created after the prefetch; the empty result is then cached briefly.
+    assertTrue(cache.getColumns("s", "t3").isEmpty());
+    assertTrue(cache.getColumns("s", "t3").isEmpty());
+    assertEquals(1, provider.allColumnCalls);
+    assertEquals(1, provider.columnCalls);
+
+    provider.tables.put("t4", provider.tables.get("t1"));
+    assertEquals(1, cache.getColumns("s", "t4").size());
+    assertEquals(1, provider.allColumnCalls);
+    assertEquals(2, provider.columnCalls);
+
+    // the prefetch itself does not look up the table missing from it.
+    CachedMetaDataProvider other = new CachedMetaDataProvider(provider);
+    assertTrue(other.getColumns("s", "t5").isEmpty());
+    assertTrue(other.getColumns("s", "t5").isEmpty());
+    assertEquals(2, provider.allColumnCalls);
+    assertEquals(2, provider.columnCalls);
+  }
+
+  @Test
+  public void testConcurrentLookupsShareSinglePrefetch() throws Exception {
+    final CountingProvider provider = new CountingProvider();
+    provider.allColumnsDelayMillis = 200;
+    final CachedMetaDataProvider cache = new CachedMetaDataProvider(provider);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<List<Pair<String, String>>>> futures = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      final String table = (i % 2 == 0) ? "t1" : "t2";
+      futures.add(
+          executor.submit(
+              new Callable<List<Pair<String, String>>>() {
+                @Override
+                public List<Pair<String, String>> call() throws VerdictDBDbmsException {
+                  return cache.getColumns("s", table);
+                }
+              }));
+    }
+    for (Future<List<Pair<String, String>>> future : futures) {
+      assertEquals(1, future.get().size());
+    }
+    executor.shutdown();
+
+    assertEquals(1, provider.allColumnCalls);
+    assertEquals(0, provider.columnCalls);
+  }
+
+  @Test
+  public void testExpiration() throws VerdictDBDbmsException {
+    CountingProvider provider = new CountingProvider();
+    provider.supportsAllColumns = false;
+    FakeTicker ticker = new FakeTicker();
+    CachedMetaDataProvider cache =
+        new CachedMetaDataProvider(provider, new MetaDataCache(100, 1000, ticker));
+
+    cache.getSchemas();
+    cache.getTables("s");
+    cache.getColumns("s", "t1");
+    assertTrue(cache.getColumns("s", "missing").isEmpty());
+    ticker.advance(50);
+    cache.getSchemas();
+    cache.getTables("s");
+    cache.getColumns("s", "t1");
+    assertTrue(cache.getColumns("s", "missing").isEmpty());
+    assertEquals(1, provider.schemaCalls);
+    assertEquals(1, provider.tableCalls);
+    assertEquals(3, provider.columnCalls);
+
+    // the missing table is found once its empty result expires.
+    provider.tables.put("missing", provider.tables.get("t1"));
+    assertTrue(cache.getColumns("s", "missing").isEmpty());
+    assertEquals(3, provider.columnCalls);
+    ticker.advance(CachedMetaDataProvider.DEFAULT_NEGATIVE_TTL_SECONDS + 1);
+    assertEquals(1, cache.getColumns("s", "missing").size());
+    assertEquals(4, provider.columnCalls);
+
+    ticker.advance(60);
+    cache.getSchemas();
+    cache.getTables("s");
+    cache.getColumns("s", "t1");
+    assertEquals(2, provider.schemaCalls);
+    assertEquals(2, provider.tableCalls);
+    assertEquals(5, provider.columnCalls);
+  }
+
+  @Test
+  public void testEmptyResultsExpireEarlier() throws VerdictDBDbmsException {
+    CountingProvider provider = new CountingProvider();
+    FakeTicker ticker = new FakeTicker();
+    CachedMetaDataProvider cache =
+        new CachedMetaDataProvider(provider, new MetaDataCache(100, 5, 1000, ticker));
+
+    // a schema without tables is looked up again shortly, since a table may be created in it.
+    assertTrue(cache.getTables("empty").isEmpty());
+    assertTrue(cache.getTables("empty").isEmpty());
+    assertEquals(1, provider.tableCalls);
+    ticker.advance(6);
+    assertTrue(cache.getTables("empty").isEmpty());
+    assertEquals(2, provider.tableCalls);
+
+    cache.getTables("s");
+    ticker.advance(50);
+    cache.getTables("s");
+    assertEquals(3, provider.tableCalls);
+
+    cache.invalidateMissing();
+    assertTrue(cache.getTables("empty").isEmpty());
+    cache.getTables("s");
+    assertEquals(4, provider.tableCalls);
+  }
+
+  @Test
+  public void testDdlInvalidatesEmptyResults() throws SQLException, VerdictDBDbmsException {
+    Connection conn = DriverManager.getConnection("jdbc:h2:mem:cachedmetadataproviderddltest");
+    CachedDbmsConnection cached = new CachedDbmsConnection(JdbcConnection.create(conn));
+    cached.execute("CREATE SCHEMA \"ddl\"");
+    assertTrue(cached.getColumns("ddl", "created").isEmpty());
+
+    // queries do not remove the empty result.
+    cached.execute("SELECT 1");
+    assertTrue(cached.hasMissing());
+
+    // a table created through a copy sharing the cache is found immediately.
+    DbmsConnection copied = cached.copy();
+    copied.execute("SELECT 1; CREATE TABLE \"ddl\".\"created\"(id int)");
+    assertEquals(1, cached.getColumns("ddl", "created").size());
+    copied.close();
+    conn.close();
+  }
+
+  @Test
+  public void testEviction() throws VerdictDBDbmsException {
+    CountingProvider provider = new CountingProvider();
+    provider.supportsAllColumns = false;
+    for (int i = 0; i < 100; i++) {
+      provider.tables.put("table" + i, provider.tables.get("t1"));
+    }
+    CachedMetaDataProvider cache =
+        new CachedMetaDataProvider(provider, new MetaDataCache(100, 10, Ticker.systemTicker()));
+
+    for (int i = 0; i < 100; i++) {
+      cache.getColumns("s", "table" + i);
+    }
+    assertEquals(100, provider.columnCalls);
+    cache.getColumns("s", "table99");
+    assertEquals(100, provider.columnCalls);
+    cache.getColumns("s", "table0");
+    assertEquals(101, provider.columnCalls);
+  }
+
+  @Test
+  public void testPartitionColumnsAreCached() throws VerdictDBDbmsException {
+    CountingProvider provider = new CountingProvider();
+    CachedMetaDataProvider cache = new CachedMetaDataProvider(provider);
+    cache.getPartitionColumns("s", "t1");
+    cache.getPartitionColumns("s", "t1");
+    cache.getPartitionColumns("s", "t2");
+    assertEquals(2, provider.partitionCalls);
+  }
+
+  @Test
+  public void testSharedCacheAndInvalidation() throws VerdictDBDbmsException {
+    CountingProvider provider = new CountingProvider();
+    CachedMetaDataProvider cache = new CachedMetaDataProvider(provider);
+    CachedMetaDataProvider sharing = new CachedMetaDataProvider(provider, cache);
+
+    cache.getTables("s");
+    sharing.getTables("s");
+    assertEquals(1, provider.tableCalls);
+
+    sharing.invalidate("s");
+    cache.getTables("s");
+    cache.getColumns("s", "t1");
+    assertEquals(2, provider.tableCalls);
+    assertEquals(1, provider.allColumnCalls);
+
+    cache.invalidateAll();
+    sharing.getColumns("s", "t1");
+    assertEquals(2, provider.allColumnCalls);
+  }
+
+  @Test
+  public void testLookupsOverSeparateConnections() throws SQLException, VerdictDBDbmsException {
+    String url = "jdbc:h2:mem:cachedmetadataproviderlookuptest";
+    Connection conn = DriverManager.getConnection(url);
+    CachedDbmsConnection cached =
+        new CachedDbmsConnection(JdbcConnection.create(conn, url, new Properties()));
+    List<StaticMetaData.TableInfo> tableInfos = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      cached.execute(String.format("CREATE SCHEMA \"lookup%d\"", i));
+      StringBuilder columns = new StringBuilder("id int");
+      for (int j = 0; j < i; j++) {
+        columns.append(", c" + j + " int");
+      }
+      cached.execute(String.format("CREATE TABLE \"lookup%d\".\"t\"(%s)", i, columns));
+      tableInfos.add(new StaticMetaData.TableInfo("lookup" + i, "t"));
+    }
+    tableInfos.add(new StaticMetaData.TableInfo("lookup0", "missing"));
+
+    List<List<Pair<String, String>>> columnsOfTables = cached.getColumns(tableInfos);
+    assertEquals(4, columnsOfTables.size());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(i + 1, columnsOfTables.get(i).size());
+    }
+    assertTrue(columnsOfTables.get(3).isEmpty());
+    assertTrue(cached.lookupConnections.getIdleCount() > 0);
+    assertEquals(columnsOfTables, cached.getColumns(tableInfos));
+
+    // without the connection string, the columns are retrieved over the same connection.
+    CachedDbmsConnection single = new CachedDbmsConnection(JdbcConnection.create(conn));
+    assertNull(single.lookupConnections);
+    assertEquals(columnsOfTables, single.getColumns(tableInfos));
+
+    cached.close();
+    assertEquals(0, cached.lookupConnections.getIdleCount());
+  }
+
+  @Test
+  public void testH2AllColumns() throws SQLException, VerdictDBDbmsException {
+    Connection conn = DriverManager.getConnection("jdbc:h2:mem:cachedmetadataprovidertest");
+    JdbcConnection jdbc = JdbcConnection.create(conn);
+    jdbc.execute("CREATE SCHEMA \"meta\"");
+    jdbc.execute(
+        "CREATE TABLE \"meta\".\"people\"(id smallint, label varchar(255), age int, "
+            + "height float, birth timestamp, price decimal(10,2), code char(3), "
+            + "total bigint, ratio double, flag boolean, day date, note varchar)");
+    jdbc.execute("CREATE TABLE \"meta\".\"empty\"(id int)");
+
+    Map<String, List<Pair<String, String>>> allColumns = jdbc.getAllColumns("meta");
+    assertEquals(2, allColumns.size());
+    assertEquals(jdbc.getColumns("meta", "people"), allColumns.get("people"));
+    assertEquals(jdbc.getColumns("meta", "empty"), allColumns.get("empty"));
+    assertEquals(12, allColumns.get("people").size());
+
+    CachedMetaDataProvider cache = new CachedMetaDataProvider(jdbc);
+    assertEquals(allColumns.get("people"), cache.getColumns("meta", "people"));
+    assertTrue(cache.getColumns("meta", "nonexistent").isEmpty());
+    conn.close();
+  }
+}
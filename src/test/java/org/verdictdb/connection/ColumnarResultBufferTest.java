@@ -0,0 +1,127 @@
+package org.verdictdb.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.verdictdb.exception.VerdictDBException;
+
+public class ColumnarResultBufferTest {
+
+  @Test
+  public void testPrimitiveColumns() {
+    ColumnarResultBuffer buffer =
+        new ColumnarResultBuffer(
+            Arrays.asList(Types.INTEGER, Types.BIGINT, Types.DOUBLE, Types.REAL, Types.VARCHAR));
+    for (int i = 0; i < 100; i++) {
+      buffer.addRow(Arrays.<Object>asList(i, (long) i * 3, i / 2.0, (float) i, "group" + (i % 3)));
+    }
+    buffer.trimToSize();
+
+    assertEquals(100, buffer.getRowCount());
+    assertTrue(buffer.isLongColumn(0));
+    assertTrue(buffer.isLongColumn(1));
+    assertTrue(buffer.isDoubleColumn(2));
+    assertTrue(buffer.isDoubleColumn(3));
+    assertTrue(buffer.isStringColumn(4));
+
+    // the values are restored as the same objects as the ones added
+    assertEquals(Integer.valueOf(7), buffer.getValue(7, 0));
+    assertEquals(Long.valueOf(21), buffer.getValue(7, 1));
+    assertEquals(Double.valueOf(3.5), buffer.getValue(7, 2));
+    assertEquals(Float.valueOf(7), buffer.getValue(7, 3));
+    assertEquals("group1", buffer.getValue(7, 4));
+
+    assertEquals(21, buffer.getLong(7, 1));
+    assertEquals(3.5, buffer.getDouble(7, 2), 0);
+    assertEquals("group2", buffer.getString(98, 4));
+    assertEquals(Arrays.<Object>asList(99, 297L, 49.5, 99f, "group0"), buffer.getRow(99));
+  }
+
+  @Test
+  public void testNulls() {
+    ColumnarResultBuffer buffer =
+        new ColumnarResultBuffer(Arrays.asList(Types.INTEGER, Types.DOUBLE, Types.VARCHAR));
+    for (int i = 0; i < 200; i++) {
+      if (i % 70 == 0) {
+        buffer.addRow(Arrays.<Object>asList(null, null, null));
+      } else {
+        buffer.addRow(Arrays.<Object>asList(i, (double) i, "v"));
+      }
+    }
+    buffer.trimToSize();
+
+    for (int i = 0; i < 200; i++) {
+      for (int j = 0; j < 3; j++) {
+        assertEquals(i % 70 == 0, buffer.isNull(i, j));
+      }
+    }
+    assertNull(buffer.getValue(140, 0));
+    assertEquals(0, buffer.getLong(140, 0));
+    assertEquals(0, buffer.getDouble(140, 1), 0);
+    assertNull(buffer.getString(140, 2));
+    assertEquals(Integer.valueOf(141), buffer.getValue(141, 0));
+  }
+
+  @Test
+  public void testFallbackToObjects() {
+    ColumnarResultBuffer buffer =
+        new ColumnarResultBuffer(Arrays.asList(Types.INTEGER, Types.VARCHAR, Types.DECIMAL));
+    buffer.addRow(Arrays.<Object>asList(1, "a", new BigDecimal("1.5")));
+    buffer.addRow(Arrays.<Object>asList(2L, "b", new BigDecimal("2.5")));
+    assertTrue(buffer.isStringColumn(1));
+
+    // a Long cannot be restored from a column of Integers
+    assertFalse(buffer.isLongColumn(0));
+    assertFalse(buffer.isLongColumn(2));
+    assertEquals(Integer.valueOf(1), buffer.getValue(0, 0));
+    assertEquals(Long.valueOf(2), buffer.getValue(1, 0));
+    assertEquals(new BigDecimal("2.5"), buffer.getValue(1, 2));
+  }
+
+  @Test
+  public void testDistinctStringsAreNotEncoded() {
+    ColumnarResultBuffer buffer = new ColumnarResultBuffer(Arrays.asList(Types.VARCHAR));
+    for (int i = 0; i < 5000; i++) {
+      buffer.addRow(Arrays.<Object>asList("value" + i));
+    }
+    assertFalse(buffer.isStringColumn(0));
+    assertEquals("value4321", buffer.getValue(4321, 0));
+    assertEquals("value1", buffer.getValue(1, 0));
+  }
+
+  @Test
+  public void testJdbcQueryResultGetters() throws SQLException, VerdictDBException {
+    Connection conn = DriverManager.getConnection("jdbc:h2:mem:columnarresultbuffer");
+    JdbcConnection jdbc = JdbcConnection.create(conn);
+    jdbc.execute("CREATE TABLE T(a int, b bigint, c double, d varchar(10))");
+    jdbc.execute("INSERT INTO T VALUES (1, 10000000000, 1.5, 'x'), (null, null, null, null)");
+
+    JdbcQueryResult result = (JdbcQueryResult) jdbc.execute("SELECT * FROM T ORDER BY a");
+    assertTrue(result.next());
+    assertNull(result.getValue(0));
+    assertEquals(0, result.getInt(0));
+    assertEquals(0, result.getLong(1));
+    assertNull(result.getString(3));
+    assertTrue(result.next());
+    assertEquals(1, result.getInt(0));
+    assertEquals(1.0, result.getDouble(0), 0);
+    assertEquals(10000000000L, result.getLong("b"));
+    assertEquals(1.5, result.getDouble("c"), 0);
+    assertEquals("x", result.getString("d"));
+
+    List<List<Object>> rows = result.getResult();
+    assertEquals(Arrays.<Object>asList(1, 10000000000L, 1.5, "x"), rows.get(1));
+    conn.close();
+  }
+}
@@ -0,0 +1,149 @@
+package org.verdictdb.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.verdictdb.exception.VerdictDBDbmsException;
+import org.verdictdb.sqlsyntax.H2Syntax;
+
+public class JdbcConnectionBatchTest {
+
+  /** Counts the statements sent to the database by execute() and executeBatch(). */
+  static class CountingHandler implements InvocationHandler {
+
+    final Object target;
+
+    int[] counts; // {execute, executeBatch}
+
+    CountingHandler(Object target, int[] counts) {
+      this.target = target;
+      this.counts = counts;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (method.getName().equals("execute")) {
+        counts[0]++;
+      } else if (method.getName().equals("executeBatch")) {
+        counts[1]++;
+      }
+      Object result;
+      try {
+        result = method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+      if (result instanceof Statement) {
+        return Proxy.newProxyInstance(
+            Statement.class.getClassLoader(),
+            new Class<?>[] {Statement.class},
+            new CountingHandler(result, counts));
+      }
+      return result;
+    }
+  }
+
+  @Test
+  public void testSplitOnSemicolon() {
+    assertEquals(
+        Arrays.asList("select 1", " select 2"),
+        JdbcConnection.splitOnSemicolon("select 1; select 2;"));
+    assertEquals(
+        Arrays.asList("select 'a;b'", " select \"c;d\""),
+        JdbcConnection.splitOnSemicolon("select 'a;b'; select \"c;d\""));
+
+    // a quote char inside the other kind of quotes does not open a quote
+    assertEquals(
+        Arrays.asList("select \"it's\"", " select 1"),
+        JdbcConnection.splitOnSemicolon("select \"it's\"; select 1"));
+    assertEquals(
+        Arrays.asList("select 'it''s;'", " select 1"),
+        JdbcConnection.splitOnSemicolon("select 'it''s;'; select 1"));
+
+    // empty statements are dropped
+    assertEquals(
+        Arrays.asList("select 1", " select 2"),
+        JdbcConnection.splitOnSemicolon("select 1;; ; select 2; \n"));
+    assertTrue(JdbcConnection.splitOnSemicolon(" ; ").isEmpty());
+
+    // a backslash escapes a quote only if told so
+    assertEquals(
+        Arrays.asList("select 'it\\'s;'", " select '\\\\'", " select 1"),
+        JdbcConnection.splitOnSemicolon("select 'it\\'s;'; select '\\\\'; select 1", true));
+    assertEquals(
+        Arrays.asList("select 'a\\'", " select 1"),
+        JdbcConnection.splitOnSemicolon("select 'a\\'; select 1"));
+  }
+
+  @Test
+  public void testMayReturnResult() {
+    assertFalse(JdbcConnection.mayReturnResult("INSERT INTO t VALUES (1)"));
+    assertFalse(JdbcConnection.mayReturnResult("  create table t (a int)"));
+    assertFalse(JdbcConnection.mayReturnResult("drop table t"));
+    assertTrue(JdbcConnection.mayReturnResult("select * from t"));
+    assertTrue(JdbcConnection.mayReturnResult("show tables"));
+    assertTrue(JdbcConnection.mayReturnResult("createtable t"));
+    assertTrue(JdbcConnection.mayReturnResult("-- comment\ninsert into t values (1)"));
+  }
+
+  @Test
+  public void testStatementsAreBatched() throws SQLException, VerdictDBDbmsException {
+    Connection h2 = DriverManager.getConnection("jdbc:h2:mem:jdbcconnectionbatchtest");
+    int[] counts = new int[2];
+    Connection counting =
+        (Connection)
+            Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                new CountingHandler(h2, counts));
+    JdbcConnection conn = new JdbcConnection(counting, new H2Syntax());
+
+    assertNull(
+        conn.execute(
+            "CREATE TABLE t (a int, b varchar(10)); "
+                + "INSERT INTO t VALUES (1, 'x;y'); INSERT INTO t VALUES (2, 'it''s');"));
+    assertEquals(0, counts[0]);
+    assertEquals(1, counts[1]);
+
+    // the last statement returns a result
+    DbmsQueryResult result =
+        conn.execute(
+            "INSERT INTO t VALUES (3, 'z'); INSERT INTO t VALUES (4, 'w'); "
+                + "SELECT count(*), max(b) FROM t WHERE a <= 2");
+    assertEquals(1, counts[0]);
+    assertEquals(2, counts[1]);
+    assertTrue(result.next());
+    assertEquals(2, result.getInt(0));
+    assertEquals("x;y", result.getString(1));
+
+    // the statements that may return results are issued one by one
+    result = conn.execute("SELECT 1; SELECT count(*) FROM t");
+    assertEquals(3, counts[0]);
+    assertEquals(2, counts[1]);
+    assertTrue(result.next());
+    assertEquals(4, result.getInt(0));
+
+    // the preceding statements of a streamed query are also batched
+    conn.setStreamingEnabled(true);
+    result =
+        conn.executeStreaming(
+            "DELETE FROM t WHERE a = 1; DELETE FROM t WHERE a = 2; SELECT a FROM t ORDER BY a");
+    assertEquals(3, counts[1]);
+    assertTrue(result.next());
+    assertEquals(3, result.getInt(0));
+    h2.close();
+  }
+}
@@ -0,0 +1,142 @@
+package org.verdictdb.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.spark.sql.SparkSession;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.coordinator.ScramblingCoordinator;
+import org.verdictdb.coordinator.SelectQueryCoordinator;
+import org.verdictdb.core.resulthandler.ExecutionResultReader;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.core.sqlobject.AliasedColumn;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.ConstantColumn;
+import org.verdictdb.core.sqlobject.CreateTableAsSelectQuery;
+import org.verdictdb.core.sqlobject.DropTableQuery;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlsyntax.SparkSyntax;
+import org.verdictdb.sqlwriter.QueryToSql;
+
+public class SparkTemporaryViewTest {
+
+  static SparkSession spark;
+
+  static SparkConnection conn;
+
+  static ScrambleMetaSet metaSet = new ScrambleMetaSet();
+
+  static final String TEST_SCHEMA = "viewtest";
+
+  static final String WAREHOUSE_DIR = "target/spark-temporary-view-test";
+
+  @BeforeClass
+  public static void setupSpark() throws VerdictDBException {
+    FileUtils.deleteQuietly(new File(WAREHOUSE_DIR));
+    spark =
+        SparkSession.builder()
+            .appName("SparkTemporaryViewTest")
+            .master("local")
+            .config("spark.sql.shuffle.partitions", "4")
+            .config("spark.sql.warehouse.dir", new File(WAREHOUSE_DIR).getAbsolutePath())
+            .getOrCreate();
+    conn = new SparkConnection(spark, new SparkSyntax());
+
+    conn.execute(String.format("CREATE DATABASE IF NOT EXISTS %s", TEST_SCHEMA));
+    conn.execute(
+        String.format(
+            "CREATE TABLE %s.sales USING parquet AS "
+                + "SELECT id, id %% 4 AS grp, CAST(id %% 10 AS DOUBLE) AS price FROM range(2000)",
+            TEST_SCHEMA));
+    ScramblingCoordinator scrambler =
+        new ScramblingCoordinator(conn, TEST_SCHEMA, TEST_SCHEMA, 500L);
+    ScrambleMeta meta = scrambler.scramble(TEST_SCHEMA, "sales", TEST_SCHEMA, "sales_scrambled");
+    metaSet.addScrambleMeta(meta);
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    spark.sql(String.format("DROP DATABASE IF EXISTS %s CASCADE", TEST_SCHEMA));
+    FileUtils.deleteQuietly(new File(WAREHOUSE_DIR));
+  }
+
+  @Test
+  public void testCreateAndDropView() throws VerdictDBException {
+    String viewSchema = conn.getTemporaryViewSchema();
+    assertEquals("global_temp", viewSchema);
+
+    SelectQuery select =
+        SelectQuery.create(
+            new AliasedColumn(ConstantColumn.valueOf(1), "a"),
+            new BaseTable(TEST_SCHEMA, "sales", "t"));
+    select.addLimit(ConstantColumn.valueOf(1));
+    CreateTableAsSelectQuery create = new CreateTableAsSelectQuery(viewSchema, "tempview", select);
+    create.setTemporaryView(true);
+    conn.execute(QueryToSql.convert(conn.getSyntax(), create));
+    assertTrue(spark.catalog().isCached(viewSchema + ".tempview"));
+    assertTrue(listTables(viewSchema).contains("tempview"));
+
+    DbmsQueryResult result =
+        conn.execute(String.format("select a from `%s`.`tempview`", viewSchema));
+    assertTrue(result.next());
+    assertEquals(1, result.getInt(0));
+
+    DropTableQuery drop = new DropTableQuery(viewSchema, "tempview");
+    drop.setTemporaryView(true);
+    conn.execute(QueryToSql.convert(conn.getSyntax(), drop));
+    assertFalse(listTables(viewSchema).contains("tempview"));
+  }
+
+  @Test
+  public void testProgressiveQuery() throws VerdictDBException, InterruptedException {
+    Set<String> tablesBefore = listTables(TEST_SCHEMA);
+
+    SparkConnection viewConn = (SparkConnection) conn.copy();
+    viewConn.setUseTemporaryViews(true);
+    SelectQueryCoordinator coordinator = new SelectQueryCoordinator(viewConn, metaSet);
+    ExecutionResultReader reader =
+        coordinator.process(
+            String.format("select sum(price) from %s.sales_scrambled", TEST_SCHEMA));
+
+    double answer = 0;
+    int resultCount = 0;
+    while (reader.hasNext()) {
+      DbmsQueryResult result = reader.next();
+      result.next();
+      answer = result.getDouble(0);
+      resultCount++;
+    }
+    assertEquals(4, resultCount);
+    assertEquals(2000 * 4.5, answer, 1e-6);
+
+    // no table is created in the default schema, and the views are dropped after the query.
+    assertEquals(tablesBefore, listTables(TEST_SCHEMA));
+    String viewSchema = viewConn.getTemporaryViewSchema();
+    for (int i = 0; i < 100 && !listTables(viewSchema).isEmpty(); i++) {
+      Thread.sleep(100);
+    }
+    assertTrue(listTables(viewSchema).isEmpty());
+  }
+
+  private Set<String> listTables(String schema) throws VerdictDBException {
+    Set<String> tables = new HashSet<>();
+    DbmsQueryResult result = conn.execute(String.format("SHOW TABLES IN `%s`", schema));
+    while (result.next()) {
+      // the session's local temporary views are also listed; they are not in any database.
+      if (schema.equals(result.getString(0))) {
+        tables.add(result.getString(1));
+      }
+    }
+    return tables;
+  }
+}
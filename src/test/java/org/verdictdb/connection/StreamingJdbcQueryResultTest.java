@@ -0,0 +1,220 @@
+package org.verdictdb.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.VerdictContext;
+import org.verdictdb.coordinator.ExecutionContext;
+import org.verdictdb.coordinator.VerdictSingleResult;
+import org.verdictdb.coordinator.VerdictSingleResultFromDbmsQueryResult;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.jdbc41.VerdictResultSet;
+
+public class StreamingJdbcQueryResultTest {
+
+  static Connection conn;
+
+  static JdbcConnection jdbc;
+
+  static final int ROW_COUNT = 50;
+
+  @BeforeClass
+  public static void setupH2Database() throws VerdictDBException, SQLException {
+    conn = DriverManager.getConnection("jdbc:h2:mem:streamingqueryresult;DB_CLOSE_DELAY=-1");
+    jdbc = JdbcConnection.create(conn);
+    jdbc.setFetchSize(7);
+    jdbc.setStreamingEnabled(true);
+
+    jdbc.execute("CREATE TABLE NUMBERS(id int, label varchar(255))");
+    for (int i = 0; i < ROW_COUNT; i++) {
+      jdbc.execute(String.format("INSERT INTO NUMBERS(id, label) VALUES(%d, 'label%d')", i, i));
+    }
+
+    // for the queries issued through VerdictContext, which quotes schema and table names
+    jdbc.execute("CREATE SCHEMA \"streamtest\"");
+    jdbc.execute("CREATE TABLE \"streamtest\".\"numbers\" AS SELECT * FROM NUMBERS");
+  }
+
+  @Test
+  public void testReadToEnd() throws VerdictDBException {
+    DbmsQueryResult result = jdbc.executeStreaming("SELECT * FROM NUMBERS ORDER BY id");
+    assertTrue(result instanceof StreamingJdbcQueryResult);
+    assertEquals(2, result.getColumnCount());
+    assertEquals("id", result.getColumnName(0));
+
+    // rewinding before reading any row is allowed
+    result.rewind();
+
+    int index = 0;
+    while (result.next()) {
+      assertEquals(index, result.getInt(0));
+      assertEquals("label" + index, result.getString("label"));
+      index++;
+    }
+    assertEquals(ROW_COUNT, index);
+    assertTrue(((StreamingJdbcQueryResult) result).isClosed());
+    assertFalse(result.next());
+  }
+
+  @Test
+  public void testRowCountBuffersRemainingRows() throws VerdictDBException {
+    DbmsQueryResult result = jdbc.executeStreaming("SELECT * FROM NUMBERS ORDER BY id");
+    for (int i = 0; i < 10; i++) {
+      assertTrue(result.next());
+    }
+    assertEquals(ROW_COUNT, result.getRowCount());
+    assertTrue(((StreamingJdbcQueryResult) result).isClosed());
+
+    // the rows after the count are still readable
+    int index = 10;
+    while (result.next()) {
+      assertEquals(index, result.getInt(0));
+      index++;
+    }
+    assertEquals(ROW_COUNT, index);
+    assertEquals(ROW_COUNT, result.getRowCount());
+  }
+
+  @Test
+  public void testRewindAfterReading() throws VerdictDBException {
+    DbmsQueryResult result = jdbc.executeStreaming("SELECT * FROM NUMBERS ORDER BY id");
+    for (int i = 0; i < 10; i++) {
+      assertTrue(result.next());
+    }
+    assertFalse(((StreamingJdbcQueryResult) result).isClosed());
+
+    // the rows read so far are read again, and then the rest are read from the database
+    result.rewind();
+    int index = 0;
+    while (result.next()) {
+      assertEquals(index, result.getInt(0));
+      index++;
+    }
+    assertEquals(ROW_COUNT, index);
+    assertTrue(((StreamingJdbcQueryResult) result).isClosed());
+
+    result.rewind();
+    assertTrue(result.next());
+    assertEquals(0, result.getInt(0));
+  }
+
+  @Test
+  public void testRowsBeyondBufferLimitAreReadAgain() throws VerdictDBException {
+    JdbcConnection limited = (JdbcConnection) jdbc.copy();
+    limited.setStreamingBufferLimit(5);
+    StreamingJdbcQueryResult result =
+        (StreamingJdbcQueryResult) limited.executeStreaming("SELECT * FROM NUMBERS ORDER BY id");
+    for (int i = 0; i < 20; i++) {
+      assertTrue(result.next());
+      assertEquals(i, result.getInt(0));
+    }
+    assertEquals(5, result.getBufferedRowCount());
+
+    // counting reads the remaining rows without keeping them
+    assertEquals(ROW_COUNT, result.getRowCount());
+    assertEquals(5, result.getBufferedRowCount());
+    assertEquals(19, result.getInt(0));
+    int index = 20;
+    while (result.next()) {
+      assertEquals(index, result.getInt(0));
+      assertEquals("label" + index, result.getString("label"));
+      index++;
+    }
+    assertEquals(ROW_COUNT, index);
+
+    // the buffered rows are read from memory, and then the query is executed again
+    result.rewind();
+    index = 0;
+    while (result.next()) {
+      assertEquals(index, result.getInt(0));
+      index++;
+    }
+    assertEquals(ROW_COUNT, index);
+    assertEquals(5, result.getBufferedRowCount());
+    assertTrue(result.isClosed());
+  }
+
+  @Test
+  public void testStreamingProperty() throws SQLException, VerdictDBException {
+    Properties info = new Properties();
+    info.setProperty(VerdictContext.STREAMING_PROPERTY, "true");
+    VerdictContext context =
+        VerdictContext.fromConnectionString(
+            "jdbc:h2:mem:streamingqueryresult;DB_CLOSE_DELAY=-1", info);
+    assertTrue(context.getJdbcConnection().isStreamingEnabled());
+
+    context =
+        VerdictContext.fromConnectionString(
+            "jdbc:h2:mem:streamingqueryresult;DB_CLOSE_DELAY=-1", new Properties());
+    assertFalse(context.getJdbcConnection().isStreamingEnabled());
+  }
+
+  @Test
+  public void testStreamingDisabled() throws VerdictDBException {
+    JdbcConnection buffered = JdbcConnection.create(conn);
+    assertFalse(buffered.isStreamingEnabled());
+    DbmsQueryResult result = buffered.executeStreaming("SELECT * FROM NUMBERS");
+    assertTrue(result instanceof JdbcQueryResult);
+    assertEquals(ROW_COUNT, result.getRowCount());
+  }
+
+  @Test
+  public void testClose() throws VerdictDBException {
+    StreamingJdbcQueryResult result =
+        (StreamingJdbcQueryResult) jdbc.executeStreaming("SELECT * FROM NUMBERS");
+    assertTrue(result.next());
+    result.close();
+    assertTrue(result.isClosed());
+    assertFalse(result.next());
+  }
+
+  @Test
+  public void testCloseThroughResultSet() throws VerdictDBException, SQLException {
+    StreamingJdbcQueryResult result =
+        (StreamingJdbcQueryResult) jdbc.executeStreaming("SELECT * FROM NUMBERS");
+    VerdictResultSet resultSet =
+        new VerdictResultSet(new VerdictSingleResultFromDbmsQueryResult(result));
+    assertTrue(resultSet.next());
+    assertFalse(result.isClosed());
+    resultSet.close();
+    assertTrue(resultSet.isClosed());
+    assertTrue(result.isClosed());
+  }
+
+  @Test
+  public void testMultipleStatements() throws VerdictDBException {
+    DbmsQueryResult result =
+        jdbc.executeStreaming(
+            "CREATE TABLE STREAMTEMP AS SELECT * FROM NUMBERS WHERE id < 5; "
+                + "SELECT count(*) FROM STREAMTEMP");
+    assertTrue(result.next());
+    assertEquals(5, result.getInt(0));
+
+    assertNull(jdbc.executeStreaming("DROP TABLE STREAMTEMP"));
+  }
+
+  @Test
+  public void testSelectQuery() throws VerdictDBException {
+    VerdictContext context = new VerdictContext(jdbc);
+    ExecutionContext exec = context.createNewExecutionContext();
+    VerdictSingleResult result =
+        exec.sql("select id, label from streamtest.numbers where id < 20 order by id");
+
+    int index = 0;
+    while (result.next()) {
+      assertEquals(index, result.getInt(0));
+      index++;
+    }
+    assertEquals(20, index);
+    assertEquals(20, result.getRowCount());
+  }
+}
@@ -0,0 +1,106 @@
+package org.verdictdb.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.spark.sql.SparkSession;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.exception.VerdictDBDbmsException;
+import org.verdictdb.sqlsyntax.SparkSyntax;
+
+public class StreamingSparkQueryResultTest {
+
+  static SparkSession spark;
+
+  static SparkConnection sparkConnection;
+
+  static final int ROW_COUNT = 100;
+
+  @BeforeClass
+  public static void setupSpark() {
+    spark = SparkSession.builder().appName("StreamingSparkQueryResultTest")
+        .master("local")
+        .config("spark.sql.shuffle.partitions", "4")
+        .getOrCreate();
+    spark.range(ROW_COUNT).repartition(4).createOrReplaceTempView("streamingnumbers");
+    sparkConnection = new SparkConnection(spark, new SparkSyntax());
+    sparkConnection.setStreamingEnabled(true);
+  }
+
+  @Test
+  public void testIncrementalRead() throws VerdictDBDbmsException {
+    sparkConnection.setStreamingBufferLimit(0);
+    DbmsQueryResult result =
+        sparkConnection.executeStreaming("SELECT id FROM streamingnumbers ORDER BY id");
+    assertTrue(result instanceof StreamingSparkQueryResult);
+    assertEquals("id", result.getColumnName(0));
+
+    int index = 0;
+    while (result.next()) {
+      assertEquals(index, result.getLong(0));
+      index++;
+    }
+    assertEquals(ROW_COUNT, index);
+    assertEquals(ROW_COUNT, result.getRowCount());
+
+    // the rows are read again from the dataset
+    result.rewind();
+    assertTrue(result.next());
+    assertEquals(0, result.getLong(0));
+  }
+
+  @Test
+  public void testLazyRowCount() throws VerdictDBDbmsException {
+    sparkConnection.setStreamingBufferLimit(0);
+    DbmsQueryResult result =
+        sparkConnection.executeStreaming("SELECT id FROM streamingnumbers ORDER BY id");
+    assertTrue(result.next());
+    assertEquals(ROW_COUNT, result.getRowCount());
+
+    // counting does not move the current row
+    assertEquals(0, result.getLong(0));
+    assertTrue(result.next());
+    assertEquals(1, result.getLong(0));
+  }
+
+  @Test
+  public void testBoundedBuffer() throws VerdictDBDbmsException {
+    sparkConnection.setStreamingBufferLimit(10);
+    DbmsQueryResult result =
+        sparkConnection.executeStreaming(
+            "SELECT id % 5 AS g, count(*) AS c FROM streamingnumbers GROUP BY id % 5 ORDER BY g");
+
+    for (int pass = 0; pass < 2; pass++) {
+      int index = 0;
+      while (result.next()) {
+        assertEquals(index, result.getInt(0));
+        assertEquals(ROW_COUNT / 5, result.getLong(1));
+        index++;
+      }
+      assertEquals(5, index);
+      assertFalse(result.next());
+      result.rewind();
+    }
+    assertEquals(5, result.getRowCount());
+  }
+
+  @Test
+  public void testRewindBeyondBuffer() throws VerdictDBDbmsException {
+    sparkConnection.setStreamingBufferLimit(10);
+    DbmsQueryResult result =
+        sparkConnection.executeStreaming("SELECT id FROM streamingnumbers ORDER BY id");
+    for (int i = 0; i < 30; i++) {
+      assertTrue(result.next());
+    }
+    result.rewind();
+
+    int index = 0;
+    while (result.next()) {
+      assertEquals(index, result.getLong(0));
+      index++;
+    }
+    assertEquals(ROW_COUNT, index);
+  }
+}
@@ -0,0 +1,78 @@
+package org.verdictdb.coordinator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.connection.JdbcConnection;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlsyntax.H2Syntax;
+
+public class BlockSizeTunerTest {
+
+  static Connection conn;
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException {
+    conn = DriverManager.getConnection("jdbc:h2:mem:blocksizetunertest;DB_CLOSE_DELAY=-1", "", "");
+    Statement stmt = conn.createStatement();
+    stmt.execute("CREATE SCHEMA IF NOT EXISTS \"tunerschema\"");
+    stmt.execute("CREATE TABLE \"tunerschema\".\"mytable\" (\"id\" int, \"value\" double)");
+    for (int i = 0; i < 500; i++) {
+      stmt.execute(
+          String.format("INSERT INTO \"tunerschema\".\"mytable\" VALUES (%d, %d.0)", i, i));
+    }
+    stmt.close();
+  }
+
+  @Test
+  public void testBlockSizeMeetsTarget() {
+    // 10ms overhead, 1 second for 1M rows: 90ms budget covers 90K rows
+    long blockSize = BlockSizeTuner.computeBlockSize(0.01, 1.01, 1000000, 1000000, 0.1);
+    assertEquals(90000, blockSize);
+  }
+
+  @Test
+  public void testSampledScan() {
+    // 1 second for a 1M-row sample of a 10M-row table: the per-row cost comes from the sample
+    long blockSize = BlockSizeTuner.computeBlockSize(0.01, 1.01, 1000000, 10000000L, 0.1);
+    assertEquals(90000, blockSize);
+  }
+
+  @Test
+  public void testHighOverheadBackend() {
+    // the overhead (500ms) exceeds the target (100ms); a block scan takes as long as the overhead
+    long blockSize = BlockSizeTuner.computeBlockSize(0.5, 1.5, 1000000, 1000000, 0.1);
+    assertEquals(500000, blockSize);
+  }
+
+  @Test
+  public void testBlockCountIsBounded() {
+    long rowCount = 100000000L;
+    long blockSize = BlockSizeTuner.computeBlockSize(0.0, 100.0, rowCount, rowCount, 1e-6);
+    assertEquals(rowCount / BlockSizeTuner.MAX_BLOCK_COUNT, blockSize);
+  }
+
+  @Test
+  public void testSmallOrEmptyTable() {
+    assertEquals(1, BlockSizeTuner.computeBlockSize(0.01, 0.01, 0, 0, 1.0));
+    assertEquals(1000, BlockSizeTuner.computeBlockSize(0.01, 0.01, 1000, 1000, 1.0));
+    assertEquals(1000, BlockSizeTuner.computeBlockSize(0.01, 0.02, 1000, 1000, 10.0));
+  }
+
+  @Test
+  public void testTuneOnH2() throws VerdictDBException {
+    BlockSizeTuner tuner = new BlockSizeTuner(new JdbcConnection(conn, new H2Syntax()), 1.0);
+    long blockSize = tuner.tune("tunerschema", "mytable");
+    assertEquals(500, tuner.getRowCount());
+    assertEquals(500, tuner.getScannedRowCount());
+    assertTrue(tuner.getOverheadLatency() >= 0);
+    assertTrue(blockSize >= 1 && blockSize <= 500);
+  }
+}
@@ -0,0 +1,84 @@
+package org.verdictdb.coordinator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+
+/**
+ * Measures the throughput of compiling queries as the number of threads grows, using the tables
+ * and the queries of ConcurrentCompilationTest. The queries are standardized against static
+ * metadata and compiled into plans by SelectQueryCoordinator.prepare(). Not a part of the test
+ * suite; run it with the test classpath, optionally passing the number of rounds per thread.
+ */
+public class ConcurrentCompilationBenchmark {
+
+  private static final int[] THREAD_COUNTS = {1, 2, 4, 8};
+
+  public static void main(String[] args) throws Exception {
+    int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+    ConcurrentCompilationTest.setup();
+    final List<String> queries = ConcurrentCompilationTest.queries;
+
+    // warms up the JIT compiler and the metadata cache
+    run(THREAD_COUNTS[THREAD_COUNTS.length - 1], rounds, queries, false);
+    run(THREAD_COUNTS[THREAD_COUNTS.length - 1], rounds, queries, true);
+
+    for (boolean prepare : new boolean[] {false, true}) {
+      double baseline = 0;
+      for (int threads : THREAD_COUNTS) {
+        long start = System.nanoTime();
+        run(threads, rounds, queries, prepare);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double throughput = threads * rounds * queries.size() / seconds;
+        if (threads == 1) {
+          baseline = throughput;
+        }
+        System.out.println(
+            String.format(
+                "%s, %d threads: %.0f queries/s (x%.2f)",
+                prepare ? "prepare" : "standardize", threads, throughput, throughput / baseline));
+      }
+    }
+  }
+
+  /** Every thread compiles all the queries for a number of rounds. */
+  private static void run(
+      int threads, final int rounds, final List<String> queries, final boolean prepare)
+      throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<Boolean>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(
+          executor.submit(
+              new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                  SelectQueryCoordinator coordinator =
+                      new SelectQueryCoordinator(
+                          ConcurrentCompilationTest.conn, ConcurrentCompilationTest.metaSet);
+                  for (int r = 0; r < rounds; r++) {
+                    // the parse trees are not reused across rounds.
+                    NonValidatingSQLParser.clearParseTreeCache();
+                    for (String sql : queries) {
+                      if (prepare) {
+                        coordinator.prepare(sql);
+                      } else {
+                        ConcurrentCompilationTest.standardize(sql);
+                      }
+                    }
+                  }
+                  return true;
+                }
+              }));
+    }
+    for (Future<Boolean> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,216 @@
+package org.verdictdb.coordinator;
+
+import static java.sql.Types.BIGINT;
+import static java.sql.Types.DOUBLE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.connection.CachedDbmsConnection;
+import org.verdictdb.connection.DbmsConnection;
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.connection.JdbcConnection;
+import org.verdictdb.connection.StaticMetaData;
+import org.verdictdb.core.resulthandler.ExecutionResultReader;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+import org.verdictdb.sqlreader.RelationStandardizer;
+import org.verdictdb.sqlsyntax.H2Syntax;
+
+/** Compiles queries concurrently; the compile-time state must not be shared by the queries. */
+public class ConcurrentCompilationTest {
+
+  static final String SCHEMA = "concurrentcompiletest";
+
+  static final int THREADS = 8;
+
+  static DbmsConnection conn;
+
+  static ScrambleMetaSet metaSet = new ScrambleMetaSet();
+
+  static StaticMetaData staticMeta = new StaticMetaData();
+
+  static List<String> queries = new ArrayList<>();
+
+  @BeforeClass
+  public static void setup() throws SQLException, VerdictDBException {
+    Connection h2conn =
+        DriverManager.getConnection("jdbc:h2:mem:concurrentcompilationtest;DB_CLOSE_DELAY=-1");
+    Statement stmt = h2conn.createStatement();
+    stmt.execute(String.format("CREATE SCHEMA IF NOT EXISTS \"%s\"", SCHEMA));
+    stmt.execute(
+        String.format(
+            "CREATE TABLE \"%s\".\"sales_scrambled\" (\"id\" bigint, \"price\" double, "
+                + "\"verdictdbblock\" int, \"verdictdbtier\" int)",
+            SCHEMA));
+    stmt.execute(
+        String.format("CREATE TABLE \"%s\".\"items\" (\"id\" bigint, \"weight\" double)", SCHEMA));
+    for (int i = 0; i < 40; i++) {
+      stmt.execute(
+          String.format(
+              "INSERT INTO \"%s\".\"sales_scrambled\" VALUES (%d, %d, %d, 0)",
+              SCHEMA, i, i * 3 % 17, i % 4));
+      stmt.execute(
+          String.format("INSERT INTO \"%s\".\"items\" VALUES (%d, %d)", SCHEMA, i, i % 16));
+    }
+    stmt.close();
+
+    conn = new CachedDbmsConnection(new JdbcConnection(h2conn, new H2Syntax()));
+    conn.setDefaultSchema(SCHEMA);
+    Map<Integer, List<Double>> distribution = new HashMap<>();
+    distribution.put(0, Arrays.asList(0.25, 0.5, 0.75, 1.0));
+    metaSet.addScrambleMeta(
+        new ScrambleMeta(
+            SCHEMA, "sales_scrambled", SCHEMA, "sales", "verdictdbblock", 4, "verdictdbtier", 1,
+            distribution));
+
+    staticMeta.setDefaultSchema(SCHEMA);
+    staticMeta.addTableData(
+        new StaticMetaData.TableInfo(SCHEMA, "sales_scrambled"),
+        Arrays.<Pair<String, Integer>>asList(
+            new ImmutablePair<>("id", BIGINT),
+            new ImmutablePair<>("price", DOUBLE),
+            new ImmutablePair<>("verdictdbblock", BIGINT),
+            new ImmutablePair<>("verdictdbtier", BIGINT)));
+    staticMeta.addTableData(
+        new StaticMetaData.TableInfo(SCHEMA, "items"),
+        Arrays.<Pair<String, Integer>>asList(
+            new ImmutablePair<>("id", BIGINT), new ImmutablePair<>("weight", DOUBLE)));
+
+    for (int i = 0; i < 8; i++) {
+      queries.add(
+          String.format(
+              "select id / %d as g, sum(price), count(*), avg(price) from sales_scrambled "
+                  + "where price > %d group by id / %d",
+              i + 2, i, i + 2));
+      queries.add(
+          String.format(
+              "select count(*) from sales_scrambled s inner join items i on s.id = i.id "
+                  + "where i.weight < %d",
+              i));
+      queries.add(
+          String.format(
+              "select sum(t.p) from (select id, price * %d as p from sales_scrambled) t", i));
+    }
+  }
+
+  @Test
+  public void testConcurrentStandardization() throws Exception {
+    // the aliases of every query are numbered from 1 regardless of the other queries.
+    final List<SelectQuery> expected = new ArrayList<>();
+    for (String sql : queries) {
+      expected.add(standardize(sql));
+    }
+    assertEquals(expected.get(0), standardize(queries.get(0)));
+
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<Boolean>> futures = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      futures.add(
+          executor.submit(
+              new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws VerdictDBException {
+                  for (int r = 0; r < 10; r++) {
+                    for (int i = 0; i < queries.size(); i++) {
+                      assertEquals(expected.get(i), standardize(queries.get(i)));
+                    }
+                  }
+                  return true;
+                }
+              }));
+    }
+    for (Future<Boolean> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+  }
+
+  @Test
+  public void testConcurrentCompilation() throws Exception {
+    // the answers of the plans compiled one by one
+    SelectQueryCoordinator coordinator = new SelectQueryCoordinator(conn, metaSet);
+    final List<PreparedSelectQuery> sequential = new ArrayList<>();
+    for (String sql : queries) {
+      sequential.add(coordinator.prepare(sql));
+    }
+
+    // every thread compiles distinct queries at the same time as the others.
+    final PreparedSelectQuery[] concurrent = new PreparedSelectQuery[queries.size()];
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<Boolean>> futures = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      final int offset = t;
+      futures.add(
+          executor.submit(
+              new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws VerdictDBException {
+                  SelectQueryCoordinator coordinator = new SelectQueryCoordinator(conn, metaSet);
+                  for (int i = offset; i < queries.size(); i += THREADS) {
+                    concurrent[i] = coordinator.prepare(queries.get(i));
+                  }
+                  return true;
+                }
+              }));
+    }
+    for (Future<Boolean> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    for (int i = 0; i < queries.size(); i++) {
+      List<String> expected =
+          readFinalAnswer(coordinator.process(sequential.get(i), new ArrayList<String>()));
+      assertFalse(expected.isEmpty());
+      assertEquals(
+          queries.get(i),
+          expected,
+          readFinalAnswer(coordinator.process(concurrent[i], new ArrayList<String>())));
+    }
+  }
+
+  /** @return The rows of the last answer in a sorted order */
+  private static List<String> readFinalAnswer(ExecutionResultReader reader) {
+    DbmsQueryResult last = null;
+    while (reader.hasNext()) {
+      last = reader.next();
+    }
+    List<String> rows = new ArrayList<>();
+    while (last.next()) {
+      List<Object> row = new ArrayList<>();
+      for (int i = 0; i < last.getColumnCount(); i++) {
+        row.add(last.getValue(i));
+      }
+      rows.add(row.toString());
+    }
+    Collections.sort(rows);
+    return rows;
+  }
+
+  static SelectQuery standardize(String sql) throws VerdictDBException {
+    SelectQuery query = (SelectQuery) new NonValidatingSQLParser().toRelation(sql);
+    return new RelationStandardizer(staticMeta).standardize(query);
+  }
+}
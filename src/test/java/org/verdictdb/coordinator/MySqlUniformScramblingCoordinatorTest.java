@@ -1,6 +1,7 @@
 package org.verdictdb.coordinator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -16,8 +17,13 @@ import org.verdictdb.commons.DatabaseConnectionHelpers;
 import org.verdictdb.connection.DbmsConnection;
 import org.verdictdb.connection.DbmsQueryResult;
 import org.verdictdb.connection.JdbcConnection;
+import org.verdictdb.core.scrambling.DenormalizedSource;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.sqlobject.JoinTable;
+import org.verdictdb.core.sqlobject.SelectQuery;
 import org.verdictdb.exception.VerdictDBDbmsException;
 import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
 
 
 public class MySqlUniformScramblingCoordinatorTest {
@@ -125,4 +131,50 @@ public class MySqlUniformScramblingCoordinatorTest {
     assertEquals((int) Math.ceil(result2.getInt(0) / (float) blockSize) - 1, result.getInt(1));
   }
 
+  @Test
+  public void testScramblingCoordinatorJoin() throws VerdictDBException {
+    DbmsConnection conn = JdbcConnection.create(mysqlConn);
+    long blockSize = 100;
+    ScramblingCoordinator scrambler =
+        new ScramblingCoordinator(conn, MYSQL_DATABASE, MYSQL_DATABASE, blockSize);
+
+    // perform scrambling
+    String scrambledTable = "lineitem_orders_scrambled";
+    conn.execute(String.format("drop table if exists %s.%s", MYSQL_DATABASE, scrambledTable));
+    NonValidatingSQLParser sqlToRelation = new NonValidatingSQLParser();
+    SelectQuery source =
+        (SelectQuery)
+            sqlToRelation.toRelation(
+                String.format(
+                    "select * from %s.lineitem inner join %s.orders on l_orderkey = o_orderkey",
+                    MYSQL_DATABASE, MYSQL_DATABASE));
+    ScrambleMeta meta =
+        scrambler.scramble(
+            (JoinTable) source.getFromList().get(0), MYSQL_DATABASE, scrambledTable, "uniform");
+
+    // tests
+    assertEquals("lineitem", meta.getOriginalTableName());
+    DenormalizedSource denormalized = meta.getDenormalizedSource();
+    assertEquals(
+        Arrays.asList(MYSQL_DATABASE + ".lineitem", MYSQL_DATABASE + ".orders"),
+        denormalized.getTables());
+    assertEquals("o_orderkey", denormalized.findScrambleColumn(MYSQL_DATABASE, "orders", "o_orderkey"));
+    assertEquals(
+        ScrambleMeta.fromJsonString(meta.toJsonString()).getDenormalizedSource(), denormalized);
+
+    DbmsQueryResult result1 =
+        conn.execute(
+            String.format(
+                "select count(*) from %s.lineitem inner join %s.orders on l_orderkey = o_orderkey",
+                MYSQL_DATABASE, MYSQL_DATABASE));
+    DbmsQueryResult result2 =
+        conn.execute(String.format("select count(*) from %s.%s", MYSQL_DATABASE, scrambledTable));
+    result1.next();
+    result2.next();
+    assertEquals(result1.getInt(0), result2.getInt(0));
+
+    // the intermediate join table must have been dropped
+    assertFalse(conn.getTables(MYSQL_DATABASE).contains(scrambledTable + "_verdictdbjoined"));
+  }
+
 }
@@ -0,0 +1,104 @@
+package org.verdictdb.coordinator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.connection.CachedDbmsConnection;
+import org.verdictdb.connection.DbmsConnection;
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.connection.JdbcConnection;
+import org.verdictdb.core.resulthandler.ExecutionResultReader;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.exception.VerdictDBValueException;
+import org.verdictdb.sqlsyntax.H2Syntax;
+
+public class PreparedSelectQueryTest {
+
+  static DbmsConnection conn;
+
+  static ScrambleMetaSet metaSet = new ScrambleMetaSet();
+
+  static final String SCHEMA = "preparedquerytest";
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException, VerdictDBException {
+    Connection h2conn =
+        DriverManager.getConnection("jdbc:h2:mem:preparedselectquerytest;DB_CLOSE_DELAY=-1");
+    Statement stmt = h2conn.createStatement();
+    stmt.execute(String.format("CREATE SCHEMA IF NOT EXISTS \"%s\"", SCHEMA));
+    stmt.execute(
+        String.format(
+            "CREATE TABLE \"%s\".\"sales_scrambled\" (\"id\" int, \"price\" double, "
+                + "\"verdictdbblock\" int, \"verdictdbtier\" int)",
+            SCHEMA));
+    for (int i = 0; i < 100; i++) {
+      stmt.execute(
+          String.format(
+              "INSERT INTO \"%s\".\"sales_scrambled\" VALUES (%d, %d.0, %d, 0)",
+              SCHEMA, i, i, i % 4));
+    }
+    stmt.close();
+
+    conn = new CachedDbmsConnection(new JdbcConnection(h2conn, new H2Syntax()));
+    conn.setDefaultSchema(SCHEMA);
+    Map<Integer, List<Double>> distribution = new HashMap<>();
+    distribution.put(0, Arrays.asList(0.25, 0.5, 0.75, 1.0));
+    metaSet.addScrambleMeta(
+        new ScrambleMeta(
+            SCHEMA, "sales_scrambled", SCHEMA, "sales", "verdictdbblock", 4, "verdictdbtier", 1,
+            distribution));
+  }
+
+  @Test
+  public void testBindValuesToCompiledPlan() throws VerdictDBException {
+    SelectQueryCoordinator coordinator = new SelectQueryCoordinator(conn, metaSet);
+    PreparedSelectQuery prepared =
+        coordinator.prepare(
+            String.format(
+                "select sum(price) from %s.sales_scrambled where id < ? and price >= ?", SCHEMA));
+    assertEquals(2, prepared.getParameterCount());
+
+    // the executions share the compiled plan; each binds its own values.
+    assertTrue(runQuery(coordinator, prepared, "50", "0").contains(1225.0));
+    assertTrue(runQuery(coordinator, prepared, "10", "5").contains(35.0));
+    assertTrue(runQuery(coordinator, prepared, "50", "0").contains(1225.0));
+  }
+
+  @Test(expected = VerdictDBValueException.class)
+  public void testMissingValue() throws VerdictDBException {
+    SelectQueryCoordinator coordinator = new SelectQueryCoordinator(conn, metaSet);
+    PreparedSelectQuery prepared =
+        coordinator.prepare(
+            String.format("select count(*) from %s.sales_scrambled where id < ?", SCHEMA));
+    coordinator.process(prepared, new ArrayList<String>());
+  }
+
+  /** @return The progressive answers; the exact answer is included once all blocks are read. */
+  private List<Double> runQuery(
+      SelectQueryCoordinator coordinator, PreparedSelectQuery prepared, String... literals)
+      throws VerdictDBException {
+    ExecutionResultReader reader = coordinator.process(prepared, Arrays.asList(literals));
+    List<Double> answers = new ArrayList<>();
+    while (reader.hasNext()) {
+      DbmsQueryResult result = reader.next();
+      result.next();
+      answers.add(result.getDouble(0));
+    }
+    assertEquals(4, answers.size());
+    return answers;
+  }
+}
@@ -0,0 +1,118 @@
+package org.verdictdb.coordinator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.connection.CachedDbmsConnection;
+import org.verdictdb.connection.DbmsConnection;
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.connection.JdbcConnection;
+import org.verdictdb.core.querying.QueryExecutionPlan;
+import org.verdictdb.core.resulthandler.ExecutionResultReader;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlsyntax.H2Syntax;
+
+public class QueryPlanCacheTest {
+
+  static Connection h2conn;
+
+  static DbmsConnection conn;
+
+  static ScrambleMetaSet metaSet = new ScrambleMetaSet();
+
+  static final String SCHEMA = "plancachetest";
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException, VerdictDBException {
+    h2conn = DriverManager.getConnection("jdbc:h2:mem:queryplancachetest;DB_CLOSE_DELAY=-1");
+    Statement stmt = h2conn.createStatement();
+    stmt.execute(String.format("CREATE SCHEMA IF NOT EXISTS \"%s\"", SCHEMA));
+    stmt.execute(
+        String.format(
+            "CREATE TABLE \"%s\".\"sales_scrambled\" (\"id\" int, \"price\" double, "
+                + "\"verdictdbblock\" int, \"verdictdbtier\" int)",
+            SCHEMA));
+    for (int i = 0; i < 100; i++) {
+      stmt.execute(
+          String.format(
+              "INSERT INTO \"%s\".\"sales_scrambled\" VALUES (%d, %d.0, %d, 0)",
+              SCHEMA, i, i, i % 4));
+    }
+    stmt.close();
+
+    conn = new CachedDbmsConnection(new JdbcConnection(h2conn, new H2Syntax()));
+    conn.setDefaultSchema(SCHEMA);
+    Map<Integer, List<Double>> distribution = new HashMap<>();
+    distribution.put(0, Arrays.asList(0.25, 0.5, 0.75, 1.0));
+    metaSet.addScrambleMeta(
+        new ScrambleMeta(
+            SCHEMA, "sales_scrambled", SCHEMA, "sales", "verdictdbblock", 4, "verdictdbtier", 1,
+            distribution));
+  }
+
+  @Test
+  public void testCachedPlanIsReused() throws VerdictDBException {
+    QueryPlanCache cache = new QueryPlanCache();
+    String sql = String.format("select sum(price) from %s.sales_scrambled", SCHEMA);
+
+    // the copies of the cached plan create their temporary tables with different names.
+    for (int i = 0; i < 3; i++) {
+      String query = (i == 2) ? sql.replace(" ", "  ") : sql;
+      assertTrue(runQuery(cache, query, 1).contains(4950.0));
+      assertEquals(1, cache.size());
+    }
+
+    // the plans for a new version of the scramble metadata are compiled again.
+    assertTrue(runQuery(cache, sql, 2).contains(4950.0));
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testCopiesAreRenewed() throws VerdictDBException {
+    QueryPlanCache cache = new QueryPlanCache();
+    String sql = String.format("select count(*) from %s.sales_scrambled", SCHEMA);
+    SelectQueryCoordinator coordinator = new SelectQueryCoordinator(conn, metaSet);
+    coordinator.setPlanCache(cache, 1);
+    coordinator.process(sql);
+
+    String scratchpad = conn.getDefaultSchema();
+    assertNull(cache.get(sql, SCHEMA, scratchpad, 0));
+    QueryExecutionPlan copy1 = cache.get(sql, SCHEMA, scratchpad, 1);
+    QueryExecutionPlan copy2 = cache.get(sql, SCHEMA, scratchpad, 1);
+    assertNotNull(copy1);
+    assertNotEquals(copy1.getSerialNumber(), copy2.getSerialNumber());
+  }
+
+  /** @return The progressive answers; the exact answer is included once all blocks are read. */
+  private List<Double> runQuery(QueryPlanCache cache, String sql, long version)
+      throws VerdictDBException {
+    SelectQueryCoordinator coordinator = new SelectQueryCoordinator(conn, metaSet);
+    coordinator.setPlanCache(cache, version);
+    ExecutionResultReader reader = coordinator.process(sql);
+    List<Double> answers = new ArrayList<>();
+    while (reader.hasNext()) {
+      DbmsQueryResult result = reader.next();
+      result.next();
+      answers.add(result.getDouble(0));
+    }
+    assertEquals(4, answers.size());
+    return answers;
+  }
+}
@@ -0,0 +1,230 @@
+package org.verdictdb.coordinator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.verdictdb.VerdictContext;
+import org.verdictdb.connection.DbmsConnection;
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.connection.JdbcConnection;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.metastore.LocalScrambleMetaStore;
+import org.verdictdb.sqlsyntax.H2Syntax;
+
+public class QueryResultCacheTest {
+
+  static final String SCHEMA = "resultcachetest";
+
+  static final String SQL = String.format("select sum(price) from %s.sales_scrambled", SCHEMA);
+
+  Connection h2conn;
+
+  VerdictContext context;
+
+  static int testCount = 0;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Before
+  public void setupH2Database() throws SQLException, VerdictDBException {
+    // every test uses its own database, whose rows are changed by the test.
+    h2conn =
+        DriverManager.getConnection(
+            String.format("jdbc:h2:mem:queryresultcachetest%d;DB_CLOSE_DELAY=-1", testCount++));
+    Statement stmt = h2conn.createStatement();
+    stmt.execute(String.format("DROP SCHEMA IF EXISTS \"%s\" CASCADE", SCHEMA));
+    stmt.execute(String.format("CREATE SCHEMA \"%s\"", SCHEMA));
+    stmt.execute(
+        String.format(
+            "CREATE TABLE \"%s\".\"sales_scrambled\" (\"id\" int, \"price\" double, "
+                + "\"verdictdbblock\" int, \"verdictdbtier\" int)",
+            SCHEMA));
+    for (int i = 0; i < 100; i++) {
+      insertRow(i, i, i % 4);
+    }
+    stmt.close();
+
+    // the scramble metadata is kept in a local file.
+    context =
+        new VerdictContext(
+            new JdbcConnection(h2conn, new H2Syntax()),
+            new LocalScrambleMetaStore(new File(folder.getRoot(), "meta.bin")));
+    context.getConnection().setDefaultSchema(SCHEMA);
+    context.getScrambleMetaStore().addToStore(createScrambleMeta());
+  }
+
+  @Test
+  public void testFirstAnswerIsCached() throws VerdictDBException, SQLException {
+    QueryResultCache cache = new QueryResultCache();
+    context.setResultCache(cache);
+    double first = getDouble(context.sql(SQL));
+    assertEquals(1, cache.size());
+
+    // the answer is not computed again even if the data is changed.
+    insertRow(100, 10000, 0);
+    assertEquals(first, getDouble(context.sql(SQL)), 1e-6);
+    assertEquals(first, getDouble(context.sql(SQL.replace(" ", "  "))), 1e-6);
+
+    // without the cache
+    context.setResultCache(null);
+    assertTrue(getDouble(context.sql(SQL)) > first);
+  }
+
+  @Test
+  public void testFinalAnswerIsCached() throws VerdictDBException, SQLException {
+    QueryResultCache cache = new QueryResultCache();
+    context.setResultCache(cache);
+    List<Double> answers = getDoubles(context.streamsql(SQL));
+    assertEquals(4, answers.size());
+    assertEquals(4950.0, answers.get(3), 1e-6);
+
+    // only the final answer is returned, both by a stream and by sql().
+    insertRow(100, 10000, 0);
+    assertEquals(Arrays.asList(4950.0), getDoubles(context.streamsql(SQL)));
+    assertEquals(4950.0, getDouble(context.sql(SQL)), 1e-6);
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testIntermediateAnswersAreKept() throws VerdictDBException, SQLException {
+    QueryResultCache cache = new QueryResultCache(QueryResultCache.DEFAULT_MAXIMUM_BYTES, 60, true);
+    context.setResultCache(cache);
+    List<Double> answers = getDoubles(context.streamsql(SQL));
+
+    insertRow(100, 10000, 0);
+    assertEquals(answers, getDoubles(context.streamsql(SQL)));
+
+    // the answer of an incomplete run does not replace the final answer.
+    String defaultSchema = context.getConnection().getDefaultSchema();
+    long version = context.getScrambleMetaStore().getVersion();
+    DbmsConnection conn = context.getConnection();
+    cache.put(SQL, defaultSchema, version, Arrays.asList(conn.execute("select 1")), false);
+    assertEquals(answers, getDoubles(cache.get(SQL, defaultSchema, version)));
+  }
+
+  @Test
+  public void testNewScrambleInvalidatesAnswers() throws VerdictDBException, SQLException {
+    QueryResultCache cache = new QueryResultCache();
+    context.setResultCache(cache);
+    getDoubles(context.streamsql(SQL));
+    long oldVersion = context.getScrambleMetaStore().getVersion();
+
+    insertRow(100, 10000, 0);
+    context.getScrambleMetaStore().addToStore(createScrambleMeta());
+    String defaultSchema = context.getConnection().getDefaultSchema();
+    assertNull(cache.get(SQL, defaultSchema, context.getScrambleMetaStore().getVersion()));
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getMemoryUsage());
+
+    List<Double> answers = getDoubles(context.streamsql(SQL));
+    assertEquals(14950.0, answers.get(answers.size() - 1), 1e-6);
+
+    // the answers computed with the older metadata are not cached.
+    DbmsConnection conn = context.getConnection();
+    cache.put(SQL, defaultSchema, oldVersion, Arrays.asList(conn.execute("select 1")), true);
+    assertNotNull(cache.get(SQL, defaultSchema, context.getScrambleMetaStore().getVersion()));
+    assertNull(cache.get(SQL, defaultSchema, oldVersion));
+  }
+
+  @Test
+  public void testMemoryIsBounded() throws VerdictDBException {
+    DbmsConnection conn = context.getConnection();
+    String query = String.format("select * from \"%s\".\"sales_scrambled\"", SCHEMA);
+    int bytes = QueryResultCache.estimateBytes(conn.execute(query));
+    assertTrue(bytes > 100 * 4 * 8);
+
+    // room for two answers
+    QueryResultCache cache = new QueryResultCache(bytes * 5 / 2, 60, false);
+    for (int i = 0; i < 3; i++) {
+      cache.put("select " + i, SCHEMA, 0, Arrays.asList(conn.execute(query)), true);
+      assertEquals(Math.min(i + 1, 2), cache.size());
+      assertEquals(bytes * cache.size(), cache.getMemoryUsage());
+    }
+    assertNull(cache.get("select 0", SCHEMA, 0));
+    assertNotNull(cache.get("select 2", SCHEMA, 0));
+
+    // the least recently used answer is evicted.
+    assertNotNull(cache.get("select 1", SCHEMA, 0));
+    cache.put("select 3", SCHEMA, 0, Arrays.asList(conn.execute(query)), true);
+    assertNull(cache.get("select 2", SCHEMA, 0));
+    assertNotNull(cache.get("select 1", SCHEMA, 0));
+
+    // an answer larger than the bound is not cached.
+    QueryResultCache small = new QueryResultCache(bytes / 2, 60, false);
+    small.put(query, SCHEMA, 0, Arrays.asList(conn.execute(query)), true);
+    assertEquals(0, small.size());
+    assertEquals(0, small.getMemoryUsage());
+  }
+
+  @Test
+  public void testAnswersExpire() throws VerdictDBException, InterruptedException {
+    QueryResultCache cache = new QueryResultCache(QueryResultCache.DEFAULT_MAXIMUM_BYTES, 1, false);
+    context.setResultCache(cache);
+    context.sql(SQL);
+    assertNotNull(cache.getLatest(SQL, SCHEMA, context.getScrambleMetaStore().getVersion()));
+    Thread.sleep(1500);
+    assertNull(cache.getLatest(SQL, SCHEMA, context.getScrambleMetaStore().getVersion()));
+    assertEquals(0, cache.getMemoryUsage());
+  }
+
+  @Test
+  public void testContextWithResultCache() throws SQLException, VerdictDBException {
+    String url = "jdbc:h2:mem:queryresultcachecontexttest;DB_CLOSE_DELAY=-1";
+    assertNull(VerdictContext.fromConnectionString(url, new Properties()).getResultCache());
+
+    Properties info = new Properties();
+    info.setProperty(VerdictContext.RESULT_CACHE_TTL_PROPERTY, "30");
+    assertNotNull(VerdictContext.fromConnectionString(url, info).getResultCache());
+  }
+
+  private void insertRow(int id, double price, int block) throws SQLException {
+    Statement stmt = h2conn.createStatement();
+    stmt.execute(
+        String.format(
+            "INSERT INTO \"%s\".\"sales_scrambled\" VALUES (%d, %f, %d, 0)",
+            SCHEMA, id, price, block));
+    stmt.close();
+  }
+
+  private static ScrambleMeta createScrambleMeta() throws VerdictDBException {
+    Map<Integer, List<Double>> distribution = new HashMap<>();
+    distribution.put(0, Arrays.asList(0.25, 0.5, 0.75, 1.0));
+    return new ScrambleMeta(
+        SCHEMA, "sales_scrambled", SCHEMA, "sales", "verdictdbblock", 4, "verdictdbtier", 1,
+        distribution);
+  }
+
+  private static double getDouble(VerdictSingleResult result) {
+    result.next();
+    return result.getDouble(0);
+  }
+
+  private static List<Double> getDoubles(VerdictResultStream stream) {
+    List<Double> answers = new ArrayList<>();
+    while (stream.hasNext()) {
+      answers.add(getDouble(stream.next()));
+    }
+    stream.close();
+    return answers;
+  }
+}
@@ -0,0 +1,83 @@
+package org.verdictdb.coordinator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.Test;
+import org.verdictdb.connection.JdbcQueryResult;
+
+public class VerdictSingleResultFromDbmsQueryResultTest {
+
+  /** Counts the values read as objects. */
+  static class CountingJdbcQueryResult extends JdbcQueryResult {
+
+    private static final long serialVersionUID = 1L;
+
+    int valueCalls = 0;
+
+    CountingJdbcQueryResult(ResultSet resultSet) throws SQLException {
+      super(resultSet);
+    }
+
+    @Override
+    public Object getValue(int index) {
+      valueCalls++;
+      return super.getValue(index);
+    }
+  }
+
+  @Test
+  public void testTypedGettersReadColumnarResult() throws SQLException {
+    Connection conn = DriverManager.getConnection("jdbc:h2:mem:singleresulttypedgetters", "", "");
+    Statement stmt = conn.createStatement();
+    stmt.execute("CREATE TABLE mytable (i int, l bigint, d double, s varchar(10))");
+    stmt.execute("INSERT INTO mytable VALUES (1, 10000000000, 1.5, 'abc')");
+    stmt.execute("INSERT INTO mytable VALUES (NULL, NULL, NULL, NULL)");
+    CountingJdbcQueryResult columnar =
+        new CountingJdbcQueryResult(stmt.executeQuery("SELECT * FROM mytable ORDER BY i"));
+    stmt.close();
+    conn.close();
+
+    VerdictSingleResultFromDbmsQueryResult result =
+        new VerdictSingleResultFromDbmsQueryResult(columnar, true);
+
+    // the nulls come first
+    assertTrue(result.next());
+    assertEquals(0, result.getInt(0));
+    assertTrue(result.wasNull());
+    assertEquals(0, result.getLong(1));
+    assertTrue(result.wasNull());
+    assertEquals(0, result.getDouble(2), 0);
+    assertTrue(result.wasNull());
+    assertNull(result.getString(3));
+    assertTrue(result.wasNull());
+
+    assertTrue(result.next());
+    assertEquals(1, result.getInt(0));
+    assertFalse(result.wasNull());
+    assertEquals(10000000000L, result.getLong(1));
+    assertFalse(result.wasNull());
+    assertEquals(1.5, result.getDouble(2), 0);
+    assertEquals(1.0, result.getDouble(0), 0);
+    assertEquals("abc", result.getString(3));
+    assertFalse(result.wasNull());
+    assertFalse(result.next());
+
+    // none of the values above is boxed
+    assertEquals(0, columnar.valueCalls);
+
+    result.rewind();
+    assertTrue(result.next());
+    assertNull(result.getValue(0));
+    assertTrue(result.wasNull());
+    assertEquals(1, columnar.valueCalls);
+  }
+}
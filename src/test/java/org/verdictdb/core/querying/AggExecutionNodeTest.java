@@ -1,6 +1,8 @@
 package org.verdictdb.core.querying;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 import java.sql.DriverManager;
 import java.sql.SQLException;
@@ -85,6 +87,40 @@ public class AggExecutionNodeTest {
 
   }
 
+  @Test
+  public void testDeepcopyCopiesSubqueriesInFilter() throws VerdictDBException {
+    SelectQuery subquery = SelectQuery.create(
+        Arrays.<SelectItem>asList(new AliasedColumn(new ColumnOp("avg", new BaseColumn("t1", "value")), "a")),
+        new BaseTable(originalSchema, originalTable, "t1"));
+    SelectQuery query = SelectQuery.create(
+        Arrays.<SelectItem>asList(new AliasedColumn(new ColumnOp("avg", new BaseColumn("t", "value")), "average")),
+        new BaseTable(originalSchema, originalTable, "t"));
+    query.addFilterByAnd(new ColumnOp("greater", Arrays.asList(
+        new BaseColumn("t", "value"),
+        new SubqueryColumn(subquery)
+    )));
+    AggExecutionNode node = AggExecutionNode.create(QueryExecutionPlanFactory.create("newschema"), query);
+    AggExecutionNode copy = (AggExecutionNode) node.deepcopy();
+
+    SubqueryColumn filter = node.getPlaceholderTablesinFilter().get(0);
+    SubqueryColumn copiedFilter = copy.getPlaceholderTablesinFilter().get(0);
+    assertNotSame(filter, copiedFilter);
+    assertSame(copiedFilter, ((ColumnOp) copy.getSelectQuery().getFilter().get()).getOperand(1));
+    assertSame(copy.getPlaceholderTables().get(0), copiedFilter.getSubquery().getFromList().get(0));
+    assertNotSame(node.getPlaceholderTables().get(0), copy.getPlaceholderTables().get(0));
+
+    // filling the placeholder of the copy does not change the original.
+    ExecutionInfoToken token = new ExecutionInfoToken();
+    token.setKeyValue("schemaName", "newschema");
+    token.setKeyValue("tableName", "copiedtable");
+    copy.createQuery(Arrays.asList(token));
+    BaseTable original = (BaseTable) filter.getSubquery().getFromList().get(0);
+    assertEquals("placeholderTableName", original.getTableName());
+    assertEquals(
+        "copiedtable",
+        ((BaseTable) copiedFilter.getSubquery().getFromList().get(0)).getTableName());
+  }
+
   //
   // select avg(t.value) as average
   // from originalSchema.originalTable t
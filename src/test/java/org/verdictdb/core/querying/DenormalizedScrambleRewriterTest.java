@@ -0,0 +1,213 @@
+package org.verdictdb.core.querying;
+
+import static java.sql.Types.BIGINT;
+import static java.sql.Types.DOUBLE;
+import static java.sql.Types.VARCHAR;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.VerdictContext;
+import org.verdictdb.connection.JdbcConnection;
+import org.verdictdb.connection.StaticMetaData;
+import org.verdictdb.core.scrambling.DenormalizedSource;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.core.scrambling.UniformScrambler;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.CreateTableAsSelectQuery;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.exception.VerdictDBValueException;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+import org.verdictdb.sqlreader.RelationStandardizer;
+import org.verdictdb.sqlsyntax.H2Syntax;
+import org.verdictdb.sqlwriter.QueryToSql;
+
+public class DenormalizedScrambleRewriterTest {
+
+  static Connection conn;
+
+  static Statement stmt;
+
+  static ScrambleMetaSet metaSet = new ScrambleMetaSet();
+
+  static StaticMetaData staticMetaData = new StaticMetaData();
+
+  static final String SCHEMA = "denormtest";
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException, VerdictDBException {
+    conn = DriverManager.getConnection("jdbc:h2:mem:denormalizedrewritertest;DB_CLOSE_DELAY=-1");
+    stmt = conn.createStatement();
+    stmt.execute(String.format("CREATE SCHEMA IF NOT EXISTS \"%s\"", SCHEMA));
+    stmt.execute(
+        String.format(
+            "CREATE TABLE \"%s\".\"sales\"(\"id\" int, \"storeid\" int, \"price\" double)",
+            SCHEMA));
+    stmt.execute(
+        String.format(
+            "CREATE TABLE \"%s\".\"stores\"(\"storeid\" int, \"region\" varchar(10))", SCHEMA));
+    for (int i = 0; i < 4; i++) {
+      stmt.execute(
+          String.format(
+              "INSERT INTO \"%s\".\"stores\" VALUES(%d, '%s')",
+              SCHEMA, i, (i % 2 == 0) ? "east" : "west"));
+    }
+    for (int i = 0; i < 100; i++) {
+      stmt.execute(
+          String.format(
+              "INSERT INTO \"%s\".\"sales\" VALUES(%d, %d, %f)", SCHEMA, i, i % 5, (double) i));
+    }
+
+    // the denormalized table in the same form as ScramblingCoordinator creates
+    stmt.execute(
+        String.format(
+            "CREATE TABLE \"%s\".\"sales_joined\" AS "
+                + "SELECT t0.\"id\", t0.\"storeid\", t0.\"price\", "
+                + "t1.\"storeid\" AS \"stores_storeid\", t1.\"region\" "
+                + "FROM \"%s\".\"sales\" t0 INNER JOIN \"%s\".\"stores\" t1 "
+                + "ON t0.\"storeid\" = t1.\"storeid\"",
+            SCHEMA, SCHEMA, SCHEMA));
+    UniformScrambler scrambler =
+        new UniformScrambler(SCHEMA, "sales_joined", SCHEMA, "sales_scrambled", 4);
+    CreateTableAsSelectQuery scramblingQuery = scrambler.createQuery();
+    stmt.executeUpdate(QueryToSql.convert(new H2Syntax(), scramblingQuery));
+    ScrambleMeta meta = scrambler.generateMeta();
+
+    DenormalizedSource denormalized = new DenormalizedSource();
+    denormalized.addTable(SCHEMA, "sales");
+    denormalized.addTable(SCHEMA, "stores");
+    denormalized.addJoinCondition(
+        DenormalizedSource.columnKey(SCHEMA, "sales", "storeid"),
+        DenormalizedSource.columnKey(SCHEMA, "stores", "storeid"));
+    denormalized.addColumn(SCHEMA, "sales", "id", "id");
+    denormalized.addColumn(SCHEMA, "sales", "storeid", "storeid");
+    denormalized.addColumn(SCHEMA, "sales", "price", "price");
+    denormalized.addColumn(SCHEMA, "stores", "storeid", "stores_storeid");
+    denormalized.addColumn(SCHEMA, "stores", "region", "region");
+    meta.setDenormalizedSource(denormalized);
+    metaSet.addScrambleMeta(meta);
+
+    staticMetaData.setDefaultSchema(SCHEMA);
+    List<Pair<String, Integer>> salesColumns =
+        Arrays.<Pair<String, Integer>>asList(
+            new ImmutablePair<>("id", BIGINT),
+            new ImmutablePair<>("storeid", BIGINT),
+            new ImmutablePair<>("price", DOUBLE));
+    List<Pair<String, Integer>> storesColumns =
+        Arrays.<Pair<String, Integer>>asList(
+            new ImmutablePair<>("storeid", BIGINT), new ImmutablePair<>("region", VARCHAR));
+    staticMetaData.addTableData(new StaticMetaData.TableInfo(SCHEMA, "sales"), salesColumns);
+    staticMetaData.addTableData(new StaticMetaData.TableInfo(SCHEMA, "stores"), storesColumns);
+  }
+
+  @Test(expected = VerdictDBValueException.class)
+  public void testSizeClauseIsRejected() throws VerdictDBException {
+    VerdictContext context = new VerdictContext(JdbcConnection.create(conn));
+    context.sql(
+        String.format(
+            "create scramble %s.sales_sized from %s.sales "
+                + "inner join %s.stores on sales.storeid = stores.storeid size 10%%",
+            SCHEMA, SCHEMA, SCHEMA));
+  }
+
+  @Test
+  public void testMetaSerialization() {
+    ScrambleMeta meta = metaSet.getMetaForTable(SCHEMA, "sales_scrambled");
+    ScrambleMeta deserialized = ScrambleMeta.fromJsonString(meta.toJsonString());
+    assertEquals(meta.getDenormalizedSource(), deserialized.getDenormalizedSource());
+  }
+
+  @Test
+  public void testExplicitJoinIsRewritten() throws VerdictDBException, SQLException {
+    String sql =
+        "select r.region, sum(s.price), count(*) from sales s inner join stores r "
+            + "on s.storeid = r.storeid where r.storeid > 0 group by r.region order by r.region";
+    SelectQuery rewritten = standardizeAndRewrite(sql);
+    assertScrambleOnly(rewritten);
+    assertSameResults(sql, rewritten);
+  }
+
+  @Test
+  public void testImplicitJoinIsRewritten() throws VerdictDBException, SQLException {
+    String sql =
+        "select r.region, avg(s.price) from stores r, sales s "
+            + "where r.storeid = s.storeid and s.price < 50 group by r.region order by r.region";
+    SelectQuery rewritten = standardizeAndRewrite(sql);
+    assertScrambleOnly(rewritten);
+    assertSameResults(sql, rewritten);
+  }
+
+  @Test
+  public void testDifferentJoinIsNotRewritten() throws VerdictDBException {
+    // a different join condition
+    SelectQuery query =
+        standardize("select sum(s.price) from sales s inner join stores r on s.id = r.storeid");
+    assertSame(query, new DenormalizedScrambleRewriter(metaSet).rewrite(query));
+    assertFalse(toSql(query).contains("sales_scrambled"));
+
+    // an outer join
+    query =
+        standardize(
+            "select sum(s.price) from sales s left join stores r on s.storeid = r.storeid");
+    assertFalse(toSql(new DenormalizedScrambleRewriter(metaSet).rewrite(query))
+        .contains("sales_scrambled"));
+
+    // a missing join condition
+    query = standardize("select sum(s.price) from sales s, stores r where s.price > 0");
+    assertFalse(toSql(new DenormalizedScrambleRewriter(metaSet).rewrite(query))
+        .contains("sales_scrambled"));
+  }
+
+  private SelectQuery standardize(String sql) throws VerdictDBException {
+    RelationStandardizer.resetItemID();
+    SelectQuery relation = (SelectQuery) new NonValidatingSQLParser().toRelation(sql);
+    return new RelationStandardizer(staticMetaData).standardize(relation);
+  }
+
+  private SelectQuery standardizeAndRewrite(String sql) throws VerdictDBException {
+    return new DenormalizedScrambleRewriter(metaSet).rewrite(standardize(sql));
+  }
+
+  private void assertScrambleOnly(SelectQuery query) {
+    assertEquals(1, query.getFromList().size());
+    BaseTable table = (BaseTable) query.getFromList().get(0);
+    assertEquals("sales_scrambled", table.getTableName());
+  }
+
+  private String toSql(SelectQuery query) throws VerdictDBException {
+    return QueryToSql.convert(new H2Syntax(), query);
+  }
+
+  private void assertSameResults(String original, SelectQuery rewritten)
+      throws VerdictDBException, SQLException {
+    ResultSet expected = conn.createStatement().executeQuery(toSql(standardize(original)));
+    ResultSet actual = conn.createStatement().executeQuery(toSql(rewritten));
+    int columnCount = expected.getMetaData().getColumnCount();
+    assertEquals(columnCount, actual.getMetaData().getColumnCount());
+    int rowCount = 0;
+    while (expected.next()) {
+      assertTrue(actual.next());
+      for (int i = 1; i <= columnCount; i++) {
+        assertEquals(expected.getString(i), actual.getString(i));
+      }
+      rowCount++;
+    }
+    assertFalse(actual.next());
+    assertTrue(rowCount > 0);
+  }
+}
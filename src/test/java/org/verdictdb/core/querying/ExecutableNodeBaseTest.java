@@ -1,12 +1,16 @@
 package org.verdictdb.core.querying;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.Test;
+import org.verdictdb.core.execplan.ExecutableNode;
 
 public class ExecutableNodeBaseTest {
 
@@ -25,4 +29,44 @@ public class ExecutableNodeBaseTest {
     assertTrue(mymap.containsKey(a));
   }
 
+  @Test
+  public void testSubscribersThatAreSourcesOfOthersComeLast() {
+    // c combines the results of a and b; d receives the results of both a and c.
+    ExecutableNodeBase a = new ExecutableNodeBase();
+    ExecutableNodeBase b = new ExecutableNodeBase();
+    ExecutableNodeBase c = new ExecutableNodeBase();
+    ExecutableNodeBase d = new ExecutableNodeBase();
+    c.subscribeTo(a, 0);
+    c.subscribeTo(b, 1);
+    d.subscribeTo(a, 0);
+    d.subscribeTo(c, 1);
+
+    // d must receive the result of a before the one of c, which is broadcast once c is notified.
+    assertEquals(Arrays.<ExecutableNode>asList(d, c), a.getSubscribers());
+    assertEquals(Arrays.<ExecutableNode>asList(c), b.getSubscribers());
+  }
+
+  @Test
+  public void testSubscribersAreOrderedAgainAfterChanges() {
+    ExecutableNodeBase a = new ExecutableNodeBase();
+    ExecutableNodeBase c = new ExecutableNodeBase();
+    ExecutableNodeBase d = new ExecutableNodeBase();
+    c.subscribeTo(a, 0);
+    d.subscribeTo(a, 0);
+    List<ExecutableNode> subscribers = a.getSubscribers();
+    assertEquals(Arrays.<ExecutableNode>asList(c, d), subscribers);
+    assertSame(subscribers, a.getSubscribers());
+
+    // the subscription of a subscriber changes the order.
+    c.subscribeTo(d, 1);
+    assertEquals(Arrays.<ExecutableNode>asList(c, d), subscribers);
+    assertEquals(Arrays.<ExecutableNode>asList(c, d), a.getSubscribers());
+    d.subscribeTo(c, 1);
+    c.cancelSubscriptionTo(d);
+    assertEquals(Arrays.<ExecutableNode>asList(d, c), a.getSubscribers());
+
+    d.cancelSubscriptionTo(a);
+    assertEquals(Arrays.<ExecutableNode>asList(c), a.getSubscribers());
+  }
+
 }
@@ -0,0 +1,194 @@
+package org.verdictdb.core.querying;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.verdictdb.core.execplan.ExecutableNode;
+import org.verdictdb.core.querying.ola.AsyncQueryExecutionPlan;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.core.sqlobject.AbstractRelation;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+
+public class ExecutionPlanCopierTest {
+
+  static String schema = "myschema";
+
+  static String sql =
+      "select t.g as g, sum(t.p) as s, count(*) as c "
+          + "from (select o.g as g, o.p * 2 as p from myschema.mytable_scrambled as o "
+          + "where o.q > 1) as t group by t.g";
+
+  static QueryExecutionPlan createAsyncPlan(int blockCount) throws VerdictDBException {
+    List<Double> cumulativeDistribution = new ArrayList<>();
+    for (int i = 1; i <= blockCount; i++) {
+      cumulativeDistribution.add(i / (double) blockCount);
+    }
+    Map<Integer, List<Double>> distribution = new HashMap<>();
+    distribution.put(0, cumulativeDistribution);
+    ScrambleMetaSet metaSet = new ScrambleMetaSet();
+    metaSet.addScrambleMeta(
+        new ScrambleMeta(
+            schema, "mytable_scrambled", schema, "mytable", "verdictdbblock", blockCount,
+            "verdictdbtier", 1, distribution));
+
+    SelectQuery query = (SelectQuery) new NonValidatingSQLParser().toRelation(sql);
+    QueryExecutionPlan plan = QueryExecutionPlanFactory.create(schema, metaSet, query);
+    return AsyncQueryExecutionPlan.create(plan);
+  }
+
+  static List<ExecutableNodeBase> collectNodes(ExecutableNodeBase root) {
+    List<ExecutableNodeBase> nodes = new ArrayList<>();
+    List<ExecutableNodeBase> toVisit = new ArrayList<>(Arrays.asList(root));
+    while (!toVisit.isEmpty()) {
+      ExecutableNodeBase node = toVisit.remove(0);
+      if (!containsSame(nodes, node)) {
+        nodes.add(node);
+        toVisit.addAll(node.getExecutableNodeBaseDependents());
+      }
+    }
+    return nodes;
+  }
+
+  static boolean containsSame(List<?> list, Object object) {
+    for (Object o : list) {
+      if (o == object) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public void testCopyKeepsStructure() throws VerdictDBException {
+    QueryExecutionPlan plan = createAsyncPlan(3);
+    QueryExecutionPlan copy = plan.deepcopy();
+    assertTrue(copy instanceof AsyncQueryExecutionPlan);
+    assertSame(plan.getScrambleMeta(), copy.getScrambleMeta());
+
+    List<ExecutableNodeBase> nodes = collectNodes(plan.getRoot());
+    List<ExecutableNodeBase> copiedNodes = collectNodes(copy.getRoot());
+    assertEquals(nodes.size(), copiedNodes.size());
+    for (int i = 0; i < nodes.size(); i++) {
+      ExecutableNodeBase node = nodes.get(i);
+      ExecutableNodeBase copied = copiedNodes.get(i);
+      assertNotSame(node, copied);
+      assertFalse(containsSame(nodes, copied));
+      assertEquals(node.getClass(), copied.getClass());
+      assertEquals(node.getGroupId(), copied.getGroupId());
+      assertEquals(node.getSourceQueues().size(), copied.getSourceQueues().size());
+
+      // the copies subscribe to the copies.
+      for (ExecutableNodeBase source : copied.getExecutableNodeBaseDependents()) {
+        assertTrue(containsSame(copiedNodes, source));
+        assertTrue(containsSame(source.getSubscribers(), copied));
+      }
+      for (ExecutableNode subscriber : copied.getSubscribers()) {
+        assertTrue(containsSame(copiedNodes, subscriber));
+      }
+
+      if (node instanceof QueryNodeBase) {
+        SelectQuery query = ((QueryNodeBase) node).getSelectQuery();
+        SelectQuery copiedQuery = ((QueryNodeBase) copied).getSelectQuery();
+        assertEquals(query, copiedQuery);
+        if (query != null) {
+          assertNotSame(query, copiedQuery);
+        }
+      }
+
+      // the placeholder tables of the copies are the ones in their queries.
+      if (node instanceof QueryNodeWithPlaceHolders) {
+        List<BaseTable> placeholders = ((QueryNodeWithPlaceHolders) node).getPlaceholderTables();
+        List<BaseTable> copiedPlaceholders =
+            ((QueryNodeWithPlaceHolders) copied).getPlaceholderTables();
+        List<AbstractRelation> fromList = ((QueryNodeBase) node).getSelectQuery().getFromList();
+        List<AbstractRelation> copiedFromList =
+            ((QueryNodeBase) copied).getSelectQuery().getFromList();
+        assertEquals(placeholders, copiedPlaceholders);
+        for (int j = 0; j < placeholders.size(); j++) {
+          assertNotSame(placeholders.get(j), copiedPlaceholders.get(j));
+          for (int k = 0; k < fromList.size(); k++) {
+            if (fromList.get(k) == placeholders.get(j)) {
+              assertSame(copiedFromList.get(k), copiedPlaceholders.get(j));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCopyIsIndependent() throws VerdictDBException {
+    QueryExecutionPlan plan = createAsyncPlan(3);
+    QueryExecutionPlan copy = plan.deepcopy();
+    SelectQuery query = ((QueryNodeBase) plan.getRoot()).getSelectQuery();
+    SelectQuery original = query.deepcopy();
+
+    SelectQuery copiedQuery = ((QueryNodeBase) copy.getRoot()).getSelectQuery();
+    copiedQuery.getSelectList().clear();
+    copiedQuery.setAliasName("changed");
+    assertEquals(original, query);
+
+    int dependentCount = plan.getRoot().getDependentNodeCount();
+    ExecutableNodeBase copiedRoot = copy.getRoot();
+    copiedRoot.cancelSubscriptionTo(copiedRoot.getExecutableNodeBaseDependent(0));
+    assertEquals(dependentCount, plan.getRoot().getDependentNodeCount());
+    assertEquals(dependentCount - 1, copiedRoot.getDependentNodeCount());
+  }
+
+  @Test
+  public void testCopyManyBlocks() throws VerdictDBException {
+    // the chain of the combiners is as long as the number of blocks.
+    QueryExecutionPlan plan = createAsyncPlan(1000);
+    QueryExecutionPlan copy = plan.deepcopy();
+    assertEquals(collectNodes(plan.getRoot()).size(), collectNodes(copy.getRoot()).size());
+  }
+
+  /** A node class that implements neither copyForPlan() nor deepcopy(). */
+  static class NodeWithoutCopy extends QueryNodeBase {
+
+    private static final long serialVersionUID = 1L;
+
+    NodeWithoutCopy(SelectQuery query) {
+      super(query);
+    }
+  }
+
+  @Test
+  public void testNodeWithoutCopyForPlan() throws VerdictDBException {
+    SelectQuery query = (SelectQuery) new NonValidatingSQLParser().toRelation(sql);
+    NodeWithoutCopy root = new NodeWithoutCopy(query);
+    QueryNodeBase source = new QueryNodeBase(query.deepcopy());
+    root.subscribeTo(source, 0);
+
+    ExecutableNodeBase copiedRoot = new ExecutionPlanCopier().copy((ExecutableNodeBase) root);
+    assertTrue(copiedRoot instanceof NodeWithoutCopy);
+    assertNotSame(root, copiedRoot);
+    assertEquals(query, ((QueryNodeBase) copiedRoot).getSelectQuery());
+    assertNotSame(query, ((QueryNodeBase) copiedRoot).getSelectQuery());
+
+    // the copy is connected to the copy of the source
+    ExecutableNodeBase copiedSource = copiedRoot.getExecutableNodeBaseDependent(0);
+    assertNotSame(source, copiedSource);
+    assertSame(QueryNodeBase.class, copiedSource.getClass());
+    assertSame(copiedRoot, copiedSource.getExecutableNodeBaseParents().get(0));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testUnknownTypeIsNotCopied() {
+    new ExecutionPlanCopier().copy(new StringBuilder("not a sql object"));
+  }
+}
@@ -0,0 +1,99 @@
+package org.verdictdb.core.querying.ola;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.verdictdb.core.querying.ola.AsyncAggCoScrambledJoinTest.blockCount;
+import static org.verdictdb.core.querying.ola.AsyncAggCoScrambledJoinTest.createAsyncPlan;
+import static org.verdictdb.core.querying.ola.AsyncAggCoScrambledJoinTest.individualAggNodes;
+import static org.verdictdb.core.querying.ola.AsyncAggCoScrambledJoinTest.meta;
+import static org.verdictdb.core.querying.ola.AsyncAggCoScrambledJoinTest.runAndGetLastAnswer;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.core.querying.AggExecutionNode;
+import org.verdictdb.core.querying.ExecutableNodeBase;
+import org.verdictdb.core.querying.QueryExecutionPlan;
+import org.verdictdb.core.querying.QueryNodeBase;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+
+/** The tables are the ones of AsyncAggCoScrambledJoinTest. */
+public class AggExecutionNodeBlockTest {
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException, VerdictDBException {
+    AsyncAggCoScrambledJoinTest.setupH2Database();
+  }
+
+  @Test
+  public void testScramblesInNestedQueriesAreFound() {
+    QueryNodeBase root = node("select count(*) from originalSchema.orders_scrambled");
+    QueryNodeBase inFilter =
+        node(
+            "select o_id from originalSchema.orders "
+                + "where o_id in (select i_orderid from originalSchema.items_scrambled)");
+    QueryNodeBase inJoin =
+        node(
+            "select t.k from originalSchema.orders inner join "
+                + "(select i_orderid as k from originalSchema.items_scrambled) t on o_id = t.k");
+    QueryNodeBase inSelectList =
+        node(
+            "select (select max(i_value) from originalSchema.items_scrambled) as m "
+                + "from originalSchema.orders");
+    QueryNodeBase notScrambled = node("select o_id from originalSchema.orders where o_value > 1");
+    QueryNodeBase readsScrambledDependent = node("select o_id from originalSchema.orders");
+    QueryNodeBase scrambledDependent = node("select i_orderid from originalSchema.items_scrambled");
+    readsScrambledDependent.subscribeTo(scrambledDependent, 0);
+
+    List<QueryNodeBase> dependents =
+        Arrays.asList(inFilter, inJoin, inSelectList, notScrambled, readsScrambledDependent);
+    for (int i = 0; i < dependents.size(); i++) {
+      root.subscribeTo(dependents.get(i), i);
+    }
+
+    List<ExecutableNodeBase> nodes = new AggExecutionNodeBlock(root, meta).getNodesInBlock();
+    assertEquals(6, nodes.size());
+    assertTrue(
+        nodes.containsAll(
+            Arrays.asList(
+                root,
+                inFilter,
+                inJoin,
+                inSelectList,
+                readsScrambledDependent,
+                scrambledDependent)));
+    assertFalse(nodes.contains(notScrambled));
+  }
+
+  @Test
+  public void testNonScrambledSubqueryIsSharedByBlocks() throws VerdictDBException {
+    QueryExecutionPlan plan =
+        createAsyncPlan(
+            "select sum(i_value), count(*) from items_scrambled "
+                + "inner join (select o_id from orders where o_value > 9) t on i_orderid = t.o_id");
+    List<AggExecutionNode> blockNodes = individualAggNodes(plan);
+    assertEquals(blockCount, blockNodes.size());
+
+    // the subquery is computed once for all blocks
+    assertEquals(1, blockNodes.get(0).getSources().size());
+    ExecutableNodeBase subquery = blockNodes.get(0).getSources().get(0);
+    for (AggExecutionNode node : blockNodes) {
+      assertEquals(Arrays.asList(subquery), node.getSources());
+    }
+    assertEquals(blockCount, subquery.getSubscribers().size());
+
+    Object[] answer = runAndGetLastAnswer(plan);
+    assertEquals(30.0, ((Number) answer[0]).doubleValue(), 1e-6);
+    assertEquals(30.0, ((Number) answer[1]).doubleValue(), 1e-6);
+  }
+
+  private static QueryNodeBase node(String sql) {
+    return new QueryNodeBase((SelectQuery) new NonValidatingSQLParser().toRelation(sql));
+  }
+}
@@ -0,0 +1,302 @@
+package org.verdictdb.core.querying.ola;
+
+import static java.sql.Types.BIGINT;
+import static java.sql.Types.DOUBLE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.connection.JdbcConnection;
+import org.verdictdb.connection.StaticMetaData;
+import org.verdictdb.coordinator.ScramblingCoordinator;
+import org.verdictdb.core.execplan.ExecutablePlanRunner;
+import org.verdictdb.core.execplan.ExecutionInfoToken;
+import org.verdictdb.core.querying.AggExecutionNode;
+import org.verdictdb.core.querying.ExecutableNodeBase;
+import org.verdictdb.core.querying.QueryExecutionPlan;
+import org.verdictdb.core.querying.QueryExecutionPlanFactory;
+import org.verdictdb.core.resulthandler.ExecutionResultReader;
+import org.verdictdb.core.scrambling.HashScramblingMethod;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.core.scrambling.ScramblingNode;
+import org.verdictdb.core.scrambling.ScramblingPlan;
+import org.verdictdb.core.sqlobject.AbstractRelation;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.core.sqlobject.SqlConvertible;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.exception.VerdictDBValueException;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+import org.verdictdb.sqlreader.RelationStandardizer;
+import org.verdictdb.sqlsyntax.H2Syntax;
+import org.verdictdb.sqlsyntax.SqliteSyntax;
+import org.verdictdb.sqlwriter.QueryToSql;
+
+public class AsyncAggCoScrambledJoinTest {
+
+  static Connection conn;
+
+  static Statement stmt;
+
+  static ScrambleMetaSet meta = new ScrambleMetaSet();
+
+  static StaticMetaData staticMetaData = new StaticMetaData();
+
+  static String originalSchema = "originalSchema";
+
+  static int blockCount = 4;
+
+  static int orderCount = 20;
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException, VerdictDBException {
+    // the tables are shared with the other test classes in this package.
+    if (conn != null) {
+      return;
+    }
+    final String DB_CONNECTION = "jdbc:h2:mem:asyncaggcoscrambledjointest;DB_CLOSE_DELAY=-1";
+    conn = DriverManager.getConnection(DB_CONNECTION, "", "");
+
+    stmt = conn.createStatement();
+    stmt.execute(String.format("CREATE SCHEMA IF NOT EXISTS \"%s\"", originalSchema));
+    stmt.executeUpdate(
+        String.format(
+            "CREATE TABLE \"%s\".\"orders\"(\"o_id\" int, \"o_value\" double)", originalSchema));
+    stmt.executeUpdate(
+        String.format(
+            "CREATE TABLE \"%s\".\"items\"(\"i_orderid\" int, \"i_value\" double)",
+            originalSchema));
+    for (int i = 0; i < orderCount; i++) {
+      stmt.executeUpdate(
+          String.format(
+              "INSERT INTO \"%s\".\"orders\" VALUES(%d, %f)", originalSchema, i, (double) i));
+      for (int j = 0; j < 3; j++) {
+        stmt.executeUpdate(
+            String.format(
+                "INSERT INTO \"%s\".\"items\" VALUES(%d, %f)", originalSchema, i, (double) j));
+      }
+    }
+
+    meta.addScrambleMeta(hashScramble("orders", "o_id", Arrays.asList("o_id", "o_value")));
+    meta.addScrambleMeta(
+        hashScramble("items", "i_orderid", Arrays.asList("i_orderid", "i_value")));
+
+    staticMetaData.setDefaultSchema(originalSchema);
+    staticMetaData.addTableData(
+        new StaticMetaData.TableInfo(originalSchema, "orders_scrambled"),
+        Arrays.<Pair<String, Integer>>asList(
+            new ImmutablePair<>("o_id", BIGINT), new ImmutablePair<>("o_value", DOUBLE)));
+    staticMetaData.addTableData(
+        new StaticMetaData.TableInfo(originalSchema, "items_scrambled"),
+        Arrays.<Pair<String, Integer>>asList(
+            new ImmutablePair<>("i_orderid", BIGINT), new ImmutablePair<>("i_value", DOUBLE)));
+    staticMetaData.addTableData(
+        new StaticMetaData.TableInfo(originalSchema, "orders"),
+        Arrays.<Pair<String, Integer>>asList(
+            new ImmutablePair<>("o_id", BIGINT), new ImmutablePair<>("o_value", DOUBLE)));
+  }
+
+  /** Scrambles a table in the same way as ScramblingPlan does with the hash scrambling method. */
+  static ScrambleMeta hashScramble(String table, String joinKey, List<String> columns)
+      throws VerdictDBException, SQLException {
+    String scrambledTable = table + "_scrambled";
+    HashScramblingMethod method = new HashScramblingMethod(100, joinKey, blockCount);
+    Map<String, String> options = new HashMap<>();
+    options.put("tierColumnName", "verdictdbtier");
+    options.put("blockColumnName", "verdictdbblock");
+    ScramblingNode node =
+        ScramblingNode.create(
+            originalSchema, scrambledTable, originalSchema, table, method, options);
+
+    List<ExecutionInfoToken> tokens = new ArrayList<>();
+    ExecutionInfoToken token = new ExecutionInfoToken();
+    token.setKeyValue("schemaName", originalSchema);
+    token.setKeyValue("tableName", scrambledTable);
+    tokens.add(token);
+    token = new ExecutionInfoToken();
+    List<Pair<String, String>> columnNamesAndTypes = new ArrayList<>();
+    for (String col : columns) {
+      columnNamesAndTypes.add(Pair.of(col, "int"));
+    }
+    token.setKeyValue(ScramblingPlan.COLUMN_METADATA_KEY, columnNamesAndTypes);
+    tokens.add(token);
+    SqlConvertible query = node.createQuery(tokens);
+    stmt.execute(QueryToSql.convert(new H2Syntax(), query));
+
+    Map<Integer, List<Double>> distribution = new HashMap<>();
+    distribution.put(0, method.getStoredCumulativeProbabilityDistributionForTier(0));
+    ScrambleMeta tablemeta =
+        new ScrambleMeta(
+            originalSchema,
+            scrambledTable,
+            originalSchema,
+            table,
+            "verdictdbblock",
+            blockCount,
+            "verdictdbtier",
+            1,
+            distribution);
+    tablemeta.setHashColumn(joinKey);
+    return tablemeta;
+  }
+
+  @Test
+  public void testSameKeysInSameBlocks() throws SQLException {
+    ResultSet rs =
+        stmt.executeQuery(
+            String.format(
+                "SELECT count(*), sum(CASE WHEN o.\"verdictdbblock\" = i.\"verdictdbblock\" "
+                    + "THEN 1 ELSE 0 END), count(DISTINCT o.\"verdictdbblock\") "
+                    + "FROM \"%s\".\"orders_scrambled\" o "
+                    + "INNER JOIN \"%s\".\"items_scrambled\" i ON o.\"o_id\" = i.\"i_orderid\"",
+                originalSchema, originalSchema));
+    rs.next();
+    assertEquals(orderCount * 3, rs.getInt(1));
+    assertEquals(orderCount * 3, rs.getInt(2));
+    assertTrue(rs.getInt(3) > 1);
+  }
+
+  @Test
+  public void testDiagonalSlicing() throws VerdictDBException {
+    List<Pair<String, String>> scrambles =
+        Arrays.asList(
+            Pair.of(originalSchema, "orders_scrambled"), Pair.of(originalSchema, "items_scrambled"));
+    Map<Pair<String, String>, Pair<String, String>> coScrambled = new HashMap<>();
+    coScrambled.put(scrambles.get(1), scrambles.get(0));
+
+    OlaAggregationPlan diagonal = new OlaAggregationPlan(meta, scrambles, coScrambled);
+    assertEquals(blockCount, diagonal.totalBlockAggCount());
+    for (int i = 0; i < blockCount; i++) {
+      assertEquals(
+          Pair.of(i, i), diagonal.getAggBlockSpanForTable(originalSchema, "orders_scrambled", i));
+      assertEquals(
+          Pair.of(i, i), diagonal.getAggBlockSpanForTable(originalSchema, "items_scrambled", i));
+    }
+
+    // independently scrambled tables are sliced along both dimensions
+    OlaAggregationPlan cross = new OlaAggregationPlan(meta, scrambles);
+    assertEquals(2 * blockCount - 1, cross.totalBlockAggCount());
+  }
+
+  @Test(expected = VerdictDBValueException.class)
+  public void testSameTableWithoutCoScrambling() throws VerdictDBException {
+    Pair<String, String> orders = Pair.of(originalSchema, "orders_scrambled");
+    new OlaAggregationPlan(meta, Arrays.asList(orders, orders));
+  }
+
+  @Test(expected = VerdictDBValueException.class)
+  public void testHashScramblingIsRejectedForSqlite() throws SQLException, VerdictDBException {
+    Connection sqliteConn = DriverManager.getConnection("jdbc:sqlite:");
+    try {
+      ScramblingCoordinator coordinator =
+          new ScramblingCoordinator(new JdbcConnection(sqliteConn, new SqliteSyntax()));
+      coordinator.scramble("main", "orders", "main", "orders_scrambled", "hash", "orderkey");
+    } finally {
+      sqliteConn.close();
+    }
+  }
+
+  @Test
+  public void testJoinOnHashColumns() throws VerdictDBException {
+    QueryExecutionPlan plan =
+        createAsyncPlan(
+            "select sum(i_value), count(*) from orders_scrambled "
+                + "inner join items_scrambled on o_id = i_orderid");
+    List<AggExecutionNode> blockNodes = individualAggNodes(plan);
+    assertEquals(blockCount, blockNodes.size());
+    Set<List<Dimension>> dims = new HashSet<>();
+    for (AggExecutionNode node : blockNodes) {
+      dims.add(node.getAggMeta().getCubes().get(0).getDimensions());
+    }
+    for (int i = 0; i < blockCount; i++) {
+      assertTrue(
+          dims.contains(Arrays.asList(new Dimension(originalSchema, "orders_scrambled", i, i))));
+    }
+
+    // the final answer must be identical to the exact answer
+    Object[] answer = runAndGetLastAnswer(plan);
+    assertEquals(orderCount * 3.0, ((Number) answer[0]).doubleValue(), 1e-6);
+    assertEquals(orderCount * 3.0, ((Number) answer[1]).doubleValue(), 1e-6);
+  }
+
+  @Test
+  public void testJoinOnOtherColumns() throws VerdictDBException {
+    // the join on other columns must consider every combination of the blocks
+    QueryExecutionPlan plan =
+        createAsyncPlan(
+            "select count(*) from orders_scrambled "
+                + "inner join items_scrambled on o_value = i_value");
+    assertEquals(2 * blockCount - 1, individualAggNodes(plan).size());
+    for (AggExecutionNode node : individualAggNodes(plan)) {
+      assertEquals(2, node.getAggMeta().getCubes().get(0).getDimensions().size());
+    }
+
+    Object[] answer = runAndGetLastAnswer(plan);
+    assertEquals(orderCount * 3.0, ((Number) answer[0]).doubleValue(), 1e-6);
+  }
+
+  static QueryExecutionPlan createAsyncPlan(String sql) throws VerdictDBException {
+    AbstractRelation relation = new NonValidatingSQLParser().toRelation(sql);
+    relation = new RelationStandardizer(staticMetaData).standardize((SelectQuery) relation);
+    QueryExecutionPlan plan =
+        QueryExecutionPlanFactory.create("verdictdb_temp", meta, (SelectQuery) relation);
+    plan.cleanUp();
+    return AsyncQueryExecutionPlan.create(plan);
+  }
+
+  /** Collects the individual aggregations under the root and the combiners. */
+  static List<AggExecutionNode> individualAggNodes(QueryExecutionPlan plan) {
+    List<AggExecutionNode> nodes = new ArrayList<>();
+    collectAggNodes(plan.getRootNode().getExecutableNodeBaseDependent(0), nodes);
+    return nodes;
+  }
+
+  private static void collectAggNodes(ExecutableNodeBase node, List<AggExecutionNode> nodes) {
+    for (ExecutableNodeBase dep : node.getExecutableNodeBaseDependents()) {
+      if (dep instanceof AggExecutionNode) {
+        if (!nodes.contains(dep)) {
+          nodes.add((AggExecutionNode) dep);
+        }
+      } else {
+        collectAggNodes(dep, nodes);
+      }
+    }
+  }
+
+  static Object[] runAndGetLastAnswer(QueryExecutionPlan plan) throws VerdictDBException {
+    try {
+      stmt.execute("create schema if not exists \"verdictdb_temp\";");
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+    ExecutionResultReader reader =
+        ExecutablePlanRunner.getResultReader(new JdbcConnection(conn, new H2Syntax()), plan);
+    Object[] answer = null;
+    while (reader.hasNext()) {
+      DbmsQueryResult result = reader.next();
+      result.next();
+      answer = new Object[result.getColumnCount()];
+      for (int i = 0; i < answer.length; i++) {
+        answer[i] = result.getValue(i);
+      }
+    }
+    return answer;
+  }
+}
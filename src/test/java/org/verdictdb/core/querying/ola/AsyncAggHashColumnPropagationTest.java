@@ -0,0 +1,90 @@
+package org.verdictdb.core.querying.ola;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.verdictdb.core.querying.ola.AsyncAggCoScrambledJoinTest.blockCount;
+import static org.verdictdb.core.querying.ola.AsyncAggCoScrambledJoinTest.createAsyncPlan;
+import static org.verdictdb.core.querying.ola.AsyncAggCoScrambledJoinTest.individualAggNodes;
+import static org.verdictdb.core.querying.ola.AsyncAggCoScrambledJoinTest.orderCount;
+import static org.verdictdb.core.querying.ola.AsyncAggCoScrambledJoinTest.runAndGetLastAnswer;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.core.querying.AggExecutionNode;
+import org.verdictdb.core.querying.ExecutableNodeBase;
+import org.verdictdb.core.querying.QueryExecutionPlan;
+import org.verdictdb.core.querying.QueryNodeBase;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlsyntax.H2Syntax;
+import org.verdictdb.sqlwriter.QueryToSql;
+
+/**
+ * The hash columns of the scrambles are followed through derived tables and IN subqueries, so
+ * the scrambles joined on them are sliced along the same blocks. The tables are the ones of
+ * AsyncAggCoScrambledJoinTest.
+ */
+public class AsyncAggHashColumnPropagationTest {
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException, VerdictDBException {
+    AsyncAggCoScrambledJoinTest.setupH2Database();
+  }
+
+  @Test
+  public void testJoinThroughDerivedTables() throws VerdictDBException {
+    QueryExecutionPlan plan =
+        createAsyncPlan(
+            "select sum(t.v), count(*) "
+                + "from (select o_id as k, o_value as v from orders_scrambled) t "
+                + "inner join (select i_orderid as k2 from items_scrambled) u on t.k = u.k2");
+    List<AggExecutionNode> blockNodes = individualAggNodes(plan);
+    assertEquals(blockCount, blockNodes.size());
+
+    // both derived tables read the same block
+    for (AggExecutionNode node : blockNodes) {
+      List<Dimension> dims = node.getAggMeta().getCubes().get(0).getDimensions();
+      assertEquals(1, dims.size());
+      String blockFilter = "\"verdictdbblock\" = " + dims.get(0).getBegin();
+      assertEquals(2, node.getSources().size());
+      for (ExecutableNodeBase source : node.getSources()) {
+        String sql =
+            QueryToSql.convert(new H2Syntax(), ((QueryNodeBase) source).getSelectQuery());
+        assertTrue(sql, sql.contains(blockFilter));
+      }
+    }
+
+    Object[] answer = runAndGetLastAnswer(plan);
+    assertEquals(570.0, ((Number) answer[0]).doubleValue(), 1e-6);
+    assertEquals(orderCount * 3.0, ((Number) answer[1]).doubleValue(), 1e-6);
+  }
+
+  @Test
+  public void testInSubqueryOnHashColumns() throws VerdictDBException {
+    QueryExecutionPlan plan =
+        createAsyncPlan(
+            "select sum(o_value), count(*) from orders_scrambled "
+                + "where o_id in (select i_orderid from items_scrambled where i_value > 1)");
+    assertEquals(blockCount, individualAggNodes(plan).size());
+
+    Object[] answer = runAndGetLastAnswer(plan);
+    assertEquals(190.0, ((Number) answer[0]).doubleValue(), 1e-6);
+    assertEquals(orderCount, ((Number) answer[1]).doubleValue(), 1e-6);
+  }
+
+  @Test
+  public void testInSubqueryOnSameScramble() throws VerdictDBException {
+    // the same scramble can appear twice if its occurrences are joined on the hash column
+    QueryExecutionPlan plan =
+        createAsyncPlan(
+            "select sum(o_value), count(*) from orders_scrambled "
+                + "where o_id in (select o_id from orders_scrambled where o_value > 5)");
+    assertEquals(blockCount, individualAggNodes(plan).size());
+
+    Object[] answer = runAndGetLastAnswer(plan);
+    assertEquals(175.0, ((Number) answer[0]).doubleValue(), 1e-6);
+    assertEquals(orderCount - 6, ((Number) answer[1]).doubleValue(), 1e-6);
+  }
+}
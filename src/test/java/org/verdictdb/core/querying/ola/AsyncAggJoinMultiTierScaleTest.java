@@ -166,14 +166,14 @@ public class AsyncAggJoinMultiTierScaleTest {
     CreateTableAsSelectQuery query = (CreateTableAsSelectQuery) queryExecutionPlan.getRoot().getSources().get(0).getSources().get(0).createQuery(Arrays.asList(token));
     SelectQueryToSql queryToSql = new SelectQueryToSql(new H2Syntax());
     String actual = queryToSql.toSql(query.getSelect());
-    String expected = "select sum(vt4.\"a_value\" + vt5.\"b_value\") as \"agg0\", vt4.\"verdictdbtier\" as \"verdictdb_tier_internal0\"," +
-        " vt5.\"verdictdbtier\" as \"verdictdb_tier_internal1\" from \"originalSchema\".\"originalTable1_scrambled\" as vt4 " +
-        "inner join \"originalSchema\".\"originalTable2_scrambled\" as vt5 " +
-        "on (vt4.\"a_id\" = vt5.\"b_id\") " +
+    String expected = "select sum(vt1.\"a_value\" + vt2.\"b_value\") as \"agg0\", vt1.\"verdictdbtier\" as \"verdictdb_tier_internal0\"," +
+        " vt2.\"verdictdbtier\" as \"verdictdb_tier_internal1\" from \"originalSchema\".\"originalTable1_scrambled\" as vt1 " +
+        "inner join \"originalSchema\".\"originalTable2_scrambled\" as vt2 " +
+        "on (vt1.\"a_id\" = vt2.\"b_id\") " +
         "where " +
-        "((vt4.\"verdictdbaggblock\" >= 0) " +
-        "and (vt4.\"verdictdbaggblock\" <= 1)) " +
-        "and (vt5.\"verdictdbaggblock\" = 0) " +
+        "((vt1.\"verdictdbaggblock\" >= 0) " +
+        "and (vt1.\"verdictdbaggblock\" <= 1)) " +
+        "and (vt2.\"verdictdbaggblock\" = 0) " +
         "group by \"verdictdb_tier_internal0\", \"verdictdb_tier_internal1\"";
     assertEquals(expected, actual);
 
@@ -164,7 +164,7 @@ public class AsyncAggJoinScaleTest {
     CreateTableAsSelectQuery query = (CreateTableAsSelectQuery) queryExecutionPlan.getRoot().getSources().get(0).getSources().get(0).createQuery(Arrays.asList(token));
     SelectQueryToSql queryToSql = new SelectQueryToSql(new H2Syntax());
     String actual = queryToSql.toSql(query.getSelect());
-    String expected = "select sum(vt4.\"a_value\" + vt5.\"b_value\") as \"agg0\" from \"originalSchema\".\"originalTable1_scrambled\" as vt4 inner join \"originalSchema\".\"originalTable2_scrambled\" as vt5 on (vt4.\"a_id\" = vt5.\"b_id\") where ((vt4.\"verdictdbaggblock\" >= 0) and (vt4.\"verdictdbaggblock\" <= 1)) and (vt5.\"verdictdbaggblock\" = 0)";
+    String expected = "select sum(vt1.\"a_value\" + vt2.\"b_value\") as \"agg0\" from \"originalSchema\".\"originalTable1_scrambled\" as vt1 inner join \"originalSchema\".\"originalTable2_scrambled\" as vt2 on (vt1.\"a_id\" = vt2.\"b_id\") where ((vt1.\"verdictdbaggblock\" >= 0) and (vt1.\"verdictdbaggblock\" <= 1)) and (vt2.\"verdictdbaggblock\" = 0)";
     assertEquals(expected, actual);
 
     ExecutionInfoToken token1 = new ExecutionInfoToken();
@@ -183,7 +183,7 @@ public class AsyncAggJoinScaleTest {
     query = (CreateTableAsSelectQuery) queryExecutionPlan.getRoot().getSources().get(0).createQuery(Arrays.asList(token3));
     actual = queryToSql.toSql(query.getSelect());
     actual = actual.replaceAll("verdictdbtemptable_[0-9]*_[0-9]", "alias");
-    expected = "select 2.0000000000000000 * verdictdbbeforescaling.\"agg0\" as \"s6\" from \"verdictdb_temp\".\"alias\" as verdictdbbeforescaling";
+    expected = "select 2.0000000000000000 * verdictdbbeforescaling.\"agg0\" as \"s3\" from \"verdictdb_temp\".\"alias\" as verdictdbbeforescaling";
     assertEquals(actual, expected);
   }
 }
@@ -0,0 +1,306 @@
+package org.verdictdb.core.querying.ola;
+
+import static java.sql.Types.BIGINT;
+import static java.sql.Types.DOUBLE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.VerdictContext;
+import org.verdictdb.connection.DbmsQueryResult;
+import org.verdictdb.connection.JdbcConnection;
+import org.verdictdb.connection.StaticMetaData;
+import org.verdictdb.core.execplan.ExecutablePlanRunner;
+import org.verdictdb.core.execplan.ExecutionInfoToken;
+import org.verdictdb.core.querying.QueryExecutionPlan;
+import org.verdictdb.core.querying.QueryExecutionPlanFactory;
+import org.verdictdb.core.resulthandler.ExecutionResultReader;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.core.scrambling.SimpleTreePlan;
+import org.verdictdb.core.scrambling.SynopsisCreationNode;
+import org.verdictdb.core.scrambling.UniformScrambler;
+import org.verdictdb.core.sqlobject.AbstractRelation;
+import org.verdictdb.core.sqlobject.CreateTableAsSelectQuery;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.metastore.ScrambleMetaStore;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+import org.verdictdb.sqlreader.RelationStandardizer;
+import org.verdictdb.sqlsyntax.H2Syntax;
+import org.verdictdb.sqlwriter.QueryToSql;
+import org.verdictdb.sqlwriter.SelectQueryToSql;
+
+public class AsyncAggSynopsisTest {
+
+  static Connection conn;
+
+  static Statement stmt;
+
+  static ScrambleMetaSet meta = new ScrambleMetaSet();
+
+  static StaticMetaData staticMetaData = new StaticMetaData();
+
+  static String originalSchema = "originalSchema";
+
+  static String originalTable = "originalTable";
+
+  static String scrambledTable = "originalTable_scrambled";
+
+  static String synopsisTable = "originalTable_scrambled_synopsis";
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException, VerdictDBException {
+    final String DB_CONNECTION = "jdbc:h2:mem:asyncaggsynopsistest;DB_CLOSE_DELAY=-1";
+    conn = DriverManager.getConnection(DB_CONNECTION, "", "");
+
+    stmt = conn.createStatement();
+    stmt.execute(String.format("CREATE SCHEMA IF NOT EXISTS \"%s\"", originalSchema));
+    stmt.executeUpdate(
+        String.format(
+            "CREATE TABLE \"%s\".\"%s\"(\"grp\" int, \"value\" double)",
+            originalSchema, originalTable));
+    for (int i = 0; i < 100; i++) {
+      stmt.executeUpdate(
+          String.format(
+              "INSERT INTO \"%s\".\"%s\"(\"grp\", \"value\") VALUES(%s, %f)",
+              originalSchema, originalTable, i % 3, (double) i + 1));
+    }
+
+    meta.addScrambleMeta(createScrambleWithSynopsis(scrambledTable, synopsisTable));
+
+    staticMetaData.setDefaultSchema(originalSchema);
+    List<Pair<String, Integer>> arr = new ArrayList<>();
+    arr.addAll(
+        Arrays.asList(
+            new ImmutablePair<>("grp", BIGINT),
+            new ImmutablePair<>("value", DOUBLE)));
+    staticMetaData.addTableData(
+        new StaticMetaData.TableInfo(originalSchema, scrambledTable), arr);
+  }
+
+  @Test
+  public void testSynopsisContents() throws SQLException {
+    ScrambleMeta tablemeta = meta.getMetaForTable(originalSchema, scrambledTable);
+    assertTrue(tablemeta.hasSynopsis());
+    ScrambleMeta deserialized = ScrambleMeta.fromJsonString(tablemeta.toJsonString());
+    assertEquals(tablemeta.getSynopsisSchemaName(), deserialized.getSynopsisSchemaName());
+    assertEquals(tablemeta.getSynopsisTableName(), deserialized.getSynopsisTableName());
+    assertEquals(
+        tablemeta.getSynopsisDimensionColumns(), deserialized.getSynopsisDimensionColumns());
+    assertEquals(tablemeta.getSynopsisMeasureColumns(), deserialized.getSynopsisMeasureColumns());
+
+    ResultSet rs =
+        stmt.executeQuery(
+            String.format(
+                "SELECT sum(\"verdictdbsynopsiscount\"), sum(\"verdictdbsynopsissum_value\") "
+                    + "FROM \"%s\".\"%s\"",
+                originalSchema, tablemeta.getSynopsisTableName()));
+    rs.next();
+    assertEquals(100, rs.getLong(1));
+    assertEquals(5050.0, rs.getDouble(2), 1e-6);
+  }
+
+  @Test
+  public void testGroupByQueryReadsSynopsis() throws VerdictDBException, SQLException {
+    QueryExecutionPlan plan =
+        createAsyncPlan(
+            "select grp, avg(value), count(*) from originalTable_scrambled "
+                + "where grp > 0 group by grp");
+    String actual = individualAggSql(plan);
+    assertTrue(actual.contains("\"originalTable_scrambled_synopsis\""));
+    assertTrue(actual.contains("sum(vt1.\"verdictdbsynopsissum_value\")"));
+    assertTrue(actual.contains("sum(vt1.\"verdictdbsynopsiscount\")"));
+
+    // the final answer computed from the synopsis is exact
+    List<List<Object>> answer = runPlan(plan);
+    List<List<Object>> exact =
+        exactAnswer(
+            "SELECT \"grp\", avg(\"value\"), count(*) FROM \"originalSchema\".\"originalTable\" "
+                + "WHERE \"grp\" > 0 GROUP BY \"grp\" ORDER BY \"grp\"");
+    assertAnswerEquals(exact, answer);
+  }
+
+  @Test
+  public void testSumQueryMatchesExactAnswer() throws VerdictDBException, SQLException {
+    QueryExecutionPlan plan =
+        createAsyncPlan("select sum(value), count(*) from originalTable_scrambled where grp = 1");
+    assertTrue(individualAggSql(plan).contains("\"originalTable_scrambled_synopsis\""));
+
+    List<List<Object>> answer = runPlan(plan);
+    List<List<Object>> exact =
+        exactAnswer(
+            "SELECT sum(\"value\"), count(*) FROM \"originalSchema\".\"originalTable\" "
+                + "WHERE \"grp\" = 1");
+    assertAnswerEquals(exact, answer);
+  }
+
+  @Test
+  public void testNonMatchingQueryReadsScramble() throws VerdictDBException, SQLException {
+    // max() cannot be computed from a synopsis
+    QueryExecutionPlan plan =
+        createAsyncPlan("select grp, max(value) from originalTable_scrambled group by grp");
+    String actual = individualAggSql(plan);
+    assertFalse(actual.contains("synopsis"));
+    assertTrue(actual.contains("\"originalTable_scrambled\""));
+    runPlan(plan);
+
+    // the predicate on a measure column cannot be evaluated on a synopsis
+    plan = createAsyncPlan("select sum(value) from originalTable_scrambled where value > 10");
+    actual = individualAggSql(plan);
+    assertFalse(actual.contains("synopsis"));
+    runPlan(plan);
+  }
+
+  @Test
+  public void testDropScrambleDropsSynopsis() throws VerdictDBException, SQLException {
+    JdbcConnection dbmsConn = new JdbcConnection(conn, new H2Syntax());
+    ScrambleMeta dropped =
+        createScrambleWithSynopsis("dropped_scrambled", "dropped_scrambled_synopsis");
+    assertTrue(dropped.hasSynopsis());
+
+    // H2 creates the store schema in upper case
+    VerdictContext context =
+        new VerdictContext(dbmsConn, new ScrambleMetaStore(dbmsConn, "ASYNCAGGSYNOPSISTEST"));
+    context.getScrambleMetaStore().addToStore(dropped);
+    List<String> tables = dbmsConn.getTables(originalSchema);
+    assertTrue(tables.contains("dropped_scrambled"));
+    assertTrue(tables.contains(dropped.getSynopsisTableName()));
+
+    context.sql("drop scramble originalSchema.dropped_scrambled");
+    tables = dbmsConn.getTables(originalSchema);
+    assertFalse(tables.contains("dropped_scrambled"));
+    assertFalse(tables.contains(dropped.getSynopsisTableName()));
+    assertFalse(
+        context.getScrambleMetaStore().retrieve().isScrambled(originalSchema, "dropped_scrambled"));
+  }
+
+  /** Creates a scramble and its synopsis in the same way as ScramblingPlan does. */
+  private static ScrambleMeta createScrambleWithSynopsis(
+      String scrambledTable, String synopsisTable) throws VerdictDBException, SQLException {
+    UniformScrambler scrambler =
+        new UniformScrambler(originalSchema, originalTable, originalSchema, scrambledTable, 2);
+    CreateTableAsSelectQuery scramblingQuery = scrambler.createQuery();
+    stmt.executeUpdate(QueryToSql.convert(new H2Syntax(), scramblingQuery));
+    ScrambleMeta tablemeta = scrambler.generateMeta();
+    tablemeta.setNumberOfTiers(1);
+    HashMap<Integer, List<Double>> distribution = new HashMap<>();
+    distribution.put(0, Arrays.asList(0.5, 1.0));
+    tablemeta.setCumulativeDistributionForTier(distribution);
+
+    SynopsisCreationNode synopsisNode =
+        SynopsisCreationNode.create(
+            originalSchema,
+            scrambledTable,
+            originalSchema,
+            synopsisTable,
+            tablemeta.getTierColumn(),
+            tablemeta.getAggregationBlockColumn(),
+            Arrays.asList("grp"),
+            Arrays.asList("value"));
+    ExecutablePlanRunner.runTillEnd(
+        new JdbcConnection(conn, new H2Syntax()), new SimpleTreePlan(synopsisNode));
+    tablemeta.setSynopsisSchemaName(originalSchema);
+    tablemeta.setSynopsisTableName(synopsisTable);
+    tablemeta.setSynopsisDimensionColumns(Arrays.asList("grp"));
+    tablemeta.setSynopsisMeasureColumns(Arrays.asList("value"));
+    return tablemeta;
+  }
+
+  private QueryExecutionPlan createAsyncPlan(String sql) throws VerdictDBException {
+    RelationStandardizer.resetItemID();
+    NonValidatingSQLParser sqlToRelation = new NonValidatingSQLParser();
+    AbstractRelation relation = sqlToRelation.toRelation(sql);
+    RelationStandardizer gen = new RelationStandardizer(staticMetaData);
+    relation = gen.standardize((SelectQuery) relation);
+
+    QueryExecutionPlan queryExecutionPlan =
+        QueryExecutionPlanFactory.create("verdictdb_temp", meta, (SelectQuery) relation);
+    queryExecutionPlan.cleanUp();
+    return AsyncQueryExecutionPlan.create(queryExecutionPlan);
+  }
+
+  private String individualAggSql(QueryExecutionPlan plan) throws VerdictDBException {
+    ExecutionInfoToken token = new ExecutionInfoToken();
+    CreateTableAsSelectQuery query =
+        (CreateTableAsSelectQuery)
+            plan.getRoot().getSources().get(0).getSources().get(0).createQuery(
+                Arrays.asList(token));
+    return new SelectQueryToSql(new H2Syntax()).toSql(query.getSelect());
+  }
+
+  /** @return The rows of the final answer sorted by the first column */
+  private List<List<Object>> runPlan(QueryExecutionPlan plan)
+      throws VerdictDBException, SQLException {
+    stmt.execute("create schema if not exists \"verdictdb_temp\";");
+    ExecutionResultReader reader =
+        ExecutablePlanRunner.getResultReader(new JdbcConnection(conn, new H2Syntax()), plan);
+    List<List<Object>> answer = new ArrayList<>();
+    while (reader.hasNext()) {
+      DbmsQueryResult result = reader.next();
+      answer = new ArrayList<>();
+      while (result.next()) {
+        List<Object> row = new ArrayList<>();
+        for (int i = 0; i < result.getColumnCount(); i++) {
+          row.add(result.getValue(i));
+        }
+        answer.add(row);
+      }
+    }
+    stmt.execute("drop schema \"verdictdb_temp\" cascade;");
+
+    Collections.sort(
+        answer,
+        new Comparator<List<Object>>() {
+          @Override
+          public int compare(List<Object> o1, List<Object> o2) {
+            return Double.compare(toDouble(o1.get(0)), toDouble(o2.get(0)));
+          }
+        });
+    return answer;
+  }
+
+  private List<List<Object>> exactAnswer(String sql) throws SQLException {
+    List<List<Object>> answer = new ArrayList<>();
+    ResultSet rs = stmt.executeQuery(sql);
+    while (rs.next()) {
+      List<Object> row = new ArrayList<>();
+      for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
+        row.add(rs.getObject(i));
+      }
+      answer.add(row);
+    }
+    return answer;
+  }
+
+  private void assertAnswerEquals(List<List<Object>> expected, List<List<Object>> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).size(), actual.get(i).size());
+      for (int j = 0; j < expected.get(i).size(); j++) {
+        assertEquals(
+            toDouble(expected.get(i).get(j)), toDouble(actual.get(i).get(j)), 1e-6);
+      }
+    }
+  }
+
+  private static double toDouble(Object value) {
+    return ((Number) value).doubleValue();
+  }
+}
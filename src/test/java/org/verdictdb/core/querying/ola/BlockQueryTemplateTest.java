@@ -0,0 +1,188 @@
+package org.verdictdb.core.querying.ola;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.verdictdb.core.execplan.ExecutionInfoToken;
+import org.verdictdb.core.querying.AggExecutionNode;
+import org.verdictdb.core.querying.ExecutableNodeBase;
+import org.verdictdb.core.querying.QueryExecutionPlan;
+import org.verdictdb.core.querying.QueryExecutionPlanFactory;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.core.sqlobject.BaseColumn;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.ColumnOp;
+import org.verdictdb.core.sqlobject.ConstantColumn;
+import org.verdictdb.core.sqlobject.CreateTableAsSelectQuery;
+import org.verdictdb.core.sqlobject.SelectItem;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.core.sqlobject.SqlConvertible;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+import org.verdictdb.sqlsyntax.H2Syntax;
+import org.verdictdb.sqlsyntax.MysqlSyntax;
+import org.verdictdb.sqlwriter.QueryToSql;
+import org.verdictdb.sqlwriter.SqlTemplate;
+import org.verdictdb.sqlwriter.TemplatedQuery;
+
+public class BlockQueryTemplateTest {
+
+  static String schema = "myschema";
+
+  static QueryExecutionPlan createAsyncPlan(String sql, int blockCount)
+      throws VerdictDBException {
+    List<Double> cumulativeDistribution = new ArrayList<>();
+    for (int i = 1; i <= blockCount; i++) {
+      cumulativeDistribution.add(i / (double) blockCount);
+    }
+    Map<Integer, List<Double>> distribution = new HashMap<>();
+    distribution.put(0, cumulativeDistribution);
+    ScrambleMetaSet metaSet = new ScrambleMetaSet();
+    metaSet.addScrambleMeta(
+        new ScrambleMeta(
+            schema, "mytable_scrambled", schema, "mytable", "verdictdbblock", blockCount,
+            "verdictdbtier", 1, distribution));
+
+    SelectQuery query = (SelectQuery) new NonValidatingSQLParser().toRelation(sql);
+    QueryExecutionPlan plan = QueryExecutionPlanFactory.create(schema, metaSet, query);
+    return AsyncQueryExecutionPlan.create(plan);
+  }
+
+  // the individual aggregations in the order of the blocks
+  static List<AggExecutionNode> findBlockAggNodes(QueryExecutionPlan plan) {
+    List<ExecutableNodeBase> toVisit = new ArrayList<>(Arrays.asList(plan.getRoot()));
+    while (!(toVisit.get(0) instanceof AsyncAggExecutionNode)) {
+      toVisit.addAll(toVisit.remove(0).getExecutableNodeBaseDependents());
+    }
+    ExecutableNodeBase asyncNode = toVisit.get(0);
+    List<AggExecutionNode> nodes = new ArrayList<>();
+    nodes.add((AggExecutionNode) asyncNode.getExecutableNodeBaseDependent(0));
+    for (int i = 1; i < asyncNode.getDependentNodeCount(); i++) {
+      ExecutableNodeBase combiner = asyncNode.getExecutableNodeBaseDependent(i);
+      nodes.add((AggExecutionNode) combiner.getExecutableNodeBaseDependent(1));
+    }
+    return nodes;
+  }
+
+  static List<ExecutionInfoToken> createTokens(ExecutableNodeBase node, String tablePrefix) {
+    List<ExecutionInfoToken> tokens = new ArrayList<>();
+    for (int i = 0; i < node.getSources().size(); i++) {
+      ExecutionInfoToken token = new ExecutionInfoToken();
+      token.setKeyValue("schemaName", "scratch");
+      token.setKeyValue("tableName", tablePrefix + i);
+      tokens.add(token);
+    }
+    return tokens;
+  }
+
+  static String convertWithoutTemplate(AggExecutionNode node) throws VerdictDBException {
+    ExecutionInfoToken token = node.createToken(null);
+    return QueryToSql.convert(
+        new H2Syntax(),
+        new CreateTableAsSelectQuery(
+            (String) token.getValue("schemaName"),
+            (String) token.getValue("tableName"),
+            node.getSelectQuery()));
+  }
+
+  @Test
+  public void testBlockQueriesFromTemplate() throws VerdictDBException {
+    String sql =
+        "select t.g as g, sum(t.p) as s, count(*) as c "
+            + "from (select o.g as g, o.p * 2 as p from myschema.mytable_scrambled as o "
+            + "where o.q > 1) as t group by t.g";
+    QueryExecutionPlan plan = createAsyncPlan(sql, 12);
+    List<AggExecutionNode> nodes = findBlockAggNodes(plan);
+    assertEquals(12, nodes.size());
+
+    // the placeholders (of the subquery) are filled as well.
+    assertEquals(1, nodes.get(0).getSources().size());
+    for (int i = 0; i < nodes.size(); i++) {
+      AggExecutionNode node = nodes.get(i);
+      SqlConvertible query = node.createQuery(createTokens(node, "block" + i + "_"));
+      assertTrue(query instanceof TemplatedQuery);
+      String filled = QueryToSql.convert(new H2Syntax(), query);
+      assertEquals(convertWithoutTemplate(node), filled);
+      assertTrue(filled.contains("block" + i + "_0"));
+    }
+
+    // rendered again for another syntax
+    AggExecutionNode node = nodes.get(5);
+    SqlConvertible query = node.createQuery(createTokens(node, "other"));
+    ExecutionInfoToken token = node.createToken(null);
+    assertEquals(
+        QueryToSql.convert(
+            new MysqlSyntax(),
+            new CreateTableAsSelectQuery(
+                (String) token.getValue("schemaName"),
+                (String) token.getValue("tableName"),
+                node.getSelectQuery())),
+        QueryToSql.convert(new MysqlSyntax(), query));
+  }
+
+  @Test
+  public void testDifferentQueryIsConvertedAsUsual() throws VerdictDBException {
+    String sql = "select count(*) as c from myschema.mytable_scrambled as o where o.q > 1";
+    QueryExecutionPlan plan = createAsyncPlan(sql, 3);
+    List<AggExecutionNode> nodes = findBlockAggNodes(plan);
+    assertEquals(3, nodes.size());
+    nodes
+        .get(2)
+        .getSelectQuery()
+        .addFilterByAnd(ColumnOp.less(new BaseColumn("o", "q"), ConstantColumn.valueOf(10)));
+
+    assertTrue(nodes.get(0).createQuery(null) instanceof TemplatedQuery);
+    assertTrue(nodes.get(1).createQuery(null) instanceof TemplatedQuery);
+    SqlConvertible query = nodes.get(2).createQuery(null);
+    assertFalse(query instanceof TemplatedQuery);
+    assertTrue(QueryToSql.convert(new H2Syntax(), query).contains("\"verdictdbblock\" = 2"));
+
+    // the block range of the template is not changed by the others.
+    String filled = QueryToSql.convert(new H2Syntax(), nodes.get(0).createQuery(null));
+    assertTrue(filled.contains("\"verdictdbblock\" = 0"));
+  }
+
+  @Test
+  public void testPlanCopiesHaveTheirOwnTemplates() throws VerdictDBException {
+    String sql = "select count(*) as c from myschema.mytable_scrambled as o where o.q > 1";
+    QueryExecutionPlan plan = createAsyncPlan(sql, 3);
+    AggExecutionNode node = findBlockAggNodes(plan).get(1);
+    node.createQuery(null);
+
+    QueryExecutionPlan copy = plan.deepcopy();
+    AggExecutionNode copied = findBlockAggNodes(copy).get(1);
+    copied.getSelectQuery().addLimit(ConstantColumn.valueOf(5));
+    SqlConvertible query = copied.createQuery(null);
+    assertTrue(query instanceof TemplatedQuery);
+    assertEquals(convertWithoutTemplate(copied), QueryToSql.convert(new H2Syntax(), query));
+  }
+
+  @Test
+  public void testSqlTemplate() throws VerdictDBException {
+    List<String> values = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      values.add("v" + i);
+    }
+    SelectQuery query =
+        SelectQuery.create(
+            Arrays.<SelectItem>asList(
+                new BaseColumn(SqlTemplate.marker(11), "a"),
+                ConstantColumn.valueOf(SqlTemplate.marker(1))),
+            new BaseTable(SqlTemplate.marker(0), SqlTemplate.marker(10), "t"));
+    SqlTemplate template = new SqlTemplate(query, values.size());
+    assertEquals(
+        "select v11.\"a\", v1 from \"v0\".\"v10\" as t",
+        template.fill(new H2Syntax(), values));
+    assertEquals(
+        "select v11.`a`, v1 from `v0`.`v10` as t", template.fill(new MysqlSyntax(), values));
+  }
+}
@@ -0,0 +1,60 @@
+package org.verdictdb.core.scrambling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.verdictdb.exception.VerdictDBValueException;
+
+public class CumulativeDistributionEncoderTest {
+
+  @Test
+  public void testUniformDistribution() throws VerdictDBValueException {
+    List<Double> dist = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      dist.add((i + 1) / (double) 1000);
+    }
+    String encoded = CumulativeDistributionEncoder.encode(dist);
+    assertEquals("u1:1000", encoded);
+    assertEquals(dist, CumulativeDistributionEncoder.decode(encoded));
+  }
+
+  @Test
+  public void testRepeatedIncrements() throws VerdictDBValueException {
+    // a few small blocks followed by equal-sized blocks, as in fast-converge scrambling
+    List<Double> dist = new ArrayList<>();
+    double value = 0;
+    for (int i = 0; i < 3; i++) {
+      value += 0.001;
+      dist.add(value);
+    }
+    for (int i = 0; i < 500; i++) {
+      value += 0.125;
+      dist.add(value);
+    }
+    String encoded = CumulativeDistributionEncoder.encode(dist);
+    assertTrue(encoded.startsWith("r1:"));
+    assertTrue(encoded.length() < 100);
+    assertEquals(dist, CumulativeDistributionEncoder.decode(encoded));
+  }
+
+  @Test
+  public void testArbitraryDistribution() throws VerdictDBValueException {
+    List<Double> dist = Arrays.asList(0.3, 0.6, 1.0);
+    String encoded = CumulativeDistributionEncoder.encode(dist);
+    assertEquals(dist, CumulativeDistributionEncoder.decode(encoded));
+
+    List<Double> empty = new ArrayList<>();
+    String encodedEmpty = CumulativeDistributionEncoder.encode(empty);
+    assertEquals(empty, CumulativeDistributionEncoder.decode(encodedEmpty));
+  }
+
+  @Test(expected = VerdictDBValueException.class)
+  public void testUnknownEncoding() throws VerdictDBValueException {
+    CumulativeDistributionEncoder.decode("x9:abc");
+  }
+}
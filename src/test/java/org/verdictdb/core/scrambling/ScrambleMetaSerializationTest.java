@@ -1,7 +1,11 @@
 package org.verdictdb.core.scrambling;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -66,4 +70,56 @@ public class ScrambleMetaSerializationTest {
     assertEquals(expected, actual);
   }
 
+  @Test
+  public void testCompactSerialization() throws VerdictDBValueException {
+    ScrambleMeta meta = createScrambleMeta();
+    String compact = meta.toCompactString();
+    assertFalse(compact.contains("cumulativeDistributions"));
+    assertEquals(meta, ScrambleMeta.fromJsonString(compact));
+  }
+
+  @Test
+  public void testCompactSerializationOfManyBlocks() throws VerdictDBValueException {
+    int blockCount = 2000;
+    Map<Integer, List<Double>> distributions = new HashMap<>();
+    for (int tier = 0; tier < 3; tier++) {
+      List<Double> dist = new ArrayList<>();
+      for (int i = 0; i < blockCount; i++) {
+        dist.add((i + 1) / (double) blockCount);
+      }
+      distributions.put(tier, dist);
+    }
+    ScrambleMeta meta =
+        new ScrambleMeta(
+            "schema", "table", "schema", "original", "block", blockCount, "tier", 3,
+            distributions);
+
+    String compact = meta.toCompactString();
+    assertTrue(compact.length() < 500);
+    assertTrue(meta.toJsonString().length() > 10000);
+    assertEquals(meta, ScrambleMeta.fromJsonString(compact));
+  }
+
+
+  @Test
+  public void testDenormalizedSourceSerialization() throws VerdictDBValueException {
+    DenormalizedSource source = new DenormalizedSource();
+    source.addTable("s", "fact");
+    source.addTable("s", "dim");
+    source.addJoinCondition(
+        DenormalizedSource.columnKey("s", "fact", "d_id"),
+        DenormalizedSource.columnKey("s", "dim", "id"));
+    source.addColumn("s", "fact", "d_id", "d_id");
+    source.addColumn("s", "dim", "name", "dim_name");
+    ScrambleMeta meta = createScrambleMeta();
+    meta.setDenormalizedSource(source);
+
+    DenormalizedSource copied =
+        ScrambleMeta.fromJsonString(meta.toCompactString()).getDenormalizedSource();
+    assertEquals(source, copied);
+    assertEquals(source.hashCode(), copied.hashCode());
+
+    copied.addColumn("s", "dim", "weight", "dim_weight");
+    assertNotEquals(source, copied);
+  }
 }
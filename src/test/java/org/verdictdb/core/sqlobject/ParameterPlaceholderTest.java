@@ -0,0 +1,59 @@
+package org.verdictdb.core.sqlobject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+
+public class ParameterPlaceholderTest {
+
+  @Test
+  public void testSetValueThroughParameters() throws VerdictDBException {
+    SelectQuery query =
+        (SelectQuery) new NonValidatingSQLParser().toRelation("select a from t where a < ?");
+    QueryParameters parameters = QueryParameters.attach(query);
+    ParameterPlaceholder placeholder =
+        (ParameterPlaceholder) ((ColumnOp) query.getFilter().get()).getOperand(1);
+    ParameterPlaceholder copied = placeholder.deepcopy();
+    assertEquals("?", placeholder.getValue());
+
+    placeholder.setValue("10");
+    assertEquals("10", parameters.getValue(0));
+    assertEquals("10", copied.getValue());
+
+    copied.setValue(null);
+    assertFalse(parameters.isSet(0));
+    assertEquals("?", placeholder.getValue());
+  }
+
+  @Test
+  public void testPlaceholdersInSubqueriesAndJoins() throws VerdictDBException {
+    SelectQuery query =
+        (SelectQuery)
+            new NonValidatingSQLParser()
+                .toRelation(
+                    "select a from t inner join s on t.x = ? "
+                        + "where a < ? and b in (select c from u where d = ?) "
+                        + "group by a having count(*) > ?");
+    QueryParameters parameters = QueryParameters.attach(query);
+    assertEquals(4, parameters.getCount());
+
+    // the parameters are numbered in the order they appear in the query.
+    JoinTable join = (JoinTable) query.getFromList().get(0);
+    ColumnOp joinCondition = (ColumnOp) join.getCondition().get(0);
+    ((ParameterPlaceholder) joinCondition.getOperand(1)).setValue("1");
+    ColumnOp having = (ColumnOp) query.getHaving().get();
+    ((ParameterPlaceholder) having.getOperand(1)).setValue("4");
+    assertEquals("1", parameters.getValue(0));
+    assertFalse(parameters.isSet(1));
+    assertFalse(parameters.isSet(2));
+    assertEquals("4", parameters.getValue(3));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testSetValueWithoutParameters() {
+    new ParameterPlaceholder(0).setValue("10");
+  }
+}
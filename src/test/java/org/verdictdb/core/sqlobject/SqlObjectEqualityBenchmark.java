@@ -0,0 +1,207 @@
+package org.verdictdb.core.sqlobject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+
+import com.google.common.base.Optional;
+
+/**
+ * Compares the structural equals() and hashCode() of the sql objects with the reflective ones
+ * they replaced (i.e., EqualsBuilder.reflectionEquals() and HashCodeBuilder.reflectionHashCode()
+ * in every class), on the TPC-H queries and a query with many aggregates. Not a part of the test
+ * suite; run it with the test classpath, optionally passing the number of iterations.
+ */
+public class SqlObjectEqualityBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+    List<String> sqls = readTpchQueries();
+    StringBuilder wide = new StringBuilder("select g");
+    for (int i = 0; i < 160; i++) {
+      wide.append(String.format(", sum(c%d * %d), avg(c%d)", i % 20, i, (i + 1) % 20));
+    }
+    sqls.add(wide.append(" from wide_scrambled group by g").toString());
+
+    // the queries are parsed twice so that the equal ones are distinct objects.
+    List<SelectQuery> queries = new ArrayList<>();
+    List<SelectQuery> others = new ArrayList<>();
+    for (String sql : sqls) {
+      queries.add((SelectQuery) new NonValidatingSQLParser().toRelation(sql));
+      NonValidatingSQLParser.clearParseTreeCache();
+      others.add((SelectQuery) new NonValidatingSQLParser().toRelation(sql));
+    }
+    for (int i = 0; i < queries.size(); i++) {
+      if (!queries.get(i).equals(others.get(i))
+          || !reflectionEquals(queries.get(i), others.get(i))) {
+        throw new IllegalStateException("Not equal: " + sqls.get(i));
+      }
+    }
+
+    // warms up the JIT compiler
+    measure(queries, others, iterations, true);
+    measure(queries, others, iterations, false);
+
+    long[] structural = measure(queries, others, iterations, true);
+    long[] reflective = measure(queries, others, iterations, false);
+    int calls = iterations * queries.size();
+    System.out.println(
+        String.format(
+            "hashCode (us/query): structural %.1f, reflective %.1f",
+            structural[0] / 1e3 / calls, reflective[0] / 1e3 / calls));
+    System.out.println(
+        String.format(
+            "equals (us/query): structural %.1f, reflective %.1f",
+            structural[1] / 1e3 / calls, reflective[1] / 1e3 / calls));
+  }
+
+  /** @return The nanoseconds taken by hashCode() and equals() */
+  private static long[] measure(
+      List<SelectQuery> queries, List<SelectQuery> others, int iterations, boolean structural) {
+    int sink = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      for (SelectQuery query : queries) {
+        sink += structural ? query.hashCode() : reflectionHashCode(query);
+      }
+    }
+    long hashNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      for (int j = 0; j < queries.size(); j++) {
+        boolean equal =
+            structural
+                ? queries.get(j).equals(others.get(j))
+                : reflectionEquals(queries.get(j), others.get(j));
+        sink += equal ? 1 : 0;
+      }
+    }
+    long equalsNanos = System.nanoTime() - start;
+    if (sink == 42) {
+      System.out.println(); // keeps the calls from being eliminated
+    }
+    return new long[] {hashNanos, equalsNanos};
+  }
+
+  /** The fields are looked up on every call, as HashCodeBuilder.reflectionHashCode() does. */
+  private static int reflectionHashCode(Object object) {
+    if (object == null) {
+      return 0;
+    }
+    if (object instanceof Collection) {
+      int hash = 1;
+      for (Object element : (Collection<?>) object) {
+        hash = 31 * hash + reflectionHashCode(element);
+      }
+      return hash;
+    }
+    if (object instanceof Optional) {
+      Optional<?> optional = (Optional<?>) object;
+      return optional.isPresent() ? reflectionHashCode(optional.get()) : 0;
+    }
+    if (!isSqlObject(object)) {
+      return object.hashCode();
+    }
+    HashCodeBuilder builder = new HashCodeBuilder(17, 37);
+    for (Field field : getFields(object.getClass())) {
+      builder.append(reflectionHashCode(getValue(field, object)));
+    }
+    return builder.toHashCode();
+  }
+
+  private static boolean reflectionEquals(Object left, Object right) {
+    if (left == right) {
+      return true;
+    }
+    if (left == null || right == null) {
+      return false;
+    }
+    if (left instanceof Collection && right instanceof Collection) {
+      Collection<?> leftCollection = (Collection<?>) left;
+      Collection<?> rightCollection = (Collection<?>) right;
+      if (leftCollection.size() != rightCollection.size()) {
+        return false;
+      }
+      Iterator<?> it = rightCollection.iterator();
+      for (Object element : leftCollection) {
+        if (!reflectionEquals(element, it.next())) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (left instanceof Optional && right instanceof Optional) {
+      Optional<?> leftOptional = (Optional<?>) left;
+      Optional<?> rightOptional = (Optional<?>) right;
+      return leftOptional.isPresent() == rightOptional.isPresent()
+          && (!leftOptional.isPresent()
+              || reflectionEquals(leftOptional.get(), rightOptional.get()));
+    }
+    if (!isSqlObject(left)) {
+      return left.equals(right);
+    }
+    if (left.getClass() != right.getClass()) {
+      return false;
+    }
+    for (Field field : getFields(left.getClass())) {
+      if (!reflectionEquals(getValue(field, left), getValue(field, right))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isSqlObject(Object object) {
+    return object.getClass().getName().startsWith("org.verdictdb.core.sqlobject.");
+  }
+
+  /** @return The non-static and non-transient fields of a class and its superclasses */
+  private static List<Field> getFields(Class<?> clazz) {
+    List<Field> fields = new ArrayList<>();
+    for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+          field.setAccessible(true);
+          fields.add(field);
+        }
+      }
+    }
+    return fields;
+  }
+
+  private static Object getValue(Field field, Object object) {
+    try {
+      return field.get(object);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static List<String> readTpchQueries() throws IOException {
+    List<String> queries = new ArrayList<>();
+    for (int i = 1; i <= 22; i++) {
+      InputStream in =
+          SqlObjectEqualityBenchmark.class
+              .getClassLoader()
+              .getResourceAsStream(String.format("tpch_test_query/query%d.sql", i));
+      String sql = IOUtils.toString(in, "UTF-8");
+      in.close();
+      // some of the query files are empty
+      if (!sql.trim().isEmpty()) {
+        queries.add(sql);
+      }
+    }
+    return queries;
+  }
+}
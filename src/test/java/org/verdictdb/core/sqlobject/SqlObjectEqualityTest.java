@@ -0,0 +1,71 @@
+package org.verdictdb.core.sqlobject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+
+public class SqlObjectEqualityTest {
+
+  @Test
+  public void testStructuralEquality() throws VerdictDBException {
+    String sql =
+        "select t.a, sum(t.b * 2) as s, count(*) from myschema.mytable as t "
+            + "where t.c > 10 and t.d like 'x%' group by t.a order by t.a";
+    SelectQuery query1 = (SelectQuery) new NonValidatingSQLParser().toRelation(sql);
+    SelectQuery query2 = (SelectQuery) new NonValidatingSQLParser().toRelation(sql);
+    assertEquals(query1, query2);
+    assertEquals(query1.hashCode(), query2.hashCode());
+    assertEquals(query1, SerializationUtils.clone(query1));
+    assertEquals(query1.hashCode(), SerializationUtils.clone(query1).hashCode());
+
+    query2.addFilterByAnd(ColumnOp.equal(new BaseColumn("t", "a"), ConstantColumn.valueOf(1)));
+    assertNotEquals(query1, query2);
+  }
+
+  @Test
+  public void testHashIsResetOnMutation() {
+    BaseColumn column = new BaseColumn("s", "t", "a");
+    ColumnOp op = ColumnOp.sum(column);
+    Map<Pair<String, UnnamedColumn>, String> aliases = new HashMap<>();
+    aliases.put(new ImmutablePair<String, UnnamedColumn>("sum", op), "agg0");
+
+    column.setTableSourceAlias("u");
+    assertFalse(aliases.containsKey(new ImmutablePair<String, UnnamedColumn>("sum", op)));
+    assertEquals(new BaseColumn("s", "u", "a"), column);
+    assertEquals(new BaseColumn("s", "u", "a").hashCode(), column.hashCode());
+    assertEquals(ColumnOp.sum(new BaseColumn("s", "u", "a")), op);
+
+    ConstantColumn constant = ConstantColumn.valueOf(1);
+    int hash = constant.hashCode();
+    constant.setValue("2");
+    assertEquals(ConstantColumn.valueOf(2), constant);
+    assertNotEquals(hash, constant.hashCode());
+
+    BaseTable table = new BaseTable("s", "t");
+    table.setAliasName("x");
+    assertEquals(new BaseTable("s", "t", "x"), table);
+    assertEquals(new BaseTable("s", "t", "x").hashCode(), table.hashCode());
+  }
+
+  @Test
+  public void testDifferentClasses() {
+    assertNotEquals(ConstantColumn.valueOf("?"), new ParameterPlaceholder(0));
+    assertNotEquals(new ParameterPlaceholder(0), ConstantColumn.valueOf("?"));
+    assertNotEquals(new AliasReference("a"), new BaseColumn("a"));
+    assertTrue(
+        Arrays.<SelectItem>asList(new AliasedColumn(new BaseColumn("t", "a"), "x"))
+            .contains(new AliasedColumn(new BaseColumn("t", "a"), "x")));
+  }
+}
@@ -0,0 +1,133 @@
+package org.verdictdb.jdbc41;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.VerdictContext;
+import org.verdictdb.coordinator.ExecutionContext;
+import org.verdictdb.coordinator.PreparedSelectQuery;
+import org.verdictdb.coordinator.VerdictSingleResult;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlreader.NonValidatingSQLParser;
+
+public class VerdictPreparedStatementTest {
+
+  static final String SCHEMA = "preparedtest";
+
+  static VerdictContext vc;
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException, VerdictDBException {
+    Connection h2conn =
+        DriverManager.getConnection("jdbc:h2:mem:verdictpreparedstatementtest;DB_CLOSE_DELAY=-1");
+    Statement stmt = h2conn.createStatement();
+    stmt.execute(String.format("CREATE SCHEMA IF NOT EXISTS \"%s\"", SCHEMA));
+    stmt.execute(
+        String.format("CREATE TABLE \"%s\".\"sales\" (\"id\" int, \"label\" varchar(10))", SCHEMA));
+    for (int i = 0; i < 100; i++) {
+      stmt.execute(
+          String.format("INSERT INTO \"%s\".\"sales\" VALUES (%d, 'n%d')", SCHEMA, i, i % 3));
+    }
+    stmt.close();
+    vc = VerdictContext.fromJdbcConnection(h2conn);
+  }
+
+  @Test
+  public void testFindParameterPositions() {
+    String sql = "select '?', \"a?\" from t where a < ? and b = ?";
+    assertEquals(
+        Arrays.asList(sql.indexOf("< ?") + 2, sql.length() - 1),
+        NonValidatingSQLParser.findParameterPositions(sql));
+  }
+
+  @Test
+  public void testPreparedQueryIsCompiledOnce() throws VerdictDBException {
+    ExecutionContext context = vc.createNewExecutionContext();
+    PreparedSelectQuery prepared =
+        context.prepare(
+            String.format("select count(*) from %s.sales where id < ? and label <> ?", SCHEMA));
+    assertEquals(2, prepared.getParameterCount());
+    assertTrue(context.isUpToDate(prepared));
+
+    VerdictSingleResult result = context.sql(prepared, Arrays.asList("50", "'n0'"));
+    result.next();
+    assertEquals(33, result.getInt(0));
+
+    result = context.sql(prepared, Arrays.asList("10", "'n1'"));
+    result.next();
+    assertEquals(7, result.getInt(0));
+
+    // non-select statements are not compiled.
+    assertNull(context.prepare(String.format("use %s", SCHEMA)));
+  }
+
+  @Test
+  public void testExecuteQuery() throws SQLException {
+    VerdictPreparedStatement pstmt =
+        new VerdictPreparedStatement(
+            String.format(
+                "select id, label from %s.sales where id >= ? and label = ? order by id", SCHEMA),
+            new VerdictStatement(null, vc));
+    for (int i = 0; i < 2; i++) {
+      pstmt.setLong(1, 90 + i);
+      pstmt.setString(2, "n2");
+      ResultSet rs = pstmt.executeQuery();
+      assertTrue(rs.next());
+      assertEquals(92, rs.getInt(1));
+      assertEquals("n2", rs.getString(2));
+      assertTrue(rs.next());
+      assertEquals(95, rs.getInt(1));
+    }
+
+    // the quotes in strings are escaped.
+    pstmt.setInt(1, 0);
+    pstmt.setString(2, "it's");
+    assertFalse(pstmt.executeQuery().next());
+  }
+
+  @Test
+  public void testSpecialCharactersAreEscaped() throws SQLException {
+    VerdictPreparedStatement pstmt =
+        new VerdictPreparedStatement(
+            String.format("select count(*) from %s.sales where label = ?", SCHEMA),
+            new VerdictStatement(null, vc));
+    for (String value : Arrays.asList("n0\\' or 'a'='a", "n0' or 'a'='a", "\\", "n0;\"\n")) {
+      pstmt.setString(1, value);
+      ResultSet rs = pstmt.executeQuery();
+      assertTrue(rs.next());
+      assertEquals(0, rs.getInt(1));
+
+      pstmt.setObject(1, value);
+      rs = pstmt.executeQuery();
+      assertTrue(rs.next());
+      assertEquals(0, rs.getInt(1));
+    }
+
+    pstmt.setString(1, "n0");
+    ResultSet rs = pstmt.executeQuery();
+    assertTrue(rs.next());
+    assertEquals(34, rs.getInt(1));
+  }
+
+  @Test(expected = SQLException.class)
+  public void testUnsetParameter() throws SQLException {
+    VerdictPreparedStatement pstmt =
+        new VerdictPreparedStatement(
+            String.format("select count(*) from %s.sales where id < ?", SCHEMA),
+            new VerdictStatement(null, vc));
+    pstmt.setInt(1, 10);
+    pstmt.clearParameters();
+    pstmt.executeQuery();
+  }
+}
@@ -0,0 +1,144 @@
+package org.verdictdb.metastore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.VerdictContext;
+import org.verdictdb.connection.DbmsConnection;
+import org.verdictdb.connection.JdbcConnection;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.exception.VerdictDBException;
+
+public class CachedScrambleMetaStoreTest {
+
+  static Connection h2conn;
+
+  static DbmsConnection conn;
+
+  // H2 creates the store schema in upper case
+  static final String STORE_SCHEMA = "CACHEDMETASTORETEST";
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException, VerdictDBException {
+    h2conn =
+        DriverManager.getConnection("jdbc:h2:mem:cachedscramblemetastoretest;DB_CLOSE_DELAY=-1");
+    conn = JdbcConnection.create(h2conn);
+  }
+
+  @Before
+  public void dropStore() throws SQLException {
+    h2conn.createStatement().execute(
+        String.format("DROP SCHEMA IF EXISTS \"%s\" CASCADE", STORE_SCHEMA));
+  }
+
+  @Test
+  public void testSnapshotIsReusedUntilChanged() throws VerdictDBException {
+    CachedScrambleMetaStore store = new CachedScrambleMetaStore(conn, STORE_SCHEMA);
+    ScrambleMetaSet empty = store.retrieve();
+    assertFalse(empty.iterator().hasNext());
+    assertSame(empty, store.retrieve());
+
+    long version = store.getVersion();
+    store.addToStore(createScrambleMeta("myschema", "mytable1"));
+    assertTrue(store.getVersion() > version);
+
+    ScrambleMetaSet snapshot = store.retrieve();
+    assertNotSame(empty, snapshot);
+    assertTrue(snapshot.isScrambled("myschema", "mytable1"));
+    assertSame(snapshot, store.retrieve());
+
+    // the snapshot handed out earlier does not change
+    assertFalse(empty.isScrambled("myschema", "mytable1"));
+  }
+
+  @Test
+  public void testRefreshLoadsExternalChanges() throws VerdictDBException {
+    CachedScrambleMetaStore store = new CachedScrambleMetaStore(conn, STORE_SCHEMA);
+    assertFalse(store.retrieve().isScrambled("myschema", "mytable2"));
+
+    // added by another store
+    new ScrambleMetaStore(conn, STORE_SCHEMA).addToStore(createScrambleMeta("myschema", "mytable2"));
+    assertFalse(store.retrieve().isScrambled("myschema", "mytable2"));
+
+    store.refresh();
+    ScrambleMeta retrieved = store.retrieve().getMetaForTable("myschema", "mytable2");
+    assertEquals(createScrambleMeta("myschema", "mytable2"), retrieved);
+  }
+
+  @Test
+  public void testRemoveFromStore() throws VerdictDBException {
+    CachedScrambleMetaStore store = new CachedScrambleMetaStore(conn, STORE_SCHEMA);
+    store.addToStore(createScrambleMeta("myschema", "mytable4"));
+    store.addToStore(createScrambleMeta("myschema", "mytable5"));
+    ScrambleMetaSet snapshot = store.retrieve();
+
+    long version = store.getVersion();
+    store.removeFromStore("myschema", "mytable4");
+    assertTrue(store.getVersion() > version);
+    assertFalse(store.retrieve().isScrambled("myschema", "mytable4"));
+    assertTrue(store.retrieve().isScrambled("myschema", "mytable5"));
+    assertTrue(snapshot.isScrambled("myschema", "mytable4"));
+
+    // the remaining entries are kept in the underlying store
+    ScrambleMetaSet stored = new ScrambleMetaStore(conn, STORE_SCHEMA).retrieve();
+    assertFalse(stored.isScrambled("myschema", "mytable4"));
+    assertEquals(
+        createScrambleMeta("myschema", "mytable5"), stored.getMetaForTable("myschema", "mytable5"));
+  }
+
+  @Test
+  public void testExpiredSnapshotIsReloaded() throws VerdictDBException {
+    CachedScrambleMetaStore store = new CachedScrambleMetaStore(conn, STORE_SCHEMA);
+    store.setTimeToLive(1, TimeUnit.NANOSECONDS);
+    ScrambleMetaSet snapshot = store.retrieve();
+    long version = store.getVersion();
+
+    // an unchanged store keeps the version, so the cached plans and answers stay valid
+    assertSame(snapshot, store.retrieve());
+    assertEquals(version, store.getVersion());
+
+    // added by another store
+    ScrambleMetaStore other = new ScrambleMetaStore(conn, STORE_SCHEMA);
+    other.addToStore(createScrambleMeta("myschema", "mytable6"));
+    assertTrue(store.getVersion() > version);
+    assertTrue(store.retrieve().isScrambled("myschema", "mytable6"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testSnapshotIsImmutable() throws VerdictDBException {
+    CachedScrambleMetaStore store = new CachedScrambleMetaStore(conn, STORE_SCHEMA);
+    store.retrieve().addScrambleMeta(createScrambleMeta("myschema", "mytable3"));
+  }
+
+  @Test
+  public void testContextSharesStore() throws VerdictDBException {
+    VerdictContext context = new VerdictContext(conn);
+    CachedScrambleMetaStore store = context.getScrambleMetaStore();
+    assertSame(store, context.getScrambleMetaStore());
+    assertTrue(store.getStore() instanceof ScrambleMetaStore);
+  }
+
+  private static ScrambleMeta createScrambleMeta(String schema, String table)
+      throws VerdictDBException {
+    Map<Integer, List<Double>> distribution = new HashMap<>();
+    distribution.put(0, Arrays.asList(0.5, 1.0));
+    return new ScrambleMeta(
+        schema, table, "original", table, "verdictdbblock", 2, "verdictdbtier", 1, distribution);
+  }
+}
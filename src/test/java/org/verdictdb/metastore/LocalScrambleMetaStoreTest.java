@@ -0,0 +1,190 @@
+package org.verdictdb.metastore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.verdictdb.VerdictContext;
+import org.verdictdb.connection.DbmsConnection;
+import org.verdictdb.connection.JdbcConnection;
+import org.verdictdb.core.scrambling.ScrambleMeta;
+import org.verdictdb.core.scrambling.ScrambleMetaSet;
+import org.verdictdb.exception.VerdictDBException;
+
+public class LocalScrambleMetaStoreTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  static Connection h2conn;
+
+  static DbmsConnection conn;
+
+  // H2 creates the store schema in upper case
+  static final String STORE_SCHEMA = "LOCALMETASTORETEST";
+
+  @BeforeClass
+  public static void setupH2Database() throws SQLException, VerdictDBException {
+    h2conn =
+        DriverManager.getConnection("jdbc:h2:mem:localscramblemetastoretest;DB_CLOSE_DELAY=-1");
+    conn = JdbcConnection.create(h2conn);
+  }
+
+  @Test
+  public void testAddAndRetrieve() throws VerdictDBException, IOException {
+    File file = new File(folder.getRoot(), "meta/scrambles.bin");
+    LocalScrambleMetaStore store = new LocalScrambleMetaStore(file);
+    assertFalse(store.retrieve().iterator().hasNext());
+
+    store.addToStore(createScrambleMeta("mytable1", 2));
+    store.addToStore(createScrambleMeta("mytable2", 3));
+    assertTrue(file.exists());
+
+    // a later entry overwrites an earlier one
+    store.addToStore(createScrambleMeta("mytable1", 4));
+
+    ScrambleMetaSet retrieved = new LocalScrambleMetaStore(file.getPath()).retrieve();
+    assertEquals(
+        createScrambleMeta("mytable1", 4), retrieved.getMetaForTable("myschema", "mytable1"));
+    assertEquals(
+        createScrambleMeta("mytable2", 3), retrieved.getMetaForTable("myschema", "mytable2"));
+  }
+
+  @Test
+  public void testPartiallyWrittenEntryIsIgnored() throws VerdictDBException, IOException {
+    File file = folder.newFile("partial.bin");
+    file.delete();
+    LocalScrambleMetaStore store = new LocalScrambleMetaStore(file);
+    store.addToStore(createScrambleMeta("mytable1", 2));
+
+    // simulates an interrupted write
+    try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file, true))) {
+      out.writeInt(1000);
+      out.write(new byte[] {'{', '"'});
+    }
+
+    ScrambleMetaSet retrieved = store.retrieve();
+    assertTrue(retrieved.isScrambled("myschema", "mytable1"));
+  }
+
+  @Test
+  public void testSynchronizedWithDbms() throws VerdictDBException, IOException {
+    ScrambleMetaStore dbmsStore = new ScrambleMetaStore(conn, STORE_SCHEMA);
+    dbmsStore.addToStore(createScrambleMeta("mytable1", 2));
+
+    // the file is populated from the dbms when it does not exist
+    File file = new File(folder.getRoot(), "synced.bin");
+    LocalScrambleMetaStore store = new LocalScrambleMetaStore(file, dbmsStore);
+    assertTrue(store.retrieve().isScrambled("myschema", "mytable1"));
+    assertTrue(file.exists());
+
+    // new metadata is added to both stores
+    store.addToStore(createScrambleMeta("mytable2", 3));
+    assertTrue(dbmsStore.retrieve().isScrambled("myschema", "mytable2"));
+    assertTrue(new LocalScrambleMetaStore(file).retrieve().isScrambled("myschema", "mytable2"));
+
+    // the metadata added to the dbms directly is visible only after synchronization
+    dbmsStore.addToStore(createScrambleMeta("mytable3", 2));
+    assertFalse(store.retrieve().isScrambled("myschema", "mytable3"));
+    store.synchronize();
+    assertTrue(store.retrieve().isScrambled("myschema", "mytable3"));
+  }
+
+  @Test
+  public void testCorruptFileFallsBackToSynchronizedStore() throws VerdictDBException, IOException {
+    ScrambleMetaStore dbmsStore = new ScrambleMetaStore(conn, "LOCALMETASTORECORRUPTTEST");
+    dbmsStore.addToStore(createScrambleMeta("mytable1", 2));
+
+    File file = folder.newFile("corrupt.bin");
+    try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+      out.writeInt(12345);
+      out.writeInt(1);
+    }
+    assertFalse(new LocalScrambleMetaStore(file).retrieve().iterator().hasNext());
+    assertTrue(
+        new LocalScrambleMetaStore(file, dbmsStore).retrieve().isScrambled("myschema", "mytable1"));
+  }
+
+  @Test
+  public void testRemoveFromStore() throws VerdictDBException, IOException {
+    File file = new File(folder.getRoot(), "removed.bin");
+    LocalScrambleMetaStore store = new LocalScrambleMetaStore(file);
+    store.addToStore(createScrambleMeta("mytable1", 2));
+    store.addToStore(createScrambleMeta("mytable2", 3));
+
+    store.removeFromStore("myschema", "mytable1");
+    store.removeFromStore("myschema", "nonexistent");
+    ScrambleMetaSet retrieved = new LocalScrambleMetaStore(file).retrieve();
+    assertFalse(retrieved.isScrambled("myschema", "mytable1"));
+    assertTrue(retrieved.isScrambled("myschema", "mytable2"));
+  }
+
+  @Test
+  public void testRemoveFromSynchronizedStore() throws VerdictDBException, IOException {
+    ScrambleMetaStore dbmsStore = new ScrambleMetaStore(conn, "LOCALMETASTOREREMOVETEST");
+    File file = new File(folder.getRoot(), "syncedremoved.bin");
+    LocalScrambleMetaStore store = new LocalScrambleMetaStore(file, dbmsStore);
+    store.addToStore(createScrambleMeta("mytable1", 2));
+    store.addToStore(createScrambleMeta("mytable2", 3));
+
+    // removed from both stores
+    store.removeFromStore("myschema", "mytable1");
+    assertFalse(dbmsStore.retrieve().isScrambled("myschema", "mytable1"));
+    assertTrue(dbmsStore.retrieve().isScrambled("myschema", "mytable2"));
+    assertFalse(new LocalScrambleMetaStore(file).retrieve().isScrambled("myschema", "mytable1"));
+    assertTrue(new LocalScrambleMetaStore(file).retrieve().isScrambled("myschema", "mytable2"));
+  }
+
+  @Test
+  public void testContextWithLocalMetaStore() throws SQLException, VerdictDBException {
+    File file = new File(folder.getRoot(), "context.bin");
+    Properties info = new Properties();
+    info.setProperty(VerdictContext.LOCAL_METASTORE_PROPERTY, file.getPath());
+    VerdictContext context =
+        VerdictContext.fromConnectionString(
+            "jdbc:h2:mem:localscramblemetastoretest;DB_CLOSE_DELAY=-1", info);
+
+    CachedScrambleMetaStore cached = context.getScrambleMetaStore();
+    assertTrue(cached.getStore() instanceof LocalScrambleMetaStore);
+    assertEquals(file, ((LocalScrambleMetaStore) cached.getStore()).getFile());
+    assertTrue(((LocalScrambleMetaStore) cached.getStore()).getSyncedStore()
+        instanceof ScrambleMetaStore);
+  }
+
+  private static ScrambleMeta createScrambleMeta(String table, int blockCount)
+      throws VerdictDBException {
+    Map<Integer, List<Double>> distribution = new HashMap<>();
+    Double[] dist = new Double[blockCount];
+    for (int i = 0; i < blockCount; i++) {
+      dist[i] = (i + 1) / (double) blockCount;
+    }
+    distribution.put(0, Arrays.asList(dist));
+    return new ScrambleMeta(
+        "myschema",
+        table,
+        "original",
+        table,
+        "verdictdbblock",
+        blockCount,
+        "verdictdbtier",
+        1,
+        distribution);
+  }
+}
@@ -0,0 +1,91 @@
+package org.verdictdb.sqlreader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.apache.commons.io.IOUtils;
+import org.verdictdb.parser.VerdictSQLParser;
+
+/**
+ * Compares the time to parse the TPC-H queries with the LL prediction mode only, with the SLL
+ * prediction mode first, and with the parse tree cache. Not a part of the test suite; run it with
+ * the test classpath, optionally passing the number of iterations.
+ */
+public class NonValidatingSQLParserBenchmark {
+
+  public static void main(String[] args) throws IOException {
+    int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 50;
+    List<String> queries = readTpchQueries();
+
+    // warms up the JIT compiler and the DFA cache shared by the parsers
+    for (int i = 0; i < iterations; i++) {
+      parseWithLL(queries);
+      parseWithoutCache(queries);
+    }
+
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      parseWithLL(queries);
+    }
+    long llNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      parseWithoutCache(queries);
+    }
+    long sllFirstNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      for (String sql : queries) {
+        new NonValidatingSQLParser().toRelation(sql);
+      }
+    }
+    long cachedNanos = System.nanoTime() - start;
+
+    int parses = iterations * queries.size();
+    System.out.println(
+        String.format(
+            "TPC-H parsing (us/query, %d queries x %d): LL %d, SLL-first %d, cached %d",
+            queries.size(),
+            iterations,
+            llNanos / parses / 1000,
+            sllFirstNanos / parses / 1000,
+            cachedNanos / parses / 1000));
+  }
+
+  private static void parseWithLL(List<String> queries) {
+    for (String sql : queries) {
+      VerdictSQLParser p = NonValidatingSQLParser.parserOf(sql);
+      p.getInterpreter().setPredictionMode(PredictionMode.LL);
+      new RelationGen().visit(p.select_statement());
+    }
+  }
+
+  private static void parseWithoutCache(List<String> queries) {
+    NonValidatingSQLParser.clearParseTreeCache();
+    for (String sql : queries) {
+      new NonValidatingSQLParser().toRelation(sql);
+    }
+  }
+
+  private static List<String> readTpchQueries() throws IOException {
+    List<String> queries = new ArrayList<>();
+    for (int i = 1; i <= 22; i++) {
+      InputStream in =
+          NonValidatingSQLParserBenchmark.class
+              .getClassLoader()
+              .getResourceAsStream(String.format("tpch_test_query/query%d.sql", i));
+      String sql = IOUtils.toString(in, "UTF-8");
+      in.close();
+      // some of the query files are empty
+      if (!sql.trim().isEmpty()) {
+        queries.add(sql);
+      }
+    }
+    return queries;
+  }
+}
@@ -0,0 +1,87 @@
+package org.verdictdb.sqlreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.apache.commons.io.IOUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.verdictdb.core.sqlobject.AbstractRelation;
+import org.verdictdb.parser.VerdictSQLParser;
+
+public class NonValidatingSQLParserCacheTest {
+
+  static List<String> tpchQueries = new ArrayList<>();
+
+  @BeforeClass
+  public static void readTpchQueries() throws IOException {
+    for (int i = 1; i <= 22; i++) {
+      InputStream in =
+          NonValidatingSQLParserCacheTest.class
+              .getClassLoader()
+              .getResourceAsStream(String.format("tpch_test_query/query%d.sql", i));
+      String sql = IOUtils.toString(in, "UTF-8");
+      in.close();
+      // some of the query files are empty
+      if (!sql.trim().isEmpty()) {
+        tpchQueries.add(sql);
+      }
+    }
+  }
+
+  @Test
+  public void testNormalize() {
+    assertEquals("select a from t", NonValidatingSQLParser.normalize("  select  a\tfrom t  "));
+    assertEquals("select a\nfrom t", NonValidatingSQLParser.normalize("select a  \n  from t"));
+    assertEquals(
+        "select 'a  b', \"c  d\" from `e  f`",
+        NonValidatingSQLParser.normalize("select  'a  b',  \"c  d\"  from  `e  f`"));
+  }
+
+  @Test
+  public void testNormalizeWithEscapedQuotes() {
+    // the escaped quote does not end the literal, so the whitespace after it is kept.
+    assertEquals(
+        "select 'a\\'  b' from t", NonValidatingSQLParser.normalize("select  'a\\'  b'  from t"));
+    assertNotEquals(
+        NonValidatingSQLParser.normalize("select 'a\\'  b'"),
+        NonValidatingSQLParser.normalize("select 'a\\' b'"));
+    assertEquals("select 'a''  b'", NonValidatingSQLParser.normalize("select 'a''  b'"));
+    assertEquals("select \"a\\\" b", NonValidatingSQLParser.normalize("select \"a\\\"  b"));
+  }
+
+  @Test
+  public void testTpchQueriesAreParsedOnce() {
+    NonValidatingSQLParser.clearParseTreeCache();
+    NonValidatingSQLParser parser = new NonValidatingSQLParser();
+    for (String sql : tpchQueries) {
+      // the same relation as the one by the full LL prediction mode
+      VerdictSQLParser llParser = NonValidatingSQLParser.parserOf(sql);
+      llParser.getInterpreter().setPredictionMode(PredictionMode.LL);
+      AbstractRelation expected = new RelationGen().visit(llParser.select_statement());
+      AbstractRelation relation = parser.toRelation(sql);
+      assertEquals(expected, relation);
+
+      // the tree is reused, and a new relation is created from it every time.
+      VerdictSQLParser.Verdict_statementContext tree =
+          NonValidatingSQLParser.parseVerdictStatement(sql);
+      assertSame(tree, NonValidatingSQLParser.parseVerdictStatement("  " + sql + "  "));
+      AbstractRelation another = parser.toRelation(sql);
+      assertEquals(relation, another);
+      assertNotSame(relation, another);
+    }
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testSyntaxErrorIsReported() {
+    new NonValidatingSQLParser().toRelation("select from where");
+  }
+}
@@ -1,13 +1,18 @@
 package org.verdictdb.sqlsyntax;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 
+import org.apache.spark.sql.SparkSession;
 import org.junit.Test;
+import org.verdictdb.connection.DbmsConnection;
+import org.verdictdb.connection.DbmsQueryResult;
 import org.verdictdb.connection.JdbcConnection;
+import org.verdictdb.connection.SparkConnection;
 import org.verdictdb.exception.VerdictDBDbmsException;
 
 public class SqlSyntaxTest {
@@ -82,4 +87,68 @@ public class SqlSyntaxTest {
     assertEquals(expected, actual);
   }
 
+  @Test
+  public void testHashFunctionCastsKeyToString() {
+    assertTrue(new SparkSyntax().hashFunction("k").contains("hash(cast(k as string))"));
+    assertTrue(new HiveSyntax().hashFunction("k").contains("hash(cast(k as string))"));
+    assertTrue(new ImpalaSyntax().hashFunction("k").contains("fnv_hash(cast(k as string))"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testSqliteHashFunctionUnsupported() {
+    new SqliteSyntax().hashFunction("k");
+  }
+
+  // quotes, backslashes, a semicolon, double quotes, and a newline
+  static final String SPECIAL_VALUE = "a'b\\'c\\\\d;\"e\"\n";
+
+  @Test
+  public void testQuoteLiteral() {
+    String doubled = "'a''b\\''c\\\\d;\"e\"\n'";
+    assertEquals(doubled, new H2Syntax().quoteLiteral(SPECIAL_VALUE));
+    assertEquals(doubled, new SqliteSyntax().quoteLiteral(SPECIAL_VALUE));
+
+    String backslashesDoubled = "'a''b\\\\''c\\\\\\\\d;\"e\"\n'";
+    assertEquals(backslashesDoubled, new MysqlSyntax().quoteLiteral(SPECIAL_VALUE));
+    assertEquals(backslashesDoubled, new RedshiftSyntax().quoteLiteral(SPECIAL_VALUE));
+    assertEquals("E" + backslashesDoubled, new PostgresqlSyntax().quoteLiteral(SPECIAL_VALUE));
+
+    String backslashEscaped = "'a\\'b\\\\\\'c\\\\\\\\d;\"e\"\n'";
+    assertEquals(backslashEscaped, new HiveSyntax().quoteLiteral(SPECIAL_VALUE));
+    assertEquals(backslashEscaped, new SparkSyntax().quoteLiteral(SPECIAL_VALUE));
+    assertEquals(backslashEscaped, new ImpalaSyntax().quoteLiteral(SPECIAL_VALUE));
+  }
+
+  @Test
+  public void testQuoteLiteralH2() throws SQLException, VerdictDBDbmsException {
+    Connection conn = DriverManager.getConnection("jdbc:h2:mem:quoteliteral", "", "");
+    assertQuotedLiteralIsRead(new JdbcConnection(conn, new H2Syntax()));
+    conn.close();
+  }
+
+  @Test
+  public void testQuoteLiteralSqlite() throws SQLException, VerdictDBDbmsException {
+    Connection conn = DriverManager.getConnection("jdbc:sqlite:", "", "");
+    assertQuotedLiteralIsRead(new JdbcConnection(conn, new SqliteSyntax()));
+    conn.close();
+  }
+
+  @Test
+  public void testQuoteLiteralSpark() throws VerdictDBDbmsException {
+    SparkSession spark =
+        SparkSession.builder().appName("SqlSyntaxTest").master("local").getOrCreate();
+    assertQuotedLiteralIsRead(new SparkConnection(spark, new SparkSyntax()));
+  }
+
+  /** The value is read back as it is, also when the literal is one of several statements. */
+  private void assertQuotedLiteralIsRead(DbmsConnection conn) throws VerdictDBDbmsException {
+    String literal = conn.getSyntax().quoteLiteral(SPECIAL_VALUE);
+    DbmsQueryResult result = conn.execute("select " + literal);
+    assertTrue(result.next());
+    assertEquals(SPECIAL_VALUE, result.getString(0));
+
+    result = conn.execute("select 1; select " + literal + " as v");
+    assertTrue(result.next());
+    assertEquals(SPECIAL_VALUE, result.getString(0));
+  }
 }
@@ -0,0 +1,91 @@
+package org.verdictdb.sqlwriter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+import org.verdictdb.core.sqlobject.AsteriskColumn;
+import org.verdictdb.core.sqlobject.BaseTable;
+import org.verdictdb.core.sqlobject.CreateScrambledTableQuery;
+import org.verdictdb.core.sqlobject.SelectItem;
+import org.verdictdb.core.sqlobject.SelectQuery;
+import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.sqlsyntax.H2Syntax;
+import org.verdictdb.sqlsyntax.MysqlSyntax;
+import org.verdictdb.sqlsyntax.RedshiftSyntax;
+import org.verdictdb.sqlsyntax.SqliteSyntax;
+
+public class CreateScrambledTableToSqlTest {
+
+  private CreateScrambledTableQuery createScrambledTableQuery(int blockCount) {
+    BaseTable base = new BaseTable("myschema", "mytable", "t");
+    SelectQuery relation = SelectQuery.create(
+        Arrays.<SelectItem>asList(new AsteriskColumn()),
+        base);
+    CreateScrambledTableQuery create = new CreateScrambledTableQuery(
+        "myschema", "mytable", "newschema", "newtable", "verdictdbtier", "verdictdbblock",
+        relation, blockCount, new ArrayList<Pair<String, String>>());
+    create.addPartitionColumn("verdictdbblock");
+    return create;
+  }
+
+  @Test
+  public void createScrambledTableMysqlListPartitionTest() throws VerdictDBException {
+    CreateScrambledTableQuery create = createScrambledTableQuery(3);
+    String expected = "create table `newschema`.`newtable` "
+        + "partition by list (`verdictdbblock`) "
+        + "(partition p0 values in (0), partition p1 values in (1), partition p2 values in (2)) "
+        + "select * from `myschema`.`mytable` as t";
+    String actual = new CreateTableToSql(new MysqlSyntax()).toSql(create);
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  public void createScrambledTableMysqlRangePartitionTest() throws VerdictDBException {
+    // 10000 blocks do not fit into 8192 partitions; every two blocks share a partition.
+    CreateScrambledTableQuery create = createScrambledTableQuery(10000);
+    String actual = new CreateTableToSql(new MysqlSyntax()).toSql(create);
+    String expectedPrefix = "create table `newschema`.`newtable` "
+        + "partition by range (`verdictdbblock`) "
+        + "(partition p0 values less than (2), partition p1 values less than (4), ";
+    String expectedSuffix = "partition p4999 values less than maxvalue) "
+        + "select * from `myschema`.`mytable` as t";
+    assertEquals(expectedPrefix, actual.substring(0, expectedPrefix.length()));
+    assertEquals(expectedSuffix, actual.substring(actual.length() - expectedSuffix.length()));
+  }
+
+  @Test
+  public void createScrambledTableRedshiftSortKeyTest() throws VerdictDBException {
+    CreateScrambledTableQuery create = createScrambledTableQuery(3);
+    String expected = "create table \"newschema\".\"newtable\" "
+        + "COMPOUND SORTKEY (\"verdictdbblock\") "
+        + "as select * from \"myschema\".\"mytable\" as t";
+    String actual = new CreateTableToSql(new RedshiftSyntax()).toSql(create);
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  public void createScrambledTableH2IndexTest() throws VerdictDBException {
+    CreateScrambledTableQuery create = createScrambledTableQuery(3);
+    String expected = "create table \"newschema\".\"newtable\" "
+        + "as select * from \"myschema\".\"mytable\" as t; "
+        + "create index \"newschema\".\"newtable_verdictdbblock_idx\" "
+        + "on \"newschema\".\"newtable\" (\"verdictdbblock\")";
+    String actual = new CreateTableToSql(new H2Syntax()).toSql(create);
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  public void createScrambledTableSqliteIndexTest() throws VerdictDBException {
+    CreateScrambledTableQuery create = createScrambledTableQuery(3);
+    String expected = "create table \"newschema\".\"newtable\" "
+        + "as select * from \"myschema\".\"mytable\" as t; "
+        + "create index \"newschema\".\"newtable_verdictdbblock_idx\" "
+        + "on \"newtable\" (\"verdictdbblock\")";
+    String actual = new CreateTableToSql(new SqliteSyntax()).toSql(create);
+    assertEquals(expected, actual);
+  }
+}
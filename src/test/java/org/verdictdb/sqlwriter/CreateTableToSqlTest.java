@@ -11,6 +11,7 @@ import org.verdictdb.core.sqlobject.CreateTableAsSelectQuery;
 import org.verdictdb.core.sqlobject.SelectItem;
 import org.verdictdb.core.sqlobject.SelectQuery;
 import org.verdictdb.exception.VerdictDBException;
+import org.verdictdb.exception.VerdictDBValueException;
 import org.verdictdb.sqlsyntax.HiveSyntax;
 
 public class CreateTableToSqlTest {
@@ -72,4 +73,15 @@ public class CreateTableToSqlTest {
 //    con.execute(sql);
 //  }
 
+  @Test(expected = VerdictDBValueException.class)
+  public void createTemporaryViewNotSupportedTest() throws VerdictDBException {
+    BaseTable base = new BaseTable("myschema", "mytable", "t");
+    SelectQuery relation = SelectQuery.create(
+        Arrays.<SelectItem>asList(new AsteriskColumn()),
+        base);
+    CreateTableAsSelectQuery create = new CreateTableAsSelectQuery("newschema", "newtable", relation);
+    create.setTemporaryView(true);
+    new CreateTableToSql(new HiveSyntax()).toSql(create);
+  }
+
 }